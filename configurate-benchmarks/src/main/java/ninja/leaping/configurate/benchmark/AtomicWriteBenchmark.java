@@ -0,0 +1,126 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.benchmark;
+
+import ninja.leaping.configurate.loader.AtomicFiles;
+import ninja.leaping.configurate.loader.Durability;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Measures the latency of replacing a large file using {@link AtomicFiles}, under each
+ * {@link Durability}.
+ *
+ * <p>{@link #preCopy()} repeats what atomic writes used to do, copying the existing file to the
+ * temporary file before overwriting it, without syncing. It ignores the durability parameter.
+ * Results depend heavily on the file system and disk, so should be compared between runs on
+ * the same machine and directory. Set {@code java.io.tmpdir} to benchmark another disk.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AtomicWriteBenchmark {
+
+    @Param({"NONE", "SYNC_FILE", "SYNC_FILE_AND_DIRECTORY"})
+    public Durability durability;
+
+    @Param({"1", "16"})
+    public int megabytes;
+
+    private Path directory;
+    private Path file;
+    private ByteBuffer content;
+    private String text;
+
+    @Setup
+    public void setup() throws IOException {
+        this.directory = Files.createTempDirectory("configurate-benchmark");
+        this.file = this.directory.resolve("config.conf");
+
+        char[] chars = new char[this.megabytes << 20];
+        Arrays.fill(chars, 'a');
+        for (int i = 79; i < chars.length; i += 80) {
+            chars[i] = '\n';
+        }
+        this.text = new String(chars);
+        this.content = ByteBuffer.wrap(this.text.getBytes(UTF_8));
+        writeChannel();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.file);
+        Files.deleteIfExists(this.directory);
+    }
+
+    @Benchmark
+    public void writeChannel() throws IOException {
+        ByteBuffer content = this.content.duplicate();
+        try (WritableByteChannel channel = AtomicFiles.createAtomicChannel(this.file, this.durability)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+    }
+
+    @Benchmark
+    public void writeWriter() throws IOException {
+        try (BufferedWriter writer = AtomicFiles.createAtomicBufferedWriter(this.file, UTF_8, this.durability)) {
+            writer.write(this.text);
+        }
+    }
+
+    @Benchmark
+    public void preCopy() throws IOException {
+        Path writePath = this.directory.resolve(System.nanoTime() + "config.conf.tmp");
+        Files.copy(this.file, writePath, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
+        ByteBuffer content = this.content.duplicate();
+        try (FileChannel channel = FileChannel.open(writePath, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+        Files.move(writePath, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.benchmark;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.binary.BinaryConfigurationLoader;
+import ninja.leaping.configurate.json.JSONConfigurationLoader;
+import ninja.leaping.configurate.loader.PathFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading a document from the binary format with loading the same document from JSON.
+ *
+ * <p>{@link #loadBinaryOneSection()} skips unselected sections using their length prefixes, so
+ * should score close to the size of the selected section rather than the whole document.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BinaryLoaderBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    public Documents.Size size;
+
+    private static final PathFilter ONE_SECTION = PathFilter.of(new Object[] {"section0"});
+
+    private String json;
+    private byte[] binary;
+    private ConfigurationNode document;
+
+    @Setup
+    public void setup() throws IOException {
+        StringWriter written = new StringWriter();
+        JSONConfigurationLoader writer = JSONConfigurationLoader.builder().setSink(() -> new BufferedWriter(written)).build();
+        writer.save(Documents.populate(writer.createEmptyNode(), this.size));
+        this.json = written.toString();
+
+        this.document = loadJson();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryConfigurationLoader.builder().setSink(() -> Channels.newChannel(bytes)).build().save(this.document);
+        this.binary = bytes.toByteArray();
+    }
+
+    private BinaryConfigurationLoader binaryLoader() {
+        return BinaryConfigurationLoader.builder()
+                .setSource(() -> Channels.newChannel(new ByteArrayInputStream(this.binary)))
+                .build();
+    }
+
+    @Benchmark
+    public ConfigurationNode loadJson() throws IOException {
+        return JSONConfigurationLoader.builder().setSource(() -> new BufferedReader(new StringReader(this.json))).build().load();
+    }
+
+    @Benchmark
+    public ConfigurationNode loadBinary() throws IOException {
+        return binaryLoader().load();
+    }
+
+    @Benchmark
+    public ConfigurationNode loadBinaryOneSection() throws IOException {
+        BinaryConfigurationLoader loader = binaryLoader();
+        return loader.load(loader.getDefaultOptions(), ONE_SECTION);
+    }
+
+    @Benchmark
+    public int saveBinary() throws IOException {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream(this.binary.length);
+        BinaryConfigurationLoader.builder().setSink(() -> Channels.newChannel(sink)).build().save(this.document);
+        return sink.size();
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.benchmark;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.json.JSONConfigurationLoader;
+import ninja.leaping.configurate.loader.ConfigurationLoader;
+import ninja.leaping.configurate.xml.XMLConfigurationLoader;
+import ninja.leaping.configurate.yaml.YAMLConfigurationLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Measures the throughput of loading and saving through character and byte sources and sinks.
+ *
+ * <p>JSON and XML parse and write bytes directly. YAML decodes bytes to characters, so should
+ * score about the same with either kind of source.</p>
+ *
+ * <p>{@link #saveToWriter()} and {@link #saveToStream()} do not depend on the {@code source}
+ * parameter, so only need running with one of its values.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ByteSourceBenchmark {
+
+    /**
+     * The formats compared, and how to create loaders for each.
+     */
+    public enum Format {
+        JSON {
+            @Override
+            ConfigurationLoader<?> fromReader(Callable<BufferedReader> source) {
+                return JSONConfigurationLoader.builder().setSource(source).build();
+            }
+
+            @Override
+            ConfigurationLoader<?> fromBuffer(Callable<ByteBuffer> source) {
+                return JSONConfigurationLoader.builder().setBufferSource(source).build();
+            }
+
+            @Override
+            ConfigurationLoader<?> fromPath(Path path, boolean memoryMapped) {
+                return JSONConfigurationLoader.builder().setPath(path).setMemoryMapped(memoryMapped).build();
+            }
+
+            @Override
+            ConfigurationLoader<?> toWriter(Callable<BufferedWriter> sink) {
+                return JSONConfigurationLoader.builder().setSink(sink).build();
+            }
+
+            @Override
+            ConfigurationLoader<?> toStream(Callable<OutputStream> sink) {
+                return JSONConfigurationLoader.builder().setStreamSink(sink).build();
+            }
+        },
+        YAML {
+            @Override
+            ConfigurationLoader<?> fromReader(Callable<BufferedReader> source) {
+                return YAMLConfigurationLoader.builder().setSource(source).build();
+            }
+
+            @Override
+            ConfigurationLoader<?> fromBuffer(Callable<ByteBuffer> source) {
+                return YAMLConfigurationLoader.builder().setBufferSource(source).build();
+            }
+
+            @Override
+            ConfigurationLoader<?> fromPath(Path path, boolean memoryMapped) {
+                return YAMLConfigurationLoader.builder().setPath(path).setMemoryMapped(memoryMapped).build();
+            }
+
+            @Override
+            ConfigurationLoader<?> toWriter(Callable<BufferedWriter> sink) {
+                return YAMLConfigurationLoader.builder().setSink(sink).build();
+            }
+
+            @Override
+            ConfigurationLoader<?> toStream(Callable<OutputStream> sink) {
+                return YAMLConfigurationLoader.builder().setStreamSink(sink).build();
+            }
+        },
+        XML {
+            @Override
+            ConfigurationLoader<?> fromReader(Callable<BufferedReader> source) {
+                return XMLConfigurationLoader.builder().setSource(source).build();
+            }
+
+            @Override
+            ConfigurationLoader<?> fromBuffer(Callable<ByteBuffer> source) {
+                return XMLConfigurationLoader.builder().setBufferSource(source).build();
+            }
+
+            @Override
+            ConfigurationLoader<?> fromPath(Path path, boolean memoryMapped) {
+                return XMLConfigurationLoader.builder().setPath(path).setMemoryMapped(memoryMapped).build();
+            }
+
+            @Override
+            ConfigurationLoader<?> toWriter(Callable<BufferedWriter> sink) {
+                return XMLConfigurationLoader.builder().setSink(sink).build();
+            }
+
+            @Override
+            ConfigurationLoader<?> toStream(Callable<OutputStream> sink) {
+                return XMLConfigurationLoader.builder().setStreamSink(sink).build();
+            }
+        };
+
+        abstract ConfigurationLoader<?> fromReader(Callable<BufferedReader> source);
+
+        abstract ConfigurationLoader<?> fromBuffer(Callable<ByteBuffer> source);
+
+        abstract ConfigurationLoader<?> fromPath(Path path, boolean memoryMapped);
+
+        abstract ConfigurationLoader<?> toWriter(Callable<BufferedWriter> sink);
+
+        abstract ConfigurationLoader<?> toStream(Callable<OutputStream> sink);
+    }
+
+    /**
+     * The ways of providing a document to load.
+     */
+    public enum Source {
+        /**
+         * A reader over a string held in memory.
+         */
+        READER {
+            @Override
+            ConfigurationLoader<?> loader(Format format, ByteSourceBenchmark state) {
+                return format.fromReader(() -> new BufferedReader(new StringReader(state.text)));
+            }
+        },
+        /**
+         * Bytes held in memory.
+         */
+        BUFFER {
+            @Override
+            ConfigurationLoader<?> loader(Format format, ByteSourceBenchmark state) {
+                return format.fromBuffer(() -> ByteBuffer.wrap(state.bytes));
+            }
+        },
+        /**
+         * A file read through a UTF-8 reader.
+         */
+        FILE_READER {
+            @Override
+            ConfigurationLoader<?> loader(Format format, ByteSourceBenchmark state) {
+                return format.fromReader(() -> Files.newBufferedReader(state.file, UTF_8));
+            }
+        },
+        /**
+         * A file read as bytes.
+         */
+        FILE {
+            @Override
+            ConfigurationLoader<?> loader(Format format, ByteSourceBenchmark state) {
+                return format.fromPath(state.file, false);
+            }
+        },
+        /**
+         * A memory-mapped file.
+         */
+        MAPPED_FILE {
+            @Override
+            ConfigurationLoader<?> loader(Format format, ByteSourceBenchmark state) {
+                return format.fromPath(state.file, true);
+            }
+        };
+
+        abstract ConfigurationLoader<?> loader(Format format, ByteSourceBenchmark state);
+    }
+
+    @Param({"JSON", "YAML", "XML"})
+    public Format format;
+
+    @Param({"READER", "BUFFER", "FILE_READER", "FILE", "MAPPED_FILE"})
+    public Source source;
+
+    @Param({"SMALL", "MEDIUM"})
+    public Documents.Size size;
+
+    private String text;
+    private byte[] bytes;
+    private Path file;
+    private ConfigurationNode document;
+
+    @Setup
+    public void setup() throws IOException {
+        StringWriter written = new StringWriter();
+        ConfigurationLoader<?> writer = this.format.toWriter(() -> new BufferedWriter(written));
+        writer.save(Documents.populate(writer.createEmptyNode(), this.size));
+        this.text = written.toString();
+        this.bytes = this.text.getBytes(UTF_8);
+        this.file = Files.createTempFile("configurate-benchmark", "." + this.format.name().toLowerCase());
+        Files.write(this.file, this.bytes);
+        this.document = load();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    @Benchmark
+    public ConfigurationNode load() throws IOException {
+        return this.source.loader(this.format, this).load();
+    }
+
+    @Benchmark
+    public int saveToWriter() throws IOException {
+        StringWriter sink = new StringWriter(this.text.length());
+        this.format.toWriter(() -> new BufferedWriter(sink)).save(this.document);
+        return sink.getBuffer().length();
+    }
+
+    @Benchmark
+    public int saveToStream() throws IOException {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream(this.bytes.length);
+        this.format.toStream(() -> sink).save(this.document);
+        return sink.size();
+    }
+}
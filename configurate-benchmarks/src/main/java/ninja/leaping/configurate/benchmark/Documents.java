@@ -0,0 +1,78 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.benchmark;
+
+import ninja.leaping.configurate.ConfigurationNode;
+
+import java.util.Random;
+
+/**
+ * Generates the configuration trees used by the benchmarks.
+ *
+ * <p>Documents are built from a fixed seed, so every run and every format sees the same
+ * content. Each section holds a mix of scalars, a list and a nested map, which every
+ * loader can represent.</p>
+ */
+final class Documents {
+    private Documents() {}
+
+    /**
+     * The sizes of generated documents.
+     */
+    enum Size {
+        SMALL(8),
+        MEDIUM(512),
+        HUGE(32768);
+
+        private final int sections;
+
+        Size(int sections) {
+            this.sections = sections;
+        }
+
+        int getSections() {
+            return this.sections;
+        }
+    }
+
+    /**
+     * Fills the given node with a generated document.
+     *
+     * @param node The node to populate
+     * @param size The size of the document
+     * @param <T> The node type
+     * @return The provided node
+     */
+    static <T extends ConfigurationNode> T populate(T node, Size size) {
+        Random random = new Random(size.getSections());
+        for (int i = 0; i < size.getSections(); i++) {
+            ConfigurationNode section = node.getNode("section" + i);
+            section.getNode("name").setValue("Section number " + i);
+            section.getNode("enabled").setValue(random.nextBoolean());
+            section.getNode("count").setValue(random.nextInt(100000));
+            section.getNode("ratio").setValue(random.nextDouble());
+            ConfigurationNode tags = section.getNode("tags");
+            for (int j = 0; j < 4; j++) {
+                tags.getAppendedNode().setValue("tag" + random.nextInt(64));
+            }
+            ConfigurationNode limits = section.getNode("limits");
+            limits.getNode("min").setValue(random.nextInt(10));
+            limits.getNode("max").setValue(10 + random.nextInt(1000));
+        }
+        return node;
+    }
+}
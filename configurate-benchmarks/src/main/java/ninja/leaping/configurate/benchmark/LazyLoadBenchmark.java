@@ -0,0 +1,113 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.benchmark;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.gson.GsonConfigurationLoader;
+import ninja.leaping.configurate.json.JSONConfigurationLoader;
+import ninja.leaping.configurate.loader.ConfigurationLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from starting to load a document until the first value can be read, with
+ * and without lazily loaded subtrees.
+ *
+ * <p>With a {@code lazyDepth} of 1, {@link #loadAndReadFirst()} should score well below the
+ * eager load, while {@link #loadAndReadAll()} shows the cost of reading every section
+ * lazily.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LazyLoadBenchmark {
+
+    /**
+     * The formats which can load lazily.
+     */
+    public enum Format {
+        JSON {
+            @Override
+            ConfigurationLoader<? extends ConfigurationNode> loader(String source, int lazyDepth) {
+                return JSONConfigurationLoader.builder().setLazyDepth(lazyDepth)
+                        .setSource(() -> new BufferedReader(new StringReader(source))).build();
+            }
+        },
+        GSON {
+            @Override
+            ConfigurationLoader<? extends ConfigurationNode> loader(String source, int lazyDepth) {
+                return GsonConfigurationLoader.builder().setLazyDepth(lazyDepth)
+                        .setSource(() -> new BufferedReader(new StringReader(source))).build();
+            }
+        };
+
+        abstract ConfigurationLoader<? extends ConfigurationNode> loader(String source, int lazyDepth);
+    }
+
+    @Param({"JSON", "GSON"})
+    public Format format;
+
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    public Documents.Size size;
+
+    @Param({"0", "1"})
+    public int lazyDepth;
+
+    private String text;
+
+    @Setup
+    public void setup() throws IOException {
+        StringWriter written = new StringWriter();
+        ConfigurationLoader<? extends ConfigurationNode> writer = JSONConfigurationLoader.builder()
+                .setSink(() -> new BufferedWriter(written)).build();
+        writer.save(Documents.populate(writer.createEmptyNode(), this.size));
+        this.text = written.toString();
+    }
+
+    @Benchmark
+    public Object loadAndReadFirst() throws IOException {
+        return this.format.loader(this.text, this.lazyDepth).load().getNode("section0", "name").getValue();
+    }
+
+    @Benchmark
+    public int loadAndReadAll() throws IOException {
+        int count = 0;
+        for (ConfigurationNode section : this.format.loader(this.text, this.lazyDepth).load().getChildrenMap().values()) {
+            count += section.getNode("count").getInt();
+        }
+        return count;
+    }
+}
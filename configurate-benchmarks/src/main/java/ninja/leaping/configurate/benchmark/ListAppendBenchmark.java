@@ -0,0 +1,89 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.benchmark;
+
+import com.google.common.reflect.TypeToken;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import ninja.leaping.configurate.objectmapping.ObjectMappingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of building list nodes one element at a time.
+ *
+ * <p>If appending is constant time, the score should grow linearly with {@link #size}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ListAppendBenchmark {
+    private static final TypeToken<List<Integer>> INT_LIST = new TypeToken<List<Integer>>() {};
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<Integer> source;
+
+    @Setup
+    public void setup() {
+        this.source = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            this.source.add(i);
+        }
+    }
+
+    @Benchmark
+    public ConfigurationNode appendedNodes() {
+        ConfigurationNode node = SimpleConfigurationNode.root();
+        for (int i = 0; i < this.size; i++) {
+            node.getAppendedNode().setValue(i);
+        }
+        return node;
+    }
+
+    @Benchmark
+    public ConfigurationNode listSerializer() throws ObjectMappingException {
+        return SimpleConfigurationNode.root().setValue(INT_LIST, this.source);
+    }
+
+    @Benchmark
+    public ConfigurationNode removeFromHead() {
+        ConfigurationNode node = SimpleConfigurationNode.root().setValue(this.source);
+        // bounded so the larger sizes measure reindexing rather than run forever
+        for (int i = 0; i < 100; i++) {
+            node.removeChild(0);
+        }
+        return node;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.benchmark;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.gson.GsonConfigurationLoader;
+import ninja.leaping.configurate.hocon.HoconConfigurationLoader;
+import ninja.leaping.configurate.json.JSONConfigurationLoader;
+import ninja.leaping.configurate.loader.ConfigurationLoader;
+import ninja.leaping.configurate.loader.PathFilter;
+import ninja.leaping.configurate.toml.TOMLConfigurationLoader;
+import ninja.leaping.configurate.xml.XMLConfigurationLoader;
+import ninja.leaping.configurate.yaml.YAMLConfigurationLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading and saving a generated document with each of the format loaders.
+ *
+ * <p>Documents are held in memory, so the scores do not include any file system access.</p>
+ *
+ * <p>{@link #loadOneSection()} loads a single section through a {@link PathFilter}. Loaders
+ * which skip unselected values while parsing should score well below {@link #load()}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoaderBenchmark {
+
+    /**
+     * The supported formats, and how to create a loader for each.
+     */
+    public enum Format {
+        JSON {
+            @Override
+            ConfigurationLoader<? extends ConfigurationNode> loader(String source, Writer sink) {
+                return JSONConfigurationLoader.builder().setSource(reader(source)).setSink(() -> new BufferedWriter(sink)).build();
+            }
+        },
+        GSON {
+            @Override
+            ConfigurationLoader<? extends ConfigurationNode> loader(String source, Writer sink) {
+                return GsonConfigurationLoader.builder().setSource(reader(source)).setSink(() -> new BufferedWriter(sink)).build();
+            }
+        },
+        HOCON {
+            @Override
+            ConfigurationLoader<? extends ConfigurationNode> loader(String source, Writer sink) {
+                return HoconConfigurationLoader.builder().setSource(reader(source)).setSink(() -> new BufferedWriter(sink)).build();
+            }
+        },
+        YAML {
+            @Override
+            ConfigurationLoader<? extends ConfigurationNode> loader(String source, Writer sink) {
+                return YAMLConfigurationLoader.builder().setSource(reader(source)).setSink(() -> new BufferedWriter(sink)).build();
+            }
+        },
+        TOML {
+            @Override
+            ConfigurationLoader<? extends ConfigurationNode> loader(String source, Writer sink) {
+                return TOMLConfigurationLoader.builder().setSource(reader(source)).setSink(() -> new BufferedWriter(sink)).build();
+            }
+        },
+        XML {
+            @Override
+            ConfigurationLoader<? extends ConfigurationNode> loader(String source, Writer sink) {
+                return XMLConfigurationLoader.builder().setSource(reader(source)).setSink(() -> new BufferedWriter(sink)).build();
+            }
+        };
+
+        abstract ConfigurationLoader<? extends ConfigurationNode> loader(String source, Writer sink);
+
+        private static Callable<BufferedReader> reader(String source) {
+            return () -> new BufferedReader(new StringReader(source));
+        }
+    }
+
+    @Param({"JSON", "GSON", "HOCON", "YAML", "TOML", "XML"})
+    public Format format;
+
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    public Documents.Size size;
+
+    private static final PathFilter ONE_SECTION = PathFilter.of(new Object[] {"section0"});
+
+    private String text;
+    private ConfigurationNode document;
+
+    @Setup
+    public void setup() throws IOException {
+        StringWriter written = new StringWriter();
+        ConfigurationLoader<? extends ConfigurationNode> writer = this.format.loader("", written);
+        writer.save(Documents.populate(writer.createEmptyNode(), this.size));
+        this.text = written.toString();
+        this.document = this.format.loader(this.text, new StringWriter()).load();
+    }
+
+    @Benchmark
+    public ConfigurationNode load() throws IOException {
+        return this.format.loader(this.text, new StringWriter()).load();
+    }
+
+    @Benchmark
+    public ConfigurationNode loadOneSection() throws IOException {
+        ConfigurationLoader<? extends ConfigurationNode> loader = this.format.loader(this.text, new StringWriter());
+        return loader.load(loader.getDefaultOptions(), ONE_SECTION);
+    }
+
+    @Benchmark
+    public int save() throws IOException {
+        StringWriter sink = new StringWriter(this.text.length());
+        this.format.loader("", sink).save(this.document);
+        return sink.getBuffer().length();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.benchmark;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the basic operations of {@link SimpleConfigurationNode}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NodeBenchmark {
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    public Documents.Size size;
+
+    private SimpleConfigurationNode document;
+    private String[] sections;
+    private int index;
+
+    @Setup
+    public void setup() {
+        this.document = Documents.populate(SimpleConfigurationNode.root(), this.size);
+        this.sections = new String[this.size.getSections()];
+        for (int i = 0; i < this.sections.length; i++) {
+            this.sections[i] = "section" + i;
+        }
+    }
+
+    private String nextSection() {
+        String section = this.sections[this.index++];
+        if (this.index == this.sections.length) {
+            this.index = 0;
+        }
+        return section;
+    }
+
+    @Benchmark
+    public ConfigurationNode getNode() {
+        return this.document.getNode(nextSection(), "limits", "max");
+    }
+
+    @Benchmark
+    public ConfigurationNode setValue() {
+        return this.document.getNode(nextSection(), "count").setValue(this.index);
+    }
+
+    @Benchmark
+    public Map<Object, ? extends ConfigurationNode> getChildrenMap() {
+        return this.document.getChildrenMap();
+    }
+
+    @Benchmark
+    public ConfigurationNode buildDocument() {
+        return Documents.populate(SimpleConfigurationNode.root(), this.size);
+    }
+
+    @Benchmark
+    public ConfigurationNode mergeValuesFrom() {
+        return SimpleConfigurationNode.root().mergeValuesFrom(this.document);
+    }
+}
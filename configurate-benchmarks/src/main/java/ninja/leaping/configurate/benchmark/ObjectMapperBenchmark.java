@@ -0,0 +1,97 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.benchmark;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import ninja.leaping.configurate.objectmapping.ObjectMapper;
+import ninja.leaping.configurate.objectmapping.ObjectMappingException;
+import ninja.leaping.configurate.objectmapping.Setting;
+import ninja.leaping.configurate.objectmapping.serialize.ConfigSerializable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures populating and serializing an object through the {@link ObjectMapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ObjectMapperBenchmark {
+
+    @ConfigSerializable
+    public static class Section {
+        @Setting
+        private String name = "";
+        @Setting
+        private boolean enabled;
+        @Setting
+        private int count;
+        @Setting
+        private double ratio;
+        @Setting
+        private List<String> tags = new ArrayList<>();
+        @Setting
+        private Limits limits = new Limits();
+    }
+
+    @ConfigSerializable
+    public static class Limits {
+        @Setting
+        private int min;
+        @Setting
+        private int max;
+    }
+
+    private ObjectMapper<Section> mapper;
+    private ConfigurationNode source;
+    private Section instance;
+
+    @Setup
+    public void setup() throws ObjectMappingException {
+        this.mapper = ObjectMapper.forClass(Section.class);
+        this.source = Documents.populate(SimpleConfigurationNode.root(), Documents.Size.SMALL).getNode("section0");
+        this.instance = this.mapper.bindToNew().populate(this.source);
+    }
+
+    @Benchmark
+    public Section populate() throws ObjectMappingException {
+        return this.mapper.bindToNew().populate(this.source);
+    }
+
+    @Benchmark
+    public ConfigurationNode serialize() throws ObjectMappingException {
+        ConfigurationNode target = SimpleConfigurationNode.root();
+        this.mapper.bind(this.instance).serialize(target);
+        return target;
+    }
+}
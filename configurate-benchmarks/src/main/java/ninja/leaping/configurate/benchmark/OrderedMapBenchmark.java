@@ -0,0 +1,120 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.benchmark;
+
+import ninja.leaping.configurate.util.MapFactories;
+import ninja.leaping.configurate.util.MapFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the insertion ordered map factories when a map is shared between threads.
+ *
+ * <p>Each group runs three reader threads against one thread which replaces, removes and
+ * re-inserts keys.</p>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OrderedMapBenchmark {
+    private static final int KEYS = 64;
+
+    @Param({"insertionOrdered", "concurrentInsertionOrdered"})
+    public String factory;
+
+    private ConcurrentMap<String, Integer> map;
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        MapFactory factory;
+        switch (this.factory) {
+            case "insertionOrdered":
+                factory = MapFactories.insertionOrdered();
+                break;
+            case "concurrentInsertionOrdered":
+                factory = MapFactories.concurrentInsertionOrdered();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown factory " + this.factory);
+        }
+        this.map = factory.create();
+        this.keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            this.keys[i] = "key" + i;
+            this.map.put(this.keys[i], i);
+        }
+    }
+
+    private String randomKey() {
+        return this.keys[ThreadLocalRandom.current().nextInt(KEYS)];
+    }
+
+    @Benchmark
+    @Group("get")
+    @GroupThreads(3)
+    public Integer get_reader() {
+        return this.map.get(randomKey());
+    }
+
+    @Benchmark
+    @Group("get")
+    @GroupThreads(1)
+    public Integer get_writer() {
+        String key = randomKey();
+        if (ThreadLocalRandom.current().nextInt(8) == 0) {
+            this.map.remove(key);
+            return this.map.putIfAbsent(key, 0);
+        } else {
+            return this.map.put(key, ThreadLocalRandom.current().nextInt());
+        }
+    }
+
+    @Benchmark
+    @Group("iterate")
+    @GroupThreads(3)
+    public int iterate_reader() {
+        int[] sum = new int[1];
+        this.map.forEach((k, v) -> sum[0] += v);
+        return sum[0];
+    }
+
+    @Benchmark
+    @Group("iterate")
+    @GroupThreads(1)
+    public Integer iterate_writer() {
+        return get_writer();
+    }
+}
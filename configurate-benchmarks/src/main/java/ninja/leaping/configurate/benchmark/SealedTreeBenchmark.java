@@ -0,0 +1,83 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.benchmark;
+
+import ninja.leaping.configurate.CompiledPath;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares lookups in a sealed tree against the same tree in its normal, concurrent storage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SealedTreeBenchmark {
+    private static final int SECTIONS = 1000;
+    private static final int PATHS = 1024;
+
+    @Param({"4", "32"})
+    public int keys;
+
+    @Param({"false", "true"})
+    public boolean sealed;
+
+    private SimpleConfigurationNode root;
+    private CompiledPath[] paths;
+    private int index;
+
+    @Setup
+    public void setup() {
+        this.root = SimpleConfigurationNode.root();
+        for (int section = 0; section < SECTIONS; section++) {
+            for (int key = 0; key < this.keys; key++) {
+                this.root.getNode("section" + section, "key" + key).setValue(key);
+            }
+        }
+        if (this.sealed) {
+            this.root.seal();
+        }
+
+        Random random = new Random(0);
+        this.paths = new CompiledPath[PATHS];
+        for (int i = 0; i < PATHS; i++) {
+            this.paths[i] = CompiledPath.of("section" + random.nextInt(SECTIONS), "key" + random.nextInt(this.keys));
+        }
+    }
+
+    @Benchmark
+    public int lookup() {
+        CompiledPath path = this.paths[this.index++ & (PATHS - 1)];
+        return path.resolve(this.root).getInt();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.benchmark;
+
+import ninja.leaping.configurate.attributed.AttributedConfigurationNode;
+import ninja.leaping.configurate.xml.XMLConfigurationLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading and saving a small XML document many times over, where the cost of setting
+ * up parsers and validators is a large part of each operation.
+ *
+ * <p>The {@code New} benchmarks build a loader for every operation, as is common when a loader
+ * is only kept for as long as it takes to load a file. The {@code Shared} benchmarks reuse one
+ * loader.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XMLRepeatedLoadBenchmark {
+
+    private static final String SCHEMA = "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">"
+            + "<xs:element name=\"root\"><xs:complexType><xs:sequence>"
+            + "<xs:any processContents=\"skip\" minOccurs=\"0\" maxOccurs=\"unbounded\"/>"
+            + "</xs:sequence></xs:complexType></xs:element>"
+            + "</xs:schema>";
+
+    private String text;
+    private Schema schema;
+    private AttributedConfigurationNode document;
+    private XMLConfigurationLoader sharedLoader;
+    private XMLConfigurationLoader sharedValidatingLoader;
+
+    @Setup
+    public void setup() throws IOException, SAXException {
+        StringWriter written = new StringWriter();
+        XMLConfigurationLoader writer = XMLConfigurationLoader.builder().setSink(() -> new BufferedWriter(written)).build();
+        writer.save(Documents.populate(writer.createEmptyNode(), Documents.Size.SMALL));
+        this.text = written.toString();
+
+        this.schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI)
+                .newSchema(new StreamSource(new StringReader(SCHEMA)));
+        this.sharedLoader = loader(null);
+        this.sharedValidatingLoader = loader(this.schema);
+        this.document = this.sharedLoader.load();
+    }
+
+    private XMLConfigurationLoader loader(Schema schema) {
+        return XMLConfigurationLoader.builder()
+                .setSchema(schema)
+                .setSource(() -> new BufferedReader(new StringReader(this.text)))
+                .setSink(() -> new BufferedWriter(new StringWriter(this.text.length())))
+                .build();
+    }
+
+    @Benchmark
+    public AttributedConfigurationNode loadNew() throws IOException {
+        return loader(null).load();
+    }
+
+    @Benchmark
+    public AttributedConfigurationNode loadShared() throws IOException {
+        return this.sharedLoader.load();
+    }
+
+    @Benchmark
+    public AttributedConfigurationNode loadValidatedNew() throws IOException {
+        return loader(this.schema).load();
+    }
+
+    @Benchmark
+    public AttributedConfigurationNode loadValidatedShared() throws IOException {
+        return this.sharedValidatingLoader.load();
+    }
+
+    @Benchmark
+    public AttributedConfigurationNode saveNew() throws IOException {
+        loader(null).save(this.document);
+        return this.document;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.benchmark;
+
+import ninja.leaping.configurate.attributed.AttributedConfigurationNode;
+import ninja.leaping.configurate.xml.XMLConfigurationLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading and saving XML through the loader, which reads with a
+ * {@link javax.xml.stream.XMLStreamReader} and writes straight to the output, with parsing and
+ * serializing the same document as a DOM.
+ *
+ * <p>The DOM benchmarks only parse the text into a {@link Document}, or write one out with a
+ * {@link Transformer}. Loading through a DOM also has to build the node tree from the document
+ * afterwards, so they are a lower bound on the cost of the DOM path.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XMLStreamingBenchmark {
+
+    @Param({"MEDIUM", "HUGE"})
+    public Documents.Size size;
+
+    private String text;
+    private AttributedConfigurationNode document;
+    private Document dom;
+
+    @Setup
+    public void setup() throws IOException, ParserConfigurationException, SAXException {
+        StringWriter written = new StringWriter();
+        XMLConfigurationLoader writer = XMLConfigurationLoader.builder().setSink(() -> new BufferedWriter(written)).build();
+        writer.save(Documents.populate(writer.createEmptyNode(), this.size));
+        this.text = written.toString();
+
+        this.document = loadStreaming();
+        this.dom = loadDom();
+    }
+
+    @Benchmark
+    public AttributedConfigurationNode loadStreaming() throws IOException {
+        return XMLConfigurationLoader.builder()
+                .setSource(() -> new BufferedReader(new StringReader(this.text)))
+                .build()
+                .load();
+    }
+
+    @Benchmark
+    public Document loadDom() throws ParserConfigurationException, IOException, SAXException {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(this.text)));
+    }
+
+    @Benchmark
+    public int saveStreaming() throws IOException {
+        StringWriter sink = new StringWriter(this.text.length());
+        XMLConfigurationLoader.builder().setSink(() -> new BufferedWriter(sink)).build().save(this.document);
+        return sink.getBuffer().length();
+    }
+
+    @Benchmark
+    public int saveDom() throws TransformerException {
+        StringWriter sink = new StringWriter(this.text.length());
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+        transformer.transform(new DOMSource(this.dom), new StreamResult(sink));
+        return sink.getBuffer().length();
+    }
+}
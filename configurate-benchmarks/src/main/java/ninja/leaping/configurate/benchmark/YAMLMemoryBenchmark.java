@@ -0,0 +1,140 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.benchmark;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import ninja.leaping.configurate.yaml.YAMLConfigurationLoader;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the peak heap usage of loading and saving a large YAML document straight from and
+ * to parser events, with going through the maps and lists built by {@link Yaml#load(String)}
+ * and read by {@link Yaml#dump(Object)}.
+ *
+ * <p>Each iteration runs one operation after a full collection, and reports the
+ * {@code peakHeapKilobytes} counter. The young generation is kept small, so the peak is close
+ * to the most memory held at once rather than the total allocated.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-XX:+UseSerialGC", "-Xmn8m"})
+public class YAMLMemoryBenchmark {
+
+    @Param({"MEDIUM", "HUGE"})
+    public Documents.Size size;
+
+    private String text;
+    private ConfigurationNode document;
+
+    /**
+     * The peak heap usage during an operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Peak {
+        public long peakHeapKilobytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            System.gc();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                }
+            }
+        }
+
+        void record() {
+            long peak = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peak += pool.getPeakUsage().getUsed();
+                }
+            }
+            this.peakHeapKilobytes = peak / 1024;
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        StringWriter written = new StringWriter();
+        YAMLConfigurationLoader writer = YAMLConfigurationLoader.builder().setSink(() -> new BufferedWriter(written)).build();
+        writer.save(Documents.populate(writer.createEmptyNode(), this.size));
+        this.text = written.toString();
+        this.document = YAMLConfigurationLoader.builder().setSource(() -> new BufferedReader(new StringReader(this.text))).build().load();
+    }
+
+    @Benchmark
+    public ConfigurationNode loadEvents(Peak peak) throws IOException {
+        ConfigurationNode node = YAMLConfigurationLoader.builder()
+                .setSource(() -> new BufferedReader(new StringReader(this.text))).build().load();
+        peak.record();
+        return node;
+    }
+
+    @Benchmark
+    public ConfigurationNode loadObjects(Peak peak) {
+        ConfigurationNode node = SimpleConfigurationNode.root().setValue(new Yaml().load(this.text));
+        peak.record();
+        return node;
+    }
+
+    @Benchmark
+    public int saveEvents(Peak peak) throws IOException {
+        StringWriter written = new StringWriter();
+        YAMLConfigurationLoader.builder().setSink(() -> new BufferedWriter(written)).build().save(this.document);
+        peak.record();
+        return written.getBuffer().length();
+    }
+
+    @Benchmark
+    public int saveObjects(Peak peak) {
+        DumperOptions options = new DumperOptions();
+        options.setIndent(4);
+        String written = new Yaml(options).dump(this.document.getValue());
+        peak.record();
+        return written.length();
+    }
+}
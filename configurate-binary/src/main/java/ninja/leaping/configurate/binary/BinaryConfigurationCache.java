@@ -0,0 +1,209 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.binary;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.loader.AtomicFiles;
+import ninja.leaping.configurate.loader.ConfigurationCache;
+import ninja.leaping.configurate.loader.Durability;
+import ninja.leaping.configurate.loader.PathFilter;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A {@link ConfigurationCache} which stores each parsed configuration in the binary format, in
+ * a sidecar file next to its source.
+ *
+ * <p>A sidecar file starts with its own magic bytes and version, followed by the
+ * {@link ConfigurationCache.Key key} it was stored with, and then a binary configuration
+ * holding the header and tree. Sidecar files are replaced using {@link AtomicFiles}, so a
+ * process loading the same source never reads a partially written entry. Since the key is
+ * checked before the entry is used, a sidecar left behind by another process, or by an older
+ * version of the source, is simply replaced.</p>
+ *
+ * <p>Use with {@code AbstractConfigurationLoader.Builder#setCache}:</p>
+ *
+ * <pre>{@code
+ * HoconConfigurationLoader loader = HoconConfigurationLoader.builder()
+ *         .setPath(path)
+ *         .setCache(BinaryConfigurationCache.sidecar())
+ *         .build();
+ * }</pre>
+ */
+public final class BinaryConfigurationCache implements ConfigurationCache {
+    private static final byte[] MAGIC = {'C', 'F', 'G', 'C'};
+    private static final int VERSION = 1;
+    private static final int HASH_LENGTH = 32;
+    private static final int PREAMBLE_LENGTH = MAGIC.length + 1 + 8 + 8 + HASH_LENGTH;
+
+    /**
+     * The suffix appended to the file name of a source to name its sidecar file.
+     */
+    public static final String DEFAULT_SUFFIX = ".cache";
+
+    private static final BinaryConfigurationCache DEFAULT = new BinaryConfigurationCache(DEFAULT_SUFFIX);
+
+    /**
+     * Gets a cache which stores entries in a file named after the source, with
+     * {@link #DEFAULT_SUFFIX} appended.
+     *
+     * @return The cache
+     */
+    @NonNull
+    public static BinaryConfigurationCache sidecar() {
+        return DEFAULT;
+    }
+
+    /**
+     * Gets a cache which stores entries in a file named after the source, with the given
+     * suffix appended.
+     *
+     * @param suffix The suffix
+     * @return The cache
+     */
+    @NonNull
+    public static BinaryConfigurationCache sidecar(@NonNull String suffix) {
+        if (Objects.requireNonNull(suffix, "suffix").isEmpty()) {
+            throw new IllegalArgumentException("The suffix must not be empty, or sidecars would replace their sources");
+        }
+        return new BinaryConfigurationCache(suffix);
+    }
+
+    private final String suffix;
+
+    private BinaryConfigurationCache(String suffix) {
+        this.suffix = suffix;
+    }
+
+    /**
+     * Gets the path of the sidecar file for a source.
+     *
+     * @param source The path of the source
+     * @return The path of the sidecar file
+     */
+    @NonNull
+    public Path getSidecar(@NonNull Path source) {
+        return source.resolveSibling(source.getFileName().toString() + this.suffix);
+    }
+
+    @Nullable
+    @Override
+    public Entry get(@NonNull Path source, @NonNull Key key) throws IOException {
+        ByteBuffer document;
+        try (FileChannel channel = FileChannel.open(getSidecar(source), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < PREAMBLE_LENGTH || size > Integer.MAX_VALUE) {
+                throw new IOException("Malformed cache entry");
+            }
+            ByteBuffer preamble = ByteBuffer.allocate(PREAMBLE_LENGTH);
+            readFully(channel, preamble);
+            if (!key.equals(readKey(preamble))) {
+                // stale entries are not read any further
+                return null;
+            }
+            document = ByteBuffer.allocate((int) size - PREAMBLE_LENGTH);
+            readFully(channel, document);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        BinaryDecoder decoder = new BinaryDecoder(document.duplicate());
+        decoder.readPreamble();
+        return new BinaryEntry(document, decoder.getHeader());
+    }
+
+    private static Key readKey(ByteBuffer preamble) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        preamble.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a cache entry");
+        }
+        int version = preamble.get() & 0xFF;
+        if (version != VERSION) {
+            throw new IOException("Unsupported cache entry version " + version + ", expected " + VERSION);
+        }
+        long size = preamble.getLong();
+        long lastModified = preamble.getLong();
+        byte[] hash = new byte[HASH_LENGTH];
+        preamble.get(hash);
+        return new Key(size, lastModified, hash);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                throw new IOException("Malformed cache entry");
+            }
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public void put(@NonNull Path source, @NonNull Key key, @Nullable String header, @NonNull ConfigurationNode node) throws IOException {
+        byte[] hash = key.getHash();
+        if (hash.length != HASH_LENGTH) {
+            throw new IllegalArgumentException("Expected a " + HASH_LENGTH + " byte hash, got " + hash.length);
+        }
+        ByteBuffer preamble = ByteBuffer.allocate(PREAMBLE_LENGTH);
+        preamble.put(MAGIC).put((byte) VERSION).putLong(key.getSize()).putLong(key.getLastModified()).put(hash);
+        preamble.flip();
+        ByteBuffer document = BinaryEncoder.encode(node, header);
+
+        // a lost cache entry is only a cache miss, so never wait for the disk
+        try (WritableByteChannel channel = AtomicFiles.createAtomicChannel(getSidecar(source), Durability.NONE)) {
+            while (preamble.hasRemaining()) {
+                channel.write(preamble);
+            }
+            while (document.hasRemaining()) {
+                channel.write(document);
+            }
+        }
+    }
+
+    private static final class BinaryEntry implements Entry {
+        private final ByteBuffer document;
+        @Nullable private final String header;
+
+        BinaryEntry(ByteBuffer document, @Nullable String header) {
+            this.document = document;
+            this.header = header;
+        }
+
+        @Nullable
+        @Override
+        public String getHeader() {
+            return this.header;
+        }
+
+        @Override
+        public void readInto(@NonNull ConfigurationNode node, @NonNull PathFilter filter) throws IOException {
+            BinaryDecoder decoder = new BinaryDecoder(this.document.duplicate());
+            decoder.readPreamble();
+            decoder.readRoot(node, filter);
+        }
+    }
+}
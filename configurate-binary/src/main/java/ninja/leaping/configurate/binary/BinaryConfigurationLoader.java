@@ -0,0 +1,410 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.binary;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.ConfigurationOptions;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import ninja.leaping.configurate.attributed.SimpleAttributedConfigurationNode;
+import ninja.leaping.configurate.commented.SimpleCommentedConfigurationNode;
+import ninja.leaping.configurate.loader.AtomicFiles;
+import ninja.leaping.configurate.loader.ConfigurationLoader;
+import ninja.leaping.configurate.loader.Durability;
+import ninja.leaping.configurate.loader.LoaderExecutors;
+import ninja.leaping.configurate.loader.PathFilter;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * A loader for a compact binary encoding of node trees.
+ *
+ * <p>The binary format is not intended to be edited by hand. It is much faster to load than
+ * any of the text formats, so is suited to holding a copy of a configuration which was written
+ * in another format. Scalars keep their types, and comments, tag names and attributes are kept
+ * for {@link ninja.leaping.configurate.commented.CommentedConfigurationNode commented} and
+ * {@link ninja.leaping.configurate.attributed.AttributedConfigurationNode attributed} nodes.
+ * Nodes are loaded as the same kind of node they were saved from.</p>
+ *
+ * <p>Loading with a {@link PathFilter} skips unselected maps and lists without decoding
+ * them.</p>
+ *
+ * <p>This loader implements {@link ConfigurationLoader} directly. It does not extend
+ * {@link ninja.leaping.configurate.loader.AbstractConfigurationLoader}, even though that class
+ * now reads and writes bytes as well as characters. That class reads a commented text header
+ * before the document, and creates the node to load into before reading it. A binary document
+ * holds its header in its preamble, and the preamble also decides which kind of node is
+ * loaded.</p>
+ */
+public class BinaryConfigurationLoader implements ConfigurationLoader<ConfigurationNode> {
+
+    /**
+     * Creates a new {@link BinaryConfigurationLoader} builder.
+     *
+     * @return A new builder
+     */
+    @NonNull
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builds a {@link BinaryConfigurationLoader}.
+     */
+    public static class Builder {
+        @Nullable private Callable<? extends ReadableByteChannel> source;
+        @Nullable private Callable<? extends WritableByteChannel> sink;
+        @NonNull private ConfigurationOptions defaultOptions = ConfigurationOptions.defaults();
+        @NonNull private Executor executor = LoaderExecutors.defaultExecutor();
+        @NonNull private Durability durability = AtomicFiles.DEFAULT_DURABILITY;
+        // the path set by setPath, and the sink created for it, replaced if the durability changes
+        @Nullable private Path path;
+        @Nullable private Callable<? extends WritableByteChannel> pathSink;
+
+        protected Builder() {}
+
+        /**
+         * Sets the sink and source of the resultant loader to the given file.
+         *
+         * @param file The configuration file
+         * @return This builder (for chaining)
+         * @see #setPath(Path)
+         */
+        @NonNull
+        public Builder setFile(@NonNull File file) {
+            return setPath(Objects.requireNonNull(file, "file").toPath());
+        }
+
+        /**
+         * Sets the sink and source of the resultant loader to the given path.
+         *
+         * <p>The {@link #getSource() source} is a {@link FileChannel}, and the
+         * {@link #getSink() sink} is defined using {@link AtomicFiles}, with the
+         * {@link #setDurability(Durability) durability} of this builder.</p>
+         *
+         * @param path The path of the configuration file
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public Builder setPath(@NonNull Path path) {
+            Path absPath = Objects.requireNonNull(path, "path").toAbsolutePath();
+            this.source = () -> FileChannel.open(absPath, StandardOpenOption.READ);
+            this.path = absPath;
+            setPathSink();
+            return this;
+        }
+
+        private void setPathSink() {
+            this.sink = this.pathSink = AtomicFiles.createAtomicChannelFactory(Objects.requireNonNull(this.path), this.durability);
+        }
+
+        /**
+         * Sets how far the sink created by {@link #setPath(Path)} goes to make sure saved data
+         * survives a crash.
+         *
+         * <p>This applies whether it is called before or after the path is set, but has no
+         * effect on a sink set in another way. Defaults to
+         * {@link AtomicFiles#DEFAULT_DURABILITY}.</p>
+         *
+         * @param durability The durability
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public Builder setDurability(@NonNull Durability durability) {
+            this.durability = Objects.requireNonNull(durability, "durability");
+            if (this.path != null && this.sink == this.pathSink) {
+                setPathSink();
+            }
+            return this;
+        }
+
+        /**
+         * Gets the durability used by {@link #setPath(Path)}.
+         *
+         * @return The durability
+         */
+        @NonNull
+        public Durability getDurability() {
+            return this.durability;
+        }
+
+        /**
+         * Sets the source of the resultant loader.
+         *
+         * @param source The source
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public Builder setSource(@Nullable Callable<? extends ReadableByteChannel> source) {
+            this.source = source;
+            return this;
+        }
+
+        /**
+         * Sets the sink of the resultant loader.
+         *
+         * @param sink The sink
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public Builder setSink(@Nullable Callable<? extends WritableByteChannel> sink) {
+            this.sink = sink;
+            return this;
+        }
+
+        /**
+         * Gets the source to be used by the resultant loader.
+         *
+         * @return The source
+         */
+        @Nullable
+        public Callable<? extends ReadableByteChannel> getSource() {
+            return this.source;
+        }
+
+        /**
+         * Gets the sink to be used by the resultant loader.
+         *
+         * @return The sink
+         */
+        @Nullable
+        public Callable<? extends WritableByteChannel> getSink() {
+            return this.sink;
+        }
+
+        /**
+         * Sets the default configuration options to be used by the resultant loader.
+         *
+         * @param defaultOptions The options
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public Builder setDefaultOptions(@NonNull ConfigurationOptions defaultOptions) {
+            this.defaultOptions = Objects.requireNonNull(defaultOptions, "defaultOptions");
+            return this;
+        }
+
+        /**
+         * Gets the default configuration options to be used by the resultant loader.
+         *
+         * @return The options
+         */
+        @NonNull
+        public ConfigurationOptions getDefaultOptions() {
+            return this.defaultOptions;
+        }
+
+        /**
+         * Sets the executor used by the resultant loader to run asynchronous loads and saves.
+         *
+         * @param executor The executor
+         * @return This builder (for chaining)
+         * @see ConfigurationLoader#getExecutor()
+         */
+        @NonNull
+        public Builder setExecutor(@NonNull Executor executor) {
+            this.executor = Objects.requireNonNull(executor, "executor");
+            return this;
+        }
+
+        /**
+         * Gets the executor to be used by the resultant loader.
+         *
+         * @return The executor
+         */
+        @NonNull
+        public Executor getExecutor() {
+            return this.executor;
+        }
+
+        /**
+         * Builds the loader.
+         *
+         * @return The loader
+         */
+        @NonNull
+        public BinaryConfigurationLoader build() {
+            return new BinaryConfigurationLoader(this);
+        }
+    }
+
+    @Nullable private final Callable<? extends ReadableByteChannel> source;
+    @Nullable private final Callable<? extends WritableByteChannel> sink;
+    @NonNull private final ConfigurationOptions defaultOptions;
+    @NonNull private final Executor executor;
+
+    protected BinaryConfigurationLoader(@NonNull Builder builder) {
+        this.source = builder.getSource();
+        this.sink = builder.getSink();
+        this.defaultOptions = builder.getDefaultOptions();
+        this.executor = LoaderExecutors.sequential(builder.getExecutor());
+    }
+
+    @NonNull
+    @Override
+    public ConfigurationOptions getDefaultOptions() {
+        return this.defaultOptions;
+    }
+
+    @NonNull
+    @Override
+    public Executor getExecutor() {
+        return this.executor;
+    }
+
+    @NonNull
+    @Override
+    public ConfigurationNode load(@NonNull ConfigurationOptions options) throws IOException {
+        return load(options, PathFilter.all());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Maps and lists which are not selected are skipped without being decoded.</p>
+     */
+    @NonNull
+    @Override
+    public ConfigurationNode load(@NonNull ConfigurationOptions options, @NonNull PathFilter filter) throws IOException {
+        if (source == null) {
+            throw new IOException("No source present to read from!");
+        }
+        ByteBuffer document;
+        try (ReadableByteChannel channel = source.call()) {
+            document = readFully(channel);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            // Squash -- there's nothing to read
+            return createEmptyNode(options);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        return decode(document, options, filter);
+    }
+
+    /**
+     * Decodes a binary configuration held in memory.
+     *
+     * @param document The encoded document
+     * @param options The options to load with
+     * @param filter The filter selecting which paths to load
+     * @return The newly constructed node
+     * @throws IOException if the document is malformed
+     */
+    @NonNull
+    static ConfigurationNode decode(@NonNull ByteBuffer document, @NonNull ConfigurationOptions options,
+                                    @NonNull PathFilter filter) throws IOException {
+        BinaryDecoder decoder = new BinaryDecoder(document);
+        decoder.readPreamble();
+        if (decoder.getHeader() != null) {
+            options = options.setHeader(decoder.getHeader());
+        }
+        ConfigurationNode node;
+        switch (decoder.getKind()) {
+            case BinaryFormat.KIND_COMMENTED:
+                node = SimpleCommentedConfigurationNode.root(options);
+                break;
+            case BinaryFormat.KIND_ATTRIBUTED:
+                node = SimpleAttributedConfigurationNode.root("root", options);
+                break;
+            default:
+                node = SimpleConfigurationNode.root(options);
+                break;
+        }
+        decoder.readRoot(node, filter);
+        return node;
+    }
+
+    private static ByteBuffer readFully(ReadableByteChannel channel) throws IOException {
+        if (channel instanceof FileChannel) {
+            long size = ((FileChannel) channel).size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Binary configurations larger than 2GB are not supported");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // keep reading until full
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (channel.read(buffer) != -1) {
+            if (!buffer.hasRemaining()) {
+                ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                buffer = grown.put(buffer);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void save(@NonNull ConfigurationNode node) throws IOException {
+        if (sink == null) {
+            throw new IOException("No sink present to write to!");
+        }
+        ByteBuffer document = BinaryEncoder.encode(node);
+        try (WritableByteChannel channel = sink.call()) {
+            while (document.hasRemaining()) {
+                channel.write(document);
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Empty nodes are {@link SimpleCommentedConfigurationNode commented}. Loaded nodes are
+     * the same kind of node as the node they were saved from.</p>
+     */
+    @NonNull
+    @Override
+    public ConfigurationNode createEmptyNode(@NonNull ConfigurationOptions options) {
+        return SimpleCommentedConfigurationNode.root(options);
+    }
+
+    @Override
+    public boolean canLoad() {
+        return this.source != null;
+    }
+
+    @Override
+    public boolean canSave() {
+        return this.sink != null;
+    }
+}
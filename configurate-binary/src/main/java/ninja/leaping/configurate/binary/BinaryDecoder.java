@@ -0,0 +1,360 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.binary;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.attributed.AttributedConfigurationNode;
+import ninja.leaping.configurate.commented.CommentedConfigurationNode;
+import ninja.leaping.configurate.loader.PathFilter;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static ninja.leaping.configurate.binary.BinaryFormat.*;
+
+/**
+ * Reads node trees in the binary format described by {@link BinaryFormat}.
+ *
+ * <p>Values which are not selected by a {@link PathFilter} are skipped using the lengths of
+ * maps and lists, without decoding their contents.</p>
+ */
+final class BinaryDecoder {
+    private final ByteBuffer buffer;
+    private int kind = -1;
+    @Nullable private String header;
+
+    BinaryDecoder(@NonNull ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Reads the start of the document, up to the root node.
+     *
+     * @throws IOException if the document is not a binary configuration, or is from an
+     *                     unsupported version of the format
+     */
+    void readPreamble() throws IOException {
+        try {
+            for (byte expected : MAGIC) {
+                if (buffer.get() != expected) {
+                    throw new IOException("Not a binary configuration");
+                }
+            }
+            int version = u8();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary configuration version " + version + ", expected " + VERSION);
+            }
+            kind = u8();
+            if (kind != KIND_PLAIN && kind != KIND_COMMENTED && kind != KIND_ATTRIBUTED) {
+                throw new IOException("Unknown node kind " + kind);
+            }
+            int flags = u8();
+            header = (flags & FLAG_HEADER) != 0 ? readString() : null;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Malformed binary configuration", e);
+        }
+    }
+
+    /**
+     * Gets the kind of node the document was saved from.
+     *
+     * @return The kind, one of the {@code KIND_} constants in {@link BinaryFormat}
+     */
+    int getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the header of the document.
+     *
+     * @return The header, or null if it had none
+     */
+    @Nullable
+    String getHeader() {
+        return header;
+    }
+
+    /**
+     * Reads the parts of the root node selected by the given filter.
+     *
+     * @param node The node to populate
+     * @param filter The filter selecting which paths to read
+     * @throws IOException if the document is malformed
+     */
+    void readRoot(@NonNull ConfigurationNode node, @NonNull PathFilter filter) throws IOException {
+        try {
+            readNode(node, filter);
+        } catch (BufferUnderflowException | IllegalArgumentException | ClassCastException e) {
+            throw new IOException("Malformed binary configuration", e);
+        }
+    }
+
+    private void readNode(ConfigurationNode node, PathFilter filter) throws IOException {
+        int typeAndFlags = u8();
+        int type = typeAndFlags & TYPE_MASK;
+        String comment = (typeAndFlags & NODE_COMMENT) != 0 ? readString() : null;
+        String tagName = null;
+        Map<String, String> attributes = null;
+        if ((typeAndFlags & NODE_ATTRIBUTES) != 0) {
+            tagName = readString();
+            int count = readVarInt();
+            attributes = new HashMap<>();
+            for (int i = 0; i < count; ++i) {
+                attributes.put(readString(), readString());
+            }
+        }
+
+        switch (type) {
+            case TYPE_MAP: {
+                readLength();
+                int count = buffer.getInt();
+                if (count == 0 && filter.isAll()) {
+                    node.setValue(ImmutableMap.of());
+                }
+                for (int i = 0; i < count; ++i) {
+                    Object key = readScalar(u8());
+                    PathFilter childFilter = filter.child(key);
+                    if (childFilter == null) {
+                        skipNode();
+                    } else {
+                        readNode(node.getNode(key), childFilter);
+                    }
+                }
+                break;
+            }
+            case TYPE_LIST: {
+                readLength();
+                int count = buffer.getInt();
+                if (count == 0 && filter.isAll()) {
+                    node.setValue(ImmutableList.of());
+                }
+                for (int i = 0; i < count; ++i) {
+                    PathFilter elementFilter = filter.child(i);
+                    if (elementFilter == null) {
+                        skipNode();
+                    } else {
+                        readNode(node.getAppendedNode(), elementFilter);
+                    }
+                }
+                break;
+            }
+            default:
+                if (filter.isAll()) {
+                    node.setValue(readScalar(type));
+                } else {
+                    // a scalar which stops short of the selected paths isn't selected itself
+                    skipPayload(type);
+                }
+                break;
+        }
+
+        // extras are only kept for nodes which were selected, or which hold selected children
+        if (filter.isAll() || !node.isVirtual()) {
+            if (comment != null && node instanceof CommentedConfigurationNode) {
+                ((CommentedConfigurationNode) node).setComment(comment);
+            }
+            if (tagName != null && node instanceof AttributedConfigurationNode) {
+                ((AttributedConfigurationNode) node).setTagName(tagName).setAttributes(attributes);
+            }
+        }
+    }
+
+    @Nullable
+    private Object readScalar(int type) throws IOException {
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return readString();
+            case TYPE_TRUE:
+                return Boolean.TRUE;
+            case TYPE_FALSE:
+                return Boolean.FALSE;
+            case TYPE_INT:
+                return unZigZag(readVarInt());
+            case TYPE_LONG:
+                return unZigZag(readVarLong());
+            case TYPE_FLOAT:
+                return buffer.getFloat();
+            case TYPE_DOUBLE:
+                return buffer.getDouble();
+            case TYPE_BYTES:
+                return readBytes();
+            case TYPE_BYTE:
+                return buffer.get();
+            case TYPE_SHORT:
+                return (short) unZigZag(readVarInt());
+            case TYPE_CHAR:
+                return (char) readVarInt();
+            case TYPE_BIG_INTEGER:
+                return new BigInteger(readBytes());
+            case TYPE_BIG_DECIMAL:
+                int scale = unZigZag(readVarInt());
+                return new BigDecimal(new BigInteger(readBytes()), scale);
+            case TYPE_DATE:
+                return new Date(unZigZag(readVarLong()));
+            case TYPE_INSTANT:
+                long seconds = unZigZag(readVarLong());
+                return Instant.ofEpochSecond(seconds, readVarInt());
+            default:
+                throw new IOException("Unknown scalar type " + type + " at byte " + (buffer.position() - 1));
+        }
+    }
+
+    private void skipNode() throws IOException {
+        int typeAndFlags = u8();
+        if ((typeAndFlags & NODE_COMMENT) != 0) {
+            skipBytes();
+        }
+        if ((typeAndFlags & NODE_ATTRIBUTES) != 0) {
+            skipBytes();
+            for (int count = readVarInt() * 2; count > 0; --count) {
+                skipBytes();
+            }
+        }
+        skipPayload(typeAndFlags & TYPE_MASK);
+    }
+
+    private void skipPayload(int type) throws IOException {
+        switch (type) {
+            case TYPE_MAP:
+            case TYPE_LIST:
+                int length = readLength();
+                buffer.position(buffer.position() + length);
+                break;
+            case TYPE_NULL:
+            case TYPE_TRUE:
+            case TYPE_FALSE:
+                break;
+            case TYPE_FLOAT:
+                buffer.position(buffer.position() + 4);
+                break;
+            case TYPE_DOUBLE:
+                buffer.position(buffer.position() + 8);
+                break;
+            case TYPE_BYTE:
+                buffer.get();
+                break;
+            case TYPE_BIG_DECIMAL:
+                readVarInt();
+                skipBytes();
+                break;
+            case TYPE_STRING:
+            case TYPE_BYTES:
+            case TYPE_BIG_INTEGER:
+                skipBytes();
+                break;
+            case TYPE_INSTANT:
+                readVarLong();
+                readVarInt();
+                break;
+            default:
+                // the remaining types are a single varint
+                readScalar(type);
+                break;
+        }
+    }
+
+    private int readLength() throws IOException {
+        int length = buffer.getInt();
+        if (length < 4 || length > buffer.remaining()) {
+            throw new IOException("Invalid length " + length + " at byte " + (buffer.position() - 4));
+        }
+        return length;
+    }
+
+    private int u8() {
+        return buffer.get() & 0xFF;
+    }
+
+    private int readVarInt() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint at byte " + buffer.position());
+    }
+
+    private long readVarLong() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint at byte " + buffer.position());
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readByteLength() throws IOException {
+        int length = readVarInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Invalid length " + length + " at byte " + buffer.position());
+        }
+        return length;
+    }
+
+    private byte[] readBytes() throws IOException {
+        byte[] bytes = new byte[readByteLength()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private void skipBytes() throws IOException {
+        int length = readByteLength();
+        buffer.position(buffer.position() + length);
+    }
+
+    private String readString() throws IOException {
+        int length = readByteLength();
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            value = new String(bytes, UTF_8);
+        }
+        return value;
+    }
+}
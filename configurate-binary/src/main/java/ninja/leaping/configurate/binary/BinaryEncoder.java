@@ -0,0 +1,326 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.binary;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.attributed.AttributedConfigurationNode;
+import ninja.leaping.configurate.commented.CommentedConfigurationNode;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static ninja.leaping.configurate.binary.BinaryFormat.*;
+
+/**
+ * Writes node trees in the binary format described by {@link BinaryFormat}.
+ *
+ * <p>The document is built in memory, so the lengths of maps and lists can be filled in once
+ * their contents have been written.</p>
+ */
+final class BinaryEncoder {
+    private byte[] buffer = new byte[4096];
+    private int size = 0;
+
+    /**
+     * Encodes a document holding the given node, and its header.
+     *
+     * @param node The root node
+     * @return A buffer holding the encoded document
+     */
+    @NonNull
+    static ByteBuffer encode(@NonNull ConfigurationNode node) {
+        return encode(node, node.getOptions().getHeader());
+    }
+
+    /**
+     * Encodes a document holding the given node, with a header other than the one in its
+     * options.
+     *
+     * @param node The root node
+     * @param header The header to store, or null to store none
+     * @return A buffer holding the encoded document
+     */
+    @NonNull
+    static ByteBuffer encode(@NonNull ConfigurationNode node, @Nullable String header) {
+        BinaryEncoder encoder = new BinaryEncoder();
+        encoder.writeDocument(node, header);
+        return ByteBuffer.wrap(encoder.buffer, 0, encoder.size);
+    }
+
+    private void writeDocument(ConfigurationNode node, @Nullable String header) {
+        int kind = node instanceof AttributedConfigurationNode ? KIND_ATTRIBUTED
+                : node instanceof CommentedConfigurationNode ? KIND_COMMENTED : KIND_PLAIN;
+
+        ensureCapacity(MAGIC.length);
+        System.arraycopy(MAGIC, 0, buffer, size, MAGIC.length);
+        size += MAGIC.length;
+        writeByte(VERSION);
+        writeByte(kind);
+        writeByte(header != null ? FLAG_HEADER : 0);
+        if (header != null) {
+            writeString(header);
+        }
+        writeNode(node);
+    }
+
+    private void writeNode(ConfigurationNode node) {
+        int flags = 0;
+        String comment = null;
+        if (node instanceof CommentedConfigurationNode) {
+            comment = ((CommentedConfigurationNode) node).getComment().orElse(null);
+            if (comment != null) {
+                flags |= NODE_COMMENT;
+            }
+        }
+        AttributedConfigurationNode attributed = null;
+        if (node instanceof AttributedConfigurationNode) {
+            attributed = (AttributedConfigurationNode) node;
+            flags |= NODE_ATTRIBUTES;
+        }
+
+        if (node.hasMapChildren()) {
+            writeByte(TYPE_MAP | flags);
+            writeExtras(comment, attributed);
+            int start = reserveInt();
+            int count = reserveInt();
+            int[] entries = {0};
+            node.forEachChild((key, child) -> {
+                writeScalar(key);
+                writeNode(child);
+                ++entries[0];
+            });
+            fillInt(count, entries[0]);
+            fillInt(start, size - start - 4);
+        } else if (node.hasListChildren()) {
+            writeByte(TYPE_LIST | flags);
+            writeExtras(comment, attributed);
+            int start = reserveInt();
+            int count = reserveInt();
+            int[] elements = {0};
+            node.forEachChild((index, child) -> {
+                writeNode(child);
+                ++elements[0];
+            });
+            fillInt(count, elements[0]);
+            fillInt(start, size - start - 4);
+        } else {
+            Object value = node.getValue();
+            int type = typeOf(value);
+            writeByte(type | flags);
+            writeExtras(comment, attributed);
+            writePayload(type, value);
+        }
+    }
+
+    private void writeExtras(@Nullable String comment, @Nullable AttributedConfigurationNode attributed) {
+        if (comment != null) {
+            writeString(comment);
+        }
+        if (attributed != null) {
+            writeString(attributed.getTagName());
+            Map<String, String> attributes = attributed.getAttributes();
+            writeVarInt(attributes.size());
+            for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+                writeString(attribute.getKey());
+                writeString(attribute.getValue());
+            }
+        }
+    }
+
+    private void writeScalar(Object value) {
+        int type = typeOf(value);
+        writeByte(type);
+        writePayload(type, value);
+    }
+
+    /**
+     * Gets the type a scalar is written as. Types without their own encoding are written as
+     * strings, as the text formats do.
+     *
+     * @param value The scalar
+     * @return The type
+     */
+    private static int typeOf(@Nullable Object value) {
+        if (value == null) {
+            return TYPE_NULL;
+        } else if (value instanceof String) {
+            return TYPE_STRING;
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? TYPE_TRUE : TYPE_FALSE;
+        } else if (value instanceof Integer) {
+            return TYPE_INT;
+        } else if (value instanceof Long) {
+            return TYPE_LONG;
+        } else if (value instanceof Float) {
+            return TYPE_FLOAT;
+        } else if (value instanceof Double) {
+            return TYPE_DOUBLE;
+        } else if (value instanceof byte[]) {
+            return TYPE_BYTES;
+        } else if (value instanceof Byte) {
+            return TYPE_BYTE;
+        } else if (value instanceof Short) {
+            return TYPE_SHORT;
+        } else if (value instanceof Character) {
+            return TYPE_CHAR;
+        } else if (value instanceof BigInteger) {
+            return TYPE_BIG_INTEGER;
+        } else if (value instanceof BigDecimal) {
+            return TYPE_BIG_DECIMAL;
+        } else if (value instanceof Date) {
+            return TYPE_DATE;
+        } else if (value instanceof Instant) {
+            return TYPE_INSTANT;
+        } else {
+            return TYPE_STRING;
+        }
+    }
+
+    private void writePayload(int type, @Nullable Object value) {
+        switch (type) {
+            case TYPE_NULL:
+            case TYPE_TRUE:
+            case TYPE_FALSE:
+                break;
+            case TYPE_STRING:
+                writeString(value.toString());
+                break;
+            case TYPE_INT:
+                writeVarInt(zigZag((Integer) value));
+                break;
+            case TYPE_LONG:
+                writeVarLong(zigZag((Long) value));
+                break;
+            case TYPE_FLOAT:
+                writeInt(Float.floatToIntBits((Float) value));
+                break;
+            case TYPE_DOUBLE:
+                writeLong(Double.doubleToLongBits((Double) value));
+                break;
+            case TYPE_BYTES:
+                writeBytes((byte[]) value);
+                break;
+            case TYPE_BYTE:
+                writeByte((Byte) value);
+                break;
+            case TYPE_SHORT:
+                writeVarInt(zigZag((Short) value));
+                break;
+            case TYPE_CHAR:
+                writeVarInt((Character) value);
+                break;
+            case TYPE_BIG_INTEGER:
+                writeBytes(((BigInteger) value).toByteArray());
+                break;
+            case TYPE_BIG_DECIMAL:
+                BigDecimal decimal = (BigDecimal) value;
+                writeVarInt(zigZag(decimal.scale()));
+                writeBytes(decimal.unscaledValue().toByteArray());
+                break;
+            case TYPE_DATE:
+                writeVarLong(zigZag(((Date) value).getTime()));
+                break;
+            case TYPE_INSTANT:
+                Instant instant = (Instant) value;
+                writeVarLong(zigZag(instant.getEpochSecond()));
+                writeVarInt(instant.getNano());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown type " + type);
+        }
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    private void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+        ensureCapacity(4);
+        fillInt(size, value);
+        size += 4;
+    }
+
+    private void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    private int reserveInt() {
+        int position = size;
+        writeInt(0);
+        return position;
+    }
+
+    private void fillInt(int position, int value) {
+        buffer[position] = (byte) (value >>> 24);
+        buffer[position + 1] = (byte) (value >>> 16);
+        buffer[position + 2] = (byte) (value >>> 8);
+        buffer[position + 3] = (byte) value;
+    }
+
+    private void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    private void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    private void writeBytes(byte[] bytes) {
+        writeVarInt(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void writeString(String value) {
+        writeBytes(value.getBytes(UTF_8));
+    }
+}
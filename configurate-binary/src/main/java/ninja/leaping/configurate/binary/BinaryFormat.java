@@ -0,0 +1,85 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.binary;
+
+/**
+ * Constants describing the layout of a binary configuration.
+ *
+ * <p>A document starts with the {@link #MAGIC} bytes, the {@link #VERSION} byte, a byte holding
+ * the {@link #KIND_PLAIN kind} of node it was saved from, and a flags byte. If
+ * {@link #FLAG_HEADER} is set, the header follows as a string. The root node comes last.</p>
+ *
+ * <p>Each node starts with a byte holding its type in the low bits, and {@link #NODE_COMMENT}
+ * and {@link #NODE_ATTRIBUTES} in the high bits. A comment is written as a string. Attributes
+ * are the tag name, followed by a count and then each name and value, all as strings.</p>
+ *
+ * <p>Maps and lists are prefixed with the length in bytes of their remaining contents, so
+ * readers can skip them without decoding any of their children. The length is followed by the
+ * number of entries. Each map entry is a key, written as a scalar type byte and its payload,
+ * and then a node. List elements are nodes.</p>
+ *
+ * <p>Lengths and counts of maps and lists are 4 byte big endian integers. Other lengths, and
+ * {@link #TYPE_INT int} and {@link #TYPE_LONG long} scalars, are unsigned LEB128 varints, with
+ * signed values zig-zag encoded. Strings are UTF-8.</p>
+ */
+final class BinaryFormat {
+    private BinaryFormat() {}
+
+    static final byte[] MAGIC = {'C', 'F', 'G', 'B'};
+    static final int VERSION = 1;
+
+    static final int KIND_PLAIN = 0;
+    static final int KIND_COMMENTED = 1;
+    static final int KIND_ATTRIBUTED = 2;
+
+    static final int FLAG_HEADER = 0x01;
+
+    static final int NODE_COMMENT = 0x80;
+    static final int NODE_ATTRIBUTES = 0x40;
+    static final int TYPE_MASK = 0x3F;
+
+    static final int TYPE_NULL = 0;
+    static final int TYPE_MAP = 1;
+    static final int TYPE_LIST = 2;
+    static final int TYPE_STRING = 3;
+    static final int TYPE_TRUE = 4;
+    static final int TYPE_FALSE = 5;
+    static final int TYPE_INT = 6;
+    static final int TYPE_LONG = 7;
+    static final int TYPE_FLOAT = 8;
+    static final int TYPE_DOUBLE = 9;
+    static final int TYPE_BYTES = 10;
+    static final int TYPE_BYTE = 11;
+    static final int TYPE_SHORT = 12;
+    static final int TYPE_CHAR = 13;
+    /**
+     * Two's complement bytes, as from {@link java.math.BigInteger#toByteArray()}.
+     */
+    static final int TYPE_BIG_INTEGER = 14;
+    /**
+     * The scale as a signed varint, then the unscaled value as {@link #TYPE_BIG_INTEGER}.
+     */
+    static final int TYPE_BIG_DECIMAL = 15;
+    /**
+     * Milliseconds since the epoch, as a signed varint.
+     */
+    static final int TYPE_DATE = 16;
+    /**
+     * Seconds since the epoch as a signed varint, then nanoseconds as a varint.
+     */
+    static final int TYPE_INSTANT = 17;
+}
@@ -0,0 +1,212 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.binary;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.json.JSONConfigurationLoader;
+import ninja.leaping.configurate.loader.ConfigurationCache;
+import ninja.leaping.configurate.loader.ConfigurationLoader;
+import ninja.leaping.configurate.loader.PathFilter;
+import ninja.leaping.configurate.yaml.YAMLConfigurationLoader;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public class BinaryConfigurationCacheTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Path source;
+    private CountingCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        this.source = folder.newFile("config.yml").toPath();
+        this.cache = new CountingCache(BinaryConfigurationCache.sidecar());
+        write("# The header\n\nname: first\nlist: [1, 2, 3]\nsection:\n  a: true\n  b: 0.5\n");
+    }
+
+    private void write(String text) throws IOException {
+        Files.write(this.source, text.getBytes(UTF_8));
+    }
+
+    private ConfigurationLoader<ConfigurationNode> loader() {
+        return YAMLConfigurationLoader.builder().setPath(this.source).setCache(this.cache).build();
+    }
+
+    @Test
+    public void testCacheHit() throws IOException {
+        ConfigurationNode parsed = loader().load();
+        assertEquals(0, this.cache.hits);
+        assertEquals(1, this.cache.stores);
+        assertTrue(Files.exists(BinaryConfigurationCache.sidecar().getSidecar(this.source)));
+
+        ConfigurationNode cached = loader().load();
+        assertEquals(1, this.cache.hits);
+        assertEquals(1, this.cache.stores);
+        assertEquals(parsed, cached);
+        assertEquals("The header", cached.getOptions().getHeader());
+        assertEquals(ImmutableList.of(1, 2, 3), cached.getNode("list").getValue());
+    }
+
+    @Test
+    public void testFilteredLoad() throws IOException {
+        PathFilter filter = PathFilter.of(new Object[] {"section", "a"});
+        ConfigurationLoader<ConfigurationNode> loader = loader();
+        ConfigurationNode parsed = loader.load(loader.getDefaultOptions(), filter);
+        assertEquals(ImmutableMap.of("section", ImmutableMap.of("a", true)), parsed.getValue());
+
+        // storing the tree would mean parsing all of it, so filtered loads don't
+        assertEquals(0, this.cache.stores);
+        assertEquals("first", loader.load().getNode("name").getValue());
+        assertEquals(1, this.cache.stores);
+
+        // but they do read an existing entry
+        ConfigurationNode cached = loader.load(loader.getDefaultOptions(), filter);
+        assertEquals(1, this.cache.hits);
+        assertEquals(parsed, cached);
+    }
+
+    @Test
+    public void testLazyLoad() throws IOException {
+        write("{\"name\": \"first\", \"section\": {\"a\": true}}");
+        ConfigurationLoader<ConfigurationNode> lazy = JSONConfigurationLoader.builder()
+                .setPath(this.source).setCache(this.cache).setLazyDepth(1).build();
+        ConfigurationNode parsed = lazy.load();
+        assertEquals(0, this.cache.stores);
+
+        JSONConfigurationLoader.builder().setPath(this.source).setCache(this.cache).build().load();
+        assertEquals(1, this.cache.stores);
+        assertEquals(parsed, lazy.load());
+        assertEquals(1, this.cache.hits);
+    }
+
+    @Test
+    public void testKeyHashedOnlyWhenNeeded() throws NoSuchAlgorithmException {
+        byte[] content = "name: first\n".getBytes(UTF_8);
+        ConfigurationCache.Key key = ConfigurationCache.Key.of(1000, content);
+        assertNotEquals(new ConfigurationCache.Key(content.length, 2000, new byte[32]), key);
+        assertNotEquals(new ConfigurationCache.Key(content.length + 1, 1000, new byte[32]), key);
+
+        // the contents are hashed when they are first compared, not when the key is created
+        content[0] = 'N';
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+        assertEquals(new ConfigurationCache.Key(content.length, 1000, hash), key);
+        assertArrayEquals(hash, key.getHash());
+    }
+
+    @Test
+    public void testChangedSource() throws IOException {
+        loader().load();
+        write("name: second\n");
+        assertEquals("second", loader().load().getNode("name").getValue());
+        assertEquals(0, this.cache.hits);
+        assertEquals(2, this.cache.stores);
+    }
+
+    @Test
+    public void testChangeKeepingSizeAndTime() throws IOException {
+        write("name: aaaa\n");
+        FileTime time = Files.getLastModifiedTime(this.source);
+        loader().load();
+
+        write("name: bbbb\n");
+        Files.setLastModifiedTime(this.source, time);
+        assertEquals("bbbb", loader().load().getNode("name").getValue());
+        assertEquals(0, this.cache.hits);
+    }
+
+    @Test
+    public void testCorruptEntry() throws IOException {
+        ConfigurationNode parsed = loader().load();
+        Path sidecar = BinaryConfigurationCache.sidecar().getSidecar(this.source);
+        byte[] entry = Files.readAllBytes(sidecar);
+
+        // truncated within the tree
+        Files.write(sidecar, Arrays.copyOf(entry, entry.length - 4));
+        assertEquals(parsed, loader().load());
+        assertEquals(entry.length, Files.size(sidecar));
+
+        // not an entry at all
+        Files.write(sidecar, "garbage, but long enough to hold a whole key and some more".getBytes(UTF_8));
+        assertEquals(parsed, loader().load());
+        assertEquals(parsed, loader().load());
+        assertEquals(1, this.cache.hits);
+    }
+
+    @Test
+    public void testMissingSource() throws IOException {
+        Files.delete(this.source);
+        ConfigurationNode node = loader().load();
+        assertTrue(node.isVirtual() || node.getChildrenMap().isEmpty());
+        assertEquals(0, this.cache.stores);
+    }
+
+    private static final class CountingCache implements ConfigurationCache {
+        private final ConfigurationCache wrapped;
+        int hits;
+        int stores;
+
+        CountingCache(ConfigurationCache wrapped) {
+            this.wrapped = wrapped;
+        }
+
+        @Nullable
+        @Override
+        public Entry get(@NonNull Path source, @NonNull Key key) throws IOException {
+            Entry entry = this.wrapped.get(source, key);
+            if (entry == null) {
+                return null;
+            }
+            return new Entry() {
+                @Nullable
+                @Override
+                public String getHeader() {
+                    return entry.getHeader();
+                }
+
+                @Override
+                public void readInto(@NonNull ConfigurationNode node, @NonNull PathFilter filter) throws IOException {
+                    entry.readInto(node, filter);
+                    ++hits;
+                }
+            };
+        }
+
+        @Override
+        public void put(@NonNull Path source, @NonNull Key key, @Nullable String header, @NonNull ConfigurationNode node) throws IOException {
+            this.wrapped.put(source, key, header, node);
+            ++this.stores;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.binary;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import ninja.leaping.configurate.attributed.AttributedConfigurationNode;
+import ninja.leaping.configurate.attributed.SimpleAttributedConfigurationNode;
+import ninja.leaping.configurate.commented.CommentedConfigurationNode;
+import ninja.leaping.configurate.commented.SimpleCommentedConfigurationNode;
+import ninja.leaping.configurate.gson.GsonConfigurationLoader;
+import ninja.leaping.configurate.hocon.HoconConfigurationLoader;
+import ninja.leaping.configurate.json.JSONConfigurationLoader;
+import ninja.leaping.configurate.loader.ConfigurationLoader;
+import ninja.leaping.configurate.loader.Durability;
+import ninja.leaping.configurate.loader.PathFilter;
+import ninja.leaping.configurate.toml.TOMLConfigurationLoader;
+import ninja.leaping.configurate.xml.XMLConfigurationLoader;
+import ninja.leaping.configurate.yaml.YAMLConfigurationLoader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class BinaryConfigurationLoaderTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private BinaryConfigurationLoader loader() throws IOException {
+        return BinaryConfigurationLoader.builder().setPath(folder.newFile().toPath()).build();
+    }
+
+    @Test
+    public void testScalarTypes() throws IOException {
+        ImmutableMap<String, Object> values = ImmutableMap.<String, Object>builder()
+                .put("string", "a string ☃")
+                .put("true", true)
+                .put("false", false)
+                .put("int", -42)
+                .put("long", Long.MIN_VALUE)
+                .put("float", 1.5f)
+                .put("double", Math.PI)
+                .put("byte", (byte) -3)
+                .put("short", (short) 30000)
+                .put("char", 'x')
+                .put("bigInteger", new BigInteger("123456789012345678901234567890"))
+                .put("bigDecimal", new BigDecimal("-1234567890.0987654321"))
+                .put("date", new Date(1500000000000L))
+                .put("instant", Instant.ofEpochSecond(-1, 5))
+                .build();
+        SimpleConfigurationNode node = SimpleConfigurationNode.root();
+        values.forEach((key, value) -> node.getNode(key).setValue(value));
+        node.getNode("bytes").setValue(new byte[] {1, 2, 3});
+
+        BinaryConfigurationLoader loader = loader();
+        loader.save(node);
+        ConfigurationNode loaded = loader.load();
+        assertTrue(loaded instanceof SimpleConfigurationNode);
+        assertFalse(loaded instanceof CommentedConfigurationNode);
+        values.forEach((key, value) -> {
+            assertEquals(key, value, loaded.getNode(key).getValue());
+            assertEquals(key, value.getClass(), loaded.getNode(key).getValue().getClass());
+        });
+        assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) loaded.getNode("bytes").getValue());
+    }
+
+    @Test
+    public void testStructure() throws IOException {
+        SimpleConfigurationNode node = SimpleConfigurationNode.root();
+        node.getNode("list").setValue(ImmutableList.of("a", ImmutableMap.of("b", 1), ImmutableList.of(2, 3)));
+        node.getNode("map", "nested", "deep").setValue(true);
+        node.getNode("map", 5).setValue("integer key");
+        node.getNode("emptyList").setValue(ImmutableList.of());
+        node.getNode("emptyMap").setValue(ImmutableMap.of());
+
+        BinaryConfigurationLoader loader = loader();
+        loader.save(node);
+        assertEquals(node, loader.load());
+    }
+
+    @Test
+    public void testCommentsAndHeader() throws IOException {
+        SimpleCommentedConfigurationNode node = SimpleCommentedConfigurationNode.root(
+                loader().getDefaultOptions().setHeader("A header\nover two lines"));
+        node.setComment("root comment");
+        node.getNode("a").setValue("value").setComment("on a scalar");
+        node.getNode("b", "c").setValue(1);
+        node.getNode("b").setComment("on a map");
+        node.getNode("d").setComment("without a value");
+
+        BinaryConfigurationLoader loader = loader();
+        loader.save(node);
+        ConfigurationNode loaded = loader.load();
+        assertTrue(loaded instanceof CommentedConfigurationNode);
+        assertEquals("A header\nover two lines", loaded.getOptions().getHeader());
+        assertEquals(node, loaded);
+        assertEquals("without a value", ((CommentedConfigurationNode) loaded.getNode("d")).getComment().orElse(null));
+    }
+
+    @Test
+    public void testAttributes() throws IOException {
+        SimpleAttributedConfigurationNode node = SimpleAttributedConfigurationNode.root("config");
+        node.addAttribute("version", "2");
+        node.getNode("server").setTagName("host").addAttribute("port", "25565").setValue("localhost");
+        node.getNode("worlds").setValue(ImmutableList.of("overworld", "nether"));
+        node.getNode("worlds").setTagName("world-list");
+
+        BinaryConfigurationLoader loader = loader();
+        loader.save(node);
+        ConfigurationNode loaded = loader.load();
+        assertTrue(loaded instanceof AttributedConfigurationNode);
+        assertEquals(node, loaded);
+        assertEquals("config", ((AttributedConfigurationNode) loaded).getTagName());
+        assertEquals("25565", ((AttributedConfigurationNode) loaded.getNode("server")).getAttribute("port"));
+    }
+
+    @Test
+    public void testFilteredLoading() throws IOException {
+        SimpleCommentedConfigurationNode node = SimpleCommentedConfigurationNode.root();
+        node.getNode("skipped", "deep").setValue(ImmutableList.of(1, ImmutableList.of(2, ImmutableMap.of("x", 3))));
+        node.getNode("skipped").setComment("skipped comment");
+        node.getNode("list").setValue(ImmutableList.of(ImmutableMap.of("a", 1, "b", 2), ImmutableMap.of("a", 3, "b", 4)));
+        node.getNode("kept", "value").setValue(true).setComment("kept comment");
+        node.getNode("after").setValue("end");
+
+        BinaryConfigurationLoader loader = loader();
+        loader.save(node);
+        PathFilter filter = PathFilter.of(new Object[] {"list", 1, "a"}, new Object[] {"kept"}, new Object[] {"missing"});
+        ConfigurationNode filtered = loader.load(loader.getDefaultOptions(), filter);
+        assertEquals(ImmutableMap.of(
+                "list", ImmutableList.of(ImmutableMap.of("a", 3)),
+                "kept", ImmutableMap.of("value", true)), filtered.getValue());
+
+        ConfigurationNode pruned = loader.load();
+        filter.prune(pruned);
+        assertEquals(pruned, filtered);
+    }
+
+    @Test
+    public void testDurabilityAfterPath() throws Exception {
+        Path path = folder.newFile().toPath();
+        BinaryConfigurationLoader.Builder builder = BinaryConfigurationLoader.builder().setPath(path);
+        Callable<? extends WritableByteChannel> sink = builder.getSink();
+        builder.setDurability(Durability.NONE);
+        assertNotSame(sink, builder.getSink());
+
+        ConfigurationNode node = SimpleConfigurationNode.root();
+        node.getNode("saved").setValue(true);
+        BinaryConfigurationLoader loader = builder.build();
+        loader.save(node);
+        assertEquals(node, loader.load());
+
+        // sinks which were set directly are left as they are
+        builder.setSink(sink).setDurability(Durability.SYNC_FILE);
+        assertSame(sink, builder.getSink());
+    }
+
+    @Test
+    public void testMissingFile() throws IOException {
+        Path missing = folder.getRoot().toPath().resolve("missing.bin");
+        ConfigurationNode loaded = BinaryConfigurationLoader.builder().setPath(missing).build().load();
+        assertTrue(loaded.getChildrenMap().isEmpty());
+        assertNull(loaded.getValue());
+    }
+
+    @Test
+    public void testMalformed() throws IOException {
+        SimpleConfigurationNode node = SimpleConfigurationNode.root();
+        node.getNode("a", "b").setValue("value");
+        Path file = folder.newFile().toPath();
+        BinaryConfigurationLoader loader = BinaryConfigurationLoader.builder().setPath(file).build();
+        loader.save(node);
+        byte[] valid = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(valid, valid.length - 3));
+        assertLoadFails(loader, "truncated document");
+
+        byte[] newerVersion = valid.clone();
+        newerVersion[4] = (byte) (BinaryFormat.VERSION + 1);
+        Files.write(file, newerVersion);
+        assertLoadFails(loader, "newer version");
+
+        Files.write(file, "{\"a\": 1}".getBytes());
+        assertLoadFails(loader, "text document");
+    }
+
+    private static void assertLoadFails(BinaryConfigurationLoader loader, String message) {
+        try {
+            loader.load();
+            fail("Loading a " + message + " should fail");
+        } catch (IOException expected) {
+        }
+    }
+
+    private static <T extends ConfigurationNode> T populate(T node) {
+        node.getNode("name").setValue("A test document");
+        node.getNode("enabled").setValue(true);
+        node.getNode("count").setValue(42);
+        node.getNode("ratio").setValue(0.25);
+        node.getNode("big").setValue(5000000000L);
+        node.getNode("tags").setValue(ImmutableList.of("one", "two", "three"));
+        node.getNode("section", "min").setValue(1);
+        node.getNode("section", "max").setValue(10);
+        node.getNode("section", "label").setValue("Section \"quoted\"");
+        if (node instanceof CommentedConfigurationNode) {
+            ((CommentedConfigurationNode) node.getNode("count")).setComment("A comment");
+            ((CommentedConfigurationNode) node.getNode("section")).setComment("A section comment");
+        }
+        return node;
+    }
+
+    /**
+     * Loads a document written by a text loader, and checks that it is unchanged by being saved
+     * and loaded in the binary format.
+     */
+    private void testRoundTrip(Function<Path, ConfigurationLoader<? extends ConfigurationNode>> textLoaders) throws IOException {
+        Path textFile = folder.newFile().toPath();
+        ConfigurationLoader<? extends ConfigurationNode> text = textLoaders.apply(textFile);
+        text.save(populate(text.createEmptyNode(text.getDefaultOptions().setHeader("The header"))));
+        ConfigurationNode loaded = text.load();
+
+        BinaryConfigurationLoader binary = loader();
+        binary.save(loaded);
+        ConfigurationNode reloaded = binary.load(loaded.getOptions());
+        assertEquals(loaded.getClass(), reloaded.getClass());
+        assertEquals(loaded, reloaded);
+
+        // the text written from either tree is the same
+        text.save(loaded);
+        String written = new String(Files.readAllBytes(textFile), "UTF-8");
+        text.save(reloaded);
+        assertEquals(written, new String(Files.readAllBytes(textFile), "UTF-8"));
+    }
+
+    @Test
+    public void testJsonRoundTrip() throws IOException {
+        testRoundTrip(path -> JSONConfigurationLoader.builder().setPath(path).build());
+    }
+
+    @Test
+    public void testGsonRoundTrip() throws IOException {
+        testRoundTrip(path -> GsonConfigurationLoader.builder().setPath(path).build());
+    }
+
+    @Test
+    public void testHoconRoundTrip() throws IOException {
+        testRoundTrip(path -> HoconConfigurationLoader.builder().setPath(path).build());
+    }
+
+    @Test
+    public void testYamlRoundTrip() throws IOException {
+        testRoundTrip(path -> YAMLConfigurationLoader.builder().setPath(path).build());
+    }
+
+    @Test
+    public void testTomlRoundTrip() throws IOException {
+        testRoundTrip(path -> TOMLConfigurationLoader.builder().setPath(path).build());
+    }
+
+    @Test
+    public void testXmlRoundTrip() throws IOException {
+        testRoundTrip(path -> XMLConfigurationLoader.builder().setPath(path).build());
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * A callback which is passed each child of a node by
+ * {@link ConfigurationNode#forEachChild(ChildVisitor)}.
+ *
+ * @param <E> The type of exception thrown by the visitor
+ */
+@FunctionalInterface
+public interface ChildVisitor<E extends Exception> {
+
+    /**
+     * Visits a child node.
+     *
+     * @param key The key of the child: the map key for map children, or the index of the
+     *            child for list children
+     * @param child The child node
+     * @throws E If the visitor fails
+     */
+    void visit(@NonNull Object key, @NonNull ConfigurationNode child) throws E;
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Iterators;
+import ninja.leaping.configurate.transformation.NodePath;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * A path to a node, which is created once and can then be resolved against any number of
+ * {@link ConfigurationNode}s.
+ *
+ * <p>Unlike {@link ConfigurationNode#getNode(Object...)}, resolving a compiled path does not
+ * allocate a new array for each lookup, and {@link #resolve(ConfigurationNode)} does not create
+ * virtual nodes for paths which don't exist.</p>
+ *
+ * <p>String keys are interned when the path is compiled, and the hash of the path is
+ * calculated up front, so compiled paths are also cheap to use as map keys.</p>
+ *
+ * <p>This class is immutable.</p>
+ */
+public final class CompiledPath implements NodePath {
+    private static final Interner<String> KEY_INTERNER = Interners.newWeakInterner();
+    private static final CompiledPath EMPTY = new CompiledPath(new Object[0]);
+
+    private final Object[] keys;
+    private final int hash;
+
+    /**
+     * Compiles a path from the given keys.
+     *
+     * @param path The keys of the path
+     * @return The compiled path
+     */
+    @NonNull
+    public static CompiledPath of(@NonNull Object... path) {
+        if (path.length == 0) {
+            return EMPTY;
+        }
+
+        Object[] keys = new Object[path.length];
+        for (int i = 0; i < path.length; ++i) {
+            Object key = Objects.requireNonNull(path[i], "path element");
+            keys[i] = key instanceof String ? KEY_INTERNER.intern((String) key) : key;
+        }
+        return new CompiledPath(keys);
+    }
+
+    /**
+     * Compiles a copy of the given path.
+     *
+     * @param path The path
+     * @return The compiled path
+     */
+    @NonNull
+    public static CompiledPath of(@NonNull NodePath path) {
+        if (path instanceof CompiledPath) {
+            return (CompiledPath) path;
+        }
+        return of(path.getArray());
+    }
+
+    private CompiledPath(Object[] keys) {
+        this.keys = keys;
+        this.hash = Arrays.hashCode(keys);
+    }
+
+    /**
+     * Gets the node at this path relative to the given node, if it exists.
+     *
+     * <p>If any node along the path does not exist, a shared empty virtual node is returned
+     * rather than creating a new one. That node can't be modified, so
+     * {@link #getNode(ConfigurationNode)} should be used if the result may need to be set.</p>
+     *
+     * @param node The node to start from
+     * @return The node at this path, or {@link ImmutableConfigurationNode#empty()}
+     */
+    @NonNull
+    public ConfigurationNode resolve(@NonNull ConfigurationNode node) {
+        for (Object key : this.keys) {
+            node = getExistingChild(node, key);
+            if (node == null) {
+                return ImmutableConfigurationNode.empty();
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Gets the node at this path relative to the given node, creating virtual nodes as
+     * {@link ConfigurationNode#getNode(Object...)} does.
+     *
+     * @param node The node to start from
+     * @return The node at this path
+     */
+    @NonNull
+    public ConfigurationNode getNode(@NonNull ConfigurationNode node) {
+        return node.getNode(this.keys);
+    }
+
+    @Nullable
+    private static ConfigurationNode getExistingChild(ConfigurationNode node, Object key) {
+        if (node instanceof SimpleConfigurationNode) {
+            return ((SimpleConfigurationNode) node).getExistingChild(key);
+        } else if (node instanceof ImmutableConfigurationNode) {
+            return ((ImmutableConfigurationNode) node).getChild(key);
+        } else {
+            ConfigurationNode child = node.getNode(key);
+            return child.isVirtual() ? null : child;
+        }
+    }
+
+    @Override
+    public Object get(int i) {
+        return this.keys[i];
+    }
+
+    @Override
+    public int size() {
+        return this.keys.length;
+    }
+
+    @Override
+    public Object[] getArray() {
+        return Arrays.copyOf(this.keys, this.keys.length);
+    }
+
+    @NonNull
+    @Override
+    public Iterator<Object> iterator() {
+        return Iterators.forArray(this.keys);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CompiledPath)) return false;
+        CompiledPath that = (CompiledPath) o;
+        return this.hash == that.hash && Arrays.equals(this.keys, that.keys);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledPath" + Arrays.toString(this.keys);
+    }
+}
@@ -23,19 +23,12 @@ import java.util.Iterator;
 
 /**
  * The value in a {@link ConfigurationNode}.
+ *
+ * <p>Values don't keep a reference to the node they belong to. Instead, the node is passed to
+ * the methods which need it, so values without any state can be shared between nodes.</p>
  */
 abstract class ConfigValue {
 
-    /**
-     * The node this value "belongs" to.
-     */
-    @NonNull
-    protected final SimpleConfigurationNode holder;
-
-    protected ConfigValue(@NonNull SimpleConfigurationNode holder) {
-        this.holder = holder;
-    }
-
     /**
      * Gets the value encapsulated by this instance
      *
@@ -47,9 +40,10 @@ abstract class ConfigValue {
     /**
      * Sets the value encapsulated by this instance
      *
+     * @param holder The node this value belongs to
      * @param value The value
      */
-    abstract void setValue(@Nullable Object value);
+    abstract void setValue(@NonNull SimpleConfigurationNode holder, @Nullable Object value);
 
     /**
      * Put a child value, or null to remove value at that key
@@ -88,15 +82,53 @@ abstract class ConfigValue {
     @NonNull
     abstract Iterable<SimpleConfigurationNode> iterateChildren();
 
+    /**
+     * Passes each child node to the given visitor, without creating a view or copy of each
+     * child. No lock is held while the visitor runs.
+     *
+     * <p>Values which can't hold children do nothing.</p>
+     *
+     * @param visitor The visitor
+     * @param <E> The type of exception thrown by the visitor
+     * @throws E If the visitor throws an exception
+     */
+    <E extends Exception> void forEachChild(@NonNull ChildVisitor<E> visitor) throws E {
+    }
+
+    /**
+     * Converts any children held by this value, and their values, into compact read-only
+     * storage, which is copied back into modifiable storage when it is next changed.
+     *
+     * <p>Values which can't hold children do nothing.</p>
+     *
+     * @param holder The node this value belongs to
+     * @see SimpleConfigurationNode#seal()
+     */
+    void seal(@NonNull SimpleConfigurationNode holder) {
+    }
+
+    /**
+     * Gets the contents of this value in the form held by an {@link ImmutableConfigurationNode}.
+     *
+     * <p>Child nodes are converted using {@link SimpleConfigurationNode#snapshot()}, so any
+     * unchanged children are shared with the previous snapshot.</p>
+     *
+     * @return The immutable contents
+     */
+    @Nullable
+    abstract Object snapshotContents();
+
     /**
      * Clears the set value (or any attached child values) from this value
+     *
+     * @param holder The node this value belongs to
      */
-    void clear() {
+    void clear(@NonNull SimpleConfigurationNode holder) {
         for (Iterator<SimpleConfigurationNode> it = iterateChildren().iterator(); it.hasNext();) {
             SimpleConfigurationNode node = it.next();
             node.attached = false;
             it.remove();
-            if (node.getParentEnsureAttached().equals(holder)) {
+            if (node.getParentEnsureAttached() == holder) {
                 node.clear();
             }
         }
@@ -155,6 +155,10 @@ public interface ConfigurationNode {
      * <p>If this node does not {@link #hasListChildren() have list children}, an empty list is
      * returned.</p>
      *
+     * <p>The returned list is an unmodifiable view rather than a copy. It reflects children
+     * added, removed or replaced after it was returned, until this node is set to a new value,
+     * and does not throw if they change while it is being iterated.</p>
+     *
      * @return The list children currently attached to this node
      */
     @NonNull
@@ -166,11 +170,42 @@ public interface ConfigurationNode {
      * <p>If this node does not {@link #hasMapChildren() have map children}, an empty map
      * returned.</p>
      *
+     * <p>The returned map is an unmodifiable view rather than a copy. It reflects children
+     * added, removed or replaced after it was returned, until this node is set to a new value,
+     * and does not throw if they change while it is being iterated.</p>
+     *
      * @return The map children currently attached to this node
      */
     @NonNull
     Map<Object, ? extends ConfigurationNode> getChildrenMap();
 
+    /**
+     * Passes each child of this node to the given visitor, in order.
+     *
+     * <p>Unlike iterating over {@link #getChildrenMap()} or {@link #getChildrenList()}, this
+     * does not need to create a view or copy of each child, so is the preferred way of walking
+     * a tree. No lock on this node is held while the visitor runs, so it may block, for example
+     * to write the children out. The visitor must not modify the children of this node.</p>
+     *
+     * <p>If this node has neither map nor list children, the visitor is not called.</p>
+     *
+     * @param visitor The visitor
+     * @param <E> The type of exception thrown by the visitor
+     * @throws E If the visitor throws an exception
+     */
+    default <E extends Exception> void forEachChild(@NonNull ChildVisitor<E> visitor) throws E {
+        if (hasMapChildren()) {
+            for (Map.Entry<Object, ? extends ConfigurationNode> ent : getChildrenMap().entrySet()) {
+                visitor.visit(ent.getKey(), ent.getValue());
+            }
+        } else if (hasListChildren()) {
+            List<? extends ConfigurationNode> children = getChildrenList();
+            for (int i = 0; i < children.size(); ++i) {
+                visitor.visit(i, children.get(i));
+            }
+        }
+    }
+
     /**
      * Get the current value associated with this node.
      *
@@ -584,4 +619,19 @@ public interface ConfigurationNode {
     @NonNull
     ConfigurationNode getAppendedNode();
 
+    /**
+     * Creates an immutable snapshot of this node and all of its children.
+     *
+     * <p>The snapshot is unaffected by any later changes to this node, and can safely be read
+     * from multiple threads. Implementations may share unchanged subtrees between successive
+     * snapshots of the same node.</p>
+     *
+     * @return An immutable snapshot of this node
+     * @see ImmutableConfigurationNode
+     */
+    @NonNull
+    default ConfigurationNode snapshot() {
+        return ImmutableConfigurationNode.copyOf(this);
+    }
+
 }
@@ -0,0 +1,513 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeParameter;
+import com.google.common.reflect.TypeToken;
+import ninja.leaping.configurate.objectmapping.ObjectMappingException;
+import ninja.leaping.configurate.objectmapping.serialize.TypeSerializer;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * An immutable {@link ConfigurationNode}, usually obtained from {@link ConfigurationNode#snapshot()}.
+ *
+ * <p>Instances hold no reference to their parent, which allows an unchanged subtree to be shared
+ * between successive snapshots of the same mutable tree. As a consequence, {@link #getParent()}
+ * always returns null, and {@link #getPath()} only contains the key of this node.</p>
+ *
+ * <p>All fields are final, so a snapshot can be read from any number of threads without
+ * synchronization. Any attempt to modify a snapshot throws an
+ * {@link UnsupportedOperationException}.</p>
+ */
+public class ImmutableConfigurationNode implements ConfigurationNode {
+    private static final ImmutableConfigurationNode EMPTY = new ImmutableConfigurationNode(null, ConfigurationOptions.defaults(), null, true);
+
+    /**
+     * The key of this node
+     */
+    @Nullable
+    private final Object key;
+
+    /**
+     * The options determining the behaviour of this node
+     */
+    @NonNull
+    private final ConfigurationOptions options;
+
+    /**
+     * The contents of this node.
+     *
+     * <p>Either an {@link ImmutableMap} of map children, an {@link ImmutableList} of list
+     * children, a scalar value, or null if the node has no value.</p>
+     */
+    @Nullable
+    private final Object contents;
+
+    /**
+     * If this node does not exist in the tree it was taken from
+     */
+    private final boolean virtual;
+
+    /**
+     * A lazily calculated hash of the contents of this node
+     */
+    private int hash;
+
+    /**
+     * Creates an immutable deep copy of the given node.
+     *
+     * <p>If the node is already immutable, it is returned as-is.</p>
+     *
+     * @param node The node to copy
+     * @return An immutable copy of the node
+     */
+    @NonNull
+    public static ImmutableConfigurationNode copyOf(@NonNull ConfigurationNode node) {
+        if (node instanceof ImmutableConfigurationNode) {
+            return (ImmutableConfigurationNode) node;
+        }
+        return new ImmutableConfigurationNode(node.getKey(), node.getOptions(), copyContents(node, ImmutableConfigurationNode::copyOf), node.isVirtual());
+    }
+
+    /**
+     * Gets a shared empty virtual node, with no key and the
+     * {@link ConfigurationOptions#defaults() default options}.
+     *
+     * @return The empty node
+     * @see CompiledPath#resolve(ConfigurationNode)
+     */
+    @NonNull
+    public static ImmutableConfigurationNode empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Copies the contents of the given node, in the form expected by the constructor of this
+     * class.
+     *
+     * @param node The node to copy the contents of
+     * @param childCopier The function used to copy child nodes
+     * @return The contents
+     */
+    @Nullable
+    protected static Object copyContents(@NonNull ConfigurationNode node, @NonNull Function<ConfigurationNode, ? extends ImmutableConfigurationNode> childCopier) {
+        if (node.hasMapChildren()) {
+            ImmutableMap.Builder<Object, ImmutableConfigurationNode> children = ImmutableMap.builder();
+            for (Map.Entry<Object, ? extends ConfigurationNode> ent : node.getChildrenMap().entrySet()) {
+                children.put(ent.getKey(), childCopier.apply(ent.getValue()));
+            }
+            return children.build();
+        } else if (node.hasListChildren()) {
+            ImmutableList.Builder<ImmutableConfigurationNode> children = ImmutableList.builder();
+            for (ConfigurationNode child : node.getChildrenList()) {
+                children.add(childCopier.apply(child));
+            }
+            return children.build();
+        } else {
+            return node.getValue();
+        }
+    }
+
+    /**
+     * Creates a new immutable node.
+     *
+     * @param key The key of the node
+     * @param options The options of the node
+     * @param contents The contents of the node: an {@link ImmutableMap} of child nodes, an
+     *                 {@link ImmutableList} of child nodes, a scalar value, or null
+     * @param virtual If the node is virtual
+     */
+    protected ImmutableConfigurationNode(@Nullable Object key, @NonNull ConfigurationOptions options, @Nullable Object contents, boolean virtual) {
+        this.key = key;
+        this.options = Objects.requireNonNull(options, "options");
+        this.contents = contents;
+        this.virtual = virtual;
+    }
+
+    /**
+     * Returns a node with the same contents as this node, but a different key.
+     *
+     * <p>Subclasses must override this to preserve any additional state.</p>
+     *
+     * @param key The new key
+     * @return A node with the given key
+     */
+    @NonNull
+    protected ImmutableConfigurationNode withKey(@Nullable Object key) {
+        return new ImmutableConfigurationNode(key, this.options, this.contents, this.virtual);
+    }
+
+    /**
+     * Creates an empty virtual node, used to represent a path which doesn't exist in this
+     * snapshot.
+     *
+     * @param key The key of the node
+     * @return A new virtual node
+     */
+    @NonNull
+    protected ImmutableConfigurationNode createVirtualNode(@Nullable Object key) {
+        return new ImmutableConfigurationNode(key, this.options, null, true);
+    }
+
+    /**
+     * Gets the contents of this node, as passed to the constructor.
+     *
+     * @return The contents
+     */
+    @Nullable
+    protected final Object getContents() {
+        return this.contents;
+    }
+
+    @Nullable
+    @Override
+    public Object getKey() {
+        return this.key;
+    }
+
+    @NonNull
+    @Override
+    public Object[] getPath() {
+        return new Object[]{this.key};
+    }
+
+    @Nullable
+    @Override
+    public ImmutableConfigurationNode getParent() {
+        return null;
+    }
+
+    @NonNull
+    @Override
+    public ImmutableConfigurationNode getNode(@NonNull Object... path) {
+        ImmutableConfigurationNode pointer = this;
+        for (Object el : path) {
+            pointer = pointer.getChild(el);
+            if (pointer == null) {
+                return createVirtualNode(path[path.length - 1]);
+            }
+        }
+        return pointer;
+    }
+
+    /**
+     * Gets an existing child of this node.
+     *
+     * @param key The key of the child
+     * @return The child, or null if there is no child with that key
+     */
+    @Nullable
+    ImmutableConfigurationNode getChild(Object key) {
+        Object contents = this.contents;
+        if (contents instanceof ImmutableMap) {
+            return (ImmutableConfigurationNode) ((ImmutableMap<?, ?>) contents).get(key);
+        } else if (contents instanceof ImmutableList) {
+            Integer index = Types.asInt(key);
+            ImmutableList<?> children = (ImmutableList<?>) contents;
+            if (index == null || index < 0 || index >= children.size()) {
+                return null;
+            }
+            return (ImmutableConfigurationNode) children.get(index);
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isVirtual() {
+        return this.virtual;
+    }
+
+    @NonNull
+    @Override
+    public ConfigurationOptions getOptions() {
+        return this.options;
+    }
+
+    @Override
+    public boolean hasListChildren() {
+        return this.contents instanceof ImmutableList;
+    }
+
+    @Override
+    public boolean hasMapChildren() {
+        return this.contents instanceof ImmutableMap;
+    }
+
+    @NonNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<? extends ImmutableConfigurationNode> getChildrenList() {
+        return this.contents instanceof ImmutableList ? (ImmutableList<ImmutableConfigurationNode>) this.contents : Collections.emptyList();
+    }
+
+    @NonNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Object, ? extends ImmutableConfigurationNode> getChildrenMap() {
+        return this.contents instanceof ImmutableMap ? (ImmutableMap<Object, ImmutableConfigurationNode>) this.contents : Collections.emptyMap();
+    }
+
+    @Override
+    public Object getValue(@Nullable Object def) {
+        Object ret = unwrap();
+        return ret == null ? def : ret;
+    }
+
+    @Override
+    public Object getValue(@NonNull Supplier<Object> defSupplier) {
+        Object ret = unwrap();
+        return ret == null ? defSupplier.get() : ret;
+    }
+
+    @Override
+    public <T> T getValue(@NonNull Function<Object, T> transformer, @Nullable T def) {
+        T ret = transformer.apply(unwrap());
+        return ret == null ? def : ret;
+    }
+
+    @Override
+    public <T> T getValue(@NonNull Function<Object, T> transformer, @NonNull Supplier<T> defSupplier) {
+        T ret = transformer.apply(unwrap());
+        return ret == null ? defSupplier.get() : ret;
+    }
+
+    /**
+     * Gets the contents of this node if it is a scalar.
+     *
+     * @return The scalar value, or null if this node has no value or has children
+     */
+    @Nullable
+    private Object getScalar() {
+        Object contents = this.contents;
+        return contents instanceof ImmutableMap || contents instanceof ImmutableList ? null : contents;
+    }
+
+    @Override
+    public float getFloat(float def) {
+        Float ret = Types.asFloat(getScalar());
+        return ret != null ? ret : def;
+    }
+
+    @Override
+    public double getDouble(double def) {
+        Double ret = Types.asDouble(getScalar());
+        return ret != null ? ret : def;
+    }
+
+    @Override
+    public int getInt(int def) {
+        Integer ret = Types.asInt(getScalar());
+        return ret != null ? ret : def;
+    }
+
+    @Override
+    public long getLong(long def) {
+        Long ret = Types.asLong(getScalar());
+        return ret != null ? ret : def;
+    }
+
+    @Override
+    public boolean getBoolean(boolean def) {
+        Boolean ret = Types.asBoolean(getScalar());
+        return ret != null ? ret : def;
+    }
+
+    /**
+     * Unwraps the contents of this node into plain {@link Map}s and {@link List}s.
+     *
+     * @return The unwrapped value
+     */
+    @Nullable
+    private Object unwrap() {
+        Object contents = this.contents;
+        if (contents instanceof ImmutableMap) {
+            Map<Object, Object> value = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> ent : ((ImmutableMap<?, ?>) contents).entrySet()) {
+                value.put(ent.getKey(), ((ImmutableConfigurationNode) ent.getValue()).unwrap());
+            }
+            return value;
+        } else if (contents instanceof ImmutableList) {
+            ImmutableList<?> children = (ImmutableList<?>) contents;
+            List<Object> value = new ArrayList<>(children.size());
+            for (Object child : children) {
+                value.add(((ImmutableConfigurationNode) child).unwrap());
+            }
+            return value;
+        }
+        return contents;
+    }
+
+    @NonNull
+    @Override
+    public <T> List<T> getList(@NonNull Function<Object, T> transformer) {
+        final ImmutableList.Builder<T> ret = ImmutableList.builder();
+        if (this.contents instanceof ImmutableList) {
+            // transform each value individually if the node is a list
+            for (ImmutableConfigurationNode o : getChildrenList()) {
+                T transformed = transformer.apply(o.unwrap());
+                if (transformed != null) {
+                    ret.add(transformed);
+                }
+            }
+        } else {
+            // transfer the value as a whole
+            T transformed = transformer.apply(unwrap());
+            if (transformed != null) {
+                ret.add(transformed);
+            }
+        }
+        return ret.build();
+    }
+
+    @Override
+    public <T> List<T> getList(@NonNull Function<Object, T> transformer, @Nullable List<T> def) {
+        List<T> ret = getList(transformer);
+        return ret.isEmpty() ? def : ret;
+    }
+
+    @Override
+    public <T> List<T> getList(@NonNull Function<Object, T> transformer, @NonNull Supplier<List<T>> defSupplier) {
+        List<T> ret = getList(transformer);
+        return ret.isEmpty() ? defSupplier.get() : ret;
+    }
+
+    @Override
+    public <T> List<T> getList(@NonNull TypeToken<T> type, @Nullable List<T> def) throws ObjectMappingException {
+        List<T> ret = getValue(new TypeToken<List<T>>() {}.where(new TypeParameter<T>() {}, type), def);
+        return ret.isEmpty() ? def : ret;
+    }
+
+    @Override
+    public <T> List<T> getList(@NonNull TypeToken<T> type, @NonNull Supplier<List<T>> defSupplier) throws ObjectMappingException {
+        List<T> ret = getValue(new TypeToken<List<T>>() {}.where(new TypeParameter<T>() {}, type), defSupplier);
+        return ret.isEmpty() ? defSupplier.get() : ret;
+    }
+
+    @Override
+    public <T> T getValue(@NonNull TypeToken<T> type, T def) throws ObjectMappingException {
+        T ret = deserialize(type);
+        return ret == null ? def : ret;
+    }
+
+    @Override
+    public <T> T getValue(@NonNull TypeToken<T> type, @NonNull Supplier<T> defSupplier) throws ObjectMappingException {
+        T ret = deserialize(type);
+        return ret == null ? defSupplier.get() : ret;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private <T> T deserialize(@NonNull TypeToken<T> type) throws ObjectMappingException {
+        Object value = unwrap();
+        if (value == null) {
+            return null;
+        }
+
+        TypeSerializer serial = getOptions().getSerializers().get(type);
+        if (serial == null) {
+            return type.getRawType().isInstance(value) ? (T) type.getRawType().cast(value) : null;
+        }
+        return (T) serial.deserialize(type, this);
+    }
+
+    @NonNull
+    @Override
+    public ImmutableConfigurationNode setValue(@Nullable Object value) {
+        throw new UnsupportedOperationException("Snapshots cannot be modified");
+    }
+
+    @NonNull
+    @Override
+    public ImmutableConfigurationNode mergeValuesFrom(@NonNull ConfigurationNode other) {
+        throw new UnsupportedOperationException("Snapshots cannot be modified");
+    }
+
+    @Override
+    public boolean removeChild(@NonNull Object key) {
+        throw new UnsupportedOperationException("Snapshots cannot be modified");
+    }
+
+    @NonNull
+    @Override
+    public ImmutableConfigurationNode getAppendedNode() {
+        throw new UnsupportedOperationException("Snapshots cannot be modified");
+    }
+
+    @NonNull
+    @Override
+    public ImmutableConfigurationNode snapshot() {
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ImmutableConfigurationNode)) return false;
+        ImmutableConfigurationNode that = (ImmutableConfigurationNode) o;
+
+        return this.hashCode() == that.hashCode() &&
+                this.virtual == that.virtual &&
+                Objects.equals(this.key, that.key) &&
+                this.options.equals(that.options) &&
+                Objects.equals(this.contents, that.contents);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = this.hash;
+        if (hash == 0) {
+            hash = computeHash();
+            if (hash == 0) {
+                // reserve 0 to mean "not calculated"
+                hash = 1;
+            }
+            this.hash = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * Calculates the hash of the contents of this node.
+     *
+     * @return The hash of this node's contents
+     * @see SimpleConfigurationNode#computeHash()
+     */
+    protected int computeHash() {
+        return Objects.hashCode(this.contents);
+    }
+
+    @Override
+    public String toString() {
+        return "ImmutableConfigurationNode{" +
+                "key=" + key +
+                ", virtual=" + virtual +
+                ", contents=" + contents +
+                '}';
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A {@link ConfigValue} which has not been read yet.
+ *
+ * <p>The holding node replaces this with the value it reads the first time the node's contents
+ * are accessed, so the other operations of this value are never used.</p>
+ *
+ * @see SimpleConfigurationNode#setLazyValue(LazyValue)
+ */
+final class LazyConfigValue extends ConfigValue {
+    private final LazyValue source;
+    @Nullable
+    private volatile ConfigValue value;
+
+    LazyConfigValue(@NonNull LazyValue source) {
+        this.source = source;
+    }
+
+    /**
+     * Gets the source this value is read from.
+     *
+     * @return The source
+     */
+    @NonNull
+    LazyValue getSource() {
+        return this.source;
+    }
+
+    /**
+     * Reads the value for the given node, if it hasn't already been read.
+     *
+     * @param holder The node this value belongs to
+     * @return The value which was read
+     * @throws UncheckedIOException if the value could not be read
+     */
+    @NonNull
+    ConfigValue read(@NonNull SimpleConfigurationNode holder) {
+        ConfigValue value = this.value;
+        if (value == null) {
+            synchronized (this) {
+                value = this.value;
+                if (value == null) {
+                    try {
+                        this.value = value = holder.readLazyValue(source);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+        }
+        return value;
+    }
+
+    private static IllegalStateException unread() {
+        return new IllegalStateException("Lazy values must be read through their node before use");
+    }
+
+    @Nullable
+    @Override
+    Object getValue() {
+        throw unread();
+    }
+
+    @Override
+    void setValue(@NonNull SimpleConfigurationNode holder, @Nullable Object value) {
+        throw unread();
+    }
+
+    @Nullable
+    @Override
+    SimpleConfigurationNode putChild(@NonNull Object key, @Nullable SimpleConfigurationNode value) {
+        throw unread();
+    }
+
+    @Nullable
+    @Override
+    SimpleConfigurationNode putChildIfAbsent(@NonNull Object key, @Nullable SimpleConfigurationNode value) {
+        throw unread();
+    }
+
+    @Nullable
+    @Override
+    SimpleConfigurationNode getChild(@Nullable Object key) {
+        throw unread();
+    }
+
+    @NonNull
+    @Override
+    Iterable<SimpleConfigurationNode> iterateChildren() {
+        throw unread();
+    }
+
+    @Nullable
+    @Override
+    Object snapshotContents() {
+        throw unread();
+    }
+
+    @Override
+    void clear(@NonNull SimpleConfigurationNode holder) {
+        // nothing has been attached yet
+    }
+
+    @Override
+    public String toString() {
+        return "LazyConfigValue{read=" + (value != null) + '}';
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.io.IOException;
+
+/**
+ * A part of a document which is read into a node the first time the node is accessed.
+ *
+ * @see SimpleConfigurationNode#setLazyValue(LazyValue)
+ */
+@FunctionalInterface
+public interface LazyValue {
+
+    /**
+     * Reads this value into the given node.
+     *
+     * <p>The node is empty, and is not attached to the tree the value will end up in. It may
+     * be called more than once if a previous attempt failed.</p>
+     *
+     * @param node The node to populate
+     * @throws IOException if the value could not be read
+     */
+    void readInto(@NonNull ConfigurationNode node) throws IOException;
+}
@@ -16,40 +16,50 @@
  */
 package ninja.leaping.configurate;
 
-import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * A {@link ConfigValue} which holds a list of values.
  */
 class ListConfigValue extends ConfigValue {
-    final AtomicReference<List<SimpleConfigurationNode>> values = new AtomicReference<>(new ArrayList<>());
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ListConfigValue, List> VALUES_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(ListConfigValue.class, List.class, "values");
 
-    ListConfigValue(SimpleConfigurationNode holder) {
-        super(holder);
+    /**
+     * The children of this value. Usually an {@link ArrayList}, or an {@link ImmutableList} once
+     * {@link #seal(SimpleConfigurationNode) sealed} or {@link #forEachChild(ChildVisitor) visited}.
+     * Each list is locked on while it is accessed, and is only replaced while it is locked, or
+     * by {@link #clear(SimpleConfigurationNode)}.
+     */
+    volatile List<SimpleConfigurationNode> values = new ArrayList<>();
+
+    ListConfigValue() {
     }
 
     ListConfigValue(SimpleConfigurationNode holder, Object startValue) {
-        super(holder);
-
         SimpleConfigurationNode child = holder.createNode(0);
         child.attached = true;
         child.setValue(startValue);
-        this.values.get().add(child);
+        this.values.add(child);
     }
 
     @Nullable
     @Override
     public Object getValue() {
-        final List<SimpleConfigurationNode> values = this.values.get();
+        final List<SimpleConfigurationNode> values = this.values;
         synchronized (values) {
             final List<Object> ret = new ArrayList<>(values.size());
             for (SimpleConfigurationNode obj : values) {
@@ -60,7 +70,7 @@ class ListConfigValue extends ConfigValue {
     }
 
     @Override
-    public void setValue(@Nullable Object value) {
+    public void setValue(@NonNull SimpleConfigurationNode holder, @Nullable Object value) {
         if (!(value instanceof Collection)) {
             value = Collections.singleton(value);
         }
@@ -79,7 +89,7 @@ class ListConfigValue extends ConfigValue {
             child.setValue(o);
             ++count;
         }
-        detachNodes(values.getAndSet(newValue));
+        detachNodes(getAndSetValues(newValue));
     }
 
     @Nullable
@@ -96,17 +106,25 @@ class ListConfigValue extends ConfigValue {
 
     private SimpleConfigurationNode putChild(int index, @Nullable SimpleConfigurationNode value, boolean onlyIfAbsent) {
         SimpleConfigurationNode ret = null;
-        List<SimpleConfigurationNode> values;
-        do {
-            values = this.values.get();
+        while (true) {
+            List<SimpleConfigurationNode> values = this.values;
+            if (values instanceof ImmutableList) {
+                // frozen, so copy back into a modifiable list before making any changes
+                VALUES_UPDATER.compareAndSet(this, values, new ArrayList<>(values));
+                continue;
+            }
             synchronized (values) {
+                if (this.values != values) {
+                    // replaced while waiting for the lock
+                    continue;
+                }
                 if (value == null) {
-                    if (index < values.size()) {
+                    if (index >= 0 && index < values.size()) {
                         // remove the value
                         ret = values.remove(index);
                         // update indexes for subsequent elements
                         for (int i = index; i < values.size(); ++i) {
-                            values.get(i).key = index;
+                            values.get(i).key = i;
                         }
                     }
                 } else {
@@ -118,15 +136,17 @@ class ListConfigValue extends ConfigValue {
                             ret = values.set(index, value);
                         }
                     } else if (index == -1) { // Gotta correct the child path for the correct path name
+                        // the appended node always ends up at the tail of the list, so its index
+                        // is known without searching for it
+                        value.key = values.size();
                         values.add(value);
-                        value.key = values.lastIndexOf(value);
                     } else {
                         values.add(index, value);
                     }
                 }
             }
-        } while (!this.values.compareAndSet(values, values));
-        return ret;
+            return ret;
+        }
     }
 
 
@@ -134,28 +154,104 @@ class ListConfigValue extends ConfigValue {
     @Override
     public SimpleConfigurationNode getChild(@Nullable Object key) {
         Integer value = Types.asInt(key);
-        if (value == null || value < 0) {
+        if (value == null) {
+            return null;
+        }
+        return childAt(value);
+    }
+
+    @Nullable
+    private SimpleConfigurationNode childAt(int index) {
+        if (index < 0) {
             return null;
         }
 
-        final List<SimpleConfigurationNode> values = this.values.get();
+        final List<SimpleConfigurationNode> values = this.values;
         synchronized (values) {
-            if (value >= values.size()) {
+            if (index >= values.size()) {
                 return null;
             }
-            return values.get(value);
+            return values.get(index);
         }
     }
 
+    /**
+     * Gets an unmodifiable view of the children of this value.
+     *
+     * @return The children
+     * @see ChildrenView
+     */
+    @NonNull
+    List<SimpleConfigurationNode> childrenView() {
+        return new ChildrenView();
+    }
+
     @NonNull
     @Override
     public Iterable<SimpleConfigurationNode> iterateChildren() {
-        List<SimpleConfigurationNode> values = this.values.get();
+        List<SimpleConfigurationNode> values = this.values;
         synchronized (values) {
             return ImmutableList.copyOf(values);
         }
     }
 
+    @Override
+    <E extends Exception> void forEachChild(@NonNull ChildVisitor<E> visitor) throws E {
+        // the lock isn't held while the visitor runs, as it may block
+        List<SimpleConfigurationNode> values = freeze();
+        for (int i = 0; i < values.size(); ++i) {
+            visitor.visit(i, values.get(i));
+        }
+    }
+
+    @NonNull
+    @Override
+    Object snapshotContents() {
+        List<SimpleConfigurationNode> values = this.values;
+        ImmutableList.Builder<ImmutableConfigurationNode> children = ImmutableList.builder();
+        synchronized (values) {
+            for (SimpleConfigurationNode child : values) {
+                children.add(child.snapshot());
+            }
+        }
+        return children.build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<SimpleConfigurationNode> getAndSetValues(List<SimpleConfigurationNode> values) {
+        return (List<SimpleConfigurationNode>) VALUES_UPDATER.getAndSet(this, values);
+    }
+
+    @Override
+    void seal(@NonNull SimpleConfigurationNode holder) {
+        for (SimpleConfigurationNode child : freeze()) {
+            child.seal();
+        }
+    }
+
+    /**
+     * Replaces the children with an immutable list, if they are not already held in one, so
+     * they can be read without locking or copying them until they are next changed.
+     *
+     * @return The immutable list of children
+     */
+    @SuppressWarnings("unchecked")
+    private ImmutableList<SimpleConfigurationNode> freeze() {
+        while (true) {
+            List<SimpleConfigurationNode> values = this.values;
+            if (values instanceof ImmutableList) {
+                return (ImmutableList<SimpleConfigurationNode>) values;
+            }
+            synchronized (values) {
+                if (this.values == values) {
+                    ImmutableList<SimpleConfigurationNode> frozen = ImmutableList.copyOf(values);
+                    this.values = frozen;
+                    return frozen;
+                }
+            }
+        }
+    }
+
     private static void detachNodes(List<SimpleConfigurationNode> children) {
         synchronized (children) {
             for (SimpleConfigurationNode node : children) {
@@ -166,11 +262,64 @@ class ListConfigValue extends ConfigValue {
     }
 
     @Override
-    public void clear() {
-        List<SimpleConfigurationNode> oldValues = values.getAndSet(new ArrayList<>());
+    public void clear(@NonNull SimpleConfigurationNode holder) {
+        List<SimpleConfigurationNode> oldValues = getAndSetValues(new ArrayList<>());
         detachNodes(oldValues);
     }
 
+    /**
+     * A read-only view of the children of a {@link ListConfigValue}.
+     *
+     * <p>Each access reads the current list under its lock. Iterators are weakly consistent:
+     * they never throw {@link java.util.ConcurrentModificationException}, and stop at the
+     * first index past the end of the list.</p>
+     */
+    private final class ChildrenView extends AbstractList<SimpleConfigurationNode> implements RandomAccess {
+        @Override
+        public SimpleConfigurationNode get(int index) {
+            final List<SimpleConfigurationNode> values = ListConfigValue.this.values;
+            synchronized (values) {
+                return values.get(index);
+            }
+        }
+
+        @Override
+        public int size() {
+            final List<SimpleConfigurationNode> values = ListConfigValue.this.values;
+            synchronized (values) {
+                return values.size();
+            }
+        }
+
+        @NonNull
+        @Override
+        public Iterator<SimpleConfigurationNode> iterator() {
+            return new Iterator<SimpleConfigurationNode>() {
+                private int index;
+                @Nullable private SimpleConfigurationNode next;
+
+                @Override
+                public boolean hasNext() {
+                    if (next == null) {
+                        next = childAt(index);
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public SimpleConfigurationNode next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    SimpleConfigurationNode ret = next;
+                    next = null;
+                    ++index;
+                    return ret;
+                }
+            };
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -180,11 +329,17 @@ class ListConfigValue extends ConfigValue {
             return false;
         }
         ListConfigValue that = (ListConfigValue) o;
-        return Objects.equal(values, that.values);
+        final List<SimpleConfigurationNode> values = this.values;
+        synchronized (values) {
+            return values.equals(that.values);
+        }
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(values);
+        final List<SimpleConfigurationNode> values = this.values;
+        synchronized (values) {
+            return values.hashCode();
+        }
     }
 }
@@ -17,12 +17,19 @@
 package ninja.leaping.configurate;
 
 import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
 
 /**
  * A {@link ConfigValue} which holds a map of values.
@@ -31,11 +38,10 @@ class MapConfigValue extends ConfigValue {
     volatile ConcurrentMap<Object, SimpleConfigurationNode> values;
 
     public MapConfigValue(SimpleConfigurationNode holder) {
-        super(holder);
-        values = newMap();
+        values = newMap(holder);
     }
 
-    private ConcurrentMap<Object, SimpleConfigurationNode> newMap() {
+    private static ConcurrentMap<Object, SimpleConfigurationNode> newMap(SimpleConfigurationNode holder) {
         return holder.getOptions().getMapFactory().create();
     }
 
@@ -50,9 +56,9 @@ class MapConfigValue extends ConfigValue {
     }
 
     @Override
-    public void setValue(@Nullable Object value) {
+    public void setValue(@NonNull SimpleConfigurationNode holder, @Nullable Object value) {
         if (value instanceof Map) {
-            final ConcurrentMap<Object, SimpleConfigurationNode> newValue = newMap();
+            final ConcurrentMap<Object, SimpleConfigurationNode> newValue = newMap(holder);
             for (Map.Entry<?, ?> ent : ((Map<?, ?>) value).entrySet()) {
                 if (ent.getValue() == null) {
                     continue;
@@ -76,9 +82,9 @@ class MapConfigValue extends ConfigValue {
     @Override
     SimpleConfigurationNode putChild(@NonNull Object key, @Nullable SimpleConfigurationNode value) {
         if (value == null) {
-            return values.remove(key);
+            return values.containsKey(key) ? writableValues().remove(key) : null;
         } else {
-            return values.put(key, value);
+            return writableValues().put(key, value);
         }
     }
 
@@ -86,9 +92,41 @@ class MapConfigValue extends ConfigValue {
     @Override
     SimpleConfigurationNode putChildIfAbsent(@NonNull Object key, @Nullable SimpleConfigurationNode value) {
         if (value == null) {
-            return values.remove(key);
+            return values.containsKey(key) ? writableValues().remove(key) : null;
         } else {
-            return values.putIfAbsent(key, value);
+            SimpleConfigurationNode existing = values.get(key);
+            return existing != null ? existing : writableValues().putIfAbsent(key, value);
+        }
+    }
+
+    /**
+     * Gets the map of children, first replacing it with a modifiable copy if it was
+     * {@link #seal(SimpleConfigurationNode) sealed}.
+     *
+     * @return The modifiable map of children
+     */
+    @SuppressWarnings("unchecked")
+    private ConcurrentMap<Object, SimpleConfigurationNode> writableValues() {
+        ConcurrentMap<Object, SimpleConfigurationNode> values = this.values;
+        if (values instanceof SealedMap) {
+            synchronized (this) {
+                values = this.values;
+                if (values instanceof SealedMap) {
+                    this.values = values = ((SealedMap<Object, SimpleConfigurationNode>) values).toMutable();
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    void seal(@NonNull SimpleConfigurationNode holder) {
+        synchronized (this) {
+            ConcurrentMap<Object, SimpleConfigurationNode> values = this.values;
+            values.forEach((key, child) -> child.seal());
+            if (!(values instanceof SealedMap)) {
+                this.values = new SealedMap<>(values, holder.getOptions().getMapFactory());
+            }
         }
     }
 
@@ -98,12 +136,114 @@ class MapConfigValue extends ConfigValue {
         return values.get(key);
     }
 
+    /**
+     * Gets an unmodifiable view of the children of this value.
+     *
+     * @return The children
+     * @see ChildrenView
+     */
+    @NonNull
+    Map<Object, SimpleConfigurationNode> childrenView() {
+        return new ChildrenView();
+    }
+
     @NonNull
     @Override
     public Iterable<SimpleConfigurationNode> iterateChildren() {
         return values.values();
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    <E extends Exception> void forEachChild(@NonNull ChildVisitor<E> visitor) throws E {
+        // ConcurrentMap#forEach doesn't copy the map, unlike iterating over its entry set
+        try {
+            values.forEach((key, child) -> {
+                try {
+                    visitor.visit(key, child);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new VisitorException(e);
+                }
+            });
+        } catch (VisitorException e) {
+            throw (E) e.getCause();
+        }
+    }
+
+    @NonNull
+    @Override
+    Object snapshotContents() {
+        ImmutableMap.Builder<Object, ImmutableConfigurationNode> children = ImmutableMap.builder();
+        for (Map.Entry<Object, SimpleConfigurationNode> ent : values.entrySet()) {
+            children.put(ent.getKey(), ent.getValue().snapshot());
+        }
+        return children.build();
+    }
+
+    /**
+     * A read-only view of the children of a {@link MapConfigValue}.
+     *
+     * <p>Each access reads the current map, so the view still reflects changes after the map
+     * is replaced, such as when this value is sealed or set. Iteration is only as consistent
+     * as iteration over the current map.</p>
+     */
+    private final class ChildrenView extends AbstractMap<Object, SimpleConfigurationNode> {
+        @Override
+        public SimpleConfigurationNode get(Object key) {
+            return values.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return values.isEmpty();
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super Object, ? super SimpleConfigurationNode> action) {
+            values.forEach(action);
+        }
+
+        @NonNull
+        @Override
+        public Set<Entry<Object, SimpleConfigurationNode>> entrySet() {
+            return new AbstractSet<Entry<Object, SimpleConfigurationNode>>() {
+                @NonNull
+                @Override
+                public Iterator<Entry<Object, SimpleConfigurationNode>> iterator() {
+                    return Collections.unmodifiableMap(values).entrySet().iterator();
+                }
+
+                @Override
+                public int size() {
+                    return values.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * Carries a checked exception thrown by a visitor out of {@link Map#forEach}.
+     */
+    private static final class VisitorException extends RuntimeException {
+        private static final long serialVersionUID = 6426311870457614742L;
+
+        VisitorException(Exception cause) {
+            super(cause);
+        }
+    }
+
     private static void detachChildren(Map<Object, SimpleConfigurationNode> map) {
         for (SimpleConfigurationNode value : map.values()) {
             value.attached = false;
@@ -112,10 +252,10 @@ class MapConfigValue extends ConfigValue {
     }
 
     @Override
-    public void clear() {
+    public void clear(@NonNull SimpleConfigurationNode holder) {
         synchronized (this) {
             ConcurrentMap<Object, SimpleConfigurationNode> oldMap = this.values;
-            this.values = newMap();
+            this.values = newMap(holder);
             detachChildren(oldMap);
         }
     }
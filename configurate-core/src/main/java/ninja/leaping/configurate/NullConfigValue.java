@@ -23,10 +23,13 @@ import java.util.Collections;
 
 /**
  * A {@link ConfigValue} which holds no value.
+ *
+ * <p>This value has no state, so a single instance is shared by every empty node.</p>
  */
-class NullConfigValue extends ConfigValue {
-    NullConfigValue(SimpleConfigurationNode holder) {
-        super(holder);
+final class NullConfigValue extends ConfigValue {
+    static final NullConfigValue INSTANCE = new NullConfigValue();
+
+    private NullConfigValue() {
     }
 
     @Nullable
@@ -36,7 +39,7 @@ class NullConfigValue extends ConfigValue {
     }
 
     @Override
-    public void setValue(@Nullable Object value) {
+    public void setValue(@NonNull SimpleConfigurationNode holder, @Nullable Object value) {
     }
 
     @Nullable
@@ -63,8 +66,14 @@ class NullConfigValue extends ConfigValue {
         return Collections.emptySet();
     }
 
+    @Nullable
+    @Override
+    Object snapshotContents() {
+        return null;
+    }
+
     @Override
-    public void clear() {
+    public void clear(@NonNull SimpleConfigurationNode holder) {
 
     }
 
@@ -29,8 +29,7 @@ import java.util.Collections;
 class ScalarConfigValue extends ConfigValue {
     private volatile Object value;
 
-    ScalarConfigValue(SimpleConfigurationNode holder) {
-        super(holder);
+    ScalarConfigValue() {
     }
 
     @Nullable
@@ -40,7 +39,7 @@ class ScalarConfigValue extends ConfigValue {
     }
 
     @Override
-    public void setValue(@Nullable Object value) {
+    public void setValue(@NonNull SimpleConfigurationNode holder, @Nullable Object value) {
         Preconditions.checkNotNull(value);
         if (!holder.getOptions().acceptsType(value.getClass())) {
             throw new IllegalArgumentException("Configuration does not accept objects of type " + value.getClass());
@@ -72,8 +71,14 @@ class ScalarConfigValue extends ConfigValue {
         return Collections.emptySet();
     }
 
+    @Nullable
+    @Override
+    Object snapshotContents() {
+        return value;
+    }
+
     @Override
-    public void clear() {
+    public void clear(@NonNull SimpleConfigurationNode holder) {
        this.value = null;
     }
 
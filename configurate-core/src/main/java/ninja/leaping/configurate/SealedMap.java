@@ -0,0 +1,224 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate;
+
+import ninja.leaping.configurate.util.MapFactory;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+
+/**
+ * A compact, read-only {@link ConcurrentMap}, used to hold the children of a sealed node.
+ *
+ * <p>Keys and values are stored next to each other in a single array, in the iteration order
+ * of the map they were copied from. Small maps are searched linearly, and larger maps also
+ * have an open addressing table of indexes into the array.</p>
+ *
+ * <p>All mutating methods throw {@link UnsupportedOperationException}. Use {@link #toMutable()}
+ * to get a modifiable copy.</p>
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+final class SealedMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+    /**
+     * The largest size of map which is searched without a hash table
+     */
+    private static final int LINEAR_SCAN_THRESHOLD = 8;
+
+    /**
+     * Alternating keys and values
+     */
+    private final Object[] entries;
+
+    /**
+     * An open addressing hash table, holding one more than the index of each entry, or null if
+     * the map is small enough to be searched linearly
+     */
+    @Nullable
+    private final int[] table;
+
+    /**
+     * The factory used to create the map which was sealed
+     */
+    private final MapFactory factory;
+
+    SealedMap(@NonNull Map<? extends K, ? extends V> source, @NonNull MapFactory factory) {
+        List<Map.Entry<? extends K, ? extends V>> sourceEntries = new ArrayList<>(source.entrySet());
+        this.entries = new Object[sourceEntries.size() * 2];
+        for (int i = 0; i < sourceEntries.size(); ++i) {
+            Map.Entry<? extends K, ? extends V> ent = sourceEntries.get(i);
+            this.entries[2 * i] = ent.getKey();
+            this.entries[2 * i + 1] = ent.getValue();
+        }
+
+        if (sourceEntries.size() > LINEAR_SCAN_THRESHOLD) {
+            // keep the load factor at or below 0.5
+            int[] table = new int[Integer.highestOneBit(sourceEntries.size() - 1) << 2];
+            int mask = table.length - 1;
+            for (int i = 0; i < sourceEntries.size(); ++i) {
+                int slot = spread(this.entries[2 * i].hashCode()) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = i + 1;
+            }
+            this.table = table;
+        } else {
+            this.table = null;
+        }
+        this.factory = factory;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Creates a modifiable copy of this map, using the factory which created the original map.
+     *
+     * @return A modifiable copy
+     */
+    @NonNull
+    ConcurrentMap<K, V> toMutable() {
+        ConcurrentMap<K, V> ret = this.factory.create();
+        forEach(ret::put);
+        return ret;
+    }
+
+    private int indexOf(@Nullable Object key) {
+        if (key == null) {
+            return -1;
+        }
+
+        final Object[] entries = this.entries;
+        final int[] table = this.table;
+        if (table == null) {
+            for (int i = 0; i < entries.length; i += 2) {
+                if (key.equals(entries[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int mask = table.length - 1;
+        for (int slot = spread(key.hashCode()) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int i = 2 * (table[slot] - 1);
+            if (key.equals(entries[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int i = indexOf(key);
+        return i == -1 ? null : (V) this.entries[i + 1];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) != -1;
+    }
+
+    @Override
+    public int size() {
+        return this.entries.length / 2;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.entries.length == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        final Object[] entries = this.entries;
+        for (int i = 0; i < entries.length; i += 2) {
+            action.accept((K) entries[i], (V) entries[i + 1]);
+        }
+    }
+
+    @NonNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @NonNull
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new Iterator<Entry<K, V>>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < entries.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Entry<K, V> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<K, V> ret = new SimpleImmutableEntry<>((K) entries[index], (V) entries[index + 1]);
+                        index += 2;
+                        return ret;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return SealedMap.this.size();
+            }
+        };
+    }
+
+    @Override
+    public V putIfAbsent(@NonNull K key, V value) {
+        throw new UnsupportedOperationException("Sealed maps cannot be modified");
+    }
+
+    @Override
+    public boolean remove(@NonNull Object key, Object value) {
+        throw new UnsupportedOperationException("Sealed maps cannot be modified");
+    }
+
+    @Override
+    public boolean replace(@NonNull K key, @NonNull V oldValue, @NonNull V newValue) {
+        throw new UnsupportedOperationException("Sealed maps cannot be modified");
+    }
+
+    @Override
+    public V replace(@NonNull K key, @NonNull V value) {
+        throw new UnsupportedOperationException("Sealed maps cannot be modified");
+    }
+}
@@ -18,7 +18,6 @@ package ninja.leaping.configurate;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.reflect.TypeParameter;
 import com.google.common.reflect.TypeToken;
 import ninja.leaping.configurate.objectmapping.ObjectMappingException;
@@ -26,12 +25,15 @@ import ninja.leaping.configurate.objectmapping.serialize.TypeSerializer;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -72,6 +74,29 @@ public class SimpleConfigurationNode implements ConfigurationNode {
     @NonNull
     private volatile ConfigValue value;
 
+    private static final AtomicLongFieldUpdater<SimpleConfigurationNode> HASH_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(SimpleConfigurationNode.class, "hash");
+
+    /**
+     * A cached hash of the contents of this node in the low 32 bits, or 0 if it needs to be
+     * recalculated, and a count of the changes to those contents in the high 32 bits.
+     *
+     * <p>Cleared for this node and all of its ancestors by {@link #markDirty()} whenever
+     * the node's contents change. The count is increased at the same time, so a hash which was
+     * being calculated while the contents changed is discarded rather than stored.</p>
+     */
+    private volatile long hash;
+
+    /**
+     * The most recent snapshot of this node, or null if the node has changed since it was
+     * taken.
+     *
+     * <p>Cleared alongside {@link #hash}, and only kept by {@link #snapshot()} if the change
+     * count in the hash did not move while it was being built.</p>
+     */
+    @Nullable
+    private volatile ImmutableConfigurationNode snapshot;
+
     @NonNull
     public static SimpleConfigurationNode root() {
         return root(ConfigurationOptions.defaults());
@@ -87,7 +112,7 @@ public class SimpleConfigurationNode implements ConfigurationNode {
         this.key = key;
         this.options = options;
         this.parent = parent;
-        this.value = new NullConfigValue(this);
+        this.value = NullConfigValue.INSTANCE;
 
         // if the parent is null, this node is a root node, and is therefore "attached"
         if (parent == null) {
@@ -95,6 +120,39 @@ public class SimpleConfigurationNode implements ConfigurationNode {
         }
     }
 
+    /**
+     * Gets the value of this node, first reading it if it was set by
+     * {@link #setLazyValue(LazyValue)}.
+     *
+     * <p>All access to the contents of this node goes through this method. The field is only
+     * read directly by operations which replace the value without looking at it.</p>
+     *
+     * @return The value
+     */
+    @NonNull
+    private ConfigValue value() {
+        ConfigValue value = this.value;
+        if (value instanceof LazyConfigValue) {
+            LazyConfigValue lazy = (LazyConfigValue) value;
+            value = lazy.read(this);
+            boolean read;
+            synchronized (this) {
+                // the value may have been replaced while it was being read
+                read = this.value == lazy;
+                if (read) {
+                    this.value = value;
+                }
+            }
+            if (!read) {
+                return value();
+            }
+            // the children which were read hold no cached state, so marking a later change to
+            // one of them stops there, and would leave the ancestors' snapshots in place
+            markDirty();
+        }
+        return value;
+    }
+
     /**
      * Handles the copying of applied defaults, if enabled.
      *
@@ -111,13 +169,13 @@ public class SimpleConfigurationNode implements ConfigurationNode {
 
     @Override
     public Object getValue(Object def) {
-        Object ret = value.getValue();
+        Object ret = value().getValue();
         return ret == null ? storeDefault(def) : ret;
     }
 
     @Override
     public Object getValue(@NonNull Supplier<Object> defSupplier) {
-        Object ret = value.getValue();
+        Object ret = value().getValue();
         return ret == null ? storeDefault(defSupplier.get()) : ret;
     }
 
@@ -133,11 +191,55 @@ public class SimpleConfigurationNode implements ConfigurationNode {
         return ret == null ? storeDefault(defSupplier.get()) : ret;
     }
 
+    /**
+     * Gets the value of this node if it is a scalar, without unwrapping any children.
+     *
+     * @return The scalar value, or null if this node has no value or has children
+     */
+    @Nullable
+    private Object getScalar() {
+        ConfigValue value = value();
+        return value instanceof ScalarConfigValue ? value.getValue() : null;
+    }
+
+    // Primitive getters avoid unwrapping map and list nodes only to fail to convert them, and
+    // only box the default value when it needs to be copied to this node
+
+    @Override
+    public float getFloat(float def) {
+        Float ret = Types.asFloat(getScalar());
+        return ret != null ? ret : getOptions().shouldCopyDefaults() ? storeDefault(def) : def;
+    }
+
+    @Override
+    public double getDouble(double def) {
+        Double ret = Types.asDouble(getScalar());
+        return ret != null ? ret : getOptions().shouldCopyDefaults() ? storeDefault(def) : def;
+    }
+
+    @Override
+    public int getInt(int def) {
+        Integer ret = Types.asInt(getScalar());
+        return ret != null ? ret : getOptions().shouldCopyDefaults() ? storeDefault(def) : def;
+    }
+
+    @Override
+    public long getLong(long def) {
+        Long ret = Types.asLong(getScalar());
+        return ret != null ? ret : getOptions().shouldCopyDefaults() ? storeDefault(def) : def;
+    }
+
+    @Override
+    public boolean getBoolean(boolean def) {
+        Boolean ret = Types.asBoolean(getScalar());
+        return ret != null ? ret : getOptions().shouldCopyDefaults() ? storeDefault(def) : def;
+    }
+
     @NonNull
     @Override
     public <T> List<T> getList(Function<Object, T> transformer) {
         final ImmutableList.Builder<T> ret = ImmutableList.builder();
-        ConfigValue value = this.value;
+        ConfigValue value = value();
         if (value instanceof ListConfigValue) {
             // transform each value individually if the node is a list
             for (SimpleConfigurationNode o : value.iterateChildren()) {
@@ -227,14 +329,23 @@ public class SimpleConfigurationNode implements ConfigurationNode {
         if (newValue instanceof ConfigurationNode) {
             ConfigurationNode newValueAsNode = (ConfigurationNode) newValue;
 
+            // keep sharing a value which hasn't been copied yet, rather than copying it now
+            if (newValueAsNode instanceof SimpleConfigurationNode) {
+                ImmutableConfigurationNode shared = ((SimpleConfigurationNode) newValueAsNode).getSharedValue();
+                if (shared != null) {
+                    return setSharedValue(shared);
+                }
+            }
+
             if (newValueAsNode.hasListChildren()) {
                 // handle list
                 attachIfNecessary();
-                ListConfigValue newList = new ListConfigValue(this);
+                ListConfigValue newList = new ListConfigValue();
                 synchronized (newValueAsNode) {
-                    newList.setValue(newValueAsNode.getChildrenList());
+                    newList.setValue(this, newValueAsNode.getChildrenList());
                 }
                 this.value = newList;
+                markDirty();
                 return this;
 
             } else if (newValueAsNode.hasMapChildren()) {
@@ -242,9 +353,10 @@ public class SimpleConfigurationNode implements ConfigurationNode {
                 attachIfNecessary();
                 MapConfigValue newMap = new MapConfigValue(this);
                 synchronized (newValueAsNode) {
-                    newMap.setValue(newValueAsNode.getChildrenMap());
+                    newMap.setValue(this, newValueAsNode.getChildrenMap());
                 }
                 this.value = newMap;
+                markDirty();
                 return this;
 
             } else {
@@ -278,33 +390,164 @@ public class SimpleConfigurationNode implements ConfigurationNode {
 
         synchronized (this) {
             ConfigValue oldValue, value;
+            // a lazy value which is being replaced doesn't need to be read first
             oldValue = value = this.value;
 
-            if (onlyIfNull && !(oldValue instanceof NullConfigValue)){
+            if (onlyIfNull && !(value() instanceof NullConfigValue)){
                 return;
             }
 
             // init new config value backing for the new value type if necessary
             if (newValue instanceof Collection) {
                 if (!(value instanceof ListConfigValue)) {
-                    value = new ListConfigValue(this);
+                    value = new ListConfigValue();
                 }
             } else if (newValue instanceof Map) {
                 if (!(value instanceof MapConfigValue)) {
                     value = new MapConfigValue(this);
                 }
             } else if (!(value instanceof ScalarConfigValue)) {
-                value = new ScalarConfigValue(this);
+                value = new ScalarConfigValue();
             }
 
             // insert the data into the config value
-            value.setValue(newValue);
+            value.setValue(this, newValue);
 
             /*if (oldValue != null && oldValue != value) {
-                oldValue.clear();
+                oldValue.clear(this);
             }*/
             this.value = value;
         }
+        markDirty();
+    }
+
+    /**
+     * Sets this node to be populated by the given value the first time its contents are
+     * accessed.
+     *
+     * <p>This allows a loader to skip over parts of a document while loading, and only parse
+     * them once they are needed. Until then, this node is attached, but holds no children.
+     * Reading the value happens at most once, even if the node is accessed from several
+     * threads at the same time.</p>
+     *
+     * <p>The value should leave the node it is given holding a map or a list. If it fails to
+     * read, the {@link IOException} is rethrown as an {@link UncheckedIOException} from the
+     * access which triggered it, and the next access will try again.</p>
+     *
+     * @param value The value to read into this node
+     * @return this
+     */
+    @NonNull
+    public SimpleConfigurationNode setLazyValue(@NonNull LazyValue value) {
+        Preconditions.checkNotNull(value, "value");
+        attachIfNecessary();
+        ConfigValue oldValue;
+        synchronized (this) {
+            oldValue = this.value;
+            this.value = new LazyConfigValue(value);
+        }
+        oldValue.clear(this);
+        markDirty();
+        return this;
+    }
+
+    /**
+     * Sets this node to share the contents of a snapshot, copying them only once they are
+     * needed.
+     *
+     * <p>This lets a subtree which appears in several places in a document, such as one
+     * referenced by a YAML alias, be held in memory once. The first access to the contents of
+     * this node copies one level of the snapshot into it, with each child sharing the
+     * corresponding child of the snapshot in turn, so reading or changing one path only copies
+     * the nodes along that path. Setting this node as the value of another node shares the
+     * snapshot with it as well.</p>
+     *
+     * @param value The snapshot to share
+     * @return this
+     * @see #getSharedValue()
+     */
+    @NonNull
+    public SimpleConfigurationNode setSharedValue(@NonNull ImmutableConfigurationNode value) {
+        Preconditions.checkNotNull(value, "value");
+        return setLazyValue(new SharedValue(value));
+    }
+
+    /**
+     * Gets the snapshot this node shares its contents with, if they have not been copied
+     * into it since being set by {@link #setSharedValue(ImmutableConfigurationNode)}.
+     *
+     * <p>Nodes which return the same snapshot hold the same contents, which lets loaders write
+     * them once and refer back to them.</p>
+     *
+     * @return The shared snapshot, or null if this node holds its own contents
+     */
+    @Nullable
+    public ImmutableConfigurationNode getSharedValue() {
+        ConfigValue value = this.value;
+        if (value instanceof LazyConfigValue) {
+            LazyValue source = ((LazyConfigValue) value).getSource();
+            if (source instanceof SharedValue) {
+                return ((SharedValue) source).value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A {@link LazyValue} which copies one level of a snapshot, leaving the children to share
+     * the rest.
+     */
+    private static final class SharedValue implements LazyValue {
+        final ImmutableConfigurationNode value;
+
+        SharedValue(ImmutableConfigurationNode value) {
+            this.value = value;
+        }
+
+        @Override
+        public void readInto(@NonNull ConfigurationNode node) {
+            if (this.value.hasMapChildren()) {
+                node.setValue(Collections.emptyMap());
+                for (Map.Entry<Object, ? extends ImmutableConfigurationNode> entry : this.value.getChildrenMap().entrySet()) {
+                    share(entry.getValue(), node.getNode(entry.getKey()));
+                }
+            } else if (this.value.hasListChildren()) {
+                node.setValue(Collections.emptyList());
+                for (ImmutableConfigurationNode child : this.value.getChildrenList()) {
+                    share(child, node.getAppendedNode());
+                }
+            } else {
+                node.setValue(this.value.getValue());
+            }
+        }
+
+        private static void share(ImmutableConfigurationNode source, ConfigurationNode target) {
+            if (source.hasMapChildren() || source.hasListChildren()) {
+                ((SimpleConfigurationNode) target).setSharedValue(source);
+            } else {
+                target.setValue(source.getValue());
+            }
+        }
+    }
+
+    /**
+     * Reads a lazily set value into a new node detached from the tree, and then adopts the
+     * children it creates, so the tree never holds a partially read value.
+     *
+     * @param source The lazy value
+     * @return The value which was read
+     * @throws IOException if the value could not be read
+     */
+    @NonNull
+    ConfigValue readLazyValue(@NonNull LazyValue source) throws IOException {
+        SimpleConfigurationNode scratch = createNode(this.key);
+        scratch.parent = null;
+        scratch.attached = true;
+        source.readInto(scratch);
+
+        ConfigValue read = scratch.value;
+        read.forEachChild((key, child) -> ((SimpleConfigurationNode) child).parent = this);
+        return read;
     }
 
     @NonNull
@@ -313,7 +556,7 @@ public class SimpleConfigurationNode implements ConfigurationNode {
         if (other.hasMapChildren()) {
             ConfigValue oldValue, newValue;
             synchronized (this) {
-                oldValue = newValue = value;
+                oldValue = newValue = value();
 
                 // ensure the current type is applicable.
                 if (!(oldValue instanceof MapConfigValue)) {
@@ -339,6 +582,7 @@ public class SimpleConfigurationNode implements ConfigurationNode {
                 }
                 this.value = newValue;
             }
+            markDirty();
         } else if (other.getValue() != null) {
             // otherwise, replace the value of this node, only if currently null
             insertNewValue(other.getValue(), true);
@@ -363,28 +607,117 @@ public class SimpleConfigurationNode implements ConfigurationNode {
 
     @Override
     public boolean hasListChildren() {
-        return this.value instanceof ListConfigValue;
+        return value() instanceof ListConfigValue;
     }
 
     @Override
     public boolean hasMapChildren() {
-        return this.value instanceof MapConfigValue;
+        return value() instanceof MapConfigValue;
     }
 
     @NonNull
     @Override
     @SuppressWarnings("unchecked")
     public List<? extends SimpleConfigurationNode> getChildrenList() {
-        ConfigValue value = this.value;
-        return value instanceof ListConfigValue ? ImmutableList.copyOf(((ListConfigValue) value).values.get()) : Collections.emptyList();
+        ConfigValue value = value();
+        return value instanceof ListConfigValue ? ((ListConfigValue) value).childrenView() : Collections.emptyList();
     }
 
     @NonNull
     @Override
     @SuppressWarnings("unchecked")
     public Map<Object, ? extends SimpleConfigurationNode> getChildrenMap() {
-        ConfigValue value = this.value;
-        return value instanceof MapConfigValue ? ImmutableMap.copyOf(((MapConfigValue) value).values) : Collections.emptyMap();
+        ConfigValue value = value();
+        return value instanceof MapConfigValue ? ((MapConfigValue) value).childrenView() : Collections.emptyMap();
+    }
+
+    @Override
+    public <E extends Exception> void forEachChild(@NonNull ChildVisitor<E> visitor) throws E {
+        value().forEachChild(visitor);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The previous snapshot of each node is retained, and only the nodes on the path to a
+     * change are copied when a new snapshot is taken. Snapshots can be read from any thread. A
+     * snapshot built while another thread changed the node is returned, but not retained, so
+     * the change is seen by the next snapshot.</p>
+     */
+    @NonNull
+    @Override
+    public ImmutableConfigurationNode snapshot() {
+        long state = this.hash;
+        ImmutableConfigurationNode snapshot = this.snapshot;
+        Object key = this.key;
+        if (snapshot == null) {
+            ImmutableConfigurationNode shared = getSharedValue();
+            snapshot = createSnapshot(key, shared != null ? shared.getContents() : value().snapshotContents());
+        } else if (!Objects.equals(key, snapshot.getKey())) {
+            // list elements are re-keyed when an element before them is removed
+            snapshot = snapshot.withKey(key);
+        } else {
+            return snapshot;
+        }
+        this.snapshot = snapshot;
+
+        // only kept if no change was counted since it started being built. Otherwise the change
+        // may have cleared the cache before it was stored, and stopped marking the ancestors
+        // here. It is still returned rather than rebuilt, so constant changes can't starve this
+        if (this.hash >>> 32 != state >>> 32) {
+            this.snapshot = null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Converts the children of this node and all of its descendants into compact, read-only
+     * storage.
+     *
+     * <p>Sealed maps hold their entries in a flat array, searched linearly when small and
+     * through an open addressing table otherwise. Sealed lists are held in an
+     * {@link ImmutableList}. Both use much less memory than the concurrent collections used
+     * normally, and are faster to read.</p>
+     *
+     * <p>The node stays modifiable: the first change to a sealed map or list copies it back
+     * into the usual storage. Sealing is intended for trees which are mostly read after being
+     * loaded, and should not happen at the same time as the tree is being modified.</p>
+     *
+     * <p>Values set by {@link #setLazyValue(LazyValue)} which have not been read yet are
+     * left as they are, and are not sealed once read.</p>
+     *
+     * @return this
+     */
+    @NonNull
+    public SimpleConfigurationNode seal() {
+        this.value.seal(this);
+        return this;
+    }
+
+    /**
+     * Creates an immutable node holding the state of this node.
+     *
+     * <p>Subclasses which hold additional state should override this to return an appropriate
+     * subclass of {@link ImmutableConfigurationNode}.</p>
+     *
+     * @param key The key of the new node
+     * @param contents The contents of the new node
+     * @return The snapshot
+     */
+    @NonNull
+    protected ImmutableConfigurationNode createSnapshot(@Nullable Object key, @Nullable Object contents) {
+        return new ImmutableConfigurationNode(key, options, contents, isVirtual());
+    }
+
+    /**
+     * Gets a child node relative to this, only if it exists.
+     *
+     * @param key The key
+     * @return The child node, or null if it doesn't exist
+     */
+    @Nullable
+    SimpleConfigurationNode getExistingChild(Object key) {
+        return value().getChild(key);
     }
 
     /**
@@ -395,7 +728,7 @@ public class SimpleConfigurationNode implements ConfigurationNode {
      * @return The child node
      */
     protected SimpleConfigurationNode getChild(Object key, boolean attach) {
-        SimpleConfigurationNode child = value.getChild(key);
+        SimpleConfigurationNode child = value().getChild(key);
 
         // child doesn't currently exist
         if (child == null) {
@@ -403,7 +736,7 @@ public class SimpleConfigurationNode implements ConfigurationNode {
                 // attach ourselves first
                 attachIfNecessary();
                 // insert the child node into the value
-                SimpleConfigurationNode existingChild = value.putChildIfAbsent(key, (child = createNode(key)));
+                SimpleConfigurationNode existingChild = value().putChildIfAbsent(key, (child = createNode(key)));
                 if (existingChild != null) {
                     child = existingChild;
                 } else {
@@ -420,7 +753,11 @@ public class SimpleConfigurationNode implements ConfigurationNode {
 
     @Override
     public boolean removeChild(@NonNull Object key) {
-        return detachIfNonNull(value.putChild(key, null)) != null;
+        if (detachIfNonNull(value().putChild(key, null)) != null) {
+            markDirty();
+            return true;
+        }
+        return false;
     }
 
     private static SimpleConfigurationNode detachIfNonNull(SimpleConfigurationNode node) {
@@ -517,14 +854,14 @@ public class SimpleConfigurationNode implements ConfigurationNode {
         }
 
         // ensure the child actually is a child
-        if (!child.getParentEnsureAttached().equals(this)) {
+        if (child.getParentEnsureAttached() != this) {
             throw new IllegalStateException("Child " +  child + " path is not a direct parent of me (" + this + "), cannot attach");
         }
 
         // update the value
         ConfigValue oldValue, newValue;
         synchronized (this) {
-            newValue = oldValue = this.value;
+            newValue = oldValue = value();
 
             // if the existing value isn't a map, we need to update it's type
             if (!(oldValue instanceof MapConfigValue)) {
@@ -532,7 +869,7 @@ public class SimpleConfigurationNode implements ConfigurationNode {
                     // if child.key is an integer, we can infer that the type of this node should be a list
                     if (oldValue instanceof NullConfigValue) {
                         // if the oldValue was null, we can just replace it with an empty list
-                        newValue = new ListConfigValue(this);
+                        newValue = new ListConfigValue();
                     } else if (!(oldValue instanceof ListConfigValue)) {
                         // if the oldValue contained a value, we add it as the first element of the
                         // new list
@@ -558,41 +895,111 @@ public class SimpleConfigurationNode implements ConfigurationNode {
         }
 
         if (newValue != oldValue) {
-            oldValue.clear();
+            oldValue.clear(this);
         }
         child.attached = true;
+        markDirty();
         return child;
     }
 
     protected void clear() {
         synchronized (this) {
             ConfigValue oldValue = this.value;
-            value = new NullConfigValue(this);
-            oldValue.clear();
+            value = NullConfigValue.INSTANCE;
+            oldValue.clear(this);
+        }
+        markDirty();
+    }
+
+    /**
+     * Discards any state cached from the contents of this node, and from the contents of the
+     * nodes above it in the tree.
+     *
+     * <p>Must be called after any change which could affect {@link #hashCode()} or
+     * {@link #snapshot()}. Ancestors are only walked until a node which has already been marked
+     * is reached, as a node can only have cached state if all of its children did when it was
+     * calculated. The change is still counted on that node, in case its hash is being
+     * calculated by another thread.</p>
+     */
+    protected final void markDirty() {
+        SimpleConfigurationNode node = this;
+        clearCache();
+        while (node.attached && (node = node.parent) != null && node.clearCache()) {
+            // keep walking while the ancestors hold cached state
         }
     }
 
+    /**
+     * Discards the cached hash and snapshot of this node, and counts a change to its contents.
+     *
+     * @return If the node held any cached state
+     */
+    private boolean clearCache() {
+        long hash = HASH_UPDATER.getAndUpdate(this, state -> ((state >>> 32) + 1) << 32);
+        boolean cached = (int) hash != 0 || this.snapshot != null;
+        this.snapshot = null;
+        return cached;
+    }
+
+    /**
+     * Nodes are equal if they have the same key, options and contents. The position of the
+     * nodes within their respective trees is not considered.
+     *
+     * @param o The object to compare to
+     * @return If the nodes are equal
+     */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof SimpleConfigurationNode)) return false;
         SimpleConfigurationNode that = (SimpleConfigurationNode) o;
 
-        return this.attached == that.attached &&
+        // the hashes are cached, so this rejects most unequal trees without walking them
+        return this.hashCode() == that.hashCode() &&
                 Objects.equals(this.key, that.key) &&
                 this.options.equals(that.options) &&
-                Objects.equals(this.parent, that.parent) &&
-                this.value.equals(that.value);
+                value().equals(that.value());
     }
 
+    /**
+     * Returns a hash of the contents of this node.
+     *
+     * <p>The hash is cached, and is only recalculated for the nodes on the path to a change.
+     * A hash calculated while the contents were changed by another thread is recalculated
+     * rather than cached. Subclasses which hold additional state should override
+     * {@link #computeHash()}.</p>
+     *
+     * @return The hash code
+     */
     @Override
     public int hashCode() {
-        int result = options.hashCode();
-        result = 31 * result + (attached ? 1 : 0);
-        result = 31 * result + (key != null ? key.hashCode() : 0);
-        result = 31 * result + (parent != null ? parent.hashCode() : 0);
-        result = 31 * result + value.hashCode();
-        return result;
+        long state = this.hash;
+        while ((int) state == 0) {
+            int hash = computeHash();
+            if (hash == 0) {
+                // reserve 0 to mean "not calculated"
+                hash = 1;
+            }
+            // only stored if no change was counted since the calculation started
+            if (HASH_UPDATER.compareAndSet(this, state, (state & 0xFFFFFFFF00000000L) | (hash & 0xFFFFFFFFL))) {
+                return hash;
+            }
+            state = this.hash;
+        }
+        return (int) state;
+    }
+
+    /**
+     * Calculates the hash of the contents of this node.
+     *
+     * <p>The node's key is deliberately excluded. A parent map includes the keys of its
+     * children in its own hash, and the key of a list element changes whenever an element
+     * before it is removed.</p>
+     *
+     * @return The hash of this node's contents
+     */
+    protected int computeHash() {
+        return value().hashCode();
     }
 
     @Override
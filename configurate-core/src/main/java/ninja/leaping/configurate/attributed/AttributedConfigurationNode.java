@@ -112,4 +112,10 @@ public interface AttributedConfigurationNode extends ConfigurationNode {
     @NonNull @Override AttributedConfigurationNode mergeValuesFrom(@NonNull ConfigurationNode other);
     @NonNull @Override AttributedConfigurationNode getAppendedNode();
     @NonNull @Override AttributedConfigurationNode getNode(@NonNull Object... path);
+
+    @NonNull
+    @Override
+    default AttributedConfigurationNode snapshot() {
+        return ImmutableAttributedConfigurationNode.copyOf(this);
+    }
 }
@@ -0,0 +1,204 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.attributed;
+
+import com.google.common.collect.ImmutableMap;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.ConfigurationOptions;
+import ninja.leaping.configurate.ImmutableConfigurationNode;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable {@link AttributedConfigurationNode}.
+ *
+ * @see ImmutableConfigurationNode
+ */
+public class ImmutableAttributedConfigurationNode extends ImmutableConfigurationNode implements AttributedConfigurationNode {
+    private final String tagName;
+    private final ImmutableMap<String, String> attributes;
+
+    /**
+     * Creates an immutable deep copy of the given node.
+     *
+     * <p>If the node is already an {@link ImmutableAttributedConfigurationNode}, it is returned
+     * as-is.</p>
+     *
+     * @param node The node to copy
+     * @return An immutable copy of the node
+     */
+    @NonNull
+    public static ImmutableAttributedConfigurationNode copyOf(@NonNull ConfigurationNode node) {
+        if (node instanceof ImmutableAttributedConfigurationNode) {
+            return (ImmutableAttributedConfigurationNode) node;
+        }
+
+        String tagName = "element";
+        Map<String, String> attributes = ImmutableMap.of();
+        if (node instanceof AttributedConfigurationNode) {
+            tagName = ((AttributedConfigurationNode) node).getTagName();
+            attributes = ((AttributedConfigurationNode) node).getAttributes();
+        }
+        return new ImmutableAttributedConfigurationNode(node.getKey(), node.getOptions(), copyContents(node, ImmutableAttributedConfigurationNode::copyOf), node.isVirtual(), tagName, attributes);
+    }
+
+    protected ImmutableAttributedConfigurationNode(@Nullable Object key, @NonNull ConfigurationOptions options, @Nullable Object contents, boolean virtual, @NonNull String tagName, @NonNull Map<String, String> attributes) {
+        super(key, options, contents, virtual);
+        this.tagName = tagName;
+        this.attributes = ImmutableMap.copyOf(attributes);
+    }
+
+    @NonNull
+    @Override
+    protected ImmutableAttributedConfigurationNode withKey(@Nullable Object key) {
+        return new ImmutableAttributedConfigurationNode(key, getOptions(), getContents(), isVirtual(), this.tagName, this.attributes);
+    }
+
+    @NonNull
+    @Override
+    protected ImmutableAttributedConfigurationNode createVirtualNode(@Nullable Object key) {
+        return new ImmutableAttributedConfigurationNode(key, getOptions(), null, true, "element", ImmutableMap.of());
+    }
+
+    @NonNull
+    @Override
+    public String getTagName() {
+        return this.tagName;
+    }
+
+    @NonNull
+    @Override
+    public ImmutableAttributedConfigurationNode setTagName(@NonNull String name) {
+        throw new UnsupportedOperationException("Snapshots cannot be modified");
+    }
+
+    @NonNull
+    @Override
+    public ImmutableAttributedConfigurationNode addAttribute(@NonNull String name, @NonNull String value) {
+        throw new UnsupportedOperationException("Snapshots cannot be modified");
+    }
+
+    @NonNull
+    @Override
+    public ImmutableAttributedConfigurationNode removeAttribute(@NonNull String name) {
+        throw new UnsupportedOperationException("Snapshots cannot be modified");
+    }
+
+    @NonNull
+    @Override
+    public ImmutableAttributedConfigurationNode setAttributes(@NonNull Map<String, String> attributes) {
+        throw new UnsupportedOperationException("Snapshots cannot be modified");
+    }
+
+    @Override
+    public boolean hasAttributes() {
+        return !this.attributes.isEmpty();
+    }
+
+    @Nullable
+    @Override
+    public String getAttribute(@NonNull String name) {
+        return this.attributes.get(name);
+    }
+
+    @NonNull
+    @Override
+    public Map<String, String> getAttributes() {
+        return this.attributes;
+    }
+
+    // Methods from superclass overridden to have correct return types
+
+    @Nullable
+    @Override
+    public ImmutableAttributedConfigurationNode getParent() {
+        return null;
+    }
+
+    @NonNull
+    @Override
+    public ImmutableAttributedConfigurationNode getNode(@NonNull Object... path) {
+        return (ImmutableAttributedConfigurationNode) super.getNode(path);
+    }
+
+    @NonNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<? extends ImmutableAttributedConfigurationNode> getChildrenList() {
+        return (List<ImmutableAttributedConfigurationNode>) super.getChildrenList();
+    }
+
+    @NonNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Object, ? extends ImmutableAttributedConfigurationNode> getChildrenMap() {
+        return (Map<Object, ImmutableAttributedConfigurationNode>) super.getChildrenMap();
+    }
+
+    @NonNull
+    @Override
+    public ImmutableAttributedConfigurationNode setValue(@Nullable Object value) {
+        throw new UnsupportedOperationException("Snapshots cannot be modified");
+    }
+
+    @NonNull
+    @Override
+    public ImmutableAttributedConfigurationNode mergeValuesFrom(@NonNull ConfigurationNode other) {
+        throw new UnsupportedOperationException("Snapshots cannot be modified");
+    }
+
+    @NonNull
+    @Override
+    public ImmutableAttributedConfigurationNode getAppendedNode() {
+        throw new UnsupportedOperationException("Snapshots cannot be modified");
+    }
+
+    @NonNull
+    @Override
+    public ImmutableAttributedConfigurationNode snapshot() {
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ImmutableAttributedConfigurationNode)) return false;
+        if (!super.equals(o)) return false;
+        ImmutableAttributedConfigurationNode that = (ImmutableAttributedConfigurationNode) o;
+        return tagName.equals(that.tagName) && attributes.equals(that.attributes);
+    }
+
+    @Override
+    protected int computeHash() {
+        int result = super.computeHash();
+        result = 31 * result + tagName.hashCode();
+        result = 31 * result + attributes.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ImmutableAttributedConfigurationNode{" +
+                "super=" + super.toString() + ", " +
+                "tagName=" + tagName + ", " +
+                "attributes=" + attributes +
+                '}';
+    }
+}
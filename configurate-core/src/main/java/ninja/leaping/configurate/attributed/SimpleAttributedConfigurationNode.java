@@ -24,6 +24,7 @@ import ninja.leaping.configurate.SimpleConfigurationNode;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,7 +34,9 @@ import java.util.Map;
  */
 public class SimpleAttributedConfigurationNode extends SimpleConfigurationNode implements AttributedConfigurationNode {
     private String tagName;
-    private final Map<String, String> attributes = new HashMap<>();
+    // only created once an attribute is added, as most nodes have none
+    @Nullable
+    private Map<String, String> attributes;
 
     @NonNull
     public static SimpleAttributedConfigurationNode root() {
@@ -69,6 +72,7 @@ public class SimpleAttributedConfigurationNode extends SimpleConfigurationNode i
         }
 
         this.tagName = tagName;
+        markDirty();
         return this;
     }
 
@@ -79,14 +83,20 @@ public class SimpleAttributedConfigurationNode extends SimpleConfigurationNode i
             throw new IllegalArgumentException("Attribute name cannot be null/empty");
         }
 
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
         attributes.put(name, value);
+        markDirty();
         return this;
     }
 
     @NonNull
     @Override
     public SimpleAttributedConfigurationNode removeAttribute(@NonNull String name) {
-        attributes.remove(name);
+        if (attributes != null && attributes.remove(name) != null) {
+            markDirty();
+        }
         return this;
     }
 
@@ -99,26 +109,31 @@ public class SimpleAttributedConfigurationNode extends SimpleConfigurationNode i
             }
         }
 
-        this.attributes.clear();
-        this.attributes.putAll(attributes);
+        this.attributes = attributes.isEmpty() ? null : new HashMap<>(attributes);
+        markDirty();
         return this;
     }
 
     @Override
     public boolean hasAttributes() {
-        return !attributes.isEmpty();
+        return attributes != null && !attributes.isEmpty();
     }
 
     @Nullable
     @Override
     public String getAttribute(@NonNull String name) {
-        return attributes.get(name);
+        return attributes == null ? null : attributes.get(name);
     }
 
     @NonNull
     @Override
     public Map<String, String> getAttributes() {
-        return ImmutableMap.copyOf(attributes);
+        return attributes == null ? ImmutableMap.of() : ImmutableMap.copyOf(attributes);
+    }
+
+    @NonNull
+    private Map<String, String> attributesOrEmpty() {
+        return attributes == null ? Collections.emptyMap() : attributes;
     }
 
     // Methods from superclass overridden to have correct return types
@@ -184,20 +199,38 @@ public class SimpleAttributedConfigurationNode extends SimpleConfigurationNode i
         return (SimpleAttributedConfigurationNode) super.getAppendedNode();
     }
 
+    @NonNull
+    @Override
+    public SimpleAttributedConfigurationNode seal() {
+        return (SimpleAttributedConfigurationNode) super.seal();
+    }
+
+    @NonNull
+    @Override
+    public ImmutableAttributedConfigurationNode snapshot() {
+        return (ImmutableAttributedConfigurationNode) super.snapshot();
+    }
+
+    @NonNull
+    @Override
+    protected ImmutableAttributedConfigurationNode createSnapshot(@Nullable Object key, @Nullable Object contents) {
+        return new ImmutableAttributedConfigurationNode(key, getOptions(), contents, isVirtual(), tagName, attributesOrEmpty());
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof SimpleAttributedConfigurationNode)) return false;
         if (!super.equals(o)) return false;
         SimpleAttributedConfigurationNode that = (SimpleAttributedConfigurationNode) o;
-        return tagName.equals(that.tagName) && attributes.equals(that.attributes);
+        return tagName.equals(that.tagName) && attributesOrEmpty().equals(that.attributesOrEmpty());
     }
 
     @Override
-    public int hashCode() {
-        int result = super.hashCode();
+    protected int computeHash() {
+        int result = super.computeHash();
         result = 31 * result + tagName.hashCode();
-        result = 31 * result + attributes.hashCode();
+        result = 31 * result + attributesOrEmpty().hashCode();
         return result;
     }
 
@@ -206,7 +239,7 @@ public class SimpleAttributedConfigurationNode extends SimpleConfigurationNode i
         return "SimpleAttributedConfigurationNode{" +
                 "super=" + super.toString() + ", " +
                 "tagName=" + tagName + ", " +
-                "attributes=" + attributes +
+                "attributes=" + attributesOrEmpty() +
                 '}';
     }
 }
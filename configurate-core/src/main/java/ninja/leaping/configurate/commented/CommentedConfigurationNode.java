@@ -56,4 +56,10 @@ public interface CommentedConfigurationNode extends ConfigurationNode {
     @NonNull @Override CommentedConfigurationNode mergeValuesFrom(@NonNull ConfigurationNode other);
     @NonNull @Override CommentedConfigurationNode getAppendedNode();
     @NonNull @Override CommentedConfigurationNode getNode(@NonNull Object... path);
+
+    @NonNull
+    @Override
+    default CommentedConfigurationNode snapshot() {
+        return ImmutableCommentedConfigurationNode.copyOf(this);
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.commented;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.ConfigurationOptions;
+import ninja.leaping.configurate.ImmutableConfigurationNode;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * An immutable {@link CommentedConfigurationNode}.
+ *
+ * @see ImmutableConfigurationNode
+ */
+public class ImmutableCommentedConfigurationNode extends ImmutableConfigurationNode implements CommentedConfigurationNode {
+    @Nullable
+    private final String comment;
+
+    /**
+     * Creates an immutable deep copy of the given node.
+     *
+     * <p>If the node is already an {@link ImmutableCommentedConfigurationNode}, it is returned
+     * as-is.</p>
+     *
+     * @param node The node to copy
+     * @return An immutable copy of the node
+     */
+    @NonNull
+    public static ImmutableCommentedConfigurationNode copyOf(@NonNull ConfigurationNode node) {
+        if (node instanceof ImmutableCommentedConfigurationNode) {
+            return (ImmutableCommentedConfigurationNode) node;
+        }
+        String comment = node instanceof CommentedConfigurationNode ? ((CommentedConfigurationNode) node).getComment().orElse(null) : null;
+        return new ImmutableCommentedConfigurationNode(node.getKey(), node.getOptions(), copyContents(node, ImmutableCommentedConfigurationNode::copyOf), node.isVirtual(), comment);
+    }
+
+    protected ImmutableCommentedConfigurationNode(@Nullable Object key, @NonNull ConfigurationOptions options, @Nullable Object contents, boolean virtual, @Nullable String comment) {
+        super(key, options, contents, virtual);
+        this.comment = comment;
+    }
+
+    @NonNull
+    @Override
+    protected ImmutableCommentedConfigurationNode withKey(@Nullable Object key) {
+        return new ImmutableCommentedConfigurationNode(key, getOptions(), getContents(), isVirtual(), this.comment);
+    }
+
+    @NonNull
+    @Override
+    protected ImmutableCommentedConfigurationNode createVirtualNode(@Nullable Object key) {
+        return new ImmutableCommentedConfigurationNode(key, getOptions(), null, true, null);
+    }
+
+    @NonNull
+    @Override
+    public Optional<String> getComment() {
+        return Optional.ofNullable(this.comment);
+    }
+
+    @NonNull
+    @Override
+    public ImmutableCommentedConfigurationNode setComment(@Nullable String comment) {
+        throw new UnsupportedOperationException("Snapshots cannot be modified");
+    }
+
+    // Methods from superclass overridden to have correct return types
+
+    @Nullable
+    @Override
+    public ImmutableCommentedConfigurationNode getParent() {
+        return null;
+    }
+
+    @NonNull
+    @Override
+    public ImmutableCommentedConfigurationNode getNode(@NonNull Object... path) {
+        return (ImmutableCommentedConfigurationNode) super.getNode(path);
+    }
+
+    @NonNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<? extends ImmutableCommentedConfigurationNode> getChildrenList() {
+        return (List<ImmutableCommentedConfigurationNode>) super.getChildrenList();
+    }
+
+    @NonNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Object, ? extends ImmutableCommentedConfigurationNode> getChildrenMap() {
+        return (Map<Object, ImmutableCommentedConfigurationNode>) super.getChildrenMap();
+    }
+
+    @NonNull
+    @Override
+    public ImmutableCommentedConfigurationNode setValue(@Nullable Object value) {
+        throw new UnsupportedOperationException("Snapshots cannot be modified");
+    }
+
+    @NonNull
+    @Override
+    public ImmutableCommentedConfigurationNode mergeValuesFrom(@NonNull ConfigurationNode other) {
+        throw new UnsupportedOperationException("Snapshots cannot be modified");
+    }
+
+    @NonNull
+    @Override
+    public ImmutableCommentedConfigurationNode getAppendedNode() {
+        throw new UnsupportedOperationException("Snapshots cannot be modified");
+    }
+
+    @NonNull
+    @Override
+    public ImmutableCommentedConfigurationNode snapshot() {
+        return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ImmutableCommentedConfigurationNode)) return false;
+        if (!super.equals(o)) return false;
+
+        ImmutableCommentedConfigurationNode that = (ImmutableCommentedConfigurationNode) o;
+        return Objects.equals(this.comment, that.comment);
+    }
+
+    @Override
+    protected int computeHash() {
+        int result = super.computeHash();
+        result = 31 * result + Objects.hashCode(this.comment);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ImmutableCommentedConfigurationNode{" +
+                "super=" + super.toString() +
+                ", comment=" + comment +
+                '}';
+    }
+}
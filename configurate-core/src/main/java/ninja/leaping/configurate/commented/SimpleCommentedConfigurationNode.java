@@ -24,14 +24,20 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Basic implementation of {@link CommentedConfigurationNode}.
  */
 public class SimpleCommentedConfigurationNode extends SimpleConfigurationNode implements CommentedConfigurationNode {
-    private final AtomicReference<String> comment = new AtomicReference<>();
+    private static final AtomicReferenceFieldUpdater<SimpleCommentedConfigurationNode, String> COMMENT_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(SimpleCommentedConfigurationNode.class, String.class, "comment");
+
+    // updated through COMMENT_UPDATER rather than an AtomicReference, to avoid an extra object per node
+    @Nullable
+    private volatile String comment;
 
     @NonNull
     public static SimpleCommentedConfigurationNode root() {
@@ -50,14 +56,15 @@ public class SimpleCommentedConfigurationNode extends SimpleConfigurationNode im
     @NonNull
     @Override
     public Optional<String> getComment() {
-        return Optional.ofNullable(comment.get());
+        return Optional.ofNullable(comment);
     }
 
     @NonNull
     @Override
     public SimpleCommentedConfigurationNode setComment(@Nullable String comment) {
         attachIfNecessary();
-        this.comment.set(comment);
+        this.comment = comment;
+        markDirty();
         return this;
     }
 
@@ -88,8 +95,8 @@ public class SimpleCommentedConfigurationNode extends SimpleConfigurationNode im
     public SimpleCommentedConfigurationNode mergeValuesFrom(@NonNull ConfigurationNode other) {
         if (other instanceof CommentedConfigurationNode) {
             Optional<String> otherComment = ((CommentedConfigurationNode) other).getComment();
-            if (otherComment.isPresent()) {
-                comment.compareAndSet(null, otherComment.get());
+            if (otherComment.isPresent() && COMMENT_UPDATER.compareAndSet(this, null, otherComment.get())) {
+                markDirty();
             }
         }
         return (SimpleCommentedConfigurationNode) super.mergeValuesFrom(other);
@@ -121,6 +128,24 @@ public class SimpleCommentedConfigurationNode extends SimpleConfigurationNode im
         return (SimpleCommentedConfigurationNode) super.getAppendedNode();
     }
 
+    @NonNull
+    @Override
+    public SimpleCommentedConfigurationNode seal() {
+        return (SimpleCommentedConfigurationNode) super.seal();
+    }
+
+    @NonNull
+    @Override
+    public ImmutableCommentedConfigurationNode snapshot() {
+        return (ImmutableCommentedConfigurationNode) super.snapshot();
+    }
+
+    @NonNull
+    @Override
+    protected ImmutableCommentedConfigurationNode createSnapshot(@Nullable Object key, @Nullable Object contents) {
+        return new ImmutableCommentedConfigurationNode(key, getOptions(), contents, isVirtual(), comment);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -128,14 +153,14 @@ public class SimpleCommentedConfigurationNode extends SimpleConfigurationNode im
         if (!super.equals(o)) return false;
 
         SimpleCommentedConfigurationNode that = (SimpleCommentedConfigurationNode) o;
-        if (!comment.equals(that.comment)) return false;
+        if (!Objects.equals(comment, that.comment)) return false;
         return true;
     }
 
     @Override
-    public int hashCode() {
-        int result = super.hashCode();
-        result = 31 * result + comment.hashCode();
+    protected int computeHash() {
+        int result = super.computeHash();
+        result = 31 * result + Objects.hashCode(comment);
         return result;
     }
 
@@ -18,24 +18,43 @@ package ninja.leaping.configurate.loader;
 
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.ConfigurationOptions;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import ninja.leaping.configurate.util.ByteBufferInputStream;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
 import java.io.Writer;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CoderResult;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -83,12 +102,33 @@ public abstract class AbstractConfigurationLoader<NodeType extends Configuration
     @Nullable
     protected final Callable<BufferedWriter> sink;
 
+    /**
+     * The byte source for this loader, used in preference to the reader source.
+     *
+     * <p>Can be null, in which case the reader source is used.</p>
+     */
+    @Nullable
+    protected final Callable<ByteBuffer> bufferSource;
+
+    /**
+     * The byte sink for this loader, used in preference to the writer sink.
+     *
+     * <p>Can be null, in which case the writer sink is used.</p>
+     */
+    @Nullable
+    protected final Callable<? extends OutputStream> streamSink;
+
     /**
      * The comment handlers defined for this loader
      */
     @NonNull
     private final CommentHandler[] commentHandlers;
 
+    /**
+     * The number of bytes at the start of a document decoded to look for a header
+     */
+    private static final int HEADER_SCAN_BYTES = 16384;
+
     /**
      * The mode used to read/write configuration headers
      */
@@ -101,12 +141,63 @@ public abstract class AbstractConfigurationLoader<NodeType extends Configuration
     @NonNull
     private final ConfigurationOptions defaultOptions;
 
+    /**
+     * If loaded nodes should be {@link SimpleConfigurationNode#seal() sealed}
+     */
+    private final boolean sealOnLoad;
+
+    /**
+     * The path of the source file, if the source was set using a path
+     */
+    @Nullable
+    private final Path path;
+
+    /**
+     * The cache of parsed configurations, if any
+     */
+    @Nullable
+    private final ConfigurationCache cache;
+
+    /**
+     * The executor used for asynchronous loads and saves, which runs one task at a time
+     */
+    @NonNull
+    private final Executor executor;
+
+    /**
+     * If {@link #save(ConfigurationNode)} should skip writes which would not change the output
+     */
+    private final boolean skipUnchanged;
+
+    /**
+     * The hash used to recognise output which has already been written
+     */
+    private static final HashFunction OUTPUT_HASH = Hashing.farmHashFingerprint64();
+
+    /**
+     * Held while saving, so the output recorded in {@link #lastWritten} is the output on disk
+     */
+    private final Object saveLock = new Object();
+
+    /**
+     * The output of the last save made by this loader, if any
+     */
+    @Nullable
+    private WrittenOutput lastWritten;
+
     protected AbstractConfigurationLoader(@NonNull Builder<?> builder, @NonNull CommentHandler[] commentHandlers) {
         this.source = builder.getSource();
         this.sink = builder.getSink();
+        this.bufferSource = builder.getBufferSource();
+        this.streamSink = builder.getStreamSink();
         this.headerMode = builder.getHeaderMode();
         this.commentHandlers = commentHandlers;
         this.defaultOptions = builder.getDefaultOptions();
+        this.sealOnLoad = builder.sealsOnLoad();
+        this.path = builder.getPath();
+        this.cache = builder.getCache();
+        this.executor = LoaderExecutors.sequential(builder.getExecutor());
+        this.skipUnchanged = builder.skipsUnchanged();
     }
 
     /**
@@ -122,19 +213,30 @@ public abstract class AbstractConfigurationLoader<NodeType extends Configuration
     @NonNull
     @Override
     public NodeType load(@NonNull ConfigurationOptions options) throws IOException {
+        return load(options, PathFilter.all());
+    }
+
+    @NonNull
+    @Override
+    public NodeType load(@NonNull ConfigurationOptions options, @NonNull PathFilter filter) throws IOException {
         if (source == null) {
             throw new IOException("No source present to read from!");
         }
+        if (cache != null && path != null) {
+            return loadCached(options, filter);
+        }
+        if (bufferSource != null) {
+            return loadBytes(options, filter);
+        }
         try (BufferedReader reader = source.call()) {
-            if (headerMode == HeaderMode.PRESERVE || headerMode == HeaderMode.NONE) {
-                String comment = CommentHandlers.extractComment(reader, commentHandlers);
-                if (comment != null && comment.length() > 0) {
-                    options = options.setHeader(comment);
-                }
+            String header = extractHeader(reader);
+            NodeType node = createEmptyNode(withHeader(options, header));
+            if (filter.isAll()) {
+                loadInternal(node, reader);
+            } else {
+                loadInternal(node, reader, filter);
             }
-            NodeType node = createEmptyNode(options);
-            loadInternal(node, reader);
-            return node;
+            return sealIfRequired(node);
         } catch (FileNotFoundException | NoSuchFileException e) {
             // Squash -- there's nothing to read
             return createEmptyNode(options);
@@ -147,23 +249,327 @@ public abstract class AbstractConfigurationLoader<NodeType extends Configuration
         }
     }
 
+    /**
+     * Loads from the source file through the cache, parsing it only if the cache holds no valid
+     * entry for its current contents.
+     *
+     * <p>The file is read into memory once, so the contents which are hashed are exactly the
+     * contents which are parsed and stored. They are only hashed if the cache holds an entry of
+     * the same size and modification time, or when a new entry is stored.</p>
+     *
+     * <p>Filtered and lazy loads are not stored, since storing a tree reads all of it.</p>
+     */
+    private NodeType loadCached(ConfigurationOptions options, PathFilter filter) throws IOException {
+        byte[] content;
+        ConfigurationCache.Key key;
+        try {
+            long lastModified = Files.readAttributes(path, BasicFileAttributes.class).lastModifiedTime().toMillis();
+            content = Files.readAllBytes(path);
+            key = ConfigurationCache.Key.of(lastModified, content);
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            // Squash -- there's nothing to read
+            return createEmptyNode(options);
+        }
+
+        ConfigurationCache.Entry entry;
+        try {
+            entry = cache.get(path, key);
+        } catch (IOException e) {
+            // a corrupt entry is replaced once the source has been parsed
+            entry = null;
+        }
+        if (entry != null) {
+            NodeType node = createEmptyNode(headerMode == HeaderMode.PRESET ? options : withHeader(options, entry.getHeader()));
+            try {
+                entry.readInto(node, filter);
+                return sealIfRequired(node);
+            } catch (IOException e) {
+                // fall back to parsing the source
+            }
+        }
+
+        try {
+            ByteBuffer document = ByteBuffer.wrap(content);
+            String header = extractHeader(document);
+            NodeType node = createEmptyNode(withHeader(options, header));
+            if (!filter.isAll() || loadsLazily()) {
+                loadInternal(node, document, filter);
+                return sealIfRequired(node);
+            }
+            loadInternal(node, document, PathFilter.all());
+            try {
+                cache.put(path, key, header, node);
+            } catch (IOException e) {
+                // the cache is only an optimisation, so failing to update it does not fail the load
+            }
+            return sealIfRequired(node);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private NodeType loadBytes(ConfigurationOptions options, PathFilter filter) throws IOException {
+        try {
+            ByteBuffer document;
+            try {
+                document = bufferSource.call();
+            } catch (FileNotFoundException | NoSuchFileException e) {
+                // Squash -- there's nothing to read
+                return createEmptyNode(options);
+            }
+            String header = extractHeader(document);
+            NodeType node = createEmptyNode(withHeader(options, header));
+            loadInternal(node, document, filter);
+            return sealIfRequired(node);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Extracts the header from the start of a document held as bytes, and moves the position
+     * of the document past it.
+     *
+     * <p>Only the start of the document is decoded, unless the header runs past it.</p>
+     */
+    @Nullable
+    private String extractHeader(ByteBuffer document) throws IOException {
+        if (headerMode != HeaderMode.PRESERVE && headerMode != HeaderMode.NONE) {
+            return null;
+        }
+        String header = extractHeader(document, HEADER_SCAN_BYTES);
+        return header == null || header.length() > 0 ? header : extractHeader(document, document.remaining());
+    }
+
+    /**
+     * Extracts the header from the first {@code limit} bytes of a document.
+     *
+     * <p>Decoding stops at the first malformed byte. Only the header has to be valid UTF-8,
+     * since loaders may parse the rest of the document in another encoding.</p>
+     *
+     * @return The header, or null if there is none, or an empty string if the header may
+     *         continue beyond the limit
+     */
+    @Nullable
+    private String extractHeader(ByteBuffer document, int limit) throws IOException {
+        ByteBuffer start = document.duplicate();
+        boolean whole = start.remaining() <= limit;
+        if (!whole) {
+            start.limit(start.position() + limit);
+        }
+        CharBuffer chars = CharBuffer.allocate(start.remaining());
+        CoderResult result = UTF_8.newDecoder().decode(start, chars, whole);
+        chars.flip();
+        String text = chars.toString();
+
+        BufferedReader reader = new BufferedReader(new StringReader(text));
+        String comment = CommentHandlers.extractComment(reader, commentHandlers);
+        if (comment == null || comment.isEmpty()) {
+            return null;
+        }
+        int consumed = text.length() - (int) reader.skip(Long.MAX_VALUE);
+        if (consumed == text.length() && (!whole || result.isError())) {
+            if (result.isError()) {
+                result.throwException();
+            }
+            return "";
+        }
+        document.position(document.position() + text.substring(0, consumed).getBytes(UTF_8).length);
+        return comment;
+    }
+
+    @Nullable
+    private String extractHeader(BufferedReader reader) throws IOException {
+        if (headerMode == HeaderMode.PRESERVE || headerMode == HeaderMode.NONE) {
+            String comment = CommentHandlers.extractComment(reader, commentHandlers);
+            if (comment != null && comment.length() > 0) {
+                return comment;
+            }
+        }
+        return null;
+    }
+
+    private static ConfigurationOptions withHeader(ConfigurationOptions options, @Nullable String header) {
+        return header == null ? options : options.setHeader(header);
+    }
+
+    /**
+     * Seals a loaded node, if this loader {@link Builder#setSealOnLoad(boolean) seals on load}.
+     *
+     * @param node The loaded node
+     * @return The provided node
+     */
+    protected NodeType sealIfRequired(NodeType node) {
+        if (sealOnLoad && node instanceof SimpleConfigurationNode) {
+            ((SimpleConfigurationNode) node).seal();
+        }
+        return node;
+    }
+
+    /**
+     * Gets if this loader leaves some subtrees to be read when they are first accessed.
+     *
+     * <p>Trees loaded lazily are not stored in a {@link Builder#setCache(ConfigurationCache)
+     * cache}, as storing them would read them in full.</p>
+     *
+     * @return If subtrees may be loaded lazily
+     */
+    protected boolean loadsLazily() {
+        return false;
+    }
+
     protected abstract void loadInternal(NodeType node, BufferedReader reader) throws IOException;
 
+    /**
+     * Loads the parts of a document held as bytes selected by the given filter into a node.
+     *
+     * <p>The document is positioned after any header. By default, it is decoded as UTF-8 and
+     * passed to {@link #loadInternal(ConfigurationNode, BufferedReader, PathFilter)}. Loaders
+     * which can parse bytes directly should override this.</p>
+     *
+     * @param node The node to load into
+     * @param document The document to read, which may be a direct or memory-mapped buffer
+     * @param filter The filter selecting which paths to load
+     * @throws IOException if any sort of error occurs with reading or parsing the configuration
+     */
+    protected void loadInternal(NodeType node, ByteBuffer document, PathFilter filter) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteBufferInputStream(document), UTF_8.newDecoder()));
+        if (filter.isAll()) {
+            loadInternal(node, reader);
+        } else {
+            loadInternal(node, reader, filter);
+        }
+    }
+
+    /**
+     * Loads the parts of the source selected by the given filter into a node.
+     *
+     * <p>By default, the whole source is loaded and then pruned. Loaders which can skip over
+     * parts of their source should override this.</p>
+     *
+     * @param node The node to load into
+     * @param reader The source to read from
+     * @param filter The filter selecting which paths to load
+     * @throws IOException if any sort of error occurs with reading or parsing the configuration
+     */
+    protected void loadInternal(NodeType node, BufferedReader reader, PathFilter filter) throws IOException {
+        loadInternal(node, reader);
+        filter.prune(node);
+    }
+
+    /**
+     * Opens a {@link ConfigurationReader} over the source of this loader, to read its contents
+     * without building a node tree.
+     *
+     * <p>As with {@link #load()}, a source which does not exist is read as an empty document,
+     * and a header is skipped over according to the header mode. The returned reader must be
+     * closed once it is no longer needed.</p>
+     *
+     * @return A reader over the source
+     * @throws IOException if the source could not be opened
+     * @throws UnsupportedOperationException if this loader does not support streaming reads
+     */
+    @NonNull
+    public ConfigurationReader openReader() throws IOException {
+        if (source == null) {
+            throw new IOException("No source present to read from!");
+        }
+        BufferedReader reader;
+        try {
+            reader = source.call();
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            return EmptyReader.INSTANCE;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        try {
+            if (headerMode == HeaderMode.PRESERVE || headerMode == HeaderMode.NONE) {
+                CommentHandlers.extractComment(reader, commentHandlers);
+            }
+            return createReader(reader);
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a {@link ConfigurationReader} over the given source.
+     *
+     * <p>Loaders which support streaming reads should override this method. The returned
+     * reader takes ownership of the source, and should close it when it is closed.</p>
+     *
+     * @param reader The source to read from
+     * @return A reader over the source
+     * @throws IOException if the reader could not be created
+     * @throws UnsupportedOperationException if this loader does not support streaming reads
+     */
+    @NonNull
+    protected ConfigurationReader createReader(@NonNull BufferedReader reader) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support streaming reads");
+    }
+
+    /**
+     * A reader over a document which does not exist.
+     */
+    private static final class EmptyReader implements ConfigurationReader {
+        static final EmptyReader INSTANCE = new EmptyReader();
+
+        @Nullable
+        @Override
+        public Event next() {
+            return null;
+        }
+
+        @NonNull
+        @Override
+        public Object getKey() {
+            throw new IllegalStateException("The current event is not a key");
+        }
+
+        @Nullable
+        @Override
+        public Object getScalar() {
+            throw new IllegalStateException("The current event is not a scalar");
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>If the loader {@link Builder#setSkipUnchanged(boolean) skips unchanged saves}, this
+     * behaves as {@link #saveIfChanged(ConfigurationNode)}.</p>
+     */
     @Override
     public void save(@NonNull ConfigurationNode node) throws IOException {
         if (sink == null) {
             throw new IOException("No sink present to write to!");
         }
+        if (skipUnchanged) {
+            saveIfChanged(node);
+            return;
+        }
+        synchronized (saveLock) {
+            lastWritten = null;
+        }
+        if (streamSink != null) {
+            saveBytes(node);
+            return;
+        }
         try (Writer writer = sink.call()) {
-            if (headerMode != HeaderMode.NONE) {
-                String header = node.getOptions().getHeader();
-                if (header != null && !header.isEmpty()) {
-                    for (String line : getDefaultCommentHandler().toComment(ImmutableList.copyOf(LINE_SPLITTER.split(header)))) {
-                        writer.write(line);
-                        writer.write(SYSTEM_LINE_SEPARATOR);
-                    }
-                    writer.write(SYSTEM_LINE_SEPARATOR);
-                }
+            String header = formatHeader(node);
+            if (header != null) {
+                writer.write(header);
             }
             saveInternal(node, writer);
         } catch (Exception e) {
@@ -175,14 +581,178 @@ public abstract class AbstractConfigurationLoader<NodeType extends Configuration
         }
     }
 
+    private void saveBytes(ConfigurationNode node) throws IOException {
+        try (OutputStream output = streamSink.call()) {
+            String header = formatHeader(node);
+            if (header != null) {
+                output.write(header.getBytes(UTF_8));
+            }
+            saveInternal(node, output);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Saves a node, unless the output would be identical to what was last written.
+     *
+     * <p>The node is first serialized into memory. If the source was set using a
+     * {@link Builder#setPath(Path) path}, the output is compared with the current file, which
+     * is only read if it was changed since this loader last wrote it. Otherwise, the output is
+     * compared with a hash of the last output written by this loader.</p>
+     *
+     * <p>Skipping a write does not touch the sink at all, so file watchers and backups see no
+     * change.</p>
+     *
+     * @param node The node to save
+     * @return true if the node was written, or false if the write was skipped
+     * @throws IOException if any sort of error occurs with writing or comparing the output
+     */
+    public boolean saveIfChanged(@NonNull ConfigurationNode node) throws IOException {
+        if (sink == null) {
+            throw new IOException("No sink present to write to!");
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        String header = formatHeader(node);
+        if (header != null) {
+            buffer.write(header.getBytes(UTF_8));
+        }
+        saveInternal(node, buffer);
+        byte[] output = buffer.toByteArray();
+        long hash = OUTPUT_HASH.hashBytes(output).asLong();
+
+        synchronized (saveLock) {
+            if (isUnchanged(output, hash)) {
+                return false;
+            }
+            lastWritten = null;
+            try {
+                if (streamSink != null) {
+                    try (OutputStream stream = streamSink.call()) {
+                        stream.write(output);
+                    }
+                } else {
+                    try (Writer writer = sink.call()) {
+                        writer.write(new String(output, UTF_8));
+                    }
+                }
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+            lastWritten = new WrittenOutput(hash, output.length, path == null ? null : readAttributes(path));
+            return true;
+        }
+    }
+
+    private boolean isUnchanged(byte[] output, long hash) throws IOException {
+        WrittenOutput last = this.lastWritten;
+        if (path == null) {
+            return last != null && last.hash == hash && last.size == output.length;
+        }
+
+        BasicFileAttributes attributes = readAttributes(path);
+        if (attributes == null || attributes.size() != output.length) {
+            return false;
+        }
+        if (last != null && last.isFile(attributes)) {
+            return last.hash == hash;
+        }
+        // written by something else, so compare the contents
+        return ByteBuffer.wrap(output).equals(readFile(path, false));
+    }
+
+    @Nullable
+    private static BasicFileAttributes readAttributes(Path path) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The output of a save, used to recognise when the next save would not change anything.
+     */
+    private static final class WrittenOutput {
+        final long hash;
+        final int size;
+        @Nullable final Object fileKey;
+        @Nullable final Object lastModified;
+
+        WrittenOutput(long hash, int size, @Nullable BasicFileAttributes attributes) {
+            this.hash = hash;
+            this.size = size;
+            this.fileKey = attributes == null ? null : attributes.fileKey();
+            this.lastModified = attributes == null ? null : attributes.lastModifiedTime();
+        }
+
+        /**
+         * Gets if the file is still the one which was written.
+         */
+        boolean isFile(BasicFileAttributes attributes) {
+            return this.lastModified != null
+                    && this.size == attributes.size()
+                    && this.lastModified.equals(attributes.lastModifiedTime())
+                    && Objects.equals(this.fileKey, attributes.fileKey());
+        }
+    }
+
+    /**
+     * Formats the header of a node as a comment, followed by a blank line.
+     *
+     * @return The formatted header, or null if none should be written
+     */
+    @Nullable
+    private String formatHeader(ConfigurationNode node) {
+        if (headerMode == HeaderMode.NONE) {
+            return null;
+        }
+        String header = node.getOptions().getHeader();
+        if (header == null || header.isEmpty()) {
+            return null;
+        }
+        StringBuilder formatted = new StringBuilder();
+        for (String line : getDefaultCommentHandler().toComment(ImmutableList.copyOf(LINE_SPLITTER.split(header)))) {
+            formatted.append(line).append(SYSTEM_LINE_SEPARATOR);
+        }
+        return formatted.append(SYSTEM_LINE_SEPARATOR).toString();
+    }
+
     protected abstract void saveInternal(ConfigurationNode node, Writer writer) throws IOException;
 
+    /**
+     * Saves a node to a byte sink.
+     *
+     * <p>By default, the node is passed to {@link #saveInternal(ConfigurationNode, Writer)}
+     * through a UTF-8 writer. Loaders which can write bytes directly should override this.
+     * The output is closed once this method returns, so may also be closed by it.</p>
+     *
+     * @param node The node to save
+     * @param output The output to write to, after any header
+     * @throws IOException if any sort of error occurs with writing the configuration
+     */
+    protected void saveInternal(ConfigurationNode node, OutputStream output) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(output, UTF_8))) {
+            saveInternal(node, writer);
+        }
+    }
+
     @NonNull
     @Override
     public ConfigurationOptions getDefaultOptions() {
         return this.defaultOptions;
     }
 
+    @NonNull
+    @Override
+    public Executor getExecutor() {
+        return this.executor;
+    }
+
     @Override
     public final boolean canLoad() {
         return this.source != null;
@@ -193,6 +763,38 @@ public abstract class AbstractConfigurationLoader<NodeType extends Configuration
         return this.sink != null;
     }
 
+    private static ByteBuffer readFile(Path path, boolean memoryMapped) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (memoryMapped) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            return readFully(channel);
+        }
+    }
+
+    private static ByteBuffer readFully(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer;
+        if (channel instanceof FileChannel) {
+            long size = ((FileChannel) channel).size() - ((FileChannel) channel).position();
+            if (size > Integer.MAX_VALUE - 1) {
+                throw new IOException("Sources larger than 2GB are not supported");
+            }
+            // one extra byte, so the end of a file which grew while reading it can be detected
+            buffer = ByteBuffer.allocate((int) size + 1);
+        } else {
+            buffer = ByteBuffer.allocate(8192);
+        }
+        while (channel.read(buffer) != -1) {
+            if (!buffer.hasRemaining()) {
+                ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                buffer = grown.put(buffer);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
     /**
      * An abstract builder implementation for {@link AbstractConfigurationLoader}s.
      *
@@ -203,6 +805,18 @@ public abstract class AbstractConfigurationLoader<NodeType extends Configuration
         @Nullable protected Callable<BufferedReader> source;
         @Nullable protected Callable<BufferedWriter> sink;
         @NonNull protected ConfigurationOptions defaultOptions = ConfigurationOptions.defaults();
+        protected boolean sealOnLoad = false;
+        protected boolean skipUnchanged = false;
+        @Nullable protected Callable<ByteBuffer> bufferSource;
+        @Nullable protected Callable<? extends OutputStream> streamSink;
+        protected boolean memoryMapped = false;
+        @Nullable protected Path path;
+        @Nullable protected ConfigurationCache cache;
+        @NonNull protected Executor executor = LoaderExecutors.defaultExecutor();
+        @NonNull protected Durability durability = AtomicFiles.DEFAULT_DURABILITY;
+        // the sinks created by setPath, replaced if the durability changes
+        @Nullable private Callable<BufferedWriter> pathSink;
+        @Nullable private Callable<? extends OutputStream> pathStreamSink;
 
         protected Builder() {}
 
@@ -216,7 +830,8 @@ public abstract class AbstractConfigurationLoader<NodeType extends Configuration
          * Sets the sink and source of the resultant loader to the given file.
          *
          * <p>The {@link #getSource() source} is defined using
-         * {@link Files#newBufferedReader(Path)} with UTF-8 encoding.</p>
+         * {@link Files#newBufferedReader(Path)} with UTF-8 encoding. The file is read as bytes
+         * when loading, and {@link #setMemoryMapped(boolean) may be memory-mapped}.</p>
          *
          * <p>The {@link #getSink() sink} is defined using {@link AtomicFiles} with UTF-8
          * encoding.</p>
@@ -233,10 +848,11 @@ public abstract class AbstractConfigurationLoader<NodeType extends Configuration
          * Sets the sink and source of the resultant loader to the given path.
          *
          * <p>The {@link #getSource() source} is defined using
-         * {@link Files#newBufferedReader(Path)} with UTF-8 encoding.</p>
+         * {@link Files#newBufferedReader(Path)} with UTF-8 encoding. The file is read as bytes
+         * when loading, and {@link #setMemoryMapped(boolean) may be memory-mapped}.</p>
          *
          * <p>The {@link #getSink() sink} is defined using {@link AtomicFiles} with UTF-8
-         * encoding.</p>
+         * encoding, and the {@link #setDurability(Durability) durability} of this builder.</p>
          *
          * @param path The path of the configuration file
          * @return This builder (for chaining)
@@ -245,10 +861,49 @@ public abstract class AbstractConfigurationLoader<NodeType extends Configuration
         public T setPath(@NonNull Path path) {
             Path absPath = Objects.requireNonNull(path, "path").toAbsolutePath();
             this.source = () -> Files.newBufferedReader(absPath, UTF_8);
-            this.sink = AtomicFiles.createAtomicWriterFactory(absPath, UTF_8);
+            this.bufferSource = null;
+            this.path = absPath;
+            setPathSinks();
+            return self();
+        }
+
+        private void setPathSinks() {
+            Path path = Objects.requireNonNull(this.path);
+            Durability durability = this.durability;
+            this.sink = this.pathSink = AtomicFiles.createAtomicWriterFactory(path, UTF_8, durability);
+            this.streamSink = this.pathStreamSink = () -> Channels.newOutputStream(AtomicFiles.createAtomicChannel(path, durability));
+        }
+
+        /**
+         * Sets how far the sinks created by {@link #setPath(Path)} go to make sure saved data
+         * survives a crash.
+         *
+         * <p>This applies whether it is called before or after the path is set, but has no
+         * effect on sinks set in other ways. Defaults to
+         * {@link AtomicFiles#DEFAULT_DURABILITY}.</p>
+         *
+         * @param durability The durability
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public T setDurability(@NonNull Durability durability) {
+            this.durability = Objects.requireNonNull(durability, "durability");
+            if (this.path != null && this.sink == this.pathSink && this.streamSink == this.pathStreamSink) {
+                setPathSinks();
+            }
             return self();
         }
 
+        /**
+         * Gets the durability of the sinks created by {@link #setPath(Path)}.
+         *
+         * @return The durability
+         */
+        @NonNull
+        public Durability getDurability() {
+            return this.durability;
+        }
+
         /**
          * Sets the source of the resultant loader to the given URL.
          *
@@ -259,6 +914,8 @@ public abstract class AbstractConfigurationLoader<NodeType extends Configuration
         public T setURL(@NonNull URL url) {
             Objects.requireNonNull(url, "url");
             this.source = () -> new BufferedReader(new InputStreamReader(url.openConnection().getInputStream(), UTF_8));
+            this.bufferSource = null;
+            this.path = null;
             return self();
         }
 
@@ -273,9 +930,107 @@ public abstract class AbstractConfigurationLoader<NodeType extends Configuration
         @NonNull
         public T setSource(@Nullable Callable<BufferedReader> source) {
             this.source = source;
+            this.bufferSource = null;
+            this.path = null;
+            return self();
+        }
+
+        /**
+         * Sets the source of the resultant loader to a document held as bytes, such as a
+         * {@link FileChannel#map memory-mapped file}.
+         *
+         * <p>The document is read from the position to the limit of each returned buffer.
+         * Loaders which can parse bytes directly do so. Others decode the document as UTF-8.
+         * </p>
+         *
+         * @param source The source
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public T setBufferSource(@NonNull Callable<ByteBuffer> source) {
+            Objects.requireNonNull(source, "source");
+            this.source = () -> new BufferedReader(new InputStreamReader(new ByteBufferInputStream(source.call()), UTF_8));
+            this.bufferSource = source;
+            this.path = null;
+            return self();
+        }
+
+        /**
+         * Sets the source of the resultant loader to a byte channel.
+         *
+         * <p>Each returned channel is read to its end, and then closed.</p>
+         *
+         * @param source The source
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public T setChannelSource(@NonNull Callable<? extends ReadableByteChannel> source) {
+            Objects.requireNonNull(source, "source");
+            return setBufferSource(() -> {
+                try (ReadableByteChannel channel = source.call()) {
+                    return readFully(channel);
+                }
+            });
+        }
+
+        /**
+         * Sets the source of the resultant loader to an input stream.
+         *
+         * <p>Each returned stream is read to its end, and then closed.</p>
+         *
+         * @param source The source
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public T setStreamSource(@NonNull Callable<? extends InputStream> source) {
+            Objects.requireNonNull(source, "source");
+            return setChannelSource(() -> Channels.newChannel(source.call()));
+        }
+
+        /**
+         * Gets the byte source to be used by the resultant loader.
+         *
+         * <p>A source set using {@link #setPath(Path)} reads the file, or maps it if
+         * {@link #setMemoryMapped(boolean) memory mapping} is enabled.</p>
+         *
+         * @return The byte source, or null if the source does not provide bytes
+         */
+        @Nullable
+        public Callable<ByteBuffer> getBufferSource() {
+            if (this.bufferSource == null && this.path != null) {
+                Path path = this.path;
+                boolean memoryMapped = this.memoryMapped;
+                return () -> readFile(path, memoryMapped);
+            }
+            return this.bufferSource;
+        }
+
+        /**
+         * Sets if a file set using {@link #setPath(Path)} should be memory-mapped when it is
+         * loaded, rather than being read into memory.
+         *
+         * <p>Mapping avoids copying large files, but the mapping is only released once the
+         * loaded buffer is garbage collected. On some platforms, a mapped file cannot be
+         * replaced until then, so this is disabled by default.</p>
+         *
+         * @param memoryMapped If files should be memory-mapped
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public T setMemoryMapped(boolean memoryMapped) {
+            this.memoryMapped = memoryMapped;
             return self();
         }
 
+        /**
+         * Gets if a file set using {@link #setPath(Path)} is memory-mapped when it is loaded.
+         *
+         * @return If files are memory-mapped
+         */
+        public boolean isMemoryMapped() {
+            return this.memoryMapped;
+        }
+
         /**
          * Sets the sink of the resultant loader.
          *
@@ -287,9 +1042,51 @@ public abstract class AbstractConfigurationLoader<NodeType extends Configuration
         @NonNull
         public T setSink(@Nullable Callable<BufferedWriter> sink) {
             this.sink = sink;
+            this.streamSink = null;
+            return self();
+        }
+
+        /**
+         * Sets the sink of the resultant loader to an output stream.
+         *
+         * <p>Loaders which can write bytes directly do so. Others write through a UTF-8
+         * encoder. Each returned stream is closed once the node has been written.</p>
+         *
+         * @param sink The sink
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public T setStreamSink(@NonNull Callable<? extends OutputStream> sink) {
+            Objects.requireNonNull(sink, "sink");
+            this.sink = () -> new BufferedWriter(new OutputStreamWriter(sink.call(), UTF_8));
+            this.streamSink = sink;
             return self();
         }
 
+        /**
+         * Sets the sink of the resultant loader to a byte channel.
+         *
+         * <p>Each returned channel is closed once the node has been written.</p>
+         *
+         * @param sink The sink
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public T setChannelSink(@NonNull Callable<? extends WritableByteChannel> sink) {
+            Objects.requireNonNull(sink, "sink");
+            return setStreamSink(() -> Channels.newOutputStream(sink.call()));
+        }
+
+        /**
+         * Gets the byte sink to be used by the resultant loader.
+         *
+         * @return The byte sink, or null if the sink does not accept bytes
+         */
+        @Nullable
+        public Callable<? extends OutputStream> getStreamSink() {
+            return this.streamSink;
+        }
+
         /**
          * Gets the source to be used by the resultant loader.
          *
@@ -381,6 +1178,125 @@ public abstract class AbstractConfigurationLoader<NodeType extends Configuration
             return this.defaultOptions;
         }
 
+        /**
+         * Sets if nodes should be {@link SimpleConfigurationNode#seal() sealed} after they
+         * are loaded.
+         *
+         * <p>Sealed nodes use less memory and are faster to read, but the first change to
+         * each map or list within them is more expensive.</p>
+         *
+         * @param sealOnLoad If loaded nodes should be sealed
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public T setSealOnLoad(boolean sealOnLoad) {
+            this.sealOnLoad = sealOnLoad;
+            return self();
+        }
+
+        /**
+         * Gets if nodes should be sealed after they are loaded.
+         *
+         * @return If loaded nodes should be sealed
+         */
+        public boolean sealsOnLoad() {
+            return this.sealOnLoad;
+        }
+
+        /**
+         * Sets if the resultant loader should skip saves which would not change the output.
+         *
+         * <p>When set, each save is serialized into memory first, and only written if it
+         * differs from what is already there. See
+         * {@link AbstractConfigurationLoader#saveIfChanged(ConfigurationNode)}.</p>
+         *
+         * @param skipUnchanged If unchanged saves should be skipped
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public T setSkipUnchanged(boolean skipUnchanged) {
+            this.skipUnchanged = skipUnchanged;
+            return self();
+        }
+
+        /**
+         * Gets if saves which would not change the output should be skipped.
+         *
+         * @return If unchanged saves should be skipped
+         */
+        public boolean skipsUnchanged() {
+            return this.skipUnchanged;
+        }
+
+        /**
+         * Sets the cache of parsed configurations to be used by the resultant loader.
+         *
+         * <p>The cache is only used when the source is a file set using
+         * {@link #setPath(Path)} or {@link #setFile(File)}. Each load reads the tree from the
+         * cache instead of parsing the file if it holds an entry for exactly the contents of the
+         * file. The contents are only hashed if the entry has the same size and modification
+         * time as the file. Otherwise the file is parsed and the cache is updated.</p>
+         *
+         * <p>Storing a tree in the cache reads all of it, so loads which are filtered, or which
+         * leave subtrees to be loaded lazily, are parsed as usual and do not update the cache.
+         * They still read from an existing entry.</p>
+         *
+         * @param cache The cache, or null to always parse the source
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public T setCache(@Nullable ConfigurationCache cache) {
+            this.cache = cache;
+            return self();
+        }
+
+        /**
+         * Gets the cache of parsed configurations to be used by the resultant loader.
+         *
+         * @return The cache, or null if none is set
+         */
+        @Nullable
+        public ConfigurationCache getCache() {
+            return this.cache;
+        }
+
+        /**
+         * Sets the executor used by the resultant loader to run asynchronous loads and saves.
+         *
+         * <p>The loader runs its tasks one at a time, in the order they were submitted, so
+         * saves are never reordered. By default, the
+         * {@link LoaderExecutors#defaultExecutor() shared I/O executor} is used.</p>
+         *
+         * @param executor The executor
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public T setExecutor(@NonNull Executor executor) {
+            this.executor = Objects.requireNonNull(executor, "executor");
+            return self();
+        }
+
+        /**
+         * Gets the executor to be used by the resultant loader.
+         *
+         * @return The executor
+         */
+        @NonNull
+        public Executor getExecutor() {
+            return this.executor;
+        }
+
+        /**
+         * Gets the path of the source file, if the source was set using
+         * {@link #setPath(Path)} or {@link #setFile(File)}.
+         *
+         * @return The path, or null if the source is not a file
+         */
+        @Nullable
+        public Path getPath() {
+            return this.path;
+        }
+
         /**
          * Builds the loader.
          *
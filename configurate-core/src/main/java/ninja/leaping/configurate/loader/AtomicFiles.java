@@ -20,25 +20,41 @@ import com.google.common.base.Preconditions;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.io.BufferedWriter;
-import java.io.FilterWriter;
 import java.io.IOException;
-import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.DosFileAttributeView;
+import java.nio.file.attribute.DosFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
 import java.util.concurrent.Callable;
 
 /**
  * A utility for creating "atomic" file writers.
  *
- * <p>An atomic writer copies any existing file at the given path to a temporary location, then
- * writes to the same temporary location, before moving the file back to the desired output path
- * once the write is fully complete.</p>
+ * <p>An atomic writer writes to a new temporary file next to the given path, before moving the
+ * file over the desired output path once the write is fully complete. The permissions of any
+ * existing file are carried over to the new file, but its contents are not copied.</p>
+ *
+ * <p>Unless another policy is given, writes use {@link Durability#SYNC_FILE}, so the file is
+ * never left empty or truncated after a crash.</p>
  */
 public final class AtomicFiles {
     private AtomicFiles() {}
 
+    /**
+     * The durability used when none is given.
+     */
+    public static final Durability DEFAULT_DURABILITY = Durability.SYNC_FILE;
+
     /**
      * Creates and returns an "atomic" writer factory for the given path.
      *
@@ -48,8 +64,22 @@ public final class AtomicFiles {
      */
     @NonNull
     public static Callable<BufferedWriter> createAtomicWriterFactory(@NonNull Path path, @NonNull Charset charset) {
+        return createAtomicWriterFactory(path, charset, DEFAULT_DURABILITY);
+    }
+
+    /**
+     * Creates and returns an "atomic" writer factory for the given path.
+     *
+     * @param path The path
+     * @param charset The charset to be used by the writer
+     * @param durability The durability of the writes
+     * @return The writer factory
+     */
+    @NonNull
+    public static Callable<BufferedWriter> createAtomicWriterFactory(@NonNull Path path, @NonNull Charset charset, @NonNull Durability durability) {
         Preconditions.checkNotNull(path, "path");
-        return () -> createAtomicBufferedWriter(path, charset);
+        Preconditions.checkNotNull(durability, "durability");
+        return () -> createAtomicBufferedWriter(path, charset, durability);
     }
 
     /**
@@ -61,15 +91,139 @@ public final class AtomicFiles {
      */
     @NonNull
     public static BufferedWriter createAtomicBufferedWriter(@NonNull Path path, @NonNull Charset charset) throws IOException {
+        return createAtomicBufferedWriter(path, charset, DEFAULT_DURABILITY);
+    }
+
+    /**
+     * Creates and returns an "atomic" writer for the given path.
+     *
+     * @param path The path
+     * @param charset The charset to be used by the writer
+     * @param durability The durability of the write
+     * @return The writer
+     * @throws IOException if the temporary file could not be created
+     */
+    @NonNull
+    public static BufferedWriter createAtomicBufferedWriter(@NonNull Path path, @NonNull Charset charset, @NonNull Durability durability) throws IOException {
+        AtomicFileChannel channel = openAtomicChannel(path, durability);
+        // closing the writer closes the channel, which moves the file into place
+        return new BufferedWriter(Channels.newWriter(channel, charset.newEncoder(), -1));
+    }
+
+    /**
+     * Creates and returns an "atomic" byte channel factory for the given path.
+     *
+     * @param path The path
+     * @return The channel factory
+     */
+    @NonNull
+    public static Callable<WritableByteChannel> createAtomicChannelFactory(@NonNull Path path) {
+        return createAtomicChannelFactory(path, DEFAULT_DURABILITY);
+    }
+
+    /**
+     * Creates and returns an "atomic" byte channel factory for the given path.
+     *
+     * @param path The path
+     * @param durability The durability of the writes
+     * @return The channel factory
+     */
+    @NonNull
+    public static Callable<WritableByteChannel> createAtomicChannelFactory(@NonNull Path path, @NonNull Durability durability) {
+        Preconditions.checkNotNull(path, "path");
+        Preconditions.checkNotNull(durability, "durability");
+        return () -> createAtomicChannel(path, durability);
+    }
+
+    /**
+     * Creates and returns an "atomic" byte channel for the given path.
+     *
+     * <p>Bytes are written to a temporary file, which replaces the file at the given path when
+     * the channel is closed.</p>
+     *
+     * @param path The path
+     * @return The channel
+     * @throws IOException if the temporary file could not be created
+     */
+    @NonNull
+    public static WritableByteChannel createAtomicChannel(@NonNull Path path) throws IOException {
+        return createAtomicChannel(path, DEFAULT_DURABILITY);
+    }
+
+    /**
+     * Creates and returns an "atomic" byte channel for the given path.
+     *
+     * <p>Bytes are written to a temporary file, which replaces the file at the given path when
+     * the channel is closed.</p>
+     *
+     * @param path The path
+     * @param durability The durability of the write
+     * @return The channel
+     * @throws IOException if the temporary file could not be created
+     */
+    @NonNull
+    public static WritableByteChannel createAtomicChannel(@NonNull Path path, @NonNull Durability durability) throws IOException {
+        return openAtomicChannel(path, durability);
+    }
+
+    private static AtomicFileChannel openAtomicChannel(Path path, Durability durability) throws IOException {
+        Preconditions.checkNotNull(durability, "durability");
         path = path.toAbsolutePath();
 
         Path writePath = getTemporaryPath(path.getParent(), path.getFileName().toString());
-        if (Files.exists(path)) {
-            Files.copy(path, writePath, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
+        FileChannel output = FileChannel.open(writePath, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+        try {
+            copyAttributes(path, writePath);
+        } catch (IOException | RuntimeException e) {
+            output.close();
+            Files.deleteIfExists(writePath);
+            throw e;
         }
+        return new AtomicFileChannel(writePath, path, output, durability);
+    }
 
-        BufferedWriter output = Files.newBufferedWriter(writePath, charset);
-        return new BufferedWriter(new AtomicFileWriter(writePath, path, output));
+    /**
+     * Carries the permissions of an existing file over to its replacement.
+     *
+     * @param source The existing file, which may not exist
+     * @param target The replacement
+     * @throws IOException if the permissions could not be read or set
+     */
+    private static void copyAttributes(Path source, Path target) throws IOException {
+        PosixFileAttributeView posix = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        if (posix != null) {
+            PosixFileAttributes attributes;
+            try {
+                attributes = posix.readAttributes();
+            } catch (NoSuchFileException e) {
+                return;
+            }
+            PosixFileAttributeView targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+            targetView.setPermissions(attributes.permissions());
+            if (!attributes.group().equals(Files.readAttributes(target, PosixFileAttributes.class).group())) {
+                try {
+                    targetView.setGroup(attributes.group());
+                } catch (IOException e) {
+                    // we may not be a member of the group; keep the default
+                }
+            }
+            return;
+        }
+
+        DosFileAttributeView dos = Files.getFileAttributeView(source, DosFileAttributeView.class);
+        if (dos != null) {
+            DosFileAttributes attributes;
+            try {
+                attributes = dos.readAttributes();
+            } catch (NoSuchFileException e) {
+                return;
+            }
+            // the read-only flag is left alone, so the file can still be written
+            DosFileAttributeView targetView = Files.getFileAttributeView(target, DosFileAttributeView.class);
+            targetView.setHidden(attributes.isHidden());
+            targetView.setSystem(attributes.isSystem());
+            targetView.setArchive(attributes.isArchive());
+        }
     }
 
     @NonNull
@@ -79,19 +233,60 @@ public final class AtomicFiles {
         return parent.resolve(fileName);
     }
 
-    private static class AtomicFileWriter extends FilterWriter {
+    private static class AtomicFileChannel implements WritableByteChannel {
         private final Path targetPath, writePath;
+        private final FileChannel wrapping;
+        private final Durability durability;
 
-        protected AtomicFileWriter(Path writePath, Path targetPath, Writer wrapping) {
-            super(wrapping);
+        AtomicFileChannel(Path writePath, Path targetPath, FileChannel wrapping, Durability durability) {
             this.writePath = writePath;
             this.targetPath = targetPath;
+            this.wrapping = wrapping;
+            this.durability = durability;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return wrapping.write(src);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return wrapping.isOpen();
         }
 
         @Override
         public void close() throws IOException {
-            super.close();
-            Files.move(writePath, targetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            if (!wrapping.isOpen()) {
+                return;
+            }
+            try {
+                if (durability != Durability.NONE) {
+                    wrapping.force(true);
+                }
+                wrapping.close();
+                Files.move(writePath, targetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException | RuntimeException e) {
+                wrapping.close();
+                Files.deleteIfExists(writePath);
+                throw e;
+            }
+            if (durability == Durability.SYNC_FILE_AND_DIRECTORY) {
+                syncDirectory(targetPath.getParent());
+            }
+        }
+    }
+
+    private static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // directories can't be opened on some platforms, such as Windows
+            return;
+        }
+        try (FileChannel ignored = channel) {
+            channel.force(true);
         }
     }
 }
@@ -0,0 +1,210 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.loader;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A store of parsed configurations, which lets a loader skip parsing a source file which has
+ * not changed since it was last loaded.
+ *
+ * <p>Entries are stored against a {@link Key} describing the exact contents of the source
+ * they were parsed from. An entry is only used when the key of the source being loaded is
+ * equal to the key it was stored with, so a cache may be shared between processes as long
+ * as each entry is replaced atomically.</p>
+ *
+ * @see AbstractConfigurationLoader.Builder#setCache(ConfigurationCache)
+ */
+public interface ConfigurationCache {
+
+    /**
+     * Gets the entry stored for a source, if it is still valid.
+     *
+     * @param source The path of the source
+     * @param key The key describing the current contents of the source
+     * @return The entry, or null if there is no entry stored with an equal key
+     * @throws IOException if the entry could not be read. Loaders treat this as a missing entry
+     */
+    @Nullable
+    Entry get(@NonNull Path source, @NonNull Key key) throws IOException;
+
+    /**
+     * Stores the tree parsed from a source, replacing any existing entry.
+     *
+     * @param source The path of the source
+     * @param key The key describing the contents the node was parsed from
+     * @param header The header extracted from the source, or null if it had none
+     * @param node The parsed node
+     * @throws IOException if the entry could not be written
+     */
+    void put(@NonNull Path source, @NonNull Key key, @Nullable String header, @NonNull ConfigurationNode node) throws IOException;
+
+    /**
+     * A parsed configuration held by a cache.
+     */
+    interface Entry {
+
+        /**
+         * Gets the header extracted from the source when it was parsed.
+         *
+         * @return The header, or null if the source had none
+         */
+        @Nullable
+        String getHeader();
+
+        /**
+         * Reads the parts of the cached tree selected by the given filter into a node.
+         *
+         * @param node The empty node to populate
+         * @param filter The filter selecting which paths to read
+         * @throws IOException if the entry is corrupt. The node may be partially populated
+         */
+        void readInto(@NonNull ConfigurationNode node, @NonNull PathFilter filter) throws IOException;
+    }
+
+    /**
+     * Identifies the contents of a source file by its size, modification time and a SHA-256
+     * hash of its contents.
+     *
+     * <p>The size and modification time allow stale entries to be rejected cheaply. The hash
+     * guards against changes which keep both the same. Keys created from the contents of a
+     * source only hash them when the hash is first needed, so comparing with a key of a
+     * different size or modification time does not hash the contents.</p>
+     */
+    final class Key {
+        private final long size;
+        private final long lastModified;
+        @Nullable private volatile byte[] hash;
+
+        /**
+         * The contents to hash, until they are hashed. Guarded by the lock on this key
+         */
+        @Nullable private byte[] content;
+
+        /**
+         * Creates a key for the given contents of a source.
+         *
+         * <p>The contents are hashed when the hash is first needed, so must not be modified
+         * while the key is in use.</p>
+         *
+         * @param lastModified The modification time of the source, in milliseconds since the
+         *                     epoch, read before its contents
+         * @param content The contents of the source
+         * @return A new key
+         */
+        @NonNull
+        public static Key of(long lastModified, @NonNull byte[] content) {
+            return new Key(content.length, lastModified, null, content);
+        }
+
+        /**
+         * Creates a key from its parts, such as when reading a key from a stored entry.
+         *
+         * @param size The size of the source, in bytes
+         * @param lastModified The modification time of the source, in milliseconds since the epoch
+         * @param hash The SHA-256 hash of the contents of the source
+         */
+        public Key(long size, long lastModified, @NonNull byte[] hash) {
+            this(size, lastModified, Objects.requireNonNull(hash, "hash").clone(), null);
+        }
+
+        private Key(long size, long lastModified, @Nullable byte[] hash, @Nullable byte[] content) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.content = content;
+        }
+
+        /**
+         * Gets the size of the source, in bytes.
+         *
+         * @return The size
+         */
+        public long getSize() {
+            return this.size;
+        }
+
+        /**
+         * Gets the modification time of the source.
+         *
+         * @return The modification time, in milliseconds since the epoch
+         */
+        public long getLastModified() {
+            return this.lastModified;
+        }
+
+        /**
+         * Gets the SHA-256 hash of the contents of the source.
+         *
+         * @return A copy of the hash
+         */
+        @NonNull
+        public byte[] getHash() {
+            return hash().clone();
+        }
+
+        private byte[] hash() {
+            byte[] hash = this.hash;
+            if (hash == null) {
+                synchronized (this) {
+                    hash = this.hash;
+                    if (hash == null) {
+                        MessageDigest digest;
+                        try {
+                            digest = MessageDigest.getInstance("SHA-256");
+                        } catch (NoSuchAlgorithmException e) {
+                            throw new IllegalStateException("SHA-256 is required to be supported", e);
+                        }
+                        this.hash = hash = digest.digest(this.content);
+                        this.content = null;
+                    }
+                }
+            }
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            // only hash when the cheaper checks pass
+            return this.size == that.size
+                    && this.lastModified == that.lastModified
+                    && Arrays.equals(this.hash(), that.hash());
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(this.size) * 31 + Long.hashCode(this.lastModified);
+        }
+
+        @Override
+        public String toString() {
+            return "Key{size=" + this.size + ", lastModified=" + this.lastModified + "}";
+        }
+    }
+}
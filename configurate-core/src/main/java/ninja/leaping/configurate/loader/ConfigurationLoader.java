@@ -21,6 +21,9 @@ import ninja.leaping.configurate.ConfigurationOptions;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * Represents an object which can load and save {@link ConfigurationNode} objects in a specific
@@ -70,6 +73,26 @@ public interface ConfigurationLoader<NodeType extends ConfigurationNode> {
     @NonNull
     NodeType load(@NonNull ConfigurationOptions options) throws IOException;
 
+    /**
+     * Attempts to load the parts of a {@link ConfigurationNode} selected by the given filter,
+     * using this loader, from the defined source.
+     *
+     * <p>Loaders which are able to will skip over unselected parts of the source without
+     * creating nodes for them. By default, the whole configuration is loaded and then
+     * {@link PathFilter#prune(ConfigurationNode) pruned}.</p>
+     *
+     * @param options The options to load with
+     * @param filter The filter selecting which paths to load
+     * @return The newly constructed node
+     * @throws IOException if any sort of error occurs with reading or parsing the configuration
+     */
+    @NonNull
+    default NodeType load(@NonNull ConfigurationOptions options, @NonNull PathFilter filter) throws IOException {
+        NodeType node = load(options);
+        filter.prune(node);
+        return node;
+    }
+
     /**
      * Attempts to save a {@link ConfigurationNode} using this loader, to the defined sink.
      *
@@ -77,6 +100,74 @@ public interface ConfigurationLoader<NodeType extends ConfigurationNode> {
      */
     void save(@NonNull ConfigurationNode node) throws IOException;
 
+    /**
+     * Gets the executor used to run {@link #loadAsync() asynchronous loads} and
+     * {@link #saveAsync(ConfigurationNode) saves}.
+     *
+     * <p>Implementations should run tasks one at a time, in the order they were submitted, so
+     * that saves are never reordered. The loaders provided by Configurate use a
+     * {@link LoaderExecutors#sequential(Executor) sequential} view of the executor given to
+     * their builder.</p>
+     *
+     * @return The executor
+     */
+    @NonNull
+    default Executor getExecutor() {
+        return LoaderExecutors.defaultExecutor();
+    }
+
+    /**
+     * Loads a {@link ConfigurationNode} on this loader's {@link #getExecutor() executor}, using
+     * the {@link #getDefaultOptions() default options}.
+     *
+     * @return A future completed with the newly constructed node, or exceptionally with the
+     *         {@link IOException} thrown by {@link #load()}
+     */
+    @NonNull
+    default CompletableFuture<NodeType> loadAsync() {
+        return loadAsync(getDefaultOptions());
+    }
+
+    /**
+     * Loads a {@link ConfigurationNode} on this loader's {@link #getExecutor() executor}.
+     *
+     * @param options The options to load with
+     * @return A future completed with the newly constructed node, or exceptionally with the
+     *         {@link IOException} thrown by {@link #load(ConfigurationOptions)}
+     */
+    @NonNull
+    default CompletableFuture<NodeType> loadAsync(@NonNull ConfigurationOptions options) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return load(options);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, getExecutor());
+    }
+
+    /**
+     * Saves a {@link ConfigurationNode} on this loader's {@link #getExecutor() executor}.
+     *
+     * <p>A {@link ConfigurationNode#snapshot() snapshot} of the node is taken before this method
+     * returns, so the caller may keep changing the node while it is being written.</p>
+     *
+     * @param node The node to save
+     * @return A future completed once the node has been written, or exceptionally with the
+     *         {@link IOException} thrown by {@link #save(ConfigurationNode)}
+     */
+    @NonNull
+    default CompletableFuture<Void> saveAsync(@NonNull ConfigurationNode node) {
+        ConfigurationNode snapshot = node.snapshot();
+        return CompletableFuture.runAsync(() -> {
+            try {
+                save(snapshot);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, getExecutor());
+    }
+
     /**
      * Return an empty node of the most appropriate type for this loader, using the default options.
      *
@@ -0,0 +1,205 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.loader;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.LazyValue;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A pull-based reader over the structure of a configuration document.
+ *
+ * <p>Rather than building a {@link ConfigurationNode} tree, a reader reports the document as a
+ * sequence of {@link Event}s, so a document can be scanned while holding only the current
+ * path in memory. Part or all of a document can still be built into nodes using
+ * {@link #readValue(ConfigurationNode)}.</p>
+ *
+ * <p>A document consists of a single value. A map is reported as {@link Event#START_MAP},
+ * followed by a {@link Event#KEY} and a value for each entry, and then {@link Event#END_MAP}.
+ * Lists are reported in the same way, without keys.</p>
+ *
+ * <p>Readers are not thread safe.</p>
+ */
+public interface ConfigurationReader extends Closeable {
+
+    /**
+     * The events which make up a document.
+     */
+    enum Event {
+        /**
+         * The start of a map value
+         */
+        START_MAP,
+
+        /**
+         * The end of a map value
+         */
+        END_MAP,
+
+        /**
+         * The start of a list value
+         */
+        START_LIST,
+
+        /**
+         * The end of a list value
+         */
+        END_LIST,
+
+        /**
+         * The key of a map entry, available from {@link #getKey()}. The entry's value follows
+         */
+        KEY,
+
+        /**
+         * A scalar value, available from {@link #getScalar()}
+         */
+        SCALAR
+    }
+
+    /**
+     * Advances to the next event in the document.
+     *
+     * @return The next event, or null if the end of the document has been reached
+     * @throws IOException if the document could not be read or is malformed
+     */
+    @Nullable
+    Event next() throws IOException;
+
+    /**
+     * Gets the key of the current {@link Event#KEY} event.
+     *
+     * @return The key
+     * @throws IllegalStateException if the current event is not a key
+     */
+    @NonNull
+    Object getKey();
+
+    /**
+     * Gets the value of the current {@link Event#SCALAR} event.
+     *
+     * @return The value, which is null if the document contains an explicit null
+     * @throws IllegalStateException if the current event is not a scalar
+     */
+    @Nullable
+    Object getScalar();
+
+    /**
+     * Skips over the next value in the document, including any children.
+     *
+     * <p>This should be called after a {@link Event#KEY} event, or inside a list.
+     * Implementations should override this where the underlying parser can skip values
+     * without reporting them.</p>
+     *
+     * @throws IOException if the document could not be read or is malformed
+     */
+    default void skipValue() throws IOException {
+        Event event = next();
+        if (event == Event.START_MAP || event == Event.START_LIST) {
+            NodeTreeBuilder.skipNested(this, 1);
+        } else if (event != Event.SCALAR) {
+            throw new IOException("Expected a value, but got " + event);
+        }
+    }
+
+    /**
+     * Gets if this reader supports {@link #deferValue()}.
+     *
+     * @return If values can be deferred
+     */
+    default boolean canDeferValues() {
+        return false;
+    }
+
+    /**
+     * Skips over the rest of the map or list which has just started, returning a way to read
+     * it later.
+     *
+     * <p>This should be called immediately after a {@link Event#START_MAP} or
+     * {@link Event#START_LIST} event, and consumes events up to and including the matching
+     * end event. The returned value reads from its own copy of the value's position in the
+     * source, so remains usable after this reader is closed.</p>
+     *
+     * @return The deferred value, or null if the value holds no non-null scalars, and so would
+     *         leave a node unchanged
+     * @throws IOException if the document could not be read or is malformed
+     * @throws UnsupportedOperationException if this reader {@link #canDeferValues() can't
+     *         defer values}
+     */
+    @Nullable
+    default LazyValue deferValue() throws IOException {
+        throw new UnsupportedOperationException(getClass().getName() + " can't defer values");
+    }
+
+    /**
+     * Reads the next value in the document into the given node.
+     *
+     * <p>This should be called at the start of the document, or after a {@link Event#KEY}
+     * event, or inside a list. The whole value is consumed, including any children.</p>
+     *
+     * <p>Empty maps and lists, and null scalars, leave the node unchanged.</p>
+     *
+     * @param node The node to populate
+     * @throws IOException if the document could not be read or is malformed
+     */
+    default void readValue(@NonNull ConfigurationNode node) throws IOException {
+        readValue(node, PathFilter.all());
+    }
+
+    /**
+     * Reads the parts of the next value in the document which are selected by the given
+     * filter into the given node.
+     *
+     * <p>Values which are not selected are {@link #skipValue() skipped}, and no nodes are
+     * created for them. Paths in the filter are relative to the given node.</p>
+     *
+     * @param node The node to populate
+     * @param filter The filter selecting which parts of the value to read
+     * @throws IOException if the document could not be read or is malformed
+     * @see #readValue(ConfigurationNode)
+     */
+    default void readValue(@NonNull ConfigurationNode node, @NonNull PathFilter filter) throws IOException {
+        readValue(node, filter, 0);
+    }
+
+    /**
+     * Reads the parts of the next value in the document which are selected by the given
+     * filter into the given node, deferring maps and lists below the given depth until they
+     * are first accessed.
+     *
+     * <p>A depth of 1 defers each map or list directly inside the value, so only the keys of
+     * the value are read immediately. Values are only deferred if this reader
+     * {@link #canDeferValues() can defer values}, their node is a
+     * {@link SimpleConfigurationNode}, and they are entirely selected by the filter. Otherwise,
+     * or if the depth is 0, this is the same as {@link #readValue(ConfigurationNode, PathFilter)}.</p>
+     *
+     * @param node The node to populate
+     * @param filter The filter selecting which parts of the value to read
+     * @param lazyDepth The depth below which maps and lists are read lazily, or 0 to read
+     *                  everything immediately
+     * @throws IOException if the document could not be read or is malformed
+     * @see SimpleConfigurationNode#setLazyValue(LazyValue)
+     */
+    default void readValue(@NonNull ConfigurationNode node, @NonNull PathFilter filter, int lazyDepth) throws IOException {
+        NodeTreeBuilder.read(this, node, filter, lazyDepth);
+    }
+}
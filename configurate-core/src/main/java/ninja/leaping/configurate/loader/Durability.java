@@ -0,0 +1,46 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.loader;
+
+/**
+ * How far {@link AtomicFiles atomic writes} go to make sure written data survives a crash or
+ * power loss.
+ *
+ * <p>Whatever the policy, other processes see either the old or the new file, never a partial
+ * one. The policy only affects what happens if the system stops before the operating system
+ * has flushed its caches.</p>
+ */
+public enum Durability {
+
+    /**
+     * Do not force anything to disk. After a crash, the file may be empty or truncated
+     */
+    NONE,
+
+    /**
+     * Force the new file's contents to disk before it replaces the old file. After a crash, the
+     * file holds either the old or the new contents, but a save which had completed may be lost
+     */
+    SYNC_FILE,
+
+    /**
+     * As {@link #SYNC_FILE}, then also force the directory entry to disk once the new file has
+     * replaced the old one, so a completed save is never lost. Where directories cannot be
+     * synced, this behaves as {@link #SYNC_FILE}
+     */
+    SYNC_FILE_AND_DIRECTORY
+}
@@ -0,0 +1,157 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.loader;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors used to run the asynchronous operations of {@link ConfigurationLoader}s.
+ */
+public final class LoaderExecutors {
+    private LoaderExecutors() {}
+
+    /**
+     * The number of threads in the {@link #defaultExecutor() default executor}.
+     */
+    public static final int DEFAULT_THREADS = 2;
+
+    private static final class DefaultHolder {
+        static final Executor INSTANCE = createDefault();
+
+        private static Executor createDefault() {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory threads = task -> {
+                Thread thread = new Thread(task, "Configurate I/O #" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_THREADS, DEFAULT_THREADS, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), threads);
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
+    /**
+     * Gets the executor shared by loaders which have not been given one.
+     *
+     * <p>It runs tasks on at most {@link #DEFAULT_THREADS} daemon threads, which stop when they
+     * have been idle for 30 seconds. Further tasks are queued.</p>
+     *
+     * @return The default executor
+     */
+    @NonNull
+    public static Executor defaultExecutor() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Creates an executor which runs tasks one at a time, in the order they were submitted,
+     * using the given executor.
+     *
+     * <p>Loaders use this so that saves to the same sink are never reordered, and so that a
+     * load submitted after a save reads what was saved. Tasks from different sequential
+     * executors still run in parallel.</p>
+     *
+     * @param executor The executor to run tasks with
+     * @return A new sequential executor
+     */
+    @NonNull
+    public static Executor sequential(@NonNull Executor executor) {
+        return new SequentialExecutor(Objects.requireNonNull(executor, "executor"));
+    }
+
+    private static final class SequentialExecutor implements Executor {
+        private final Executor delegate;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean running = false;
+
+        SequentialExecutor(Executor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(@NonNull Runnable task) {
+            Objects.requireNonNull(task, "task");
+            synchronized (tasks) {
+                tasks.add(task);
+                if (running) {
+                    return;
+                }
+                running = true;
+            }
+            try {
+                delegate.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                synchronized (tasks) {
+                    tasks.remove(task);
+                    running = false;
+                }
+                throw e;
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Runnable task;
+                synchronized (tasks) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException | Error e) {
+                    // let the remaining tasks run on a fresh thread
+                    boolean remaining;
+                    synchronized (tasks) {
+                        remaining = !tasks.isEmpty();
+                        running = remaining;
+                    }
+                    if (remaining) {
+                        try {
+                            delegate.execute(this::drain);
+                        } catch (RejectedExecutionException rejected) {
+                            // no fresh thread, so run the remaining tasks here rather than
+                            // leaving them queued until another task happens to be accepted
+                            e.addSuppressed(rejected);
+                            try {
+                                drain();
+                            } catch (RuntimeException | Error later) {
+                                e.addSuppressed(later);
+                            }
+                        }
+                    }
+                    throw e;
+                }
+            }
+        }
+    }
+}
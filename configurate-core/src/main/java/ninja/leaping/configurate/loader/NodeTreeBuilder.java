@@ -0,0 +1,172 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.loader;
+
+import com.google.common.base.Preconditions;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.LazyValue;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import ninja.leaping.configurate.loader.ConfigurationReader.Event;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Builds node trees from the events of a {@link ConfigurationReader}.
+ *
+ * @see ConfigurationReader#readValue(ConfigurationNode, PathFilter, int)
+ */
+final class NodeTreeBuilder {
+    private NodeTreeBuilder() {}
+
+    /**
+     * A map or list which is currently open.
+     */
+    private static final class Frame {
+        final ConfigurationNode node;
+        final PathFilter filter;
+        final boolean list;
+        int index = 0;
+
+        Frame(ConfigurationNode node, PathFilter filter, boolean list) {
+            this.node = node;
+            this.filter = filter;
+            this.list = list;
+        }
+    }
+
+    static void read(ConfigurationReader reader, ConfigurationNode node, PathFilter filter, int lazyDepth) throws IOException {
+        Preconditions.checkArgument(lazyDepth >= 0, "lazyDepth must not be negative");
+        boolean defer = lazyDepth > 0 && reader.canDeferValues();
+        Deque<Frame> frames = new ArrayDeque<>();
+        ConfigurationNode target = node;
+        PathFilter targetFilter = filter;
+
+        Event event;
+        while ((event = reader.next()) != null) {
+            Frame top = frames.peek();
+            if (top != null && top.list && event != Event.END_LIST) {
+                if (event == Event.SCALAR && reader.getScalar() == null) {
+                    // null elements aren't kept, so they don't take up an index either
+                    continue;
+                }
+                // each value in a list goes to a newly appended node
+                PathFilter elementFilter = top.filter.child(top.index++);
+                if (elementFilter == null) {
+                    skipRemainder(reader, event);
+                    continue;
+                }
+                target = top.node.getAppendedNode();
+                targetFilter = elementFilter;
+            }
+
+            switch (event) {
+                case START_MAP:
+                case START_LIST:
+                    if (defer && frames.size() >= lazyDepth && targetFilter.isAll()
+                            && target instanceof SimpleConfigurationNode) {
+                        LazyValue deferred = reader.deferValue();
+                        if (deferred != null) {
+                            ((SimpleConfigurationNode) target).setLazyValue(deferred);
+                        }
+                        break;
+                    }
+                    frames.push(new Frame(target, targetFilter, event == Event.START_LIST));
+                    break;
+                case END_MAP:
+                case END_LIST:
+                    if (frames.isEmpty()) {
+                        throw new IOException("Unexpected " + event + " outside of a value");
+                    }
+                    frames.pop();
+                    if (frames.isEmpty()) {
+                        return;
+                    }
+                    break;
+                case KEY:
+                    if (top == null || top.list) {
+                        throw new IOException("Unexpected key " + reader.getKey() + " outside of a map");
+                    }
+                    Object key = reader.getKey();
+                    PathFilter childFilter = top.filter.child(key);
+                    if (childFilter == null) {
+                        reader.skipValue();
+                    } else {
+                        target = top.node.getNode(key);
+                        targetFilter = childFilter;
+                    }
+                    break;
+                case SCALAR:
+                    // a scalar which stops short of the selected paths isn't selected itself
+                    if (targetFilter.isAll()) {
+                        target.setValue(reader.getScalar());
+                    }
+                    if (frames.isEmpty()) {
+                        return;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown event " + event);
+            }
+        }
+        if (!frames.isEmpty()) {
+            throw new IOException("Reached end of document with an unclosed value");
+        }
+    }
+
+    /**
+     * Skips the rest of a value whose first event has already been read.
+     *
+     * @param reader The reader
+     * @param first The first event of the value
+     * @throws IOException if the document could not be read
+     */
+    private static void skipRemainder(ConfigurationReader reader, Event first) throws IOException {
+        if (first == Event.START_MAP || first == Event.START_LIST) {
+            skipNested(reader, 1);
+        }
+    }
+
+    /**
+     * Skips events until the given number of open values have been closed.
+     *
+     * @param reader The reader
+     * @param depth The number of open values
+     * @throws IOException if the document could not be read
+     */
+    static void skipNested(ConfigurationReader reader, int depth) throws IOException {
+        Event event;
+        while ((event = reader.next()) != null) {
+            switch (event) {
+                case START_MAP:
+                case START_LIST:
+                    ++depth;
+                    break;
+                case END_MAP:
+                case END_LIST:
+                    if (--depth == 0) {
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        throw new IOException("Reached end of document with an unclosed value");
+    }
+}
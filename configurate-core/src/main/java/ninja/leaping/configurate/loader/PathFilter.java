@@ -0,0 +1,206 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.loader;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.transformation.NodePath;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Selects the parts of a configuration which should be loaded, by a set of path prefixes.
+ *
+ * <p>A node is selected if its path starts with one of the prefixes. The nodes leading up to
+ * a prefix are kept so that the selected nodes are reachable, but none of their other
+ * children are. For example, selecting {@code [a, b]} keeps {@code a.b} and everything below
+ * it, but drops {@code a.c}.</p>
+ *
+ * <p>List indexes in a path are positions in the loaded list, which does not hold null
+ * elements. Filtered lists are compacted: the selected elements keep their order, but are
+ * re-indexed from 0. For example, selecting {@code [list, 1]} and {@code [list, 3]} loads a
+ * list of two elements.</p>
+ *
+ * <p>Filters are immutable, and form a tree which can be walked along with a document using
+ * {@link #child(Object)}.</p>
+ */
+public final class PathFilter {
+    private static final PathFilter ALL = new PathFilter(null);
+
+    /**
+     * The filters for each selected child, or null if everything is selected
+     */
+    @Nullable
+    private final Map<Object, PathFilter> children;
+
+    private PathFilter(@Nullable Map<Object, PathFilter> children) {
+        this.children = children;
+    }
+
+    /**
+     * Gets a filter which selects everything.
+     *
+     * @return A filter selecting everything
+     */
+    @NonNull
+    public static PathFilter all() {
+        return ALL;
+    }
+
+    /**
+     * Creates a filter which selects each of the given paths.
+     *
+     * @param paths The path prefixes to select
+     * @return A filter selecting the given paths
+     */
+    @NonNull
+    public static PathFilter of(@NonNull Object[]... paths) {
+        Builder builder = new Builder();
+        for (Object[] path : paths) {
+            builder.add(Arrays.asList(Objects.requireNonNull(path, "path")));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates a filter which selects each of the given paths.
+     *
+     * @param paths The path prefixes to select
+     * @return A filter selecting the given paths
+     */
+    @NonNull
+    public static PathFilter of(@NonNull NodePath... paths) {
+        Builder builder = new Builder();
+        for (NodePath path : paths) {
+            builder.add(ImmutableList.copyOf(Objects.requireNonNull(path, "path")));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Gets if this filter selects everything.
+     *
+     * @return If everything is selected
+     */
+    public boolean isAll() {
+        return this.children == null;
+    }
+
+    /**
+     * Gets the filter to apply to the child at the given key.
+     *
+     * @param key The key of the child
+     * @return The filter for the child, or null if the child is not selected at all
+     */
+    @Nullable
+    public PathFilter child(@NonNull Object key) {
+        return this.children == null ? this : this.children.get(key);
+    }
+
+    /**
+     * Removes everything from the given node which is not selected by this filter.
+     *
+     * @param node The node to prune
+     */
+    public void prune(@NonNull ConfigurationNode node) {
+        if (this.children == null) {
+            return;
+        }
+        if (node.hasMapChildren()) {
+            for (Map.Entry<Object, ? extends ConfigurationNode> child : ImmutableMap.copyOf(node.getChildrenMap()).entrySet()) {
+                pruneChild(node, child.getKey(), child.getValue());
+            }
+        } else if (node.hasListChildren()) {
+            List<? extends ConfigurationNode> children = ImmutableList.copyOf(node.getChildrenList());
+            // remove from the end, so the indexes of the remaining children don't shift
+            for (int i = children.size() - 1; i >= 0; i--) {
+                pruneChild(node, i, children.get(i));
+            }
+        } else {
+            // a scalar stops short of any of the selected paths
+            node.setValue(null);
+        }
+    }
+
+    private void pruneChild(ConfigurationNode parent, Object key, ConfigurationNode child) {
+        PathFilter filter = child(key);
+        if (filter == null) {
+            parent.removeChild(key);
+        } else {
+            filter.prune(child);
+            // drop anything left empty, as it only led to unselected paths
+            if (!filter.isAll() && child.getChildrenMap().isEmpty() && child.getChildrenList().isEmpty()) {
+                parent.removeChild(key);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof PathFilter && Objects.equals(this.children, ((PathFilter) o).children);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.children);
+    }
+
+    @Override
+    public String toString() {
+        return this.children == null ? "PathFilter{all}" : "PathFilter" + this.children;
+    }
+
+    /**
+     * Builds the tree of filters for a set of paths.
+     */
+    private static final class Builder {
+        /**
+         * The children of this node, or null once a path ends here
+         */
+        @Nullable private Map<Object, Builder> children = new HashMap<>();
+
+        void add(List<Object> path) {
+            Builder builder = this;
+            for (Object key : path) {
+                if (builder.children == null) {
+                    // a shorter path already selects everything under here
+                    return;
+                }
+                builder = builder.children.computeIfAbsent(Objects.requireNonNull(key, "key"), k -> new Builder());
+            }
+            builder.children = null;
+        }
+
+        PathFilter build() {
+            if (this.children == null) {
+                return ALL;
+            }
+            ImmutableMap.Builder<Object, PathFilter> built = ImmutableMap.builder();
+            for (Map.Entry<Object, Builder> entry : this.children.entrySet()) {
+                built.put(entry.getKey(), entry.getValue().build());
+            }
+            return new PathFilter(built.build());
+        }
+    }
+}
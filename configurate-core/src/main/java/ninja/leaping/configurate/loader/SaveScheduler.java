@@ -0,0 +1,606 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.loader;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.ConfigurationOptions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Coalesces frequent saves into fewer physical writes.
+ *
+ * <p>Loaders are {@link #wrap(ConfigurationLoader) wrapped} by the scheduler. A save made through
+ * a wrapped loader only records a {@link ConfigurationNode#snapshot() snapshot} of the node and
+ * returns. The latest snapshot is written once no further saves have been requested for the
+ * {@link Builder#setDelay(long, TimeUnit) delay}, or once the oldest unwritten save is
+ * {@link Builder#setMaxDelay(long, TimeUnit) max delay} old, whichever comes first.</p>
+ *
+ * <p>Each wrapped loader is one target: saves to different targets never coalesce, and at most
+ * one write per target is in progress at a time.</p>
+ *
+ * <p>Saves which are still pending when the scheduler is {@link #close() closed} are written
+ * before it returns.</p>
+ */
+public final class SaveScheduler implements AutoCloseable {
+
+    /**
+     * Creates a new builder used to construct a scheduler.
+     *
+     * @return A new builder
+     */
+    @NonNull
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builds a {@link SaveScheduler}.
+     */
+    public static final class Builder {
+        private long delay = TimeUnit.MILLISECONDS.toNanos(500);
+        private long maxDelay = TimeUnit.SECONDS.toNanos(5);
+        @Nullable private ScheduledExecutorService timer;
+
+        private Builder() {}
+
+        /**
+         * Sets how long a save is held back waiting for further saves to the same target.
+         *
+         * <p>Defaults to 500 milliseconds.</p>
+         *
+         * @param delay The delay
+         * @param unit The unit of the delay
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public Builder setDelay(long delay, @NonNull TimeUnit unit) {
+            if (delay < 0) {
+                throw new IllegalArgumentException("delay must not be negative");
+            }
+            this.delay = unit.toNanos(delay);
+            return this;
+        }
+
+        /**
+         * Gets the delay, in nanoseconds.
+         *
+         * @return The delay
+         */
+        public long getDelay() {
+            return this.delay;
+        }
+
+        /**
+         * Sets the longest a save can be held back, however often further saves are requested.
+         *
+         * <p>Defaults to 5 seconds.</p>
+         *
+         * @param maxDelay The max delay
+         * @param unit The unit of the max delay
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public Builder setMaxDelay(long maxDelay, @NonNull TimeUnit unit) {
+            if (maxDelay < 0) {
+                throw new IllegalArgumentException("maxDelay must not be negative");
+            }
+            this.maxDelay = unit.toNanos(maxDelay);
+            return this;
+        }
+
+        /**
+         * Gets the max delay, in nanoseconds.
+         *
+         * @return The max delay
+         */
+        public long getMaxDelay() {
+            return this.maxDelay;
+        }
+
+        /**
+         * Sets the executor used to time delayed writes.
+         *
+         * <p>The writes themselves run on the {@link ConfigurationLoader#getExecutor() executor}
+         * of each wrapped loader. If no timer is set, the scheduler creates its own daemon thread,
+         * which is stopped when the scheduler is closed. A timer set here is not shut down.</p>
+         *
+         * @param timer The timer
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public Builder setTimer(@Nullable ScheduledExecutorService timer) {
+            this.timer = timer;
+            return this;
+        }
+
+        /**
+         * Gets the timer to be used by the scheduler.
+         *
+         * @return The timer, or null if the scheduler should create its own
+         */
+        @Nullable
+        public ScheduledExecutorService getTimer() {
+            return this.timer;
+        }
+
+        /**
+         * Builds the scheduler.
+         *
+         * @return The scheduler
+         */
+        @NonNull
+        public SaveScheduler build() {
+            if (this.maxDelay < this.delay) {
+                throw new IllegalArgumentException("maxDelay must be at least delay");
+            }
+            return new SaveScheduler(this);
+        }
+    }
+
+    private final long delay;
+    private final long maxDelay;
+    private final ScheduledExecutorService timer;
+    private final boolean ownsTimer;
+    private final Set<ScheduledLoader<?>> dirty = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final LongAdder requestedSaves = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+    private volatile boolean closed = false;
+
+    private SaveScheduler(Builder builder) {
+        this.delay = builder.getDelay();
+        this.maxDelay = builder.getMaxDelay();
+        ScheduledExecutorService timer = builder.getTimer();
+        if (timer == null) {
+            this.timer = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "Configurate save scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.ownsTimer = true;
+        } else {
+            this.timer = timer;
+            this.ownsTimer = false;
+        }
+    }
+
+    /**
+     * Wraps a loader so that saves made through it are coalesced by this scheduler.
+     *
+     * <p>The loader should not be used to save directly while it is wrapped, and a loader
+     * should be wrapped at most once: each wrapper is a separate target.</p>
+     *
+     * @param loader The loader to wrap
+     * @param <NodeType> The type of node produced by the loader
+     * @return The wrapped loader
+     */
+    @NonNull
+    public <NodeType extends ConfigurationNode> ScheduledLoader<NodeType> wrap(@NonNull ConfigurationLoader<NodeType> loader) {
+        return new ScheduledLoader<>(this, Objects.requireNonNull(loader, "loader"));
+    }
+
+    /**
+     * Writes all pending saves now, waiting for them to complete.
+     *
+     * @throws IOException if any write failed since the targets were last flushed
+     */
+    public void flush() throws IOException {
+        IOException failure = null;
+        for (ScheduledLoader<?> target : dirty) {
+            try {
+                target.flush();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Flushes all pending saves and stops delaying further ones.
+     *
+     * <p>Saves requested after the scheduler has been closed are written straight away, on the
+     * calling thread.</p>
+     *
+     * @throws IOException if any write failed since the targets were last flushed
+     */
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        try {
+            flush();
+        } finally {
+            if (this.ownsTimer) {
+                this.timer.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Gets whether the scheduler has been closed.
+     *
+     * @return If the scheduler has been closed
+     */
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * Gets the number of saves requested through all loaders wrapped by this scheduler.
+     *
+     * @return The number of requested saves
+     */
+    public long getRequestedSaves() {
+        return this.requestedSaves.sum();
+    }
+
+    /**
+     * Gets the number of successful physical writes made by all loaders wrapped by this
+     * scheduler.
+     *
+     * @return The number of writes
+     */
+    public long getWrites() {
+        return this.writes.sum();
+    }
+
+    /**
+     * Gets the number of physical writes which failed.
+     *
+     * @return The number of failed writes
+     */
+    public long getFailedWrites() {
+        return this.failedWrites.sum();
+    }
+
+    /**
+     * A loader whose saves are coalesced by a {@link SaveScheduler}.
+     *
+     * <p>{@link #save(ConfigurationNode)} does not wait for the node to be written, so it only
+     * throws if the node could not be snapshotted. Failed writes are reported by the future
+     * returned from {@link #saveAsync(ConfigurationNode)}, and by the next {@link #flush()}.</p>
+     *
+     * <p>Loads {@link #flush() flush} any pending save first, so they always see the most
+     * recently saved node.</p>
+     *
+     * @param <NodeType> The type of node produced by the loader
+     */
+    public static final class ScheduledLoader<NodeType extends ConfigurationNode> implements ConfigurationLoader<NodeType> {
+        private final SaveScheduler scheduler;
+        private final ConfigurationLoader<NodeType> delegate;
+        private final LongAdder requestedSaves = new LongAdder();
+        private final LongAdder writes = new LongAdder();
+        private final Object lock = new Object();
+
+        // all guarded by lock
+        @Nullable private ConfigurationNode pending;
+        @Nullable private CompletableFuture<Void> pendingFuture;
+        private long firstRequest;
+        @Nullable private ScheduledFuture<?> scheduled;
+        @Nullable private CompletableFuture<Void> inFlight;
+        @Nullable private IOException lastFailure;
+
+        ScheduledLoader(SaveScheduler scheduler, ConfigurationLoader<NodeType> delegate) {
+            this.scheduler = scheduler;
+            this.delegate = delegate;
+        }
+
+        /**
+         * Gets the loader which performs the physical loads and writes.
+         *
+         * @return The wrapped loader
+         */
+        @NonNull
+        public ConfigurationLoader<NodeType> getDelegate() {
+            return this.delegate;
+        }
+
+        @NonNull
+        @Override
+        public ConfigurationOptions getDefaultOptions() {
+            return this.delegate.getDefaultOptions();
+        }
+
+        @NonNull
+        @Override
+        public Executor getExecutor() {
+            return this.delegate.getExecutor();
+        }
+
+        @NonNull
+        @Override
+        public NodeType load(@NonNull ConfigurationOptions options) throws IOException {
+            flush();
+            return this.delegate.load(options);
+        }
+
+        @NonNull
+        @Override
+        public NodeType load(@NonNull ConfigurationOptions options, @NonNull PathFilter filter) throws IOException {
+            flush();
+            return this.delegate.load(options, filter);
+        }
+
+        /**
+         * Requests that the node is saved.
+         *
+         * <p>The node is snapshotted, and the snapshot is written later by the scheduler.</p>
+         *
+         * @param node The node to save
+         * @throws IOException if the scheduler is closed and the node could not be written
+         */
+        @Override
+        public void save(@NonNull ConfigurationNode node) throws IOException {
+            if (this.scheduler.isClosed()) {
+                saveDirectly(node);
+            } else {
+                request(node);
+            }
+        }
+
+        /**
+         * Requests that the node is saved.
+         *
+         * @param node The node to save
+         * @return A future completed once a snapshot taken now, or one taken by a later save,
+         *         has been written
+         */
+        @NonNull
+        @Override
+        public CompletableFuture<Void> saveAsync(@NonNull ConfigurationNode node) {
+            if (this.scheduler.isClosed()) {
+                try {
+                    saveDirectly(node);
+                    return CompletableFuture.completedFuture(null);
+                } catch (IOException e) {
+                    CompletableFuture<Void> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(e);
+                    return failed;
+                }
+            }
+            // callers get a dependent future, so they cannot complete the shared one
+            return request(node).thenApply(Function.identity());
+        }
+
+        @NonNull
+        @Override
+        public NodeType createEmptyNode(@NonNull ConfigurationOptions options) {
+            return this.delegate.createEmptyNode(options);
+        }
+
+        @Override
+        public boolean canLoad() {
+            return this.delegate.canLoad();
+        }
+
+        @Override
+        public boolean canSave() {
+            return this.delegate.canSave();
+        }
+
+        /**
+         * Writes any pending save now, waiting for it to complete.
+         *
+         * @throws IOException if a write failed since this target was last flushed
+         */
+        public void flush() throws IOException {
+            while (true) {
+                CompletableFuture<Void> wait = null;
+                synchronized (this.lock) {
+                    if (this.inFlight != null) {
+                        wait = this.inFlight;
+                    } else if (this.pending == null) {
+                        break;
+                    }
+                }
+                if (wait != null) {
+                    try {
+                        wait.get();
+                    } catch (ExecutionException e) {
+                        // recorded as lastFailure
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for a save to complete", e);
+                    }
+                } else {
+                    write();
+                }
+            }
+
+            IOException failure;
+            synchronized (this.lock) {
+                failure = this.lastFailure;
+                this.lastFailure = null;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        /**
+         * Gets whether there is a save which has not been written yet.
+         *
+         * @return If a save is pending
+         */
+        public boolean hasPendingSave() {
+            synchronized (this.lock) {
+                return this.pending != null || this.inFlight != null;
+            }
+        }
+
+        /**
+         * Gets the number of saves requested through this loader.
+         *
+         * @return The number of requested saves
+         */
+        public long getRequestedSaves() {
+            return this.requestedSaves.sum();
+        }
+
+        /**
+         * Gets the number of successful physical writes made by this loader.
+         *
+         * @return The number of writes
+         */
+        public long getWrites() {
+            return this.writes.sum();
+        }
+
+        private void saveDirectly(ConfigurationNode node) throws IOException {
+            // keep ordering with any write which is still in progress
+            flush();
+            this.requestedSaves.increment();
+            this.scheduler.requestedSaves.increment();
+            try {
+                this.delegate.save(node);
+            } catch (IOException | RuntimeException e) {
+                this.scheduler.failedWrites.increment();
+                throw e;
+            }
+            this.writes.increment();
+            this.scheduler.writes.increment();
+        }
+
+        private CompletableFuture<Void> request(ConfigurationNode node) {
+            ConfigurationNode snapshot = node.snapshot();
+            this.requestedSaves.increment();
+            this.scheduler.requestedSaves.increment();
+            CompletableFuture<Void> future;
+            synchronized (this.lock) {
+                long now = System.nanoTime();
+                if (this.pending == null) {
+                    this.pendingFuture = new CompletableFuture<>();
+                    this.firstRequest = now;
+                }
+                this.pending = snapshot;
+                this.scheduler.dirty.add(this);
+
+                // debounce, without pushing the write past the max delay
+                long wait = Math.min(this.scheduler.delay, this.firstRequest + this.scheduler.maxDelay - now);
+                if (this.scheduled != null) {
+                    this.scheduled.cancel(false);
+                }
+                future = this.pendingFuture;
+                try {
+                    this.scheduled = this.scheduler.timer.schedule(this::dispatch, Math.max(wait, 0), TimeUnit.NANOSECONDS);
+                    return future;
+                } catch (RejectedExecutionException e) {
+                    // the timer has been shut down, so don't delay
+                    this.scheduled = null;
+                }
+            }
+            write();
+            return future;
+        }
+
+        /**
+         * Called by the timer, to hand the write off to the delegate's executor.
+         */
+        private void dispatch() {
+            try {
+                this.delegate.getExecutor().execute(this::write);
+            } catch (RejectedExecutionException e) {
+                write();
+            }
+        }
+
+        private void write() {
+            ConfigurationNode node;
+            CompletableFuture<Void> future;
+            synchronized (this.lock) {
+                if (this.pending == null || this.inFlight != null) {
+                    // nothing to do, or the write in progress will reschedule us
+                    return;
+                }
+                if (this.scheduled != null) {
+                    this.scheduled.cancel(false);
+                    this.scheduled = null;
+                }
+                node = this.pending;
+                future = this.pendingFuture;
+                this.pending = null;
+                this.pendingFuture = null;
+                this.inFlight = future;
+            }
+
+            Throwable failure = null;
+            try {
+                this.delegate.save(node);
+                this.writes.increment();
+                this.scheduler.writes.increment();
+            } catch (IOException | RuntimeException e) {
+                this.scheduler.failedWrites.increment();
+                failure = e;
+            }
+
+            boolean writeAgain = false;
+            try {
+                synchronized (this.lock) {
+                    this.inFlight = null;
+                    if (failure != null) {
+                        this.lastFailure = failure instanceof IOException ? (IOException) failure : new IOException(failure);
+                    }
+                    if (this.pending == null) {
+                        this.scheduler.dirty.remove(this);
+                    } else if (this.scheduled == null || this.scheduled.isDone()) {
+                        // saves made while writing, whose timer fired before we finished
+                        try {
+                            this.scheduled = this.scheduler.timer.schedule(this::dispatch,
+                                    Math.max(this.firstRequest + this.scheduler.delay - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                        } catch (RejectedExecutionException e) {
+                            // the timer has been shut down, so don't delay
+                            this.scheduled = null;
+                            writeAgain = true;
+                        }
+                    }
+                }
+            } finally {
+                if (failure == null) {
+                    future.complete(null);
+                } else {
+                    future.completeExceptionally(failure);
+                }
+            }
+            if (writeAgain) {
+                write();
+            }
+        }
+    }
+}
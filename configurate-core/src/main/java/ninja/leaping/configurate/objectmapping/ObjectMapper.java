@@ -17,7 +17,9 @@
 package ninja.leaping.configurate.objectmapping;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.reflect.TypeToken;
+import ninja.leaping.configurate.CompiledPath;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.commented.CommentedConfigurationNode;
 import ninja.leaping.configurate.objectmapping.serialize.TypeSerializer;
@@ -41,6 +43,7 @@ public class ObjectMapper<T> {
     private final Class<T> clazz;
     private final Constructor<T> constructor;
     private final Map<String, FieldData> cachedFields = new HashMap<>();
+    private final Map<CompiledPath, FieldData> fieldPaths;
 
 
     /**
@@ -150,8 +153,12 @@ public class ObjectMapper<T> {
          * @throws ObjectMappingException If an error occurs while populating data
          */
         public T populate(ConfigurationNode source) throws ObjectMappingException {
-            for (Map.Entry<String, FieldData> ent : cachedFields.entrySet()) {
-                ConfigurationNode node = source.getNode(ent.getKey());
+            for (Map.Entry<CompiledPath, FieldData> ent : fieldPaths.entrySet()) {
+                ConfigurationNode node = ent.getKey().resolve(source);
+                if (node.isVirtual()) {
+                    // the default value of the field may be written back to the node
+                    node = ent.getKey().getNode(source);
+                }
                 ent.getValue().deserializeFrom(boundInstance, node);
             }
             return boundInstance;
@@ -164,8 +171,8 @@ public class ObjectMapper<T> {
          * @throws ObjectMappingException if serialization was not possible due to some error.
          */
         public void serialize(ConfigurationNode target) throws ObjectMappingException {
-            for (Map.Entry<String, FieldData> ent : cachedFields.entrySet()) {
-                ConfigurationNode node = target.getNode(ent.getKey());
+            for (Map.Entry<CompiledPath, FieldData> ent : fieldPaths.entrySet()) {
+                ConfigurationNode node = ent.getKey().getNode(target);
                 ent.getValue().serializeTo(boundInstance, node);
             }
         }
@@ -199,6 +206,12 @@ public class ObjectMapper<T> {
         do {
             collectFields(cachedFields, collectClass);
         } while (!(collectClass = collectClass.getSuperclass()).equals(Object.class));
+
+        ImmutableMap.Builder<CompiledPath, FieldData> fieldPaths = ImmutableMap.builder();
+        for (Map.Entry<String, FieldData> ent : cachedFields.entrySet()) {
+            fieldPaths.put(CompiledPath.of(ent.getKey()), ent.getValue());
+        }
+        this.fieldPaths = fieldPaths.build();
     }
 
     protected void collectFields(Map<String, FieldData> cachedFields, Class<? super T> clazz) throws ObjectMappingException {
@@ -95,6 +95,19 @@ public abstract class ConfigurationTransformation {
             return this;
         }
 
+        /**
+         * Adds an action to the transformation.
+         *
+         * @param path The path to apply the action at, such as a
+         *             {@link ninja.leaping.configurate.CompiledPath}
+         * @param action The action
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public Builder addAction(@NonNull NodePath path, @NonNull TransformAction action) {
+            return addAction(path.getArray(), action);
+        }
+
         /**
          * Gets the move strategy to be used by the resultant transformation.
          *
@@ -149,6 +162,18 @@ public abstract class ConfigurationTransformation {
             return this;
         }
 
+        /**
+         * Sets the path of the version key within the configuration.
+         *
+         * @param versionKey The path to the version key
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public VersionedBuilder setVersionKey(@NonNull NodePath versionKey) {
+            this.versionKey = versionKey.getArray();
+            return this;
+        }
+
         /**
          * Adds a transformation to this builder for the given version.
          *
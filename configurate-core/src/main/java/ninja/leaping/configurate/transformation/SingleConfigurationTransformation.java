@@ -16,6 +16,8 @@
  */
 package ninja.leaping.configurate.transformation;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
 import ninja.leaping.configurate.ConfigurationNode;
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -59,14 +61,15 @@ class SingleConfigurationTransformation extends ConfigurationTransformation {
         for (int i = startIdx; i < path.length; ++i) {
             if (path[i] == WILDCARD_OBJECT) {
                 if (node.hasListChildren()) {
-                    List<? extends ConfigurationNode> children = node.getChildrenList();
+                    // actions may modify the children, so iterate over a copy
+                    List<? extends ConfigurationNode> children = ImmutableList.copyOf(node.getChildrenList());
                     for (int di = 0; di < children.size(); ++di) {
                         path[i] = di;
                         applySingleAction(start, path, i + 1, children.get(di), action);
                     }
                     path[i] = WILDCARD_OBJECT;
                 } else if (node.hasMapChildren()) {
-                    for (Map.Entry<Object, ? extends ConfigurationNode> ent : node.getChildrenMap().entrySet()) {
+                    for (Map.Entry<Object, ? extends ConfigurationNode> ent : ImmutableMap.copyOf(node.getChildrenMap()).entrySet()) {
                         path[i] = ent.getKey();
                         applySingleAction(start, path, i + 1, ent.getValue(), action);
                     }
@@ -0,0 +1,327 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.util;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link ConcurrentMap} which iterates in insertion order, without locking.
+ *
+ * <p>Entries are indexed by a {@link ConcurrentHashMap}, and also appended to a
+ * {@link ConcurrentLinkedQueue} which records the order they were inserted in. Removing an
+ * entry clears its value, leaving a tombstone in the queue which is skipped by iterators.
+ * Tombstones are purged from the queue once they outnumber the live entries.</p>
+ *
+ * <p>Replacing the value of an existing key keeps its position. A key which is removed and
+ * then inserted again moves to the end, as with {@link java.util.LinkedHashMap}.</p>
+ *
+ * <p>Like {@link ConcurrentHashMap}, iterators are weakly consistent, and null keys and
+ * values are not permitted.</p>
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+final class ConcurrentInsertionOrderedMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+    /**
+     * The number of tombstones which are always tolerated before purging
+     */
+    private static final int MIN_TOMBSTONES_BEFORE_PURGE = 16;
+
+    private final ConcurrentHashMap<K, Node<K, V>> index = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Node<K, V>> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger tombstones = new AtomicInteger();
+    /**
+     * Set while a thread is purging tombstones, so only one thread purges at a time.
+     */
+    private final AtomicBoolean purging = new AtomicBoolean();
+
+    /**
+     * An entry in the map. The node for a key is kept while the key is present, and its value
+     * is set to null once it is removed.
+     */
+    private static final class Node<K, V> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Node, Object> VALUE_UPDATER =
+                AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "value");
+
+        final K key;
+        @Nullable volatile V value;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        boolean casValue(@Nullable V expected, @Nullable V value) {
+            return VALUE_UPDATER.compareAndSet(this, expected, value);
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = index.get(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    @Override
+    public V put(@NonNull K key, @NonNull V value) {
+        return insert(key, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(@NonNull K key, @NonNull V value) {
+        return insert(key, value, true);
+    }
+
+    @Nullable
+    private V insert(K key, V value, boolean onlyIfAbsent) {
+        Objects.requireNonNull(value, "value");
+        while (true) {
+            Node<K, V> node = index.get(key);
+            if (node == null) {
+                Node<K, V> created = new Node<>(key, value);
+                if (index.putIfAbsent(key, created) == null) {
+                    order.add(created);
+                    return null;
+                }
+                // lost a race with another insertion, try again
+            } else {
+                V existing = node.value;
+                if (existing == null) {
+                    // the node is being removed, help finish the removal and try again
+                    index.remove(key, node);
+                } else if (onlyIfAbsent) {
+                    return existing;
+                } else if (node.casValue(existing, value)) {
+                    return existing;
+                }
+            }
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        Node<K, V> node = index.get(key);
+        if (node == null) {
+            return null;
+        }
+        while (true) {
+            V existing = node.value;
+            if (existing == null) {
+                return null;
+            } else if (node.casValue(existing, null)) {
+                unlink(node);
+                return existing;
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(@NonNull Object key, Object value) {
+        Node<K, V> node = index.get(key);
+        if (node == null || value == null) {
+            return false;
+        }
+        while (true) {
+            V existing = node.value;
+            if (existing == null || !existing.equals(value)) {
+                return false;
+            } else if (node.casValue(existing, null)) {
+                unlink(node);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean replace(@NonNull K key, @NonNull V oldValue, @NonNull V newValue) {
+        Objects.requireNonNull(newValue, "newValue");
+        Node<K, V> node = index.get(key);
+        if (node == null) {
+            return false;
+        }
+        while (true) {
+            V existing = node.value;
+            if (existing == null || !existing.equals(oldValue)) {
+                return false;
+            } else if (node.casValue(existing, newValue)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public V replace(@NonNull K key, @NonNull V value) {
+        Objects.requireNonNull(value, "value");
+        Node<K, V> node = index.get(key);
+        if (node == null) {
+            return null;
+        }
+        while (true) {
+            V existing = node.value;
+            if (existing == null || node.casValue(existing, value)) {
+                return existing;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (K key : index.keySet()) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Removes a node whose value has been cleared from the index, and purges tombstones from
+     * the insertion order if there are enough of them.
+     *
+     * @param node The removed node
+     */
+    private void unlink(Node<K, V> node) {
+        index.remove(node.key, node);
+        int tombstones = this.tombstones.incrementAndGet();
+        if (tombstones > MIN_TOMBSTONES_BEFORE_PURGE && tombstones > index.size() && purging.compareAndSet(false, true)) {
+            try {
+                int purged = purge();
+                // a tombstone can be purged before its removal is counted, so don't go below zero
+                this.tombstones.updateAndGet(count -> Math.max(0, count - purged));
+            } finally {
+                purging.set(false);
+            }
+        }
+    }
+
+    /**
+     * Removes tombstones from the insertion order.
+     *
+     * @return The number of tombstones removed
+     */
+    private int purge() {
+        int purged = 0;
+        for (Iterator<Node<K, V>> it = order.iterator(); it.hasNext();) {
+            if (it.next().value == null) {
+                it.remove();
+                ++purged;
+            }
+        }
+        return purged;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Node<K, V> node : order) {
+            V value = node.value;
+            if (value != null) {
+                action.accept(node.key, value);
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @NonNull
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return ConcurrentInsertionOrderedMap.this.size();
+            }
+        };
+    }
+
+    private final class EntryIterator implements Iterator<Entry<K, V>> {
+        private final Iterator<Node<K, V>> nodes = order.iterator();
+        @Nullable private Entry<K, V> next;
+        @Nullable private Node<K, V> nextNode;
+        @Nullable private Node<K, V> last;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && nodes.hasNext()) {
+                Node<K, V> node = nodes.next();
+                V value = node.value;
+                if (value != null) {
+                    next = new SimpleImmutableEntry<>(node.key, value);
+                    nextNode = node;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> ret = next;
+            last = nextNode;
+            next = null;
+            nextNode = null;
+            return ret;
+        }
+
+        @Override
+        public void remove() {
+            Node<K, V> last = this.last;
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            this.last = null;
+            V value = last.value;
+            if (value != null && last.casValue(value, null)) {
+                unlink(last);
+            }
+        }
+    }
+}
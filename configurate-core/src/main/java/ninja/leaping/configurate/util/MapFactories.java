@@ -18,17 +18,23 @@ package ninja.leaping.configurate.util;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
 
 /**
  * Default implementations of {@link MapFactory}.
@@ -75,6 +81,19 @@ public final class MapFactories {
         return DefaultFactory.INSERTION_ORDERED;
     }
 
+    /**
+     * Returns a {@link MapFactory} which creates maps which are sorted by insertion order,
+     * and which can be read and modified concurrently without locking.
+     *
+     * <p>Iteration over these maps is weakly consistent, and entries inserted concurrently
+     * with an iteration may not be seen by it.</p>
+     *
+     * @return A map factory which produces lock-free maps sorted by insertion order
+     */
+    public static MapFactory concurrentInsertionOrdered() {
+        return DefaultFactory.CONCURRENT_INSERTION_ORDERED;
+    }
+
     private enum DefaultFactory implements MapFactory {
         UNORDERED {
             @NonNull
@@ -96,6 +115,13 @@ public final class MapFactories {
             public <K, V> ConcurrentMap<K, V> create() {
                 return new SynchronizedWrapper<>(new LinkedHashMap<>());
             }
+        },
+        CONCURRENT_INSERTION_ORDERED {
+            @NonNull
+            @Override
+            public <K, V> ConcurrentMap<K, V> create() {
+                return new ConcurrentInsertionOrderedMap<>();
+            }
         }
     }
 
@@ -126,6 +152,13 @@ public final class MapFactories {
     private static class SynchronizedWrapper<K, V> implements ConcurrentMap<K, V> {
         private final Map<K, V> wrapped;
 
+        /**
+         * The keys and values of the map, alternating, as last passed to {@link #forEach}, or
+         * null if the map has changed since. Guarded by the lock on the wrapped map.
+         */
+        @Nullable
+        private Object[] entries;
+
         private SynchronizedWrapper(Map<K, V> wrapped) {
             this.wrapped = wrapped;
         }
@@ -134,6 +167,7 @@ public final class MapFactories {
         public V putIfAbsent(K k, V v) {
             synchronized (wrapped) {
                 if (!wrapped.containsKey(k)) {
+                    entries = null;
                     wrapped.put(k, v);
                 } else {
                     return wrapped.get(k);
@@ -146,6 +180,7 @@ public final class MapFactories {
         public boolean remove(Object key, Object expected) {
             synchronized (wrapped) {
                 if (Objects.equal(expected, wrapped.get(key))) {
+                    entries = null;
                     return wrapped.remove(key) != null;
                 }
             }
@@ -156,6 +191,7 @@ public final class MapFactories {
         public boolean replace(K key, V old, V replace) {
             synchronized (wrapped) {
                 if (Objects.equal(old, wrapped.get(key))) {
+                    entries = null;
                     wrapped.put(key, replace);
                     return true;
                 }
@@ -167,6 +203,7 @@ public final class MapFactories {
         public V replace(K k, V v) {
             synchronized (wrapped) {
                 if (wrapped.containsKey(k)) {
+                    entries = null;
                     return wrapped.put(k, v);
                 }
             }
@@ -211,6 +248,7 @@ public final class MapFactories {
         @Override
         public V put(K k, V v) {
             synchronized (wrapped) {
+                entries = null;
                 return wrapped.put(k, v);
             }
         }
@@ -218,6 +256,7 @@ public final class MapFactories {
         @Override
         public V remove(Object o) {
             synchronized (wrapped) {
+                entries = null;
                 return wrapped.remove(o);
             }
         }
@@ -225,6 +264,7 @@ public final class MapFactories {
         @Override
         public void putAll(Map<? extends K, ? extends V> map) {
             synchronized (wrapped) {
+                entries = null;
                 wrapped.putAll(map);
             }
         }
@@ -232,6 +272,7 @@ public final class MapFactories {
         @Override
         public void clear() {
             synchronized (wrapped) {
+                entries = null;
                 wrapped.clear();
             }
         }
@@ -246,14 +287,67 @@ public final class MapFactories {
         @Override
         public Collection<V> values() {
             synchronized (wrapped) {
-                return ImmutableSet.copyOf(wrapped.values());
+                // a list, so the values aren't hashed
+                return ImmutableList.copyOf(wrapped.values());
             }
         }
 
         @Override
         public Set<Entry<K, V>> entrySet() {
             synchronized (wrapped) {
-                return ImmutableSet.copyOf(wrapped.entrySet());
+                // the keys are distinct, so a list of the entries is a set without hashing the values
+                List<Entry<K, V>> entries = ImmutableList.copyOf(wrapped.entrySet());
+                return new AbstractSet<Entry<K, V>>() {
+                    @Override
+                    public Iterator<Entry<K, V>> iterator() {
+                        return entries.iterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return entries.size();
+                    }
+                };
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            // copy the keys and values into one array, which is kept until the map next changes,
+            // and call the action outside of the lock, as it may block
+            Object[] entries;
+            synchronized (wrapped) {
+                entries = this.entries;
+                if (entries == null) {
+                    entries = new Object[wrapped.size() * 2];
+                    int i = 0;
+                    for (Entry<K, V> entry : wrapped.entrySet()) {
+                        entries[i++] = entry.getKey();
+                        entries[i++] = entry.getValue();
+                    }
+                    this.entries = entries;
+                }
+            }
+            for (int i = 0; i < entries.length; i += 2) {
+                action.accept((K) entries[i], (V) entries[i + 1]);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            synchronized (wrapped) {
+                return wrapped.equals(o);
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            synchronized (wrapped) {
+                return wrapped.hashCode();
             }
         }
     }
@@ -0,0 +1,82 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate;
+
+import com.google.common.collect.ImmutableList;
+import ninja.leaping.configurate.transformation.ConfigurationTransformation;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CompiledPathTest {
+
+    @Test
+    public void testResolve() {
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.getNode("a", "b").setValue("value");
+        root.getNode("list").setValue(ImmutableList.of("x", "y"));
+
+        CompiledPath path = CompiledPath.of("a", "b");
+        assertSame(root.getNode("a", "b"), path.resolve(root));
+        assertEquals("value", path.resolve(root.snapshot()).getString());
+        assertEquals("y", CompiledPath.of("list", 1).resolve(root).getString());
+        assertSame(root, CompiledPath.of().resolve(root));
+    }
+
+    @Test
+    public void testMissingPathReturnsSharedNode() {
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.getNode("a").setValue("scalar");
+
+        ConfigurationNode missing = CompiledPath.of("a", "b").resolve(root);
+        assertTrue(missing.isVirtual());
+        assertNull(missing.getValue());
+        assertSame(missing, CompiledPath.of("missing").resolve(root));
+        assertSame(missing, CompiledPath.of("list", 5).resolve(root.snapshot()));
+        assertFalse(root.getNode("a").hasMapChildren());
+    }
+
+    @Test
+    public void testGetNode() {
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        CompiledPath path = CompiledPath.of("a", "b");
+        path.getNode(root).setValue("value");
+        assertEquals("value", root.getNode("a", "b").getString());
+    }
+
+    @Test
+    public void testEquality() {
+        CompiledPath path = CompiledPath.of("a", new String("b"), 1);
+        assertEquals(CompiledPath.of("a", "b", 1), path);
+        assertEquals(CompiledPath.of("a", "b", 1).hashCode(), path.hashCode());
+        assertSame(CompiledPath.of(new String("b")).get(0), path.get(1));
+        assertNotEquals(CompiledPath.of("a", "b"), path);
+        assertArrayEquals(new Object[]{"a", "b", 1}, path.getArray());
+    }
+
+    @Test
+    public void testTransformationAction() {
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.getNode("old").setValue("value");
+        ConfigurationTransformation.builder()
+                .addAction(CompiledPath.of("old"), (path, value) -> new Object[]{"new"})
+                .build()
+                .apply(root);
+        assertEquals("value", root.getNode("new").getString());
+        assertTrue(root.getNode("old").isVirtual());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate;
+
+import ninja.leaping.configurate.attributed.SimpleAttributedConfigurationNode;
+import ninja.leaping.configurate.commented.SimpleCommentedConfigurationNode;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNoException;
+
+/**
+ * Checks that an empty node doesn't retain any objects of its own besides the node itself.
+ *
+ * <p>Empty nodes used to hold their own null value, and commented and attributed nodes an
+ * {@link java.util.concurrent.atomic.AtomicReference} and a {@link java.util.HashMap}
+ * respectively, which added 16 to 64 bytes to every node.</p>
+ */
+public class NodeFootprintTest {
+    private static final int COUNT = 1000;
+
+    @BeforeClass
+    public static void checkLayoutsCanBeMeasured() {
+        try {
+            GraphLayout.parseInstance(SimpleConfigurationNode.root()).totalSize();
+        } catch (RuntimeException | LinkageError e) {
+            assumeNoException("JOL can't measure object layouts on this JVM", e);
+        }
+    }
+
+    /**
+     * Measures the heap retained by each of a number of virtual children of a node, excluding
+     * anything reachable from the parent node, such as its options.
+     *
+     * @param root The parent node
+     * @return The average size of a child, in bytes
+     */
+    private static long retainedPerChild(ConfigurationNode root) {
+        Object[] children = new Object[COUNT];
+        for (int i = 0; i < COUNT; ++i) {
+            children[i] = root.getNode("key");
+        }
+        long shared = GraphLayout.parseInstance(root).totalSize();
+        long total = GraphLayout.parseInstance(children).totalSize();
+        return (total - shared) / COUNT;
+    }
+
+    @Test
+    public void testEmptyNodeFootprint() {
+        assertEquals(ClassLayout.parseClass(SimpleConfigurationNode.class).instanceSize(),
+                retainedPerChild(SimpleConfigurationNode.root()));
+    }
+
+    @Test
+    public void testEmptyCommentedNodeFootprint() {
+        assertEquals(ClassLayout.parseClass(SimpleCommentedConfigurationNode.class).instanceSize(),
+                retainedPerChild(SimpleCommentedConfigurationNode.root()));
+    }
+
+    @Test
+    public void testEmptyAttributedNodeFootprint() {
+        assertEquals(ClassLayout.parseClass(SimpleAttributedConfigurationNode.class).instanceSize(),
+                retainedPerChild(SimpleAttributedConfigurationNode.root()));
+    }
+}
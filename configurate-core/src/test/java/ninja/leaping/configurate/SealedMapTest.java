@@ -0,0 +1,80 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate;
+
+import com.google.common.collect.ImmutableList;
+import ninja.leaping.configurate.util.MapFactories;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.Assert.*;
+
+public class SealedMapTest {
+
+    private static Map<Object, Integer> source(int size) {
+        Map<Object, Integer> source = new LinkedHashMap<>();
+        for (int i = 0; i < size; ++i) {
+            source.put("key" + i, i);
+        }
+        return source;
+    }
+
+    @Test
+    public void testLookup() {
+        for (int size : new int[] {0, 1, 8, 9, 100}) {
+            Map<Object, Integer> source = source(size);
+            SealedMap<Object, Integer> sealed = new SealedMap<>(source, MapFactories.insertionOrdered());
+            assertEquals(size, sealed.size());
+            assertEquals(source, sealed);
+            assertEquals(source.hashCode(), sealed.hashCode());
+            for (int i = 0; i < size; ++i) {
+                assertEquals((Integer) i, sealed.get(new String("key" + i)));
+            }
+            assertNull(sealed.get("missing"));
+            assertNull(sealed.get(null));
+            assertFalse(sealed.containsKey(size));
+        }
+    }
+
+    @Test
+    public void testIterationOrder() {
+        Map<Object, Integer> source = source(20);
+        SealedMap<Object, Integer> sealed = new SealedMap<>(source, MapFactories.insertionOrdered());
+        assertEquals(ImmutableList.copyOf(source.keySet()), ImmutableList.copyOf(sealed.keySet()));
+
+        ImmutableList.Builder<Object> visited = ImmutableList.builder();
+        sealed.forEach((key, value) -> visited.add(key));
+        assertEquals(ImmutableList.copyOf(source.keySet()), visited.build());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testUnmodifiable() {
+        new SealedMap<>(source(2), MapFactories.insertionOrdered()).put("key", 5);
+    }
+
+    @Test
+    public void testToMutable() {
+        SealedMap<Object, Integer> sealed = new SealedMap<>(source(10), MapFactories.insertionOrdered());
+        ConcurrentMap<Object, Integer> mutable = sealed.toMutable();
+        mutable.put("new", 10);
+        assertEquals(11, mutable.size());
+        assertEquals(10, sealed.size());
+    }
+}
@@ -19,15 +19,24 @@ package ninja.leaping.configurate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.Uninterruptibles;
 import ninja.leaping.configurate.objectmapping.ObjectMappingException;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
@@ -139,6 +148,32 @@ public class SimpleConfigurationNodeTest {
         assertEquals(TEST_LIST, root.getValue());
     }
 
+    @Test
+    public void testAppendedNodeKeys() {
+        ConfigurationNode root = SimpleConfigurationNode.root();
+        for (int i = 0; i < 5; i++) {
+            // identical values, so the key can't be derived by searching for the node
+            ConfigurationNode child = root.getAppendedNode().setValue("same");
+            assertEquals(i, child.getKey());
+        }
+        assertEquals(5, root.getChildrenList().size());
+    }
+
+    @Test
+    public void testListRemovalUpdatesKeys() {
+        ConfigurationNode root = SimpleConfigurationNode.root();
+        root.setValue(ImmutableList.of("a", "b", "c", "d"));
+        assertTrue(root.removeChild(1));
+
+        List<? extends ConfigurationNode> children = root.getChildrenList();
+        assertEquals(3, children.size());
+        for (int i = 0; i < children.size(); i++) {
+            assertEquals(i, children.get(i).getKey());
+        }
+        assertEquals("c", root.getNode(1).getValue());
+        assertEquals("d", root.getNode(2).getValue());
+    }
+
     @Test
     public void testSingleListConversion() {
         ConfigurationNode config = SimpleConfigurationNode.root();
@@ -204,6 +239,324 @@ public class SimpleConfigurationNodeTest {
         assertTrue(subject.hasMapChildren());
     }
 
+    @Test
+    public void testEqualityIgnoresParent() {
+        ConfigurationNode first = SimpleConfigurationNode.root();
+        ConfigurationNode second = SimpleConfigurationNode.root();
+        first.getNode("section").setValue(ImmutableMap.of("a", "b", "list", ImmutableList.of(1, 2, 3)));
+        second.getNode("section").setValue(ImmutableMap.of("a", "b", "list", ImmutableList.of(1, 2, 3)));
+        first.getNode("only-in-first").setValue(true);
+
+        assertNotEquals(first, second);
+        assertEquals(first.getNode("section"), second.getNode("section"));
+        assertEquals(first.getNode("section").hashCode(), second.getNode("section").hashCode());
+    }
+
+    @Test
+    public void testHashUpdatedOnChange() {
+        ConfigurationNode root = SimpleConfigurationNode.root();
+        ConfigurationNode leaf = root.getNode("a", "b", "c").setValue("one");
+        root.getNode("a", "sibling").setValue("unchanged");
+
+        int original = root.hashCode();
+        leaf.setValue("two");
+        assertNotEquals(original, root.hashCode());
+        leaf.setValue("one");
+        assertEquals(original, root.hashCode());
+
+        root.getNode("a", "b", "new").setValue("added");
+        assertNotEquals(original, root.hashCode());
+        root.getNode("a", "b").removeChild("new");
+        assertEquals(original, root.hashCode());
+    }
+
+    @Test
+    public void testHashNotCachedFromConcurrentChange() throws InterruptedException {
+        CountDownLatch calculated = new CountDownLatch(1);
+        CountDownLatch changed = new CountDownLatch(1);
+        AtomicBoolean pause = new AtomicBoolean(true);
+        SimpleConfigurationNode root = new SimpleConfigurationNode(null, null, ConfigurationOptions.defaults()) {
+            @Override
+            protected int computeHash() {
+                int hash = super.computeHash();
+                if (pause.getAndSet(false)) {
+                    // let the leaf change after its old value has been hashed
+                    calculated.countDown();
+                    Uninterruptibles.awaitUninterruptibly(changed);
+                }
+                return hash;
+            }
+        };
+        ConfigurationNode leaf = root.getNode("a", "b").setValue("one");
+
+        Thread reader = new Thread(root::hashCode);
+        reader.start();
+        calculated.await();
+        leaf.setValue("two");
+        changed.countDown();
+        reader.join();
+
+        assertEquals(SimpleConfigurationNode.root().setValue(root).hashCode(), root.hashCode());
+    }
+
+    @Test
+    public void testSnapshotNotCachedFromConcurrentChange() throws InterruptedException {
+        CountDownLatch built = new CountDownLatch(1);
+        CountDownLatch changed = new CountDownLatch(1);
+        AtomicBoolean pause = new AtomicBoolean(true);
+        SimpleConfigurationNode root = new SimpleConfigurationNode(null, null, ConfigurationOptions.defaults()) {
+            @NonNull
+            @Override
+            protected ImmutableConfigurationNode createSnapshot(@Nullable Object key, @Nullable Object contents) {
+                if (pause.getAndSet(false)) {
+                    // let the leaf change after its old value has been copied
+                    built.countDown();
+                    Uninterruptibles.awaitUninterruptibly(changed);
+                }
+                return super.createSnapshot(key, contents);
+            }
+        };
+        ConfigurationNode leaf = root.getNode("a", "b").setValue("one");
+
+        AtomicReference<ImmutableConfigurationNode> raced = new AtomicReference<>();
+        Thread reader = new Thread(() -> raced.set(root.snapshot()));
+        reader.start();
+        built.await();
+        leaf.setValue("two");
+        changed.countDown();
+        reader.join();
+
+        // the raced snapshot is returned as it was built, but the next one sees the change
+        assertEquals("one", raced.get().getNode("a", "b").getString());
+        assertEquals("two", root.snapshot().getNode("a", "b").getString());
+    }
+
+    @Test
+    public void testSnapshotIsolatedFromChanges() {
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.getNode("a", "b").setValue("one");
+        root.getNode("list").setValue(ImmutableList.of("x", "y"));
+        ImmutableConfigurationNode snapshot = root.snapshot();
+
+        root.getNode("a", "b").setValue("two");
+        root.getNode("list").getAppendedNode().setValue("z");
+
+        assertEquals("one", snapshot.getNode("a", "b").getString());
+        assertEquals(ImmutableList.of("x", "y"), snapshot.getNode("list").getList(Object::toString));
+        assertEquals("two", root.snapshot().getNode("a", "b").getString());
+        assertTrue(snapshot.getNode("missing").isVirtual());
+    }
+
+    @Test
+    public void testSnapshotSharesUnchangedSubtrees() {
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.getNode("changed", "value").setValue("one");
+        root.getNode("unchanged", "value").setValue("constant");
+        ImmutableConfigurationNode first = root.snapshot();
+        assertSame(first, root.snapshot());
+
+        root.getNode("changed", "value").setValue("two");
+        ImmutableConfigurationNode second = root.snapshot();
+        assertNotSame(first, second);
+        assertSame(first.getNode("unchanged"), second.getNode("unchanged"));
+        assertNotSame(first.getNode("changed"), second.getNode("changed"));
+    }
+
+    @Test
+    public void testSnapshotAfterListRemoval() {
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.setValue(ImmutableList.of("a", "b", "c"));
+        root.snapshot();
+        root.removeChild(0);
+        ImmutableConfigurationNode snapshot = root.snapshot();
+        assertEquals(0, snapshot.getNode(0).getKey());
+        assertEquals("b", snapshot.getNode(0).getString());
+        assertEquals(1, snapshot.getNode(1).getKey());
+        assertEquals("c", snapshot.getNode(1).getString());
+    }
+
+    @Test
+    public void testForEachChild() {
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.getNode("map", "a").setValue(1);
+        root.getNode("map", "b").setValue(2);
+        root.getNode("list").setValue(ImmutableList.of("x", "y"));
+
+        Map<Object, Object> mapChildren = new HashMap<>();
+        root.getNode("map").forEachChild((key, child) -> mapChildren.put(key, child.getValue()));
+        assertEquals(ImmutableMap.of("a", 1, "b", 2), mapChildren);
+
+        List<Object> listChildren = new ArrayList<>();
+        root.getNode("list").forEachChild((index, child) -> {
+            assertEquals(listChildren.size(), index);
+            listChildren.add(child.getValue());
+        });
+        assertEquals(ImmutableList.of("x", "y"), listChildren);
+
+        root.getNode("map", "a").forEachChild((key, child) -> fail("Scalar nodes have no children"));
+    }
+
+    @Test(timeout = 10000)
+    public void testForEachChildDoesNotBlockWriters() throws InterruptedException {
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.getNode("map", "a").setValue(1);
+        root.getNode("list").setValue(ImmutableList.of("x"));
+
+        // another thread changes the node while the visitor waits for it
+        for (ConfigurationNode node : Arrays.asList(root.getNode("map"), root.getNode("list"))) {
+            node.forEachChild((key, child) -> {
+                Thread writer = new Thread(node.hasMapChildren()
+                        ? () -> node.getNode("b").setValue(2)
+                        : () -> node.getAppendedNode().setValue("added"));
+                writer.start();
+                writer.join();
+            });
+        }
+        assertEquals(ImmutableMap.of("a", 1, "b", 2), root.getNode("map").getValue());
+        assertEquals(ImmutableList.of("x", "added"), root.getNode("list").getValue());
+    }
+
+    @Test(expected = IOException.class)
+    public void testForEachChildPropagatesExceptions() throws IOException {
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.getNode("a").setValue("value");
+        root.forEachChild((key, child) -> {
+            throw new IOException("expected");
+        });
+    }
+
+    @Test
+    public void testChildrenViews() {
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.getNode("a").setValue("value");
+        Map<Object, ? extends SimpleConfigurationNode> map = root.getChildrenMap();
+        root.getNode("b").setValue("other");
+        assertEquals(2, map.size());
+        try {
+            map.remove("a");
+            fail("Children map should be unmodifiable");
+        } catch (UnsupportedOperationException ignore) {
+        }
+
+        SimpleConfigurationNode listNode = root.getNode("list").setValue(ImmutableList.of("x", "y", "z"));
+        List<? extends SimpleConfigurationNode> list = listNode.getChildrenList();
+        int count = 0;
+        for (SimpleConfigurationNode child : list) {
+            if (count++ == 0) {
+                listNode.removeChild(2);
+            }
+        }
+        assertEquals(2, count);
+        assertEquals(2, list.size());
+    }
+
+    @Test
+    public void testChildrenViewsAfterSeal() {
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.getNode("a").setValue("value");
+        SimpleConfigurationNode listNode = root.getNode("list").setValue(ImmutableList.of("x", "y"));
+        Map<Object, ? extends SimpleConfigurationNode> map = root.getChildrenMap();
+        List<? extends SimpleConfigurationNode> list = listNode.getChildrenList();
+        root.seal();
+
+        // writes after sealing replace the children's storage, which the views must follow
+        root.getNode("b").setValue("other");
+        listNode.getAppendedNode().setValue("z");
+        assertEquals(ImmutableList.of("a", "list", "b"), ImmutableList.copyOf(map.keySet()));
+        assertSame(root.getNode("b"), map.get("b"));
+        assertEquals(3, list.size());
+        assertEquals("z", list.get(2).getValue());
+    }
+
+    @Test
+    public void testForEachChildAfterChanges() {
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.getNode("a").setValue(1);
+        root.getNode("b").setValue(2);
+        SimpleConfigurationNode listNode = root.getNode("list").setValue(ImmutableList.of("x", "y"));
+        List<Object> visited = new ArrayList<>();
+        root.forEachChild((key, child) -> visited.add(key));
+        listNode.forEachChild((key, child) -> visited.add(child.getValue()));
+        assertEquals(ImmutableList.of("a", "b", "list", "x", "y"), visited);
+
+        // the children are visited without copying them until they next change
+        root.removeChild("a");
+        root.getNode("c").setValue(3);
+        listNode.removeChild(0);
+        listNode.getAppendedNode().setValue("z");
+        visited.clear();
+        root.forEachChild((key, child) -> visited.add(key));
+        listNode.forEachChild((key, child) -> visited.add(key + "=" + child.getValue()));
+        assertEquals(ImmutableList.of("b", "list", "c", "0=y", "1=z"), visited);
+    }
+
+    @Test
+    public void testPrimitiveGetters() {
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.getNode("int").setValue(42);
+        root.getNode("string").setValue("7");
+        root.getNode("double").setValue(2.5);
+        root.getNode("bool").setValue("yes");
+        root.getNode("map", "child").setValue(1);
+
+        assertEquals(42, root.getNode("int").getInt());
+        assertEquals(42L, root.getNode("int").getLong());
+        assertEquals(7, root.getNode("string").getInt(-1));
+        assertEquals(2.5, root.getNode("double").getDouble(), 0);
+        assertEquals(2.5f, root.getNode("double").getFloat(), 0);
+        assertEquals(-1, root.getNode("double").getInt(-1));
+        assertTrue(root.getNode("bool").getBoolean());
+        assertEquals(-1, root.getNode("map").getInt(-1));
+        assertEquals(-1, root.getNode("missing").getInt(-1));
+        assertTrue(root.getNode("missing").isVirtual());
+
+        ImmutableConfigurationNode snapshot = root.snapshot();
+        assertEquals(42, snapshot.getNode("int").getInt());
+        assertEquals(7L, snapshot.getNode("string").getLong());
+        assertEquals(-1, snapshot.getNode("map").getInt(-1));
+        assertTrue(snapshot.getNode("bool").getBoolean());
+    }
+
+    @Test
+    public void testPrimitiveDefaultsCopied() {
+        SimpleConfigurationNode subject = SimpleConfigurationNode.root(ConfigurationOptions.defaults().setShouldCopyDefaults(true));
+        assertEquals(5, subject.getNode("int").getInt(5));
+        assertEquals(5, subject.getNode("int").getValue());
+        assertTrue(subject.getNode("bool").getBoolean(true));
+        assertEquals(true, subject.getNode("bool").getValue());
+    }
+
+    @Test
+    public void testSealedTreeReadsAndCopiesOnWrite() {
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        for (int i = 0; i < 20; ++i) {
+            root.getNode("map", "key" + i).setValue(i);
+        }
+        root.getNode("list").setValue(ImmutableList.of("a", "b", "c"));
+        SimpleConfigurationNode copy = SimpleConfigurationNode.root().setValue(root);
+        Object unsealedValue = root.getValue();
+
+        root.seal();
+        assertEquals(unsealedValue, root.getValue());
+        assertEquals(copy, root);
+        assertEquals(copy.hashCode(), root.hashCode());
+        assertEquals(5, root.getNode("map", "key5").getInt());
+        assertEquals("b", root.getNode("list", 1).getString());
+        assertTrue(root.getNode("map", "missing").isVirtual());
+
+        root.getNode("map", "key5").setValue("changed");
+        root.getNode("map", "new").setValue("added");
+        root.getNode("map").removeChild("key0");
+        root.getNode("list").getAppendedNode().setValue("d");
+        root.getNode("list").removeChild(0);
+
+        assertEquals("changed", root.getNode("map", "key5").getString());
+        assertEquals("added", root.getNode("map", "new").getString());
+        assertTrue(root.getNode("map", "key0").isVirtual());
+        assertEquals(ImmutableList.of("b", "c", "d"), root.getNode("list").getList(Object::toString));
+        assertEquals(2, root.getNode("list", 2).getKey());
+    }
+
     @Test
     public void testGetSetValueSerialized() throws ObjectMappingException {
         SimpleConfigurationNode subject = SimpleConfigurationNode.root();
@@ -222,4 +575,108 @@ public class SimpleConfigurationNodeTest {
         assertEquals("default value", subject.getValue());
     }
 
+    @Test
+    public void testLazyValue() {
+        AtomicInteger reads = new AtomicInteger();
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.getNode("lazy").setLazyValue(node -> {
+            reads.incrementAndGet();
+            node.getNode("a").setValue(1);
+            node.getNode("b", "c").setValue("two");
+        });
+        assertFalse(root.getNode("lazy").isVirtual());
+        assertEquals(0, reads.get());
+
+        assertEquals("two", root.getNode("lazy", "b", "c").getString());
+        assertEquals(1, root.getNode("lazy", "a").getInt());
+        assertEquals(1, reads.get());
+        assertSame(root.getNode("lazy"), root.getNode("lazy", "b").getParent());
+
+        SimpleConfigurationNode eager = SimpleConfigurationNode.root();
+        eager.getNode("lazy", "a").setValue(1);
+        eager.getNode("lazy", "b", "c").setValue("two");
+        assertEquals(eager, root);
+
+        // changes inside the value which was read reach the root
+        int hash = root.hashCode();
+        root.getNode("lazy", "b", "c").setValue("three");
+        assertNotEquals(hash, root.hashCode());
+        assertEquals(ImmutableMap.of("c", "three"), root.snapshot().getNode("lazy", "b").getValue());
+    }
+
+    @Test
+    public void testLazyValueFailure() {
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.getNode("lazy").setLazyValue(node -> {
+            throw new IOException("broken");
+        });
+        try {
+            root.getNode("lazy").getChildrenMap();
+            fail("The lazy value should have failed to read");
+        } catch (UncheckedIOException e) {
+            assertEquals("broken", e.getCause().getMessage());
+        }
+
+        root.getNode("lazy").setValue("replaced");
+        assertEquals("replaced", root.getNode("lazy").getString());
+    }
+
+    @Test
+    public void testSharedValueCopiesOnWrite() {
+        SimpleConfigurationNode source = SimpleConfigurationNode.root();
+        source.getNode("a", "b").setValue("shared");
+        source.getNode("a", "list").setValue(ImmutableList.of(1, 2));
+        source.getNode("c", "d").setValue(true);
+        ImmutableConfigurationNode shared = source.snapshot();
+
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.getNode("first").setSharedValue(shared);
+        root.getNode("second").setValue(root.getNode("first"));
+        assertSame(shared, root.getNode("first").getSharedValue());
+        assertSame(shared, root.getNode("second").getSharedValue());
+
+        // only the path which is changed is copied
+        root.getNode("first", "a", "b").setValue("changed");
+        assertNull(root.getNode("first").getSharedValue());
+        assertNull(root.getNode("first", "a").getSharedValue());
+        assertSame(shared.getNode("c"), root.getNode("first", "c").getSharedValue());
+        assertSame(shared, root.getNode("second").getSharedValue());
+
+        assertEquals("changed", root.getNode("first", "a", "b").getString());
+        assertEquals("shared", root.getNode("second", "a", "b").getString());
+        assertEquals(ImmutableList.of(1, 2), root.getNode("second", "a", "list").getValue());
+        assertEquals("shared", shared.getNode("a", "b").getString());
+        assertSame(root.getNode("second", "a"), root.getNode("second", "a", "b").getParent());
+
+        // snapshots reuse the shared contents without copying them
+        root.getNode("third").setSharedValue(shared);
+        assertSame(shared.getChildrenMap(), root.getNode("third").snapshot().getChildrenMap());
+        assertNotNull(root.getNode("third").getSharedValue());
+        assertEquals(root.getNode("second").getValue(), root.getNode("third").getValue());
+    }
+
+    @Test
+    public void testSnapshotAfterSharedValueChanged() {
+        SimpleConfigurationNode source = SimpleConfigurationNode.root();
+        source.getNode("deep", "x").setValue(1);
+        ImmutableConfigurationNode shared = source.snapshot();
+
+        SimpleConfigurationNode root = SimpleConfigurationNode.root();
+        root.getNode("a").setSharedValue(shared);
+        assertEquals(1, root.snapshot().getNode("a", "deep", "x").getValue());
+
+        // the grandchild is read from the shared value after the snapshot was taken
+        root.getNode("a", "deep", "x").setValue(2);
+        assertEquals(2, root.snapshot().getNode("a", "deep", "x").getValue());
+        root.getNode("a", "deep", "x").setValue(3);
+        assertEquals(3, root.snapshot().getNode("a", "deep", "x").getValue());
+        assertEquals(1, shared.getNode("deep", "x").getValue());
+
+        SimpleConfigurationNode hashed = SimpleConfigurationNode.root();
+        hashed.getNode("a").setSharedValue(shared);
+        hashed.getNode("b").setValue(true);
+        int hash = hashed.snapshot().hashCode();
+        hashed.getNode("a", "deep", "x").setValue(2);
+        assertNotEquals(hash, hashed.snapshot().hashCode());
+    }
 }
@@ -78,4 +78,24 @@ public class SimpleCommentedConfigurationNodeTest {
         assertEquals("nope", target.getNode("existing-value").getComment().orElse(null));
         assertEquals("always", target.getNode("no-parent", "child").getComment().orElse(null));
     }
+
+    @Test
+    public void testCommentChangesHash() {
+        CommentedConfigurationNode subject = SimpleCommentedConfigurationNode.root();
+        CommentedConfigurationNode child = subject.getNode("a", "b").setValue("value");
+        int original = subject.hashCode();
+        child.setComment("a comment");
+        assertNotEquals(original, subject.hashCode());
+    }
+
+    @Test
+    public void testSnapshotKeepsComments() {
+        CommentedConfigurationNode subject = SimpleCommentedConfigurationNode.root();
+        subject.getNode("a").setValue("value").setComment("first");
+        CommentedConfigurationNode snapshot = subject.snapshot();
+        subject.getNode("a").setComment("second");
+
+        assertEquals("first", snapshot.getNode("a").getComment().orElse(null));
+        assertEquals("second", subject.snapshot().getNode("a").getComment().orElse(null));
+    }
 }
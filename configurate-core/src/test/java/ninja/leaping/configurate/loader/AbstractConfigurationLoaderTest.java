@@ -16,13 +16,28 @@
  */
 package ninja.leaping.configurate.loader;
 
+import com.google.common.base.Strings;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class AbstractConfigurationLoaderTest {
     @Rule
@@ -41,4 +56,88 @@ public class AbstractConfigurationLoaderTest {
         TestConfigurationLoader loader = TestConfigurationLoader.builder().setFile(tempFile).build();
         loader.load();
     }
+
+    private static ConfigurationNode loadBytes(String text) throws IOException {
+        TestConfigurationLoader loader = TestConfigurationLoader.builder()
+                .setBufferSource(() -> ByteBuffer.wrap(text.getBytes(UTF_8)))
+                .build();
+        return loader.load();
+    }
+
+    @Test
+    public void testHeaderFromBytes() throws IOException {
+        assertEquals("A h\u00e9ader\nover two lines", loadBytes("# A h\u00e9ader\n# over two lines\n\n{}").getOptions().getHeader());
+        assertNull(loadBytes("{} # not a header").getOptions().getHeader());
+    }
+
+    @Test
+    public void testLongHeaderFromBytes() throws IOException {
+        String line = Strings.repeat("\u00e9", 100);
+        StringBuilder text = new StringBuilder();
+        StringBuilder header = new StringBuilder();
+        for (int i = 0; i < 200; ++i) {
+            text.append("# ").append(line).append('\n');
+            header.append(i == 0 ? "" : "\n").append(line);
+        }
+        text.append("\nbody");
+        assertEquals(header.toString(), loadBytes(text.toString()).getOptions().getHeader());
+    }
+
+    @Test
+    public void testSaveIfChangedPath() throws IOException {
+        Path file = tempFolder.getRoot().toPath().resolve("saved.txt");
+        TestConfigurationLoader loader = TestConfigurationLoader.builder().setPath(file).build();
+        loader.setNode(SimpleConfigurationNode.root());
+        ConfigurationNode node = loader.createEmptyNode();
+        node.setValue("first");
+
+        assertTrue(loader.saveIfChanged(node));
+        FileTime old = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(file, old);
+        assertFalse(loader.saveIfChanged(node));
+        assertEquals(old, Files.getLastModifiedTime(file));
+
+        // a fresh loader compares against the file itself
+        TestConfigurationLoader fresh = TestConfigurationLoader.builder().setPath(file).build();
+        fresh.setNode(SimpleConfigurationNode.root());
+        assertFalse(fresh.saveIfChanged(node));
+
+        node.setValue("other");
+        assertTrue(loader.saveIfChanged(node));
+        assertEquals("other", new String(Files.readAllBytes(file), UTF_8));
+
+        // changed by something else, to the same size
+        Files.write(file, "OTHER".getBytes(UTF_8));
+        assertTrue(loader.saveIfChanged(node));
+        assertEquals("other", new String(Files.readAllBytes(file), UTF_8));
+
+        Files.delete(file);
+        assertTrue(loader.saveIfChanged(node));
+        assertTrue(Files.exists(file));
+    }
+
+    @Test
+    public void testSaveIfChangedSink() throws IOException {
+        AtomicInteger writes = new AtomicInteger();
+        StringWriter output = new StringWriter();
+        TestConfigurationLoader loader = TestConfigurationLoader.builder().setSink(() -> {
+            writes.incrementAndGet();
+            output.getBuffer().setLength(0);
+            return new BufferedWriter(output);
+        }).setSkipUnchanged(true).build();
+        loader.setNode(SimpleConfigurationNode.root());
+        ConfigurationNode node = loader.createEmptyNode();
+        node.setValue("first");
+
+        // without a path, the output is compared with a hash of the last write
+        assertTrue(loader.saveIfChanged(node));
+        assertFalse(loader.saveIfChanged(node));
+        loader.save(node);
+        assertEquals(1, writes.get());
+
+        node.setValue("other");
+        loader.save(node);
+        assertEquals(2, writes.get());
+        assertEquals("other", output.toString());
+    }
 }
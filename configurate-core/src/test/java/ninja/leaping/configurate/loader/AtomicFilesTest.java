@@ -0,0 +1,88 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.loader;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public class AtomicFilesTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteEachDurability() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("test.conf");
+        for (Durability durability : Durability.values()) {
+            try (BufferedWriter writer = AtomicFiles.createAtomicBufferedWriter(file, UTF_8, durability)) {
+                writer.write("writer " + durability);
+            }
+            assertEquals("writer " + durability, new String(Files.readAllBytes(file), UTF_8));
+
+            try (WritableByteChannel channel = AtomicFiles.createAtomicChannel(file, durability)) {
+                channel.write(ByteBuffer.wrap(("channel " + durability).getBytes(UTF_8)));
+            }
+            assertEquals("channel " + durability, new String(Files.readAllBytes(file), UTF_8));
+        }
+        assertOnlyFile(file);
+    }
+
+    @Test
+    public void testShorterContentReplaces() throws IOException {
+        Path file = folder.newFile("test.conf").toPath();
+        Files.write(file, "a much longer existing document".getBytes(UTF_8));
+        try (BufferedWriter writer = AtomicFiles.createAtomicBufferedWriter(file, UTF_8)) {
+            writer.write("short");
+        }
+        assertEquals("short", new String(Files.readAllBytes(file), UTF_8));
+    }
+
+    @Test
+    public void testPermissionsCarriedOver() throws IOException {
+        Path file = folder.newFile("test.conf").toPath();
+        Assume.assumeNotNull(Files.getFileAttributeView(file, PosixFileAttributeView.class));
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(file, permissions);
+
+        try (WritableByteChannel channel = AtomicFiles.createAtomicChannel(file)) {
+            channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3}));
+        }
+        assertEquals(permissions, Files.getPosixFilePermissions(file));
+    }
+
+    private void assertOnlyFile(Path file) throws IOException {
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            assertArrayEquals(new Object[] {file}, files.toArray());
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.loader;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import ninja.leaping.configurate.loader.ConfigurationReader.Event;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class ConfigurationReaderTest {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /**
+     * A reader over a fixed list of events, where keys and scalars follow the event they
+     * belong to.
+     */
+    private static final class ListReader implements ConfigurationReader {
+        private final Iterator<Object> events;
+        private Event current;
+        private Object value;
+
+        ListReader(Object... events) {
+            this.events = Arrays.asList(events).iterator();
+        }
+
+        @Nullable
+        @Override
+        public Event next() {
+            if (!events.hasNext()) {
+                return current = null;
+            }
+            current = (Event) events.next();
+            if (current == Event.KEY || current == Event.SCALAR) {
+                value = events.next();
+            }
+            return current;
+        }
+
+        @NonNull
+        @Override
+        public Object getKey() {
+            assertEquals(Event.KEY, current);
+            return value;
+        }
+
+        @Nullable
+        @Override
+        public Object getScalar() {
+            assertEquals(Event.SCALAR, current);
+            return value;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void testReadValue() throws IOException {
+        ConfigurationReader reader = new ListReader(
+                Event.START_MAP,
+                Event.KEY, "name", Event.SCALAR, "test",
+                Event.KEY, "list", Event.START_LIST,
+                Event.SCALAR, 1,
+                Event.START_MAP, Event.KEY, "nested", Event.SCALAR, true, Event.END_MAP,
+                Event.START_LIST, Event.END_LIST,
+                Event.SCALAR, 2,
+                Event.END_LIST,
+                Event.KEY, "empty", Event.START_MAP, Event.END_MAP,
+                Event.END_MAP);
+        ConfigurationNode node = SimpleConfigurationNode.root();
+        reader.readValue(node);
+
+        ConfigurationNode expected = SimpleConfigurationNode.root().setValue(ImmutableMap.of(
+                "name", "test",
+                "list", ImmutableList.of(1, ImmutableMap.of("nested", true), 2)));
+        assertEquals(expected, node);
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void testReadPartialValue() throws IOException {
+        ConfigurationReader reader = new ListReader(
+                Event.START_MAP,
+                Event.KEY, "skipped", Event.SCALAR, "a",
+                Event.KEY, "wanted", Event.START_MAP, Event.KEY, "value", Event.SCALAR, 3, Event.END_MAP,
+                Event.KEY, "after", Event.SCALAR, "b",
+                Event.END_MAP);
+        ConfigurationNode node = SimpleConfigurationNode.root();
+        Event event;
+        while ((event = reader.next()) != null) {
+            if (event == Event.KEY && reader.getKey().equals("wanted")) {
+                reader.readValue(node);
+            }
+        }
+        assertEquals(ImmutableMap.of("value", 3), node.getValue());
+    }
+
+    @Test
+    public void testReadScalar() throws IOException {
+        ConfigurationNode node = SimpleConfigurationNode.root();
+        new ListReader(Event.SCALAR, "value").readValue(node);
+        assertEquals("value", node.getValue());
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnclosedValue() throws IOException {
+        new ListReader(Event.START_MAP, Event.KEY, "a", Event.SCALAR, 1).readValue(SimpleConfigurationNode.root());
+    }
+
+    @Test
+    public void testOpenReaderNonexistantPath() throws IOException {
+        TestConfigurationLoader loader = TestConfigurationLoader.builder()
+                .setPath(tempFolder.getRoot().toPath().resolve("does-not-exist-dont-edit-testdir"))
+                .build();
+        try (ConfigurationReader reader = loader.openReader()) {
+            assertNull(reader.next());
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testOpenReaderUnsupported() throws IOException {
+        TestConfigurationLoader loader = TestConfigurationLoader.builder()
+                .setPath(tempFolder.newFile().toPath())
+                .build();
+        loader.openReader();
+    }
+
+    @Test
+    public void testReadFilteredValue() throws IOException {
+        ConfigurationReader reader = new ListReader(
+                Event.START_MAP,
+                Event.KEY, "skipped", Event.START_MAP, Event.KEY, "a", Event.SCALAR, 1, Event.END_MAP,
+                Event.KEY, "list", Event.START_LIST,
+                Event.START_LIST, Event.SCALAR, 1, Event.END_LIST,
+                Event.START_MAP, Event.KEY, "wanted", Event.SCALAR, 2, Event.KEY, "other", Event.SCALAR, 3, Event.END_MAP,
+                Event.END_LIST,
+                Event.KEY, "short", Event.SCALAR, 4,
+                Event.KEY, "after", Event.SCALAR, 5,
+                Event.END_MAP);
+        ConfigurationNode node = SimpleConfigurationNode.root();
+        reader.readValue(node, PathFilter.of(new Object[] {"list", 1, "wanted"}, new Object[] {"short", "deeper"},
+                new Object[] {"after"}));
+
+        assertEquals(ImmutableMap.of(
+                "list", ImmutableList.of(ImmutableMap.of("wanted", 2)),
+                "after", 5), node.getValue());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void testReadFilteredListCompacted() throws IOException {
+        Object[] events = {
+                Event.START_MAP, Event.KEY, "list", Event.START_LIST,
+                Event.SCALAR, "a", Event.SCALAR, null, Event.SCALAR, "c",
+                Event.START_MAP, Event.KEY, "d", Event.SCALAR, 1, Event.END_MAP,
+                Event.SCALAR, "e",
+                Event.END_LIST, Event.END_MAP};
+        PathFilter filter = PathFilter.of(new Object[] {"list", 1}, new Object[] {"list", 3});
+
+        ConfigurationNode streamed = SimpleConfigurationNode.root();
+        new ListReader(events).readValue(streamed, filter);
+        assertEquals(ImmutableList.of("c", "e"), streamed.getNode("list").getValue());
+
+        // the null element is dropped before pruning, so it takes up no index either way
+        ConfigurationNode pruned = SimpleConfigurationNode.root();
+        new ListReader(events).readValue(pruned);
+        filter.prune(pruned);
+        assertEquals(streamed, pruned);
+    }
+
+    @Test
+    public void testSkipValue() throws IOException {
+        ConfigurationReader reader = new ListReader(
+                Event.START_MAP,
+                Event.KEY, "a", Event.START_LIST, Event.START_MAP, Event.END_MAP, Event.SCALAR, 1, Event.END_LIST,
+                Event.KEY, "b", Event.SCALAR, 2,
+                Event.END_MAP);
+        assertEquals(Event.START_MAP, reader.next());
+        assertEquals(Event.KEY, reader.next());
+        reader.skipValue();
+        assertEquals(Event.KEY, reader.next());
+        assertEquals("b", reader.getKey());
+        reader.skipValue();
+        assertEquals(Event.END_MAP, reader.next());
+    }
+}
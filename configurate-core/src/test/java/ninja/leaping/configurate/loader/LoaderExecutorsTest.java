@@ -0,0 +1,128 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.loader;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LoaderExecutorsTest {
+
+    @Test
+    public void testSequentialRunsInOrder() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Executor sequential = LoaderExecutors.sequential(pool);
+            List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+            AtomicInteger running = new AtomicInteger();
+            CountDownLatch finished = new CountDownLatch(1000);
+            for (int i = 0; i < 1000; ++i) {
+                final int index = i;
+                sequential.execute(() -> {
+                    assertEquals(1, running.incrementAndGet());
+                    order.add(index);
+                    running.decrementAndGet();
+                    finished.countDown();
+                });
+            }
+            assertTrue(finished.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 1000; ++i) {
+                assertEquals(i, (int) order.get(i));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSequentialContinuesAfterFailure() throws InterruptedException {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Executor sequential = LoaderExecutors.sequential(pool);
+            CountDownLatch blocker = new CountDownLatch(1);
+            CountDownLatch finished = new CountDownLatch(1);
+            sequential.execute(() -> {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            sequential.execute(() -> {
+                throw new IllegalStateException("expected");
+            });
+            sequential.execute(finished::countDown);
+            blocker.countDown();
+            assertTrue(finished.await(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSequentialFailureWhenRejected() {
+        List<Runnable> submitted = new ArrayList<>();
+        boolean[] rejecting = {false};
+        Executor sequential = LoaderExecutors.sequential(task -> {
+            if (rejecting[0]) {
+                throw new RejectedExecutionException("rejected");
+            }
+            submitted.add(task);
+        });
+        List<String> ran = new ArrayList<>();
+        sequential.execute(() -> {
+            throw new IllegalStateException("expected");
+        });
+        sequential.execute(() -> ran.add("queued"));
+        sequential.execute(() -> {
+            throw new IllegalStateException("later");
+        });
+        sequential.execute(() -> ran.add("last"));
+
+        // the remaining tasks can't be handed to a fresh thread, so they run on this one, and
+        // the first failure is kept
+        rejecting[0] = true;
+        try {
+            submitted.remove(0).run();
+            fail("The task should have failed");
+        } catch (IllegalStateException e) {
+            assertEquals("expected", e.getMessage());
+            assertEquals(2, e.getSuppressed().length);
+            assertTrue(e.getSuppressed()[0] instanceof RejectedExecutionException);
+            assertEquals("later", e.getSuppressed()[1].getMessage());
+        }
+        assertEquals(Arrays.asList("queued", "last"), ran);
+
+        rejecting[0] = false;
+        sequential.execute(() -> ran.add("next"));
+        assertEquals(1, submitted.size());
+        submitted.remove(0).run();
+        assertEquals(Arrays.asList("queued", "last", "next"), ran);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.loader;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import ninja.leaping.configurate.CompiledPath;
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PathFilterTest {
+
+    @Test
+    public void testChildren() {
+        PathFilter filter = PathFilter.of(new Object[] {"a", "b"}, new Object[] {"c"});
+        assertFalse(filter.isAll());
+        assertNull(filter.child("b"));
+        assertTrue(filter.child("c").isAll());
+
+        PathFilter a = filter.child("a");
+        assertFalse(a.isAll());
+        assertTrue(a.child("b").isAll());
+        assertNull(a.child("c"));
+        assertSame(PathFilter.all(), a.child("b").child("anything"));
+    }
+
+    @Test
+    public void testShorterPathWins() {
+        assertEquals(PathFilter.of(new Object[] {"a"}), PathFilter.of(new Object[] {"a", "b"}, new Object[] {"a"}));
+        assertEquals(PathFilter.of(new Object[] {"a"}), PathFilter.of(new Object[] {"a"}, new Object[] {"a", "b"}));
+        assertTrue(PathFilter.of(new Object[0]).isAll());
+        assertEquals(PathFilter.of(new Object[] {"a", "b"}), PathFilter.of(CompiledPath.of("a", "b")));
+    }
+
+    @Test
+    public void testPrune() {
+        ConfigurationNode node = SimpleConfigurationNode.root().setValue(ImmutableMap.of(
+                "a", ImmutableMap.of("b", 1, "c", 2),
+                "d", ImmutableList.of("x", "y", "z"),
+                "e", "scalar",
+                "f", ImmutableMap.of("g", 3)));
+        PathFilter.of(new Object[] {"a", "b"}, new Object[] {"d", 1}, new Object[] {"e", "deeper"}, new Object[] {"f", "missing"})
+                .prune(node);
+
+        assertEquals(ImmutableMap.of(
+                "a", ImmutableMap.of("b", 1),
+                "d", ImmutableList.of("y")), node.getValue());
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.loader;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.ConfigurationOptions;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SaveSchedulerTest {
+
+    /**
+     * Records every node written to it.
+     */
+    private static class RecordingLoader implements ConfigurationLoader<ConfigurationNode> {
+        final List<ConfigurationNode> written = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean fail = false;
+
+        @NonNull
+        @Override
+        public ConfigurationOptions getDefaultOptions() {
+            return ConfigurationOptions.defaults();
+        }
+
+        @NonNull
+        @Override
+        public ConfigurationNode load(@NonNull ConfigurationOptions options) {
+            synchronized (written) {
+                return written.isEmpty() ? createEmptyNode(options) : written.get(written.size() - 1);
+            }
+        }
+
+        @Override
+        public void save(@NonNull ConfigurationNode node) throws IOException {
+            if (fail) {
+                throw new IOException("Failed to write");
+            }
+            written.add(node.snapshot());
+        }
+
+        @NonNull
+        @Override
+        public ConfigurationNode createEmptyNode(@NonNull ConfigurationOptions options) {
+            return SimpleConfigurationNode.root(options);
+        }
+    }
+
+    @Test
+    public void testSavesCoalesce() throws IOException {
+        RecordingLoader recording = new RecordingLoader();
+        try (SaveScheduler scheduler = SaveScheduler.builder().setDelay(1, TimeUnit.MINUTES).setMaxDelay(1, TimeUnit.MINUTES).build()) {
+            SaveScheduler.ScheduledLoader<ConfigurationNode> loader = scheduler.wrap(recording);
+            ConfigurationNode node = loader.createEmptyNode();
+            for (int i = 0; i < 100; ++i) {
+                node.getNode("counter").setValue(i);
+                loader.save(node);
+            }
+            node.getNode("counter").setValue("not saved");
+            assertTrue(loader.hasPendingSave());
+            assertTrue(recording.written.isEmpty());
+
+            scheduler.flush();
+            assertFalse(loader.hasPendingSave());
+            assertEquals(1, recording.written.size());
+            assertEquals(99, recording.written.get(0).getNode("counter").getInt());
+            assertEquals(100, loader.getRequestedSaves());
+            assertEquals(1, loader.getWrites());
+            assertEquals(100, scheduler.getRequestedSaves());
+            assertEquals(1, scheduler.getWrites());
+        }
+    }
+
+    @Test
+    public void testMaxDelay() throws IOException, InterruptedException {
+        RecordingLoader recording = new RecordingLoader();
+        try (SaveScheduler scheduler = SaveScheduler.builder().setDelay(200, TimeUnit.MILLISECONDS).setMaxDelay(300, TimeUnit.MILLISECONDS).build()) {
+            SaveScheduler.ScheduledLoader<ConfigurationNode> loader = scheduler.wrap(recording);
+            ConfigurationNode node = loader.createEmptyNode();
+            // saving more often than the delay would defer the write forever, but for the max delay
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (System.nanoTime() < end && recording.written.isEmpty()) {
+                node.getNode("time").setValue(System.nanoTime());
+                loader.save(node);
+                Thread.sleep(10);
+            }
+            assertFalse(recording.written.isEmpty());
+        }
+    }
+
+    @Test
+    public void testSaveAsyncCompletesOnWrite() throws IOException {
+        RecordingLoader recording = new RecordingLoader();
+        try (SaveScheduler scheduler = SaveScheduler.builder().setDelay(10, TimeUnit.MILLISECONDS).build()) {
+            SaveScheduler.ScheduledLoader<ConfigurationNode> loader = scheduler.wrap(recording);
+            ConfigurationNode node = loader.createEmptyNode();
+            node.getNode("a").setValue(1);
+            CompletableFuture<Void> first = loader.saveAsync(node);
+            node.getNode("a").setValue(2);
+            CompletableFuture<Void> second = loader.saveAsync(node);
+            CompletableFuture.allOf(first, second).join();
+            assertEquals(2, loader.load().getNode("a").getInt());
+        }
+    }
+
+    @Test
+    public void testCloseFlushes() throws IOException {
+        RecordingLoader recording = new RecordingLoader();
+        SaveScheduler scheduler = SaveScheduler.builder().setDelay(1, TimeUnit.MINUTES).setMaxDelay(1, TimeUnit.MINUTES).build();
+        SaveScheduler.ScheduledLoader<ConfigurationNode> loader = scheduler.wrap(recording);
+        ConfigurationNode node = loader.createEmptyNode();
+        node.getNode("a").setValue("before");
+        loader.save(node);
+        scheduler.close();
+        assertEquals(1, recording.written.size());
+
+        // saves after closing are written immediately
+        node.getNode("a").setValue("after");
+        loader.save(node);
+        assertEquals(2, recording.written.size());
+        assertEquals("after", recording.written.get(1).getNode("a").getString());
+    }
+
+    @Test
+    public void testFailedWriteReported() throws IOException {
+        RecordingLoader recording = new RecordingLoader();
+        recording.fail = true;
+        try (SaveScheduler scheduler = SaveScheduler.builder().setDelay(1, TimeUnit.MINUTES).setMaxDelay(1, TimeUnit.MINUTES).build()) {
+            SaveScheduler.ScheduledLoader<ConfigurationNode> loader = scheduler.wrap(recording);
+            CompletableFuture<Void> future = loader.saveAsync(loader.createEmptyNode());
+            try {
+                loader.flush();
+                fail("Expected the write to fail");
+            } catch (IOException e) {
+                assertEquals("Failed to write", e.getMessage());
+            }
+            try {
+                future.join();
+                fail("Expected the future to fail");
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+            assertEquals(1, scheduler.getFailedWrites());
+            assertEquals(0, scheduler.getWrites());
+
+            // reported once
+            loader.flush();
+        }
+    }
+
+    @Test
+    public void testTimerShutDownDuringWrite() throws IOException {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        AtomicReference<SaveScheduler.ScheduledLoader<ConfigurationNode>> wrapped = new AtomicReference<>();
+        List<CompletableFuture<Void>> savedWhileWriting = new ArrayList<>();
+        SaveScheduler scheduler = SaveScheduler.builder().setDelay(1, TimeUnit.MINUTES).setMaxDelay(1, TimeUnit.MINUTES).setTimer(timer).build();
+        RecordingLoader recording = new RecordingLoader() {
+            @Override
+            public void save(@NonNull ConfigurationNode node) throws IOException {
+                super.save(node);
+                if (savedWhileWriting.isEmpty()) {
+                    // the next save can't be scheduled once the first write finishes
+                    timer.shutdown();
+                    ConfigurationNode next = SimpleConfigurationNode.root();
+                    next.getNode("a").setValue(2);
+                    savedWhileWriting.add(wrapped.get().saveAsync(next));
+                }
+            }
+        };
+        SaveScheduler.ScheduledLoader<ConfigurationNode> loader = scheduler.wrap(recording);
+        wrapped.set(loader);
+        ConfigurationNode node = loader.createEmptyNode();
+        node.getNode("a").setValue(1);
+        CompletableFuture<Void> first = loader.saveAsync(node);
+
+        loader.flush();
+        first.join();
+        savedWhileWriting.get(0).join();
+        assertEquals(2, recording.written.size());
+        assertEquals(2, recording.written.get(1).getNode("a").getInt());
+    }
+}
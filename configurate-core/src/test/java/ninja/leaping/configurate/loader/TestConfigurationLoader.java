@@ -27,6 +27,7 @@ import java.io.Writer;
 
 /**
  * This test configuration loader holds a single {@link ConfigurationNode}, {@code result}, that is updated when a node is saved and loaded when necessary.
+ * Saves also write the value of the node as text, so that their output changes with the node.
  */
 public class TestConfigurationLoader extends AbstractConfigurationLoader<ConfigurationNode> {
     private ConfigurationNode result;
@@ -55,6 +56,7 @@ public class TestConfigurationLoader extends AbstractConfigurationLoader<Configu
     @Override
     protected void saveInternal(ConfigurationNode node, Writer writer) throws IOException {
         result.setValue(node);
+        writer.write(String.valueOf(node.getValue()));
     }
 
     public ConfigurationNode getNode() {
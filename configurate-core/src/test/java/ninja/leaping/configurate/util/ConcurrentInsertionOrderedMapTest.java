@@ -0,0 +1,141 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.util;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentInsertionOrderedMapTest {
+
+    @Test
+    public void testInsertionOrder() {
+        ConcurrentMap<String, Integer> map = MapFactories.concurrentInsertionOrdered().create();
+        map.put("c", 1);
+        map.put("a", 2);
+        map.put("b", 3);
+        assertEquals(ImmutableList.of("c", "a", "b"), ImmutableList.copyOf(map.keySet()));
+
+        // replacing keeps the position, re-inserting moves to the end
+        assertEquals((Integer) 1, map.put("c", 4));
+        assertEquals(ImmutableList.of("c", "a", "b"), ImmutableList.copyOf(map.keySet()));
+        assertEquals((Integer) 2, map.remove("a"));
+        assertNull(map.putIfAbsent("a", 5));
+        assertEquals(ImmutableList.of("c", "b", "a"), ImmutableList.copyOf(map.keySet()));
+        assertEquals(ImmutableList.of(4, 3, 5), ImmutableList.copyOf(map.values()));
+
+        List<String> visited = new ArrayList<>();
+        map.forEach((k, v) -> visited.add(k));
+        assertEquals(ImmutableList.of("c", "b", "a"), visited);
+    }
+
+    @Test
+    public void testConditionalOperations() {
+        ConcurrentMap<String, Integer> map = MapFactories.concurrentInsertionOrdered().create();
+        assertNull(map.putIfAbsent("a", 1));
+        assertEquals((Integer) 1, map.putIfAbsent("a", 2));
+        assertFalse(map.replace("a", 2, 3));
+        assertTrue(map.replace("a", 1, 3));
+        assertNull(map.replace("b", 1));
+        assertFalse(map.containsKey("b"));
+        assertFalse(map.remove("a", 1));
+        assertTrue(map.remove("a", 3));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testRemovalAndPurge() {
+        ConcurrentMap<String, Integer> map = MapFactories.concurrentInsertionOrdered().create();
+        for (int round = 0; round < 10; ++round) {
+            for (int i = 0; i < 100; ++i) {
+                map.put("key" + i, i);
+            }
+            for (int i = 0; i < 100; i += 2) {
+                map.remove("key" + i);
+            }
+            assertEquals(50, map.size());
+            map.clear();
+            assertTrue(map.isEmpty());
+            assertFalse(map.entrySet().iterator().hasNext());
+        }
+
+        map.put("a", 1);
+        map.put("b", 2);
+        map.put("c", 3);
+        Iterator<Map.Entry<String, Integer>> it = map.entrySet().iterator();
+        assertEquals("a", it.next().getKey());
+        assertEquals("b", it.next().getKey());
+        assertTrue(it.hasNext());
+        it.remove();
+        assertEquals("c", it.next().getKey());
+        assertEquals(ImmutableList.of("a", "c"), ImmutableList.copyOf(map.keySet()));
+    }
+
+    @Test
+    public void testConcurrentInsertion() throws InterruptedException {
+        final int threads = 4;
+        final int perThread = 1000;
+        ConcurrentMap<String, Integer> map = MapFactories.concurrentInsertionOrdered().create();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; ++t) {
+            final int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; ++i) {
+                    String key = thread + "-" + i;
+                    map.put(key, i);
+                    if (i % 3 == 0) {
+                        map.remove(key);
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        int expected = threads * (perThread - (perThread + 2) / 3);
+        assertEquals(expected, map.size());
+        assertEquals(expected, ImmutableList.copyOf(map.keySet()).size());
+
+        // each thread's own keys keep the order they were inserted in
+        int[] last = new int[threads];
+        Arrays.fill(last, -1);
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            int thread = Integer.parseInt(entry.getKey().substring(0, entry.getKey().indexOf('-')));
+            assertTrue(entry.getValue() > last[thread]);
+            last[thread] = entry.getValue();
+        }
+    }
+}
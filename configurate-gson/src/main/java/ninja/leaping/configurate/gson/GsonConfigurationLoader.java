@@ -16,11 +16,11 @@
  */
 package ninja.leaping.configurate.gson;
 
+import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableSet;
-import com.google.gson.JsonParseException;
+import com.google.common.io.CharStreams;
 import com.google.gson.stream.JsonReader;
-import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.ConfigurationOptions;
@@ -28,6 +28,8 @@ import ninja.leaping.configurate.SimpleConfigurationNode;
 import ninja.leaping.configurate.loader.AbstractConfigurationLoader;
 import ninja.leaping.configurate.loader.CommentHandler;
 import ninja.leaping.configurate.loader.CommentHandlers;
+import ninja.leaping.configurate.loader.ConfigurationReader;
+import ninja.leaping.configurate.loader.PathFilter;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.io.BufferedReader;
@@ -57,6 +59,7 @@ public class GsonConfigurationLoader extends AbstractConfigurationLoader<Configu
     public static class Builder extends AbstractConfigurationLoader.Builder<Builder> {
         private boolean lenient = true;
         private int indent = 2;
+        private int lazyDepth = 0;
 
         protected Builder() {
         }
@@ -104,6 +107,35 @@ public class GsonConfigurationLoader extends AbstractConfigurationLoader<Configu
             return this.lenient;
         }
 
+        /**
+         * Sets the depth below which the resultant loader should defer reading maps and lists
+         * until they are first accessed.
+         *
+         * <p>At a depth of 1, only the keys of the root map are read when loading, and each of
+         * their values is parsed the first time it is accessed. The whole document is held in
+         * memory until every deferred value has been read. A depth of 0, the default, reads
+         * everything when loading.</p>
+         *
+         * @param lazyDepth The lazy depth
+         * @return This builder (for chaining)
+         * @see ninja.leaping.configurate.SimpleConfigurationNode#setLazyValue(ninja.leaping.configurate.LazyValue)
+         */
+        @NonNull
+        public Builder setLazyDepth(int lazyDepth) {
+            Preconditions.checkArgument(lazyDepth >= 0, "lazyDepth must not be negative");
+            this.lazyDepth = lazyDepth;
+            return this;
+        }
+
+        /**
+         * Gets the depth below which maps and lists are read lazily by the resultant loader.
+         *
+         * @return The lazy depth, or 0 if everything is read when loading
+         */
+        public int getLazyDepth() {
+            return lazyDepth;
+        }
+
         @NonNull
         @Override
         public GsonConfigurationLoader build() {
@@ -113,94 +145,44 @@ public class GsonConfigurationLoader extends AbstractConfigurationLoader<Configu
 
     private final boolean lenient;
     private final String indent;
+    private final int lazyDepth;
 
     private GsonConfigurationLoader(Builder builder) {
         super(builder, new CommentHandler[] {CommentHandlers.DOUBLE_SLASH, CommentHandlers.SLASH_BLOCK, CommentHandlers.HASH});
         this.lenient = builder.isLenient();
         this.indent = Strings.repeat(" ", builder.getIndent());
+        this.lazyDepth = builder.getLazyDepth();
     }
 
     @Override
     protected void loadInternal(ConfigurationNode node, BufferedReader reader) throws IOException {
-        reader.mark(1);
-        if (reader.read() == -1) {
-            return;
-        }
-        reader.reset();
-        try (JsonReader parser = new JsonReader(reader)) {
-            parser.setLenient(lenient);
-            parseValue(parser, node);
-        }
+        loadInternal(node, reader, PathFilter.all());
     }
 
-    private void parseValue(JsonReader parser, ConfigurationNode node) throws IOException {
-        JsonToken token = parser.peek();
-        switch (token) {
-            case BEGIN_OBJECT:
-                parseObject(parser, node);
-                break;
-            case BEGIN_ARRAY:
-                parseArray(parser, node);
-                break;
-            case NUMBER:
-                double nextDouble = parser.nextDouble();
-                int nextInt = (int) nextDouble;
-                long nextLong = (long) nextDouble;
-                if (nextInt == nextDouble) {
-                    node.setValue(nextInt); // They don't do much for us here in Gsonland
-                } else if (nextLong == nextDouble) {
-                    node.setValue(nextLong);
-                } else {
-                    node.setValue(nextDouble);
-                }
-                break;
-            case STRING:
-                node.setValue(parser.nextString());
-                break;
-            case BOOLEAN:
-                node.setValue(parser.nextBoolean());
-                break;
-            case NULL: // Ignored values
-            case NAME:
-                break;
-            default:
-                throw new IOException("Unsupported token type: " + token);
+    @Override
+    protected void loadInternal(ConfigurationNode node, BufferedReader reader, PathFilter filter) throws IOException {
+        try (ConfigurationReader events = lazyDepth > 0 ? createInMemoryReader(reader) : createReader(reader)) {
+            events.readValue(node, filter, lazyDepth);
         }
     }
 
-    private void parseArray(JsonReader parser, ConfigurationNode node) throws IOException {
-        parser.beginArray();
-        JsonToken token;
-        while ((token = parser.peek()) != null) {
-            switch (token) {
-                case END_ARRAY:
-                    parser.endArray();
-                    return;
-                default:
-                    parseValue(parser, node.getAppendedNode());
-            }
+    private ConfigurationReader createInMemoryReader(BufferedReader reader) throws IOException {
+        try {
+            return new InMemoryGsonConfigurationReader(CharStreams.toString(reader).toCharArray(), lenient);
+        } finally {
+            reader.close();
         }
-        throw new JsonParseException("Reached end of stream with unclosed array at!");
-
     }
 
-    private void parseObject(JsonReader parser, ConfigurationNode node) throws IOException {
-        parser.beginObject();
-        JsonToken token;
-        while ((token = parser.peek()) != null) {
-            switch (token) {
-                case END_OBJECT:
-                case END_DOCUMENT:
-                    parser.endObject();
-                    return;
-                case NAME:
-                    parseValue(parser, node.getNode(parser.nextName()));
-                    break;
-                default:
-                    throw new JsonParseException("Received improper object value " + token);
-            }
-        }
-        throw new JsonParseException("Reached end of stream with unclosed object!");
+    @NonNull
+    @Override
+    protected ConfigurationReader createReader(@NonNull BufferedReader reader) throws IOException {
+        reader.mark(1);
+        boolean empty = reader.read() == -1;
+        reader.reset();
+        JsonReader parser = new JsonReader(reader);
+        parser.setLenient(lenient);
+        return new GsonConfigurationReader(parser, empty);
     }
 
     @Override
@@ -256,10 +238,10 @@ public class GsonConfigurationLoader extends AbstractConfigurationLoader<Configu
             throw new IOException("Node passed to generateObject does not have map children!");
         }
         generator.beginObject();
-        for (Map.Entry<Object, ? extends ConfigurationNode> ent : node.getChildrenMap().entrySet()) {
-            generator.name(ent.getKey().toString());
-            generateValue(generator, ent.getValue());
-        }
+        node.forEachChild((key, child) -> {
+            generator.name(key.toString());
+            generateValue(generator, child);
+        });
         generator.endObject();
     }
 
@@ -267,11 +249,8 @@ public class GsonConfigurationLoader extends AbstractConfigurationLoader<Configu
         if (!node.hasListChildren()) {
             throw new IOException("Node passed to generateArray does not have list children!");
         }
-        List<? extends ConfigurationNode> children = node.getChildrenList();
         generator.beginArray();
-        for (ConfigurationNode child : children) {
-            generateValue(generator, child);
-        }
+        node.forEachChild((index, child) -> generateValue(generator, child));
         generator.endArray();
     }
 }
@@ -0,0 +1,159 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.gson;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import ninja.leaping.configurate.loader.ConfigurationReader;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+
+/**
+ * A {@link ConfigurationReader} over a Gson {@link JsonReader}.
+ */
+class GsonConfigurationReader implements ConfigurationReader {
+    private final JsonReader parser;
+    private int depth = 0;
+    private boolean finished;
+    @Nullable private Event current;
+    @Nullable private Object key;
+    @Nullable private Object scalar;
+
+    /**
+     * Creates a new reader.
+     *
+     * @param parser The parser to read from
+     * @param empty If the source is empty, in which case nothing is read
+     */
+    GsonConfigurationReader(JsonReader parser, boolean empty) {
+        this.parser = parser;
+        this.finished = empty;
+    }
+
+    @Nullable
+    @Override
+    public Event next() throws IOException {
+        if (finished) {
+            return current = null;
+        }
+        JsonToken token = parser.peek();
+        switch (token) {
+            case BEGIN_OBJECT:
+                parser.beginObject();
+                ++depth;
+                return current = Event.START_MAP;
+            case END_OBJECT:
+                parser.endObject();
+                return current = end(Event.END_MAP);
+            case BEGIN_ARRAY:
+                parser.beginArray();
+                ++depth;
+                return current = Event.START_LIST;
+            case END_ARRAY:
+                parser.endArray();
+                return current = end(Event.END_LIST);
+            case NAME:
+                key = parser.nextName();
+                return current = Event.KEY;
+            case NUMBER:
+                scalar = toNumber(parser.nextDouble());
+                break;
+            case STRING:
+                scalar = parser.nextString();
+                break;
+            case BOOLEAN:
+                scalar = parser.nextBoolean();
+                break;
+            case NULL:
+                parser.nextNull();
+                scalar = null;
+                break;
+            case END_DOCUMENT:
+                finished = true;
+                return current = null;
+            default:
+                throw new IOException("Unsupported token type: " + token);
+        }
+        if (depth == 0) {
+            finished = true;
+        }
+        return current = Event.SCALAR;
+    }
+
+    /**
+     * Converts a number read by Gson into the narrowest type which holds it exactly.
+     *
+     * @param value The number
+     * @return The converted number
+     */
+    static Number toNumber(double value) {
+        int intValue = (int) value;
+        long longValue = (long) value;
+        if (intValue == value) {
+            return intValue; // They don't do much for us here in Gsonland
+        } else if (longValue == value) {
+            return longValue;
+        } else {
+            return value;
+        }
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        JsonToken token = parser.peek();
+        if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY || token == JsonToken.END_DOCUMENT) {
+            throw new IOException("Expected a value, but got " + token);
+        }
+        parser.skipValue();
+        if (depth == 0) {
+            finished = true;
+        }
+        current = null;
+    }
+
+    private Event end(Event event) {
+        if (--depth == 0) {
+            finished = true;
+        }
+        return event;
+    }
+
+    @NonNull
+    @Override
+    public Object getKey() {
+        if (current != Event.KEY || key == null) {
+            throw new IllegalStateException("The current event is not a key");
+        }
+        return key;
+    }
+
+    @Nullable
+    @Override
+    public Object getScalar() {
+        if (current != Event.SCALAR) {
+            throw new IllegalStateException("The current event is not a scalar");
+        }
+        return scalar;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,516 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.gson;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+import ninja.leaping.configurate.LazyValue;
+import ninja.leaping.configurate.loader.ConfigurationReader;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.CharArrayReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link ConfigurationReader} over a JSON document held in memory, which can
+ * {@link #deferValue() defer values}.
+ *
+ * <p>Gson's {@link JsonReader} doesn't report where in its source each value is, so this reader
+ * tokenizes the document itself, following the same rules as {@link JsonReader}. Only the
+ * parts of a document above the lazy depth are read this way. Deferred values are scanned
+ * without decoding their contents, and are later parsed by a {@link GsonConfigurationReader}
+ * over the range of characters they cover.</p>
+ */
+class InMemoryGsonConfigurationReader implements ConfigurationReader {
+    private static final Pattern NUMBER = Pattern.compile("-?(?:0|[1-9][0-9]*)(?:\\.[0-9]+)?(?:[eE][-+]?[0-9]+)?");
+    private static final String NON_EXECUTE_PREFIX = ")]}'\n";
+
+    /**
+     * The position of the reader within a map or list.
+     */
+    private enum Scope {
+        EMPTY_OBJECT,
+        DANGLING_NAME,
+        NONEMPTY_OBJECT,
+        EMPTY_ARRAY,
+        NONEMPTY_ARRAY
+    }
+
+    private final char[] text;
+    private final boolean lenient;
+    private final Deque<Scope> scopes = new ArrayDeque<>();
+    private int pos = 0;
+    private boolean finished = false;
+    /**
+     * If scalars and keys should only be checked, rather than decoded.
+     */
+    private boolean skipping = false;
+    /**
+     * The position of the start of the most recently opened map or list.
+     */
+    private int valueStart;
+    @Nullable private Event current;
+    @Nullable private Object key;
+    @Nullable private Object scalar;
+
+    InMemoryGsonConfigurationReader(char[] text, boolean lenient) {
+        this.text = text;
+        this.lenient = lenient;
+    }
+
+    @Nullable
+    @Override
+    public Event next() throws IOException {
+        if (finished) {
+            return current = null;
+        }
+        Scope scope = scopes.peek();
+        if (scope == null) {
+            if (nextNonWhitespace(false) == -1) {
+                finished = true;
+                return current = null;
+            }
+            if (lenient && regionMatches(NON_EXECUTE_PREFIX)) {
+                pos += NON_EXECUTE_PREFIX.length();
+            }
+            return current = readValue();
+        }
+
+        int c;
+        switch (scope) {
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                c = nextNonWhitespace(true);
+                if (c == '}') {
+                    ++pos;
+                    return current = close(Event.END_MAP);
+                }
+                if (scope == Scope.NONEMPTY_OBJECT) {
+                    consumeSeparator(c, "Unterminated object");
+                    c = nextNonWhitespace(true);
+                }
+                String name = readName(c);
+                c = nextNonWhitespace(true);
+                if (c == ':') {
+                    ++pos;
+                } else if (c == '=') {
+                    checkLenient();
+                    if (++pos < text.length && text[pos] == '>') {
+                        ++pos;
+                    }
+                } else {
+                    throw syntaxError("Expected ':'");
+                }
+                replaceScope(Scope.DANGLING_NAME);
+                this.key = name;
+                return current = Event.KEY;
+            case DANGLING_NAME:
+                replaceScope(Scope.NONEMPTY_OBJECT);
+                return current = readValue();
+            case EMPTY_ARRAY:
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace(true);
+                if (c == ']' && scope == Scope.EMPTY_ARRAY) {
+                    ++pos;
+                    return current = close(Event.END_LIST);
+                }
+                if (scope == Scope.NONEMPTY_ARRAY) {
+                    if (c == ']') {
+                        ++pos;
+                        return current = close(Event.END_LIST);
+                    }
+                    consumeSeparator(c, "Unterminated array");
+                    c = nextNonWhitespace(true);
+                }
+                replaceScope(Scope.NONEMPTY_ARRAY);
+                if (c == ']' || c == ',' || c == ';') {
+                    // lenient parsers read a missing list element as null
+                    checkLenient();
+                    scalar = null;
+                    return current = Event.SCALAR;
+                }
+                return current = readValue();
+            default:
+                throw new IllegalStateException("Unknown scope " + scope);
+        }
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        skipping = true;
+        try {
+            ConfigurationReader.super.skipValue();
+        } finally {
+            skipping = false;
+        }
+        current = null;
+    }
+
+    @Override
+    public boolean canDeferValues() {
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public LazyValue deferValue() throws IOException {
+        if (current != Event.START_MAP && current != Event.START_LIST) {
+            throw new IllegalStateException("Values can only be deferred at the start of a map or list");
+        }
+        final int start = valueStart;
+        final int depth = scopes.size();
+        boolean hasValues = false;
+        skipping = true;
+        try {
+            while (scopes.size() >= depth) {
+                if (next() == Event.SCALAR && scalar != null) {
+                    hasValues = true;
+                }
+            }
+        } finally {
+            skipping = false;
+        }
+        final int end = pos;
+        current = null;
+
+        if (!hasValues) {
+            return null;
+        }
+        final char[] text = this.text;
+        final boolean lenient = this.lenient;
+        return node -> {
+            JsonReader parser = new JsonReader(new CharArrayReader(text, start, end - start));
+            parser.setLenient(lenient);
+            try (GsonConfigurationReader reader = new GsonConfigurationReader(parser, false)) {
+                reader.readValue(node);
+            }
+        };
+    }
+
+    @NonNull
+    @Override
+    public Object getKey() {
+        if (current != Event.KEY || key == null) {
+            throw new IllegalStateException("The current event is not a key");
+        }
+        return key;
+    }
+
+    @Nullable
+    @Override
+    public Object getScalar() {
+        if (current != Event.SCALAR) {
+            throw new IllegalStateException("The current event is not a scalar");
+        }
+        return scalar;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private Event readValue() throws IOException {
+        int c = nextNonWhitespace(true);
+        switch (c) {
+            case '{':
+                valueStart = pos++;
+                scopes.push(Scope.EMPTY_OBJECT);
+                return Event.START_MAP;
+            case '[':
+                valueStart = pos++;
+                scopes.push(Scope.EMPTY_ARRAY);
+                return Event.START_LIST;
+            case '\'':
+                checkLenient();
+                // fall through
+            case '"':
+                ++pos;
+                scalar = readString((char) c);
+                break;
+            default:
+                scalar = readLiteral();
+                break;
+        }
+        if (scopes.isEmpty()) {
+            finished = true;
+        }
+        return Event.SCALAR;
+    }
+
+    private Event close(Event event) {
+        scopes.pop();
+        if (scopes.isEmpty()) {
+            finished = true;
+        }
+        return event;
+    }
+
+    private void replaceScope(Scope scope) {
+        scopes.pop();
+        scopes.push(scope);
+    }
+
+    private void consumeSeparator(int c, String error) throws IOException {
+        if (c == ';') {
+            checkLenient();
+        } else if (c != ',') {
+            throw syntaxError(error);
+        }
+        ++pos;
+    }
+
+    private String readName(int c) throws IOException {
+        if (c == '"' || c == '\'') {
+            if (c == '\'') {
+                checkLenient();
+            }
+            ++pos;
+            return readString((char) c);
+        }
+        checkLenient();
+        int start = pos;
+        skipLiteral();
+        if (start == pos) {
+            throw syntaxError("Expected name");
+        }
+        return skipping ? "" : new String(text, start, pos - start);
+    }
+
+    /**
+     * Reads the rest of a quoted string, after the opening quote.
+     *
+     * @param quote The quote character
+     * @return The string, or an empty string if skipping
+     * @throws IOException if the string is not terminated
+     */
+    private String readString(char quote) throws IOException {
+        StringBuilder builder = null;
+        int start = pos;
+        while (pos < text.length) {
+            char c = text[pos++];
+            if (c == quote) {
+                if (skipping) {
+                    return "";
+                } else if (builder == null) {
+                    return new String(text, start, pos - start - 1);
+                }
+                return builder.append(text, start, pos - start - 1).toString();
+            } else if (c == '\\') {
+                if (builder == null && !skipping) {
+                    builder = new StringBuilder(Math.max((pos - start) * 2, 16));
+                }
+                if (builder != null) {
+                    builder.append(text, start, pos - start - 1);
+                }
+                char escaped = readEscapeCharacter();
+                if (builder != null) {
+                    builder.append(escaped);
+                }
+                start = pos;
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    private char readEscapeCharacter() throws IOException {
+        if (pos >= text.length) {
+            throw syntaxError("Unterminated escape sequence");
+        }
+        char escaped = text[pos++];
+        switch (escaped) {
+            case 'u':
+                if (pos + 4 > text.length) {
+                    throw syntaxError("Unterminated escape sequence");
+                }
+                int result = 0;
+                for (int i = pos, end = pos + 4; i < end; ++i) {
+                    int digit = Character.digit(text[i], 16);
+                    if (digit == -1) {
+                        throw new NumberFormatException("\\u" + new String(text, pos, 4));
+                    }
+                    result = (result << 4) + digit;
+                }
+                pos += 4;
+                return (char) result;
+            case 't':
+                return '\t';
+            case 'b':
+                return '\b';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            default:
+                // quotes, slashes, and escaped line breaks stand for themselves
+                return escaped;
+        }
+    }
+
+    @Nullable
+    private Object readLiteral() throws IOException {
+        int start = pos;
+        skipLiteral();
+        int length = pos - start;
+        if (length == 0) {
+            throw syntaxError("Expected value");
+        }
+        if (isKeyword(start, length, "null")) {
+            return null;
+        } else if (isKeyword(start, length, "true")) {
+            return Boolean.TRUE;
+        } else if (isKeyword(start, length, "false")) {
+            return Boolean.FALSE;
+        }
+
+        String literal = new String(text, start, length);
+        if (NUMBER.matcher(literal).matches()) {
+            return skipping ? Boolean.TRUE : GsonConfigurationReader.toNumber(Double.parseDouble(literal));
+        }
+        // anything else is an unquoted string
+        checkLenient();
+        return literal;
+    }
+
+    private boolean isKeyword(int start, int length, String keyword) {
+        return length == keyword.length() && new String(text, start, length).equalsIgnoreCase(keyword);
+    }
+
+    private void skipLiteral() throws IOException {
+        while (pos < text.length) {
+            switch (text[pos]) {
+                case '/':
+                case '\\':
+                case ';':
+                case '#':
+                case '=':
+                    checkLenient();
+                    // fall through
+                case '{':
+                case '}':
+                case '[':
+                case ']':
+                case ':':
+                case ',':
+                case ' ':
+                case '\t':
+                case '\f':
+                case '\r':
+                case '\n':
+                    return;
+                default:
+                    ++pos;
+            }
+        }
+    }
+
+    /**
+     * Skips whitespace and comments, returning the next character without consuming it.
+     *
+     * @param throwOnEof If reaching the end of the document is an error
+     * @return The next character, or -1 at the end of the document
+     * @throws IOException if a comment isn't allowed, or the document ended unexpectedly
+     */
+    private int nextNonWhitespace(boolean throwOnEof) throws IOException {
+        while (pos < text.length) {
+            char c = text[pos];
+            switch (c) {
+                case ' ':
+                case '\t':
+                case '\r':
+                case '\n':
+                    ++pos;
+                    continue;
+                case '/':
+                    if (pos + 1 < text.length && text[pos + 1] == '*') {
+                        checkLenient();
+                        int end = indexOf("*/", pos + 2);
+                        if (end == -1) {
+                            throw syntaxError("Unterminated comment");
+                        }
+                        pos = end + 2;
+                        continue;
+                    } else if (pos + 1 < text.length && text[pos + 1] == '/') {
+                        checkLenient();
+                        skipToEndOfLine();
+                        continue;
+                    }
+                    return c;
+                case '#':
+                    checkLenient();
+                    skipToEndOfLine();
+                    continue;
+                default:
+                    return c;
+            }
+        }
+        if (throwOnEof) {
+            throw new EOFException("End of input at character " + pos);
+        }
+        return -1;
+    }
+
+    private void skipToEndOfLine() {
+        while (pos < text.length) {
+            char c = text[pos++];
+            if (c == '\n' || c == '\r') {
+                return;
+            }
+        }
+    }
+
+    private int indexOf(String needle, int from) {
+        for (int i = from; i + needle.length() <= text.length; ++i) {
+            if (regionMatches(i, needle)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean regionMatches(String needle) {
+        return regionMatches(pos, needle);
+    }
+
+    private boolean regionMatches(int start, String needle) {
+        if (start + needle.length() > text.length) {
+            return false;
+        }
+        for (int i = 0; i < needle.length(); ++i) {
+            if (text[start + i] != needle.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkLenient() throws IOException {
+        if (!lenient) {
+            throw syntaxError("Use JsonReader.setLenient(true) to accept malformed JSON");
+        }
+    }
+
+    private IOException syntaxError(String message) {
+        return new MalformedJsonException(message + " at character " + pos);
+    }
+}
@@ -16,11 +16,16 @@
  */
 package ninja.leaping.configurate.gson;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.SimpleConfigurationNode;
 import ninja.leaping.configurate.loader.AtomicFiles;
 import ninja.leaping.configurate.loader.ConfigurationLoader;
+import ninja.leaping.configurate.loader.ConfigurationReader;
+import ninja.leaping.configurate.loader.ConfigurationReader.Event;
+import ninja.leaping.configurate.loader.PathFilter;
 import ninja.leaping.configurate.util.MapFactories;
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -31,6 +36,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -116,4 +122,90 @@ public class GsonConfigurationLoaderTest {
         System.out.println(ret.getNode("long-num").getValue().getClass());
         assertEquals(TEST_LONG_VAL, ret.getNode("long-num").getValue());
     }
+
+    @Test
+    public void testStreamingRead() throws IOException {
+        URL url = getClass().getResource("/example.json");
+        GsonConfigurationLoader loader = GsonConfigurationLoader.builder()
+                .setSource(() -> new BufferedReader(new InputStreamReader(url.openStream()))).setLenient(true).build();
+        ConfigurationNode streamed = loader.createEmptyNode();
+        try (ConfigurationReader reader = loader.openReader()) {
+            assertEquals(Event.START_MAP, reader.next());
+            assertEquals(Event.KEY, reader.next());
+            assertEquals("double-val", reader.getKey());
+            assertEquals(Event.SCALAR, reader.next());
+            assertEquals(3.141592654, reader.getScalar());
+            assertEquals(Event.KEY, reader.next());
+            assertEquals("int-val", reader.getKey());
+            assertEquals(Event.SCALAR, reader.next());
+            assertEquals(42, reader.getScalar());
+        }
+        try (ConfigurationReader reader = loader.openReader()) {
+            reader.readValue(streamed);
+            assertNull(reader.next());
+        }
+        assertEquals(loader.load(), streamed);
+    }
+
+    @Test
+    public void testFilteredLoading() throws IOException {
+        String document = "{\"skipped\": {\"deep\": [1, [2, {\"x\": 3}], null]},"
+                + " \"list\": [{\"a\": 1, \"b\": 2}, {\"a\": 3, \"b\": 4}],"
+                + " \"kept\": {\"value\": true, \"other\": \"x\"}, \"after\": \"end\"}";
+        GsonConfigurationLoader loader = GsonConfigurationLoader.builder()
+                .setSource(() -> new BufferedReader(new StringReader(document))).setLenient(true).build();
+        PathFilter filter = PathFilter.of(new Object[] {"list", 1, "a"}, new Object[] {"kept"}, new Object[] {"missing"});
+
+        ConfigurationNode filtered = loader.load(loader.getDefaultOptions(), filter);
+        assertEquals(ImmutableMap.of(
+                "list", ImmutableList.of(ImmutableMap.of("a", 3)),
+                "kept", ImmutableMap.of("value", true, "other", "x")), filtered.getValue());
+
+        ConfigurationNode pruned = loader.load();
+        filter.prune(pruned);
+        assertEquals(pruned, filtered);
+    }
+
+    @Test
+    public void testLazyLoading() throws IOException {
+        String document = "// comment\n{'quoted': \"a\\\"b\\t\", unquoted = value, \"nums\": [1, 2.5, -3e2, 1234567890123],"
+                + " \"keywords\": {\"t\": TRUE, \"f\": false, \"n\": null},"
+                + " \"nested\": {\"deep\": {\"list\": [1, , 2]}} # trailing\n,"
+                + " \"empty\": {}, \"nulls\": {\"a\": [null]}; \"last\": {\"x\": \"y\"}}";
+        ConfigurationNode eager = GsonConfigurationLoader.builder()
+                .setSource(() -> new BufferedReader(new StringReader(document))).build().load();
+        assertEquals("a\"b\t", eager.getNode("quoted").getValue());
+        assertEquals(ImmutableList.of(1, 2), eager.getNode("nested", "deep", "list").getValue());
+        assertTrue(eager.getNode("empty").isVirtual());
+
+        for (int depth = 1; depth <= 4; ++depth) {
+            ConfigurationNode lazy = GsonConfigurationLoader.builder().setLazyDepth(depth)
+                    .setSource(() -> new BufferedReader(new StringReader(document))).build().load();
+            assertEquals(eager, lazy);
+            assertEquals(eager.getValue(), lazy.getValue());
+        }
+
+        ConfigurationNode lazy = GsonConfigurationLoader.builder().setLazyDepth(1)
+                .setSource(() -> new BufferedReader(new StringReader(document))).build().load();
+        lazy.getNode("nested", "deep", "added").setValue(true);
+        assertEquals(ImmutableList.of(1, 2), lazy.getNode("nested", "deep", "list").getValue());
+        assertTrue(lazy.getNode("nested", "deep", "added").getBoolean());
+    }
+
+    @Test
+    public void testStrictLazyLoading() throws IOException {
+        String document = "{\"a\": {\"b\": [1, {\"c\": \"d\"}]}, \"e\": 5}";
+        ConfigurationNode eager = GsonConfigurationLoader.builder().setLenient(false)
+                .setSource(() -> new BufferedReader(new StringReader(document))).build().load();
+        ConfigurationNode lazy = GsonConfigurationLoader.builder().setLenient(false).setLazyDepth(1)
+                .setSource(() -> new BufferedReader(new StringReader(document))).build().load();
+        assertEquals(eager, lazy);
+
+        try {
+            GsonConfigurationLoader.builder().setLenient(false).setLazyDepth(1)
+                    .setSource(() -> new BufferedReader(new StringReader("{a: 1}"))).build().load();
+            fail("Unquoted names should be rejected by strict loaders");
+        } catch (IOException expected) {
+        }
+    }
 }
@@ -224,15 +224,11 @@ public class HoconConfigurationLoader extends AbstractConfigurationLoader<Commen
         ConfigValue ret;
         if (node.hasMapChildren()) {
             Map<String, ConfigValue> children = node.getOptions().getMapFactory().create();
-            for (Map.Entry<Object, ? extends ConfigurationNode> ent : node.getChildrenMap().entrySet()) {
-                children.put(String.valueOf(ent.getKey()), fromValue(ent.getValue()));
-            }
+            node.forEachChild((key, child) -> children.put(String.valueOf(key), fromValue(child)));
             ret = newConfigObject(children);
         } else if (node.hasListChildren()) {
-            List<ConfigValue> children = new ArrayList<>();
-            for (ConfigurationNode ent : node.getChildrenList()) {
-                children.add(fromValue(ent));
-            }
+            List<ConfigValue> children = new ArrayList<>(node.getChildrenList().size());
+            node.forEachChild((index, child) -> children.add(fromValue(child)));
             ret = newConfigList(children);
 
         } else {
@@ -16,12 +16,13 @@
  */
 package ninja.leaping.configurate.json;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.io.CharStreams;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.ConfigurationOptions;
 import ninja.leaping.configurate.commented.CommentedConfigurationNode;
@@ -29,11 +30,16 @@ import ninja.leaping.configurate.commented.SimpleCommentedConfigurationNode;
 import ninja.leaping.configurate.loader.AbstractConfigurationLoader;
 import ninja.leaping.configurate.loader.CommentHandler;
 import ninja.leaping.configurate.loader.CommentHandlers;
+import ninja.leaping.configurate.loader.ConfigurationReader;
+import ninja.leaping.configurate.loader.PathFilter;
+import ninja.leaping.configurate.util.ByteBufferInputStream;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 
@@ -59,6 +65,7 @@ public class JSONConfigurationLoader extends AbstractConfigurationLoader<Configu
         private final JsonFactory factory = new JsonFactory();
         private int indent = 2;
         private FieldValueSeparatorStyle fieldValueSeparatorStyle = FieldValueSeparatorStyle.SPACE_AFTER;
+        private int lazyDepth = 0;
 
         protected Builder() {
             factory.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
@@ -124,6 +131,35 @@ public class JSONConfigurationLoader extends AbstractConfigurationLoader<Configu
             return fieldValueSeparatorStyle;
         }
 
+        /**
+         * Sets the depth below which the resultant loader should defer reading maps and lists
+         * until they are first accessed.
+         *
+         * <p>At a depth of 1, only the keys of the root map are read when loading, and each of
+         * their values is parsed the first time it is accessed. The whole document is held in
+         * memory until every deferred value has been read. A depth of 0, the default, reads
+         * everything when loading.</p>
+         *
+         * @param lazyDepth The lazy depth
+         * @return This builder (for chaining)
+         * @see ninja.leaping.configurate.SimpleConfigurationNode#setLazyValue(ninja.leaping.configurate.LazyValue)
+         */
+        @NonNull
+        public Builder setLazyDepth(int lazyDepth) {
+            Preconditions.checkArgument(lazyDepth >= 0, "lazyDepth must not be negative");
+            this.lazyDepth = lazyDepth;
+            return this;
+        }
+
+        /**
+         * Gets the depth below which maps and lists are read lazily by the resultant loader.
+         *
+         * @return The lazy depth, or 0 if everything is read when loading
+         */
+        public int getLazyDepth() {
+            return lazyDepth;
+        }
+
         @NonNull
         @Override
         public JSONConfigurationLoader build() {
@@ -134,86 +170,67 @@ public class JSONConfigurationLoader extends AbstractConfigurationLoader<Configu
     private final JsonFactory factory;
     private final int indent;
     private final FieldValueSeparatorStyle fieldValueSeparatorStyle;
+    private final int lazyDepth;
 
     private JSONConfigurationLoader(Builder builder) {
         super(builder, new CommentHandler[]{CommentHandlers.DOUBLE_SLASH, CommentHandlers.SLASH_BLOCK, CommentHandlers.HASH});
         this.factory = builder.getFactory();
         this.indent = builder.getIndent();
         this.fieldValueSeparatorStyle = builder.getFieldValueSeparatorStyle();
+        this.lazyDepth = builder.getLazyDepth();
+    }
+
+    @Override
+    protected boolean loadsLazily() {
+        return lazyDepth > 0;
     }
 
     @Override
     protected void loadInternal(ConfigurationNode node, BufferedReader reader) throws IOException {
-        try (JsonParser parser = factory.createParser(reader)) {
-            parser.nextToken();
-            parseValue(parser, node);
-        }
+        loadInternal(node, reader, PathFilter.all());
     }
 
-    private static void parseValue(JsonParser parser, ConfigurationNode node) throws IOException {
-        JsonToken token = parser.getCurrentToken();
-        switch (token) {
-            case START_OBJECT:
-                parseObject(parser, node);
-                break;
-            case START_ARRAY:
-                parseArray(parser, node);
-                break;
-            case VALUE_NUMBER_FLOAT:
-                double doubleVal = parser.getDoubleValue();
-                if ((float)doubleVal != doubleVal) {
-                    node.setValue(parser.getDoubleValue());
-                } else {
-                    node.setValue(parser.getFloatValue());
-                }
-                break;
-            case VALUE_NUMBER_INT:
-                long longVal = parser.getLongValue();
-                if ((int)longVal != longVal) {
-                    node.setValue(parser.getLongValue());
-                } else {
-                    node.setValue(parser.getIntValue());
-                }
-                break;
-            case VALUE_STRING:
-                node.setValue(parser.getText());
-                break;
-            case VALUE_TRUE:
-            case VALUE_FALSE:
-                node.setValue(parser.getBooleanValue());
-                break;
-            case VALUE_NULL: // Ignored values
-            case FIELD_NAME:
-                break;
-            default:
-                throw new IOException("Unsupported token type: " + token + " (at " + parser.getTokenLocation() + ")");
+    @Override
+    protected void loadInternal(ConfigurationNode node, BufferedReader reader, PathFilter filter) throws IOException {
+        try (ConfigurationReader events = lazyDepth > 0 ? createInMemoryReader(reader) : createReader(reader)) {
+            events.readValue(node, filter, lazyDepth);
         }
     }
 
-    private static void parseArray(JsonParser parser, ConfigurationNode node) throws IOException {
-        JsonToken token;
-        while ((token = parser.nextToken()) != null) {
-            switch (token) {
-                case END_ARRAY:
-                    return;
-                default:
-                    parseValue(parser, node.getAppendedNode());
-            }
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Jackson parses the bytes directly, without decoding them first. Documents loaded
+     * lazily are decoded, since deferred values are held as characters.</p>
+     */
+    @Override
+    protected void loadInternal(ConfigurationNode node, ByteBuffer document, PathFilter filter) throws IOException {
+        if (lazyDepth > 0) {
+            super.loadInternal(node, document, filter);
+            return;
+        }
+        JsonParser parser = document.hasArray()
+                ? factory.createParser(document.array(), document.arrayOffset() + document.position(), document.remaining())
+                : factory.createParser(new ByteBufferInputStream(document));
+        try (ConfigurationReader events = new JSONConfigurationReader(parser, parser)) {
+            events.readValue(node, filter);
         }
-        throw new JsonParseException(parser, "Reached end of stream with unclosed array!", parser.getCurrentLocation());
     }
 
-    private static void parseObject(JsonParser parser, ConfigurationNode node) throws IOException {
-        JsonToken token;
-        while ((token = parser.nextToken()) != null) {
-            switch (token) {
-                case END_OBJECT:
-                    return;
-                default:
-                    parseValue(parser, node.getNode(parser.getCurrentName()));
-            }
+    private ConfigurationReader createInMemoryReader(BufferedReader reader) throws IOException {
+        char[] text;
+        try {
+            text = CharStreams.toString(reader).toCharArray();
+        } finally {
+            reader.close();
         }
-        throw new JsonParseException(parser, "Reached end of stream with unclosed array!", parser.getCurrentLocation());
+        return new JSONConfigurationReader(factory, text, 0, text.length);
+    }
+
+    @NonNull
+    @Override
+    protected ConfigurationReader createReader(@NonNull BufferedReader reader) throws IOException {
+        return new JSONConfigurationReader(factory.createParser(reader), reader);
     }
 
     @Override
@@ -226,6 +243,17 @@ public class JSONConfigurationLoader extends AbstractConfigurationLoader<Configu
         }
     }
 
+    @Override
+    protected void saveInternal(ConfigurationNode node, OutputStream output) throws IOException {
+        try (JsonGenerator generator = factory.createGenerator(output, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setPrettyPrinter(new ConfiguratePrettyPrinter(indent, fieldValueSeparatorStyle));
+            generateValue(generator, node);
+            generator.writeRaw(SYSTEM_LINE_SEPARATOR);
+            generator.flush();
+        }
+    }
+
     @NonNull
     @Override
     public CommentedConfigurationNode createEmptyNode(@NonNull ConfigurationOptions options) {
@@ -289,11 +317,11 @@ public class JSONConfigurationLoader extends AbstractConfigurationLoader<Configu
             throw new IOException("Node passed to generateObject does not have map children!");
         }
         generator.writeStartObject();
-        for (Map.Entry<Object, ? extends ConfigurationNode> ent : node.getChildrenMap().entrySet()) {
-            //generateComment(generator, ent.getValue(), false);
-            generator.writeFieldName(ent.getKey().toString());
-            generateValue(generator, ent.getValue());
-        }
+        node.forEachChild((key, child) -> {
+            //generateComment(generator, child, false);
+            generator.writeFieldName(key.toString());
+            generateValue(generator, child);
+        });
         generator.writeEndObject();
     }
 
@@ -301,12 +329,11 @@ public class JSONConfigurationLoader extends AbstractConfigurationLoader<Configu
         if (!node.hasListChildren()) {
             throw new IOException("Node passed to generateArray does not have list children!");
         }
-        List<? extends ConfigurationNode> children = node.getChildrenList();
-        generator.writeStartArray(children.size());
-        for (ConfigurationNode child : children) {
+        generator.writeStartArray(node.getChildrenList().size());
+        node.forEachChild((index, child) -> {
             //generateComment(generator, child, true);
             generateValue(generator, child);
-        }
+        });
         generator.writeEndArray();
     }
 }
@@ -0,0 +1,233 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import ninja.leaping.configurate.LazyValue;
+import ninja.leaping.configurate.loader.ConfigurationReader;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A {@link ConfigurationReader} over a Jackson {@link JsonParser}.
+ *
+ * <p>Readers over a document held in memory can {@link #deferValue() defer values}, by
+ * recording the range of characters each deferred value covers and parsing that range again
+ * when it is needed.</p>
+ */
+class JSONConfigurationReader implements ConfigurationReader {
+    private final JsonParser parser;
+    private final Closeable source;
+    @Nullable private final JsonFactory factory;
+    @Nullable private final char[] text;
+    private int depth = 0;
+    private boolean finished = false;
+    @Nullable private Event current;
+    @Nullable private Object scalar;
+
+    JSONConfigurationReader(JsonParser parser, Closeable source) {
+        this.parser = parser;
+        this.source = source;
+        this.factory = null;
+        this.text = null;
+    }
+
+    /**
+     * Creates a reader over part of a document held in memory, which can defer values.
+     *
+     * @param factory The factory to create parsers with
+     * @param text The document
+     * @param offset The index of the first character to read
+     * @param length The number of characters to read
+     * @throws IOException if the parser could not be created
+     */
+    JSONConfigurationReader(JsonFactory factory, char[] text, int offset, int length) throws IOException {
+        this.parser = factory.createParser(text, offset, length);
+        this.source = parser;
+        this.factory = factory;
+        this.text = text;
+    }
+
+    @Nullable
+    @Override
+    public Event next() throws IOException {
+        if (finished) {
+            return current = null;
+        }
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            finished = true;
+            if (depth > 0) {
+                throw new JsonParseException(parser, "Reached end of stream with unclosed value!", parser.getCurrentLocation());
+            }
+            return current = null;
+        }
+
+        switch (token) {
+            case START_OBJECT:
+                ++depth;
+                return current = Event.START_MAP;
+            case END_OBJECT:
+                return current = end(Event.END_MAP);
+            case START_ARRAY:
+                ++depth;
+                return current = Event.START_LIST;
+            case END_ARRAY:
+                return current = end(Event.END_LIST);
+            case FIELD_NAME:
+                return current = Event.KEY;
+            case VALUE_NUMBER_FLOAT:
+                double doubleVal = parser.getDoubleValue();
+                if ((float) doubleVal != doubleVal) {
+                    scalar = doubleVal;
+                } else {
+                    scalar = parser.getFloatValue();
+                }
+                break;
+            case VALUE_NUMBER_INT:
+                long longVal = parser.getLongValue();
+                if ((int) longVal != longVal) {
+                    scalar = longVal;
+                } else {
+                    scalar = parser.getIntValue();
+                }
+                break;
+            case VALUE_STRING:
+                scalar = parser.getText();
+                break;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                scalar = parser.getBooleanValue();
+                break;
+            case VALUE_NULL:
+                scalar = null;
+                break;
+            default:
+                throw new IOException("Unsupported token type: " + token + " (at " + parser.getTokenLocation() + ")");
+        }
+        if (depth == 0) {
+            finished = true;
+        }
+        return current = Event.SCALAR;
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw new JsonParseException(parser, "Reached end of stream with unclosed value!", parser.getCurrentLocation());
+        } else if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+        } else if (!token.isScalarValue()) {
+            throw new IOException("Expected a value, but got " + token + " (at " + parser.getTokenLocation() + ")");
+        }
+        if (depth == 0) {
+            finished = true;
+        }
+        current = null;
+    }
+
+    @Override
+    public boolean canDeferValues() {
+        return text != null;
+    }
+
+    @Nullable
+    @Override
+    public LazyValue deferValue() throws IOException {
+        final JsonFactory factory = this.factory;
+        final char[] text = this.text;
+        if (factory == null || text == null) {
+            throw new UnsupportedOperationException("Only readers over a document in memory can defer values");
+        }
+        if (current != Event.START_MAP && current != Event.START_LIST) {
+            throw new IllegalStateException("Values can only be deferred at the start of a map or list");
+        }
+
+        // the same scan as JsonParser.skipChildren(), noting whether there is anything to read
+        final int start = (int) parser.getTokenLocation().getCharOffset();
+        boolean hasValues = false;
+        for (int open = 1; open > 0;) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                finished = true;
+                throw new JsonParseException(parser, "Reached end of stream with unclosed value!", parser.getCurrentLocation());
+            } else if (token.isStructStart()) {
+                ++open;
+            } else if (token.isStructEnd()) {
+                --open;
+            } else if (token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+                hasValues = true;
+            }
+        }
+        final int end = (int) parser.getCurrentLocation().getCharOffset();
+        current = end(null);
+
+        if (!hasValues) {
+            return null;
+        }
+        return node -> {
+            try (JSONConfigurationReader reader = new JSONConfigurationReader(factory, text, start, end - start)) {
+                reader.readValue(node);
+            }
+        };
+    }
+
+    private Event end(Event event) {
+        if (--depth == 0) {
+            finished = true;
+        }
+        return event;
+    }
+
+    @NonNull
+    @Override
+    public Object getKey() {
+        if (current != Event.KEY) {
+            throw new IllegalStateException("The current event is not a key");
+        }
+        try {
+            return parser.getCurrentName();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Nullable
+    @Override
+    public Object getScalar() {
+        if (current != Event.SCALAR) {
+            throw new IllegalStateException("The current event is not a scalar");
+        }
+        return scalar;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            parser.close();
+        } finally {
+            source.close();
+        }
+    }
+}
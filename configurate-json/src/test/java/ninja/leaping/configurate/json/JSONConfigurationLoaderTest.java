@@ -16,22 +16,43 @@
  */
 package ninja.leaping.configurate.json;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.ConfigurationOptions;
 import ninja.leaping.configurate.loader.AtomicFiles;
 import ninja.leaping.configurate.loader.ConfigurationLoader;
+import ninja.leaping.configurate.loader.ConfigurationReader;
+import ninja.leaping.configurate.loader.ConfigurationReader.Event;
+import ninja.leaping.configurate.loader.PathFilter;
 import ninja.leaping.configurate.util.MapFactories;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.nio.charset.StandardCharsets.*;
 import static org.junit.Assert.*;
@@ -88,4 +109,217 @@ public class JSONConfigurationLoaderTest {
     public void testRoundtripDouble() throws IOException {
         testRoundtripValue(TEST_DOUBLE_VAL);
     }
+
+    @Test
+    public void testStreamingRead() throws IOException {
+        URL url = getClass().getResource("/example.json");
+        JSONConfigurationLoader loader = JSONConfigurationLoader.builder()
+                .setSource(() -> new BufferedReader(new InputStreamReader(url.openStream(), UTF_8))).build();
+        try (ConfigurationReader reader = loader.openReader()) {
+            assertEquals(Event.START_MAP, reader.next());
+            assertEquals(Event.KEY, reader.next());
+            assertEquals("other", reader.getKey());
+            assertEquals(Event.START_MAP, reader.next());
+            assertEquals(Event.KEY, reader.next());
+            assertEquals("location", reader.getKey());
+            assertEquals(Event.SCALAR, reader.next());
+            assertEquals("dog park", reader.getScalar());
+            assertEquals(Event.KEY, reader.next());
+            assertEquals(Event.SCALAR, reader.next());
+            assertEquals(Event.END_MAP, reader.next());
+            assertEquals(Event.KEY, reader.next());
+            assertEquals("test", reader.getKey());
+
+            ConfigurationNode test = loader.createEmptyNode();
+            reader.readValue(test);
+            assertEquals("unicorn", test.getNode("op-level").getValue());
+            assertEquals(Event.END_MAP, reader.next());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testFilteredLoading() throws IOException {
+        String document = "{\"skipped\": {\"deep\": [1, [2, {\"x\": 3}], null]},"
+                + " \"list\": [{\"a\": 1, \"b\": 2}, {\"a\": 3, \"b\": 4}],"
+                + " \"kept\": {\"value\": true, \"other\": \"x\"}, \"after\": \"end\"}";
+        JSONConfigurationLoader loader = JSONConfigurationLoader.builder()
+                .setSource(() -> new BufferedReader(new StringReader(document))).build();
+        PathFilter filter = PathFilter.of(new Object[] {"list", 1, "a"}, new Object[] {"kept"}, new Object[] {"missing"});
+
+        ConfigurationNode filtered = loader.load(loader.getDefaultOptions(), filter);
+        assertEquals(ImmutableMap.of(
+                "list", ImmutableList.of(ImmutableMap.of("a", 3)),
+                "kept", ImmutableMap.of("value", true, "other", "x")), filtered.getValue());
+
+        ConfigurationNode pruned = loader.load();
+        filter.prune(pruned);
+        assertEquals(pruned, filtered);
+    }
+
+    @Test
+    public void testLazyLoading() throws IOException {
+        String document = "{\"empty\": {}, \"nulls\": {\"a\": null, \"b\": [null]},"
+                + " \"list\": [{\"a\": 1, \"b\": [2, \"3\"]}, {}, \"x\"],"
+                + " /* comment */ \"map\": {\"nested\": {\"deep\": \"value\"}, \"escaped\": \"\\\"q\\\"\"}, \"scalar\": 5}";
+        ConfigurationNode eager = JSONConfigurationLoader.builder()
+                .setSource(() -> new BufferedReader(new StringReader(document))).build().load();
+        assertTrue(eager.getNode("empty").isVirtual());
+
+        for (int depth = 1; depth <= 3; ++depth) {
+            ConfigurationNode lazy = JSONConfigurationLoader.builder().setLazyDepth(depth)
+                    .setSource(() -> new BufferedReader(new StringReader(document))).build().load();
+            assertEquals(eager, lazy);
+            assertEquals(eager.getValue(), lazy.getValue());
+        }
+
+        ConfigurationNode lazy = JSONConfigurationLoader.builder().setLazyDepth(1)
+                .setSource(() -> new BufferedReader(new StringReader(document))).build().load();
+        lazy.getNode("map", "nested", "added").setValue(true);
+        assertEquals("\"q\"", lazy.getNode("map", "escaped").getString());
+        assertEquals("value", lazy.getNode("map", "nested", "deep").getString());
+        assertTrue(lazy.getNode("map", "nested", "added").getBoolean());
+    }
+
+    @Test
+    public void testByteSourcesAndSinks() throws IOException {
+        String document = "# A h\u00e9ader\n\n{\"name\": \"\u00e9t\u00e9 \u2603\", \"list\": [1, 2.5, true], \"map\": {\"a\": null}}";
+        byte[] bytes = document.getBytes(UTF_8);
+        ConfigurationNode expected = JSONConfigurationLoader.builder()
+                .setSource(() -> new BufferedReader(new StringReader(document))).build().load();
+        assertEquals("A h\u00e9ader", expected.getOptions().getHeader());
+
+        Path file = folder.newFile().toPath();
+        Files.write(file, bytes);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        List<ConfigurationLoader<ConfigurationNode>> loaders = ImmutableList.of(
+                JSONConfigurationLoader.builder().setBufferSource(() -> ByteBuffer.wrap(bytes)).build(),
+                JSONConfigurationLoader.builder().setBufferSource(direct::duplicate).build(),
+                JSONConfigurationLoader.builder().setStreamSource(() -> new ByteArrayInputStream(bytes)).build(),
+                JSONConfigurationLoader.builder().setChannelSource(() -> FileChannel.open(file)).build(),
+                JSONConfigurationLoader.builder().setPath(file).build(),
+                JSONConfigurationLoader.builder().setPath(file).setMemoryMapped(true).build(),
+                JSONConfigurationLoader.builder().setPath(file).setLazyDepth(1).build());
+        for (ConfigurationLoader<ConfigurationNode> loader : loaders) {
+            ConfigurationNode loaded = loader.load();
+            assertEquals(expected, loaded);
+            assertEquals(expected.getOptions().getHeader(), loaded.getOptions().getHeader());
+        }
+
+        StringWriter chars = new StringWriter();
+        JSONConfigurationLoader.builder().setSink(() -> new BufferedWriter(chars)).build().save(expected);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        JSONConfigurationLoader.builder().setStreamSink(() -> output).build().save(expected);
+        assertEquals(chars.toString(), new String(output.toByteArray(), UTF_8));
+
+        JSONConfigurationLoader.builder().setPath(file).build().save(expected);
+        assertEquals(chars.toString(), new String(Files.readAllBytes(file), UTF_8));
+    }
+
+    @Test
+    public void testAsyncSaveWritesSnapshot() throws Exception {
+        final int keys = 100;
+        Path file = folder.newFile().toPath();
+        ConfigurationLoader<ConfigurationNode> loader = JSONConfigurationLoader.builder().setPath(file).build();
+        ExecutorService readers = Executors.newSingleThreadExecutor();
+        AtomicBoolean done = new AtomicBoolean();
+        try {
+            // Every file we read must hold a single generation, and generations never go backwards
+            Future<Integer> reads = readers.submit(() -> {
+                int last = -1;
+                int count = 0;
+                while (!done.get()) {
+                    ConfigurationNode read = loader.load();
+                    if (read.isVirtual()) {
+                        continue;
+                    }
+                    int generation = read.getNode("key0").getInt();
+                    for (int i = 0; i < keys; ++i) {
+                        assertEquals(generation, read.getNode("key" + i).getInt());
+                    }
+                    assertTrue(generation >= last);
+                    last = generation;
+                    ++count;
+                }
+                return count;
+            });
+
+            ConfigurationNode node = loader.createEmptyNode();
+            List<CompletableFuture<Void>> saves = new ArrayList<>();
+            for (int generation = 0; generation < 200; ++generation) {
+                for (int i = 0; i < keys; ++i) {
+                    node.getNode("key" + i).setValue(generation);
+                }
+                saves.add(loader.saveAsync(node));
+                // mutate straight away, while the save is still pending
+                node.getNode("key" + (generation % keys)).setValue(-1);
+            }
+            CompletableFuture.allOf(saves.toArray(new CompletableFuture[0])).join();
+            done.set(true);
+            reads.get();
+        } finally {
+            done.set(true);
+            readers.shutdownNow();
+        }
+
+        ConfigurationNode result = loader.loadAsync().join();
+        for (int i = 0; i < keys; ++i) {
+            assertEquals(199, result.getNode("key" + i).getInt());
+        }
+    }
+
+    @Test
+    public void testSkipUnchangedFile() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("skip.json");
+        JSONConfigurationLoader loader = JSONConfigurationLoader.builder().setPath(file).setSkipUnchanged(true).build();
+        ConfigurationNode node = loader.createEmptyNode();
+        node.getNode("a").setValue("b");
+
+        assertTrue(loader.saveIfChanged(node));
+        FileTime old = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(file, old);
+        Object fileKey = Files.readAttributes(file, "fileKey").get("fileKey");
+        assertFalse(loader.saveIfChanged(node));
+        loader.save(node);
+        assertEquals(old, Files.getLastModifiedTime(file));
+        assertEquals(fileKey, Files.readAttributes(file, "fileKey").get("fileKey"));
+
+        // a fresh loader compares against the file itself
+        assertFalse(JSONConfigurationLoader.builder().setPath(file).build().saveIfChanged(node));
+
+        node.getNode("a").setValue("c");
+        assertTrue(loader.saveIfChanged(node));
+        assertEquals("c", loader.load().getNode("a").getString());
+
+        // changed by something else, to the same size
+        Files.write(file, new String(Files.readAllBytes(file), UTF_8).replace('c', 'd').getBytes(UTF_8));
+        assertTrue(loader.saveIfChanged(node));
+        assertEquals("c", loader.load().getNode("a").getString());
+
+        Files.delete(file);
+        assertTrue(loader.saveIfChanged(node));
+        assertTrue(Files.exists(file));
+    }
+
+    @Test
+    public void testSkipUnchangedSink() throws IOException {
+        AtomicInteger writes = new AtomicInteger();
+        StringWriter output = new StringWriter();
+        JSONConfigurationLoader loader = JSONConfigurationLoader.builder().setSink(() -> {
+            writes.incrementAndGet();
+            output.getBuffer().setLength(0);
+            return new BufferedWriter(output);
+        }).setSkipUnchanged(true).build();
+        ConfigurationNode node = loader.createEmptyNode();
+        node.getNode("list").setValue(ImmutableList.of(1, 2, 3));
+
+        loader.save(node);
+        loader.save(node);
+        assertEquals(1, writes.get());
+        node.getNode("list").getAppendedNode().setValue(4);
+        loader.save(node);
+        assertEquals(2, writes.get());
+        assertTrue(output.toString().contains("4"));
+    }
 }
@@ -17,7 +17,6 @@
 package ninja.leaping.configurate.toml;
 
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Lists;
 import com.moandjiezana.toml.Toml;
 import com.moandjiezana.toml.TomlWriter;
 import ninja.leaping.configurate.ConfigurationNode;
@@ -34,6 +33,7 @@ import java.io.IOException;
 import java.io.Writer;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -246,26 +246,25 @@ public class TOMLConfigurationLoader extends AbstractConfigurationLoader<Configu
 
     private static Map<String, Object> writeNode(ConfigurationNode from) {
         Map<String, Object> map = new LinkedHashMap<>();
-        for (Map.Entry<Object, ? extends ConfigurationNode> entry : from.getChildrenMap().entrySet()) {
-            ConfigurationNode node = entry.getValue();
+        from.forEachChild((key, node) -> {
             if (node.hasListChildren()) {
-                List<Object> list = Lists.newArrayList();
-                for (ConfigurationNode listNode : node.getChildrenList()) {
+                List<Object> list = new ArrayList<>(node.getChildrenList().size());
+                node.forEachChild((index, listNode) -> {
                     if (listNode.hasMapChildren()) {
                         list.add(writeNode(listNode));
                     } else {
                         list.add(listNode.getValue());
                     }
-                }
-                map.put(entry.getKey().toString(), list);
+                });
+                map.put(key.toString(), list);
             } else if (node.hasMapChildren()) {
-                map.put(entry.getKey().toString(), writeNode(node));
+                map.put(key.toString(), writeNode(node));
             } else if (node.getValue() instanceof Instant) {
-                map.put(entry.getKey().toString(), Types.asDate(node.getValue()));
+                map.put(key.toString(), Types.asDate(node.getValue()));
             } else {
-                map.put(entry.getKey().toString(), node.getValue());
+                map.put(key.toString(), node.getValue());
             }
-        }
+        });
         return map;
     }
 
@@ -21,7 +21,6 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder;
-import com.google.common.math.DoubleMath;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.ConfigurationOptions;
 import ninja.leaping.configurate.attributed.AttributedConfigurationNode;
@@ -29,6 +28,9 @@ import ninja.leaping.configurate.attributed.SimpleAttributedConfigurationNode;
 import ninja.leaping.configurate.loader.AbstractConfigurationLoader;
 import ninja.leaping.configurate.loader.CommentHandler;
 import ninja.leaping.configurate.loader.CommentHandlers;
+import ninja.leaping.configurate.loader.ConfigurationReader;
+import ninja.leaping.configurate.loader.PathFilter;
+import ninja.leaping.configurate.util.ByteBufferInputStream;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.w3c.dom.Document;
@@ -42,29 +44,37 @@ import org.xml.sax.SAXException;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.validation.Schema;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
- * A loader for XML (Extensible Markup Language), using the native javax library for parsing and
- * generation.
+ * A loader for XML (Extensible Markup Language), using the native javax library for parsing.
+ *
+ * <p>Documents are read with a StAX {@link XMLStreamReader}, and written straight to the
+ * output, so neither holds the whole document as a DOM. A DOM is only built when loading with a
+ * {@link Builder#setSchema(Schema) schema}, to validate the document against it.</p>
+ *
+ * <p>Looking up the parser factories is slow, and they are not safe to share between threads,
+ * so each thread keeps its own. A loader with a schema keeps a pool of document builders, so
+ * the validator inside each builder is reused between documents.</p>
  */
 public class XMLConfigurationLoader extends AbstractConfigurationLoader<AttributedConfigurationNode> {
 
-    /**
-     * The property used to mark how many spaces should be used to indent.
-     */
-    private static final String INDENT_PROPERTY = "{http://xml.apache.org/xslt}indent-amount";
+    private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY = ThreadLocal.withInitial(XMLConfigurationLoader::newInputFactory);
+    private static final ThreadLocal<DocumentBuilderFactory> DOCUMENT_BUILDER_FACTORY = ThreadLocal.withInitial(DocumentBuilderFactory::newInstance);
 
     /**
      * Creates a new {@link XMLConfigurationLoader} builder.
@@ -216,6 +226,7 @@ public class XMLConfigurationLoader extends AbstractConfigurationLoader<Attribut
     private final int indent;
     private final boolean writeExplicitType;
     private final boolean includeXmlDeclaration;
+    private final Queue<DocumentBuilder> documentBuilders = new ConcurrentLinkedQueue<>();
 
     private XMLConfigurationLoader(Builder builder) {
         super(builder, new CommentHandler[] {CommentHandlers.HASH, CommentHandlers.DOUBLE_SLASH});
@@ -227,10 +238,9 @@ public class XMLConfigurationLoader extends AbstractConfigurationLoader<Attribut
     }
 
     private DocumentBuilder newDocumentBuilder() {
-        DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-        if (schema != null) {
-            builderFactory.setSchema(schema);
-        }
+        DocumentBuilderFactory builderFactory = DOCUMENT_BUILDER_FACTORY.get();
+        // the factory is shared with the other loaders on this thread, so replace their schema
+        builderFactory.setSchema(schema);
 
         try {
             return builderFactory.newDocumentBuilder();
@@ -239,32 +249,96 @@ public class XMLConfigurationLoader extends AbstractConfigurationLoader<Attribut
         }
     }
 
-    private Transformer newTransformer() {
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
+    private static XMLInputFactory newInputFactory() {
+        XMLInputFactory inputFactory = XMLInputFactory.newFactory();
+        // read names as they are written, and text in one piece, as the DOM does
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return inputFactory;
+    }
+
+    @Override
+    public void loadInternal(AttributedConfigurationNode node, BufferedReader reader) throws IOException {
+        if (schema != null) {
+            loadInternal(node, new InputSource(reader));
+            return;
+        }
         try {
-            Transformer transformer = transformerFactory.newTransformer();
-            if (!includeXmlDeclaration) {
-                transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-            }
-            if (indent > 0) {
-                transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-                transformer.setOutputProperty(INDENT_PROPERTY, Integer.toString(indent));
+            readDocument(node, INPUT_FACTORY.get().createXMLStreamReader(reader));
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The document is parsed as bytes, so its encoding is taken from its XML declaration.</p>
+     */
+    @Override
+    protected void loadInternal(AttributedConfigurationNode node, ByteBuffer document, PathFilter filter) throws IOException {
+        if (schema != null) {
+            loadInternal(node, new InputSource(new ByteBufferInputStream(document)));
+        } else {
+            try {
+                readDocument(node, INPUT_FACTORY.get().createXMLStreamReader(new ByteBufferInputStream(document)));
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
             }
-            return transformer;
-        } catch (TransformerConfigurationException e) {
-            throw new RuntimeException(e);
+        }
+        if (!filter.isAll()) {
+            filter.prune(node);
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Streaming reads are not supported by loaders with a schema, as the document would not
+     * be validated.</p>
+     */
+    @NonNull
     @Override
-    public void loadInternal(AttributedConfigurationNode node, BufferedReader reader) throws IOException {
-        DocumentBuilder documentBuilder = newDocumentBuilder();
+    protected ConfigurationReader createReader(@NonNull BufferedReader reader) throws IOException {
+        if (schema != null) {
+            throw new UnsupportedOperationException("Streaming reads are not validated against a schema");
+        }
+        try {
+            return new XMLConfigurationReader(INPUT_FACTORY.get().createXMLStreamReader(reader), reader);
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void readDocument(AttributedConfigurationNode node, XMLStreamReader reader) throws XMLStreamException {
+        try {
+            new XMLTreeBuilder(reader).readDocument(node);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Loads a document through a DOM, so it is validated against the schema.
+     *
+     * @param node The node to load into
+     * @param source The document
+     * @throws IOException if the document could not be read or is not valid
+     */
+    private void loadInternal(AttributedConfigurationNode node, InputSource source) throws IOException {
+        DocumentBuilder documentBuilder = this.documentBuilders.poll();
+        if (documentBuilder == null) {
+            documentBuilder = newDocumentBuilder();
+        }
 
         Document document;
         try {
-            document = documentBuilder.parse(new InputSource(reader));
+            document = documentBuilder.parse(source);
         } catch (SAXException e) {
             throw new IOException(e);
+        } finally {
+            documentBuilder.reset();
+            this.documentBuilders.offer(documentBuilder);
         }
 
         Element root = document.getDocumentElement();
@@ -290,7 +364,7 @@ public class XMLConfigurationLoader extends AbstractConfigurationLoader<Attribut
                 String value = attribute.getNodeValue();
 
                 // read the type of the node
-                if (key.equals("configurate-type")) {
+                if (key.equals(XMLTreeBuilder.TYPE_ATTRIBUTE)) {
                     if (value.equals("map")) {
                         type = NodeType.MAP;
                     } else if (value.equals("list")) {
@@ -319,7 +393,7 @@ public class XMLConfigurationLoader extends AbstractConfigurationLoader<Attribut
 
         // if there are no child nodes present, assume it's a scalar value
         if (children.isEmpty()) {
-            to.setValue(parseValue(from.getTextContent()));
+            to.setValue(XMLTreeBuilder.parseValue(from.getTextContent()));
             return;
         }
 
@@ -355,51 +429,19 @@ public class XMLConfigurationLoader extends AbstractConfigurationLoader<Attribut
 
     @Override
     protected void saveInternal(ConfigurationNode node, Writer writer) throws IOException {
-        DocumentBuilder documentBuilder = newDocumentBuilder();
-        Document document = documentBuilder.newDocument();
-
-        document.appendChild(writeNode(document, node, null));
-
-        Transformer transformer = newTransformer();
-        DOMSource source = new DOMSource(document);
-        try {
-            transformer.transform(source, new StreamResult(writer));
-        } catch (TransformerException e) {
-            throw new IOException(e);
-        }
+        new XMLTreeWriter(writer, defaultTagName, indent, writeExplicitType).writeDocument(node, includeXmlDeclaration);
     }
 
-    private Element writeNode(Document document, ConfigurationNode node, String forcedTag) {
-        String tag = defaultTagName;
-        Map<String, String> attributes = ImmutableMap.of();
-
-        if (node instanceof AttributedConfigurationNode) {
-            AttributedConfigurationNode attributedNode = ((AttributedConfigurationNode) node);
-            tag = attributedNode.getTagName();
-            attributes = attributedNode.getAttributes();
-        }
-
-        Element element = document.createElement(forcedTag == null ? tag : forcedTag);
-        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
-            element.setAttribute(attribute.getKey(), attribute.getValue());
-        }
-
-        if (node.hasMapChildren()) {
-            for (Map.Entry<Object, ? extends ConfigurationNode> child : node.getChildrenMap().entrySet()) {
-                element.appendChild(writeNode(document, child.getValue(), child.getKey().toString()));
-            }
-        } else if (node.hasListChildren()) {
-            if (writeExplicitType) {
-                element.setAttribute("configurate-type", "list");
-            }
-            for (ConfigurationNode child : node.getChildrenList()) {
-                element.appendChild(writeNode(document, child, null));
-            }
-        } else {
-            element.appendChild(document.createTextNode(node.getValue().toString()));
-        }
-
-        return element;
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The document is written as UTF-8.</p>
+     */
+    @Override
+    protected void saveInternal(ConfigurationNode node, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        saveInternal(node, writer);
+        writer.flush();
     }
 
     @NonNull
@@ -409,26 +451,4 @@ public class XMLConfigurationLoader extends AbstractConfigurationLoader<Attribut
                 Integer.class, Boolean.class, String.class, Number.class));
         return SimpleAttributedConfigurationNode.root("root", options);
     }
-
-    private static Object parseValue(String value) {
-        if (value.equals("true") || value.equals("false")) {
-            return Boolean.parseBoolean(value);
-        }
-
-        try {
-            double doubleValue = Double.parseDouble(value);
-            if (DoubleMath.isMathematicalInteger(doubleValue)) {
-                long longValue = (long) doubleValue;
-                int intValue = (int) longValue;
-                if (longValue == intValue) {
-                    return intValue;
-                } else {
-                    return longValue;
-                }
-            }
-            return doubleValue;
-        } catch (NumberFormatException e) {
-            return value;
-        }
-    }
 }
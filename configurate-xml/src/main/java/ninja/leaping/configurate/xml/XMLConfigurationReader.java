@@ -0,0 +1,395 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.xml;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.attributed.AttributedConfigurationNode;
+import ninja.leaping.configurate.attributed.SimpleAttributedConfigurationNode;
+import ninja.leaping.configurate.loader.ConfigurationReader;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link ConfigurationReader} over a StAX {@link XMLStreamReader}.
+ *
+ * <p>Values are reported as the loader would build them: elements without child elements are
+ * scalars, lists are grouped by name, and elements are lists if they are marked as a list, or
+ * if they are not marked and have several children with the same name.</p>
+ *
+ * <p>The children of an element marked with a type are reported as they are read. A list is
+ * only buffered from the point a second name appears in it, so its children can be grouped. An
+ * element without a type is a list if its first two children have the same name, and is then
+ * reported in the same way. Otherwise the rest of its children are buffered, until it is known
+ * whether any name repeats.</p>
+ *
+ * <p>Tag names and attributes are not reported. A name repeated in an element marked as a map
+ * is reported as a repeated key, so {@link #readValue(ConfigurationNode)} merges a repeated
+ * map or list where the loader would replace it.</p>
+ */
+class XMLConfigurationReader implements ConfigurationReader {
+    private final XMLStreamReader reader;
+    private final Closeable source;
+    private final XMLTreeBuilder builder;
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    private boolean started = false;
+    private boolean finished = false;
+    @Nullable private Event current;
+    @Nullable private Object key;
+    @Nullable private Object scalar;
+
+    XMLConfigurationReader(XMLStreamReader reader, Closeable source) {
+        this.reader = reader;
+        this.source = source;
+        this.builder = new XMLTreeBuilder(reader);
+    }
+
+    @Nullable
+    @Override
+    public Event next() throws IOException {
+        if (finished) {
+            return current = null;
+        }
+        try {
+            if (!started) {
+                started = true;
+                while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    if (!reader.hasNext()) {
+                        throw new XMLStreamException("The document has no root element");
+                    }
+                }
+                return current = readElement();
+            }
+            if (frames.isEmpty()) {
+                // the root element has ended, but the rest of the document must be well formed
+                finished = true;
+                while (reader.hasNext()) {
+                    reader.next();
+                }
+                return current = null;
+            }
+            return current = frames.peek().next();
+        } catch (XMLStreamException e) {
+            finished = true;
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        Frame frame = frames.peek();
+        if (!(frame instanceof MapFrame) || !((MapFrame) frame).valuePending) {
+            ConfigurationReader.super.skipValue();
+            return;
+        }
+        // skip the element without reading it into nodes
+        try {
+            ((MapFrame) frame).valuePending = false;
+            for (int open = 1; open > 0;) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    ++open;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    --open;
+                }
+            }
+        } catch (XMLStreamException e) {
+            finished = true;
+            throw new IOException(e);
+        }
+        current = null;
+    }
+
+    @NonNull
+    @Override
+    public Object getKey() {
+        if (current != Event.KEY || key == null) {
+            throw new IllegalStateException("The current event is not a key");
+        }
+        return key;
+    }
+
+    @Nullable
+    @Override
+    public Object getScalar() {
+        if (current != Event.SCALAR) {
+            throw new IllegalStateException("The current event is not a scalar");
+        }
+        return scalar;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * Starts reporting the value of the element the reader is at.
+     *
+     * @return The first event of the value
+     * @throws XMLStreamException if the element could not be read
+     */
+    private Event readElement() throws XMLStreamException {
+        String type = null;
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String name = XMLTreeBuilder.qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+            if (name.equals(XMLTreeBuilder.TYPE_ATTRIBUTE)) {
+                type = reader.getAttributeValue(i);
+            }
+        }
+
+        StringBuilder text = new StringBuilder();
+        if (!nextChild(text)) {
+            scalar = XMLTreeBuilder.parseValue(text.toString());
+            return Event.SCALAR;
+        } else if ("list".equals(type)) {
+            frames.push(new ListFrame(null));
+            return Event.START_LIST;
+        } else if ("map".equals(type)) {
+            frames.push(new MapFrame());
+            return Event.START_MAP;
+        }
+
+        // the element is a list if the first two children have the same name
+        AttributedConfigurationNode buffer = SimpleAttributedConfigurationNode.root();
+        String firstName = childName();
+        AttributedConfigurationNode first = buffer.getNode(firstName);
+        builder.readElement(first);
+        if (nextChild(null) && childName().equals(firstName)) {
+            frames.push(new ListFrame(first));
+            return Event.START_LIST;
+        }
+
+        // otherwise buffer the rest of the children, as the loader would build them
+        if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+            Set<String> names = new HashSet<>();
+            names.add(firstName);
+            String lastName = firstName;
+            boolean list = false;
+            boolean regroup = false;
+            do {
+                String name = childName();
+                if (!names.add(name)) {
+                    if (!list) {
+                        XMLTreeBuilder.toList(buffer);
+                        list = true;
+                    }
+                    regroup |= !name.equals(lastName);
+                }
+                builder.readElement(list ? buffer.getAppendedNode() : buffer.getNode(name));
+                lastName = name;
+            } while (nextChild(null));
+            if (regroup) {
+                XMLTreeBuilder.regroup(buffer);
+            }
+        }
+        return startBuffered(buffer);
+    }
+
+    /**
+     * Starts reporting the value of a buffered node.
+     *
+     * @param node The node
+     * @return The first event of the value
+     */
+    private Event startBuffered(ConfigurationNode node) {
+        if (node.hasMapChildren()) {
+            frames.push(new BufferedFrame(Event.END_MAP, node.getChildrenMap().values().iterator()));
+            return Event.START_MAP;
+        } else if (node.hasListChildren()) {
+            frames.push(new BufferedFrame(Event.END_LIST, node.getChildrenList().iterator()));
+            return Event.START_LIST;
+        }
+        scalar = node.getValue();
+        return Event.SCALAR;
+    }
+
+    /**
+     * Advances to the start of the next child element, or the end of the current element.
+     *
+     * @param text A builder to collect the text passed over, or null to ignore it
+     * @return true if the reader is at a child element, or false if the element has ended
+     * @throws XMLStreamException if the element could not be read
+     */
+    private boolean nextChild(@Nullable StringBuilder text) throws XMLStreamException {
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    return true;
+                case XMLStreamConstants.END_ELEMENT:
+                    return false;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (text != null) {
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    break;
+                default:
+                    // comments and processing instructions are not part of the value
+                    break;
+            }
+        }
+    }
+
+    private String childName() {
+        return XMLTreeBuilder.qualifiedName(reader.getPrefix(), reader.getLocalName());
+    }
+
+    /**
+     * The map or list currently being reported.
+     */
+    private interface Frame {
+        Event next() throws XMLStreamException;
+    }
+
+    /**
+     * An element marked as a map, whose children are reported as they are read.
+     */
+    private final class MapFrame implements Frame {
+        private boolean atChild = true;
+        private boolean valuePending = false;
+
+        @Override
+        public Event next() throws XMLStreamException {
+            if (valuePending) {
+                valuePending = false;
+                return readElement();
+            }
+            if (!atChild && !nextChild(null)) {
+                frames.pop();
+                return Event.END_MAP;
+            }
+            atChild = false;
+            valuePending = true;
+            key = childName();
+            return Event.KEY;
+        }
+    }
+
+    /**
+     * A list whose children are reported as they are read, until a second name appears.
+     */
+    private final class ListFrame implements Frame {
+        @Nullable private AttributedConfigurationNode first;
+        @Nullable private String name;
+        private boolean atChild = true;
+
+        /**
+         * Creates a frame for a list.
+         *
+         * @param first The first child, if it has already been read
+         */
+        ListFrame(@Nullable AttributedConfigurationNode first) {
+            this.first = first;
+            this.name = first == null ? null : first.getTagName();
+        }
+
+        @Override
+        public Event next() throws XMLStreamException {
+            if (first != null) {
+                AttributedConfigurationNode first = this.first;
+                this.first = null;
+                return startBuffered(first);
+            }
+            if (!atChild && !nextChild(null)) {
+                frames.pop();
+                return Event.END_LIST;
+            }
+            atChild = false;
+            String childName = childName();
+            if (name == null) {
+                name = childName;
+            }
+            if (childName.equals(name)) {
+                return readElement();
+            }
+
+            // children with the first name which are still to come are moved before this one
+            Map<String, List<AttributedConfigurationNode>> groups = new LinkedHashMap<>();
+            groups.put(name, new ArrayList<>());
+            do {
+                AttributedConfigurationNode child = SimpleAttributedConfigurationNode.root();
+                builder.readElement(child);
+                groups.computeIfAbsent(child.getTagName(), group -> new ArrayList<>()).add(child);
+            } while (nextChild(null));
+            List<AttributedConfigurationNode> children = new ArrayList<>();
+            for (List<AttributedConfigurationNode> group : groups.values()) {
+                children.addAll(group);
+            }
+
+            frames.pop();
+            BufferedFrame rest = new BufferedFrame(Event.END_LIST, children.iterator());
+            frames.push(rest);
+            return rest.next();
+        }
+    }
+
+    /**
+     * A map or list which has been read into nodes.
+     */
+    private final class BufferedFrame implements Frame {
+        private final Event end;
+        private final Iterator<? extends ConfigurationNode> children;
+        @Nullable private ConfigurationNode value;
+
+        BufferedFrame(Event end, Iterator<? extends ConfigurationNode> children) {
+            this.end = end;
+            this.children = children;
+        }
+
+        @Override
+        public Event next() {
+            if (value != null) {
+                ConfigurationNode value = this.value;
+                this.value = null;
+                return startBuffered(value);
+            }
+            if (!children.hasNext()) {
+                frames.pop();
+                return end;
+            }
+            ConfigurationNode child = children.next();
+            if (end == Event.END_MAP) {
+                value = child;
+                key = child.getKey();
+                return Event.KEY;
+            }
+            return startBuffered(child);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.xml;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.math.DoubleMath;
+import ninja.leaping.configurate.attributed.AttributedConfigurationNode;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds node trees straight from a StAX {@link XMLStreamReader}, without first building the
+ * document as a DOM.
+ *
+ * <p>The trees match those built from a DOM by the loader. Elements without child elements are
+ * scalars, holding all of their text. Other elements are lists if they are marked as a list,
+ * or if they are not marked and have several children with the same name, and maps
+ * otherwise. The children of a list are grouped by name, in the order each name first
+ * appears.</p>
+ *
+ * <p>Children are read into the tree as they are reached, assuming an element is a map until
+ * a repeated name shows otherwise. Only the children read before that point, and the children
+ * of lists which need to be regrouped, are copied.</p>
+ */
+final class XMLTreeBuilder {
+    /**
+     * The attribute which marks the type of an element.
+     */
+    static final String TYPE_ATTRIBUTE = "configurate-type";
+
+    private final XMLStreamReader reader;
+
+    XMLTreeBuilder(XMLStreamReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the root element of the document into a node, and checks the rest of the document
+     * is well formed.
+     *
+     * @param node The node to read into
+     * @throws XMLStreamException if the document could not be read
+     */
+    void readDocument(AttributedConfigurationNode node) throws XMLStreamException {
+        while (this.reader.next() != XMLStreamConstants.START_ELEMENT) {
+            if (!this.reader.hasNext()) {
+                throw new XMLStreamException("The document has no root element");
+            }
+        }
+        readElement(node);
+        while (this.reader.hasNext()) {
+            this.reader.next();
+        }
+    }
+
+    /**
+     * Reads the element the reader is at, up to and including its end tag.
+     *
+     * @param to The node to read into
+     * @throws XMLStreamException if the element could not be read
+     */
+    void readElement(AttributedConfigurationNode to) throws XMLStreamException {
+        to.setTagName(qualifiedName(this.reader.getPrefix(), this.reader.getLocalName()));
+
+        String type = null;
+        for (int i = 0; i < this.reader.getAttributeCount(); i++) {
+            String key = qualifiedName(this.reader.getAttributePrefix(i), this.reader.getAttributeLocalName(i));
+            String value = this.reader.getAttributeValue(i);
+            if (key.equals(TYPE_ATTRIBUTE)) {
+                // don't add internal configurate attributes to the node
+                type = value;
+                continue;
+            }
+            to.addAttribute(key, value);
+        }
+        boolean explicitType = "map".equals(type) || "list".equals(type);
+        boolean list = "list".equals(type);
+
+        StringBuilder text = new StringBuilder();
+        Set<String> names = null;
+        String lastName = null;
+        boolean regroup = false;
+        int event;
+        while ((event = this.reader.next()) != XMLStreamConstants.END_ELEMENT) {
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    String name = qualifiedName(this.reader.getPrefix(), this.reader.getLocalName());
+                    if (names == null) {
+                        names = new HashSet<>();
+                        to.setValue(list ? ImmutableList.of() : ImmutableMap.of());
+                    }
+                    if (!names.add(name)) {
+                        if (!explicitType && !list) {
+                            toList(to);
+                            list = true;
+                        }
+                        // a name which appeared before another name needs to be moved back
+                        regroup |= !name.equals(lastName);
+                    }
+                    readElement(list ? to.getAppendedNode() : to.getNode(name));
+                    lastName = name;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    // only the text of elements without child elements is kept
+                    if (names == null) {
+                        text.append(this.reader.getTextCharacters(), this.reader.getTextStart(), this.reader.getTextLength());
+                    }
+                    break;
+                default:
+                    // comments and processing instructions are not part of the value
+                    break;
+            }
+        }
+
+        if (names == null) {
+            to.setValue(parseValue(text.toString()));
+        } else if (list && regroup) {
+            regroup(to);
+        }
+    }
+
+    /**
+     * Converts a map, read before a repeated name was found, into a list.
+     *
+     * @param node The node holding the map
+     */
+    static void toList(AttributedConfigurationNode node) {
+        node.setValue(new ArrayList<>(node.getChildrenMap().values()));
+    }
+
+    /**
+     * Groups the children of a list by name, in the order each name first appears.
+     *
+     * @param node The node holding the list
+     */
+    static void regroup(AttributedConfigurationNode node) {
+        Map<String, List<AttributedConfigurationNode>> groups = new LinkedHashMap<>();
+        for (AttributedConfigurationNode child : node.getChildrenList()) {
+            groups.computeIfAbsent(child.getTagName(), name -> new ArrayList<>()).add(child);
+        }
+        List<AttributedConfigurationNode> children = new ArrayList<>();
+        for (List<AttributedConfigurationNode> group : groups.values()) {
+            children.addAll(group);
+        }
+        node.setValue(children);
+    }
+
+    /**
+     * Gets the name of an element or attribute as written in the document, as the reader is
+     * not aware of namespaces.
+     *
+     * @param prefix The prefix, if any
+     * @param localName The local name
+     * @return The qualified name
+     */
+    static String qualifiedName(@Nullable String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ':' + localName;
+    }
+
+    /**
+     * Parses the text of a scalar element.
+     *
+     * @param value The text
+     * @return The value
+     */
+    static Object parseValue(String value) {
+        if (value.equals("true") || value.equals("false")) {
+            return Boolean.parseBoolean(value);
+        }
+        if (!mayBeNumber(value)) {
+            // skip the exception thrown for most text
+            return value;
+        }
+
+        try {
+            double doubleValue = Double.parseDouble(value);
+            if (DoubleMath.isMathematicalInteger(doubleValue)) {
+                long longValue = (long) doubleValue;
+                int intValue = (int) longValue;
+                if (longValue == intValue) {
+                    return intValue;
+                } else {
+                    return longValue;
+                }
+            }
+            return doubleValue;
+        } catch (NumberFormatException e) {
+            return value;
+        }
+    }
+
+    /**
+     * Checks if text could be parsed by {@link Double#parseDouble(String)}, by looking at the
+     * first character after any whitespace and sign.
+     *
+     * @param value The text
+     * @return false if the text is certainly not a number
+     */
+    private static boolean mayBeNumber(String value) {
+        int i = 0;
+        while (i < value.length() && value.charAt(i) <= ' ') {
+            i++;
+        }
+        if (i < value.length() && (value.charAt(i) == '+' || value.charAt(i) == '-')) {
+            i++;
+        }
+        if (i == value.length()) {
+            return false;
+        }
+        char c = value.charAt(i);
+        return (c >= '0' && c <= '9') || c == '.' || c == 'I' || c == 'N';
+    }
+}
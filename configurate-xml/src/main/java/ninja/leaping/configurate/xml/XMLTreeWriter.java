@@ -0,0 +1,252 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.xml;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.attributed.AttributedConfigurationNode;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes node trees as XML straight to a {@link Writer}, without first building the document
+ * as a DOM.
+ *
+ * <p>The output matches what the JDK's {@link javax.xml.transform.Transformer} writes for the
+ * equivalent DOM: namespace declarations come first and the other attributes are sorted by
+ * name, elements without content are written as empty tags, and each element is written on its
+ * own line when indenting. Characters are escaped in the same way, including writing line
+ * breaks in attribute values and carriage returns in text as character references, so they are
+ * read back unchanged. A {@link javax.xml.stream.XMLStreamWriter} can't write character
+ * references in attribute values, so the escaping is done here.</p>
+ */
+final class XMLTreeWriter {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final Comparator<String> ATTRIBUTE_ORDER = Comparator
+            .comparing((String name) -> !isNamespaceDeclaration(name))
+            .thenComparing(Comparator.naturalOrder());
+
+    private final Writer writer;
+    private final String defaultTagName;
+    private final int indent;
+    private final boolean writeExplicitType;
+
+    XMLTreeWriter(Writer writer, String defaultTagName, int indent, boolean writeExplicitType) {
+        this.writer = writer;
+        this.defaultTagName = defaultTagName;
+        this.indent = indent;
+        this.writeExplicitType = writeExplicitType;
+    }
+
+    /**
+     * Writes a document with the given node as its root element.
+     *
+     * @param node The root node
+     * @param includeXmlDeclaration If the document should start with an XML declaration
+     * @throws IOException if the document could not be written, or the tree holds names or
+     *                     characters which can't be written as XML
+     */
+    void writeDocument(ConfigurationNode node, boolean includeXmlDeclaration) throws IOException {
+        if (includeXmlDeclaration) {
+            this.writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+            if (this.indent > 0) {
+                this.writer.write(LINE_SEPARATOR);
+            }
+        }
+        writeNode(node, null, 0);
+        if (this.indent > 0) {
+            this.writer.write(LINE_SEPARATOR);
+        }
+    }
+
+    private void writeNode(ConfigurationNode node, @Nullable String forcedTag, int depth) throws IOException {
+        String tag = this.defaultTagName;
+        Map<String, String> attributes = new TreeMap<>(ATTRIBUTE_ORDER);
+        if (node instanceof AttributedConfigurationNode) {
+            AttributedConfigurationNode attributedNode = (AttributedConfigurationNode) node;
+            tag = attributedNode.getTagName();
+            attributes.putAll(attributedNode.getAttributes());
+        }
+        if (forcedTag != null) {
+            tag = forcedTag;
+        }
+        if (this.writeExplicitType && node.hasListChildren()) {
+            attributes.put(XMLTreeBuilder.TYPE_ATTRIBUTE, "list");
+        }
+
+        checkName(tag);
+        this.writer.write('<');
+        this.writer.write(tag);
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            checkName(attribute.getKey());
+            this.writer.write(' ');
+            this.writer.write(attribute.getKey());
+            this.writer.write("=\"");
+            writeEscaped(attribute.getValue(), true);
+            this.writer.write('"');
+        }
+
+        boolean empty;
+        if (node.hasMapChildren()) {
+            empty = node.getChildrenMap().isEmpty();
+            if (!empty) {
+                this.writer.write('>');
+                node.forEachChild((key, child) -> {
+                    startLine(depth + 1);
+                    writeNode(child, key.toString(), depth + 1);
+                });
+                startLine(depth);
+            }
+        } else if (node.hasListChildren()) {
+            empty = node.getChildrenList().isEmpty();
+            if (!empty) {
+                this.writer.write('>');
+                node.forEachChild((index, child) -> {
+                    startLine(depth + 1);
+                    writeNode(child, null, depth + 1);
+                });
+                startLine(depth);
+            }
+        } else {
+            Object value = node.getValue();
+            String text = value == null ? "" : value.toString();
+            empty = text.isEmpty();
+            if (!empty) {
+                this.writer.write('>');
+                writeEscaped(text, false);
+            }
+        }
+
+        if (empty) {
+            this.writer.write("/>");
+        } else {
+            this.writer.write("</");
+            this.writer.write(tag);
+            this.writer.write('>');
+        }
+    }
+
+    private void startLine(int depth) throws IOException {
+        if (this.indent > 0) {
+            this.writer.write(LINE_SEPARATOR);
+            for (int i = depth * this.indent; i > 0; i--) {
+                this.writer.write(' ');
+            }
+        }
+    }
+
+    /**
+     * Writes text or an attribute value, escaping characters which can't be written as they
+     * are.
+     *
+     * <p>Markup characters are written as entities. Control characters, other than line
+     * breaks and tabs in text, and characters outside of the Basic Multilingual Plane are
+     * written as character references. The C1 control characters are also written as
+     * references in text.</p>
+     *
+     * @param value The text to write
+     * @param attribute If the text is an attribute value
+     * @throws IOException if the text could not be written, or holds an unpaired surrogate
+     */
+    private void writeEscaped(String value, boolean attribute) throws IOException {
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String entity = null;
+            int reference = -1;
+            if (c == '<') {
+                entity = "&lt;";
+            } else if (c == '>') {
+                entity = "&gt;";
+            } else if (c == '&') {
+                entity = "&amp;";
+            } else if (c == '"' && attribute) {
+                entity = "&quot;";
+            } else if (c < 0x20) {
+                if (attribute || (c != '\n' && c != '\t')) {
+                    reference = c;
+                }
+            } else if (c >= 0x7F && c <= 0x9F) {
+                if (!attribute) {
+                    reference = c;
+                }
+            } else if (Character.isSurrogate(c)) {
+                if (!Character.isHighSurrogate(c) || i + 1 == length || !Character.isLowSurrogate(value.charAt(i + 1))) {
+                    throw new IOException("Invalid UTF-16 surrogate in " + (attribute ? "attribute value" : "text") + " at index " + i);
+                }
+                reference = Character.toCodePoint(c, value.charAt(i + 1));
+            }
+
+            if (entity != null || reference >= 0) {
+                this.writer.write(value, start, i - start);
+                if (entity != null) {
+                    this.writer.write(entity);
+                } else {
+                    this.writer.write("&#");
+                    this.writer.write(Integer.toString(reference));
+                    this.writer.write(';');
+                    if (Character.isSupplementaryCodePoint(reference)) {
+                        i++;
+                    }
+                }
+                start = i + 1;
+            }
+        }
+        this.writer.write(value, start, length - start);
+    }
+
+    private static boolean isNamespaceDeclaration(String name) {
+        return name.equals("xmlns") || name.startsWith("xmlns:");
+    }
+
+    /**
+     * Checks that a name can be written as the name of an element or attribute.
+     *
+     * @param name The name
+     * @throws IOException if the name is not a valid XML name
+     */
+    private static void checkName(String name) throws IOException {
+        if (name.isEmpty()) {
+            throw new IOException("Element and attribute names cannot be empty");
+        }
+        for (int i = 0; i < name.length(); ) {
+            int c = name.codePointAt(i);
+            if (!(isNameStartChar(c) || (i > 0 && isNameChar(c)))) {
+                throw new IOException("'" + name + "' is not a valid XML name");
+            }
+            i += Character.charCount(c);
+        }
+    }
+
+    private static boolean isNameStartChar(int c) {
+        return c == ':' || c == '_' || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')
+                || (c >= 0xC0 && c <= 0xD6) || (c >= 0xD8 && c <= 0xF6) || (c >= 0xF8 && c <= 0x2FF)
+                || (c >= 0x370 && c <= 0x37D) || (c >= 0x37F && c <= 0x1FFF) || (c >= 0x200C && c <= 0x200D)
+                || (c >= 0x2070 && c <= 0x218F) || (c >= 0x2C00 && c <= 0x2FEF) || (c >= 0x3001 && c <= 0xD7FF)
+                || (c >= 0xF900 && c <= 0xFDCF) || (c >= 0xFDF0 && c <= 0xFFFD) || (c >= 0x10000 && c <= 0xEFFFF);
+    }
+
+    private static boolean isNameChar(int c) {
+        return c == '-' || c == '.' || (c >= '0' && c <= '9') || c == 0xB7
+                || (c >= 0x300 && c <= 0x36F) || (c >= 0x203F && c <= 0x2040);
+    }
+}
@@ -17,20 +17,37 @@
 package ninja.leaping.configurate.xml;
 
 import com.google.common.io.Resources;
+import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.attributed.AttributedConfigurationNode;
 import ninja.leaping.configurate.loader.AtomicFiles;
+import ninja.leaping.configurate.loader.ConfigurationReader;
+import ninja.leaping.configurate.loader.ConfigurationReader.Event;
+import ninja.leaping.configurate.loader.PathFilter;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.*;
@@ -120,4 +137,239 @@ public class XMLConfigurationLoaderTest {
         loader.save(node);
         assertEquals(Resources.readLines(url, UTF_8), Files.readAllLines(saveTest));
     }
+
+    @Test
+    public void testDeclaredEncoding() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><config><name>\u00e9t\u00e9</name></config>"
+                .getBytes(StandardCharsets.ISO_8859_1));
+
+        XMLConfigurationLoader loader = XMLConfigurationLoader.builder().setPath(file).build();
+        AttributedConfigurationNode node = loader.load();
+        assertEquals("\u00e9t\u00e9", node.getNode("name").getString());
+
+        loader.save(node);
+        assertEquals(node, loader.load());
+        assertTrue(new String(Files.readAllBytes(file), UTF_8).contains("\u00e9t\u00e9"));
+    }
+
+    @Test
+    public void testInterleavedListChildren() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, "<list><a>1</a><b>2</b><a>3</a><c/><b>4</b></list>".getBytes(UTF_8));
+
+        XMLConfigurationLoader loader = XMLConfigurationLoader.builder()
+                .setIndent(0)
+                .setWriteExplicitType(false)
+                .setPath(file)
+                .build();
+        AttributedConfigurationNode node = loader.load();
+
+        // children are grouped by tag name, as they were when the document was read through a DOM
+        List<? extends AttributedConfigurationNode> children = node.getChildrenList();
+        assertEquals(5, children.size());
+        assertEquals(Arrays.asList("a", "a", "b", "b", "c"), children.stream()
+                .map(AttributedConfigurationNode::getTagName)
+                .collect(Collectors.toList()));
+        assertEquals(Arrays.asList(1, 3, 2, 4, ""), children.stream()
+                .map(AttributedConfigurationNode::getValue)
+                .collect(Collectors.toList()));
+
+        loader.save(node);
+        assertEquals("<list><a>1</a><a>3</a><b>2</b><b>4</b><c/></list>",
+                new String(Files.readAllBytes(file), UTF_8));
+    }
+
+    @Test
+    public void testEscapedCharactersRoundTrip() throws IOException {
+        Path file = folder.newFile().toPath();
+        XMLConfigurationLoader loader = XMLConfigurationLoader.builder()
+                .setIndent(0)
+                .setPath(file)
+                .build();
+
+        AttributedConfigurationNode node = loader.createEmptyNode();
+        node.setTagName("config");
+        node.addAttribute("quoted", "\"<a & b>\"\r\n\tline");
+        node.getNode("text").setTagName("text").setValue("<a & b>\r\n\tline \u00e9 \ud83d\ude00 \u0085");
+        loader.save(node);
+
+        assertEquals("<config quoted=\"&quot;&lt;a &amp; b&gt;&quot;&#13;&#10;&#9;line\">"
+                        + "<text>&lt;a &amp; b&gt;&#13;\n\tline \u00e9 &#128512; &#133;</text></config>",
+                new String(Files.readAllBytes(file), UTF_8));
+        assertEquals(node, loader.load());
+    }
+
+    @Test
+    public void testSchemaValidatedLoading() throws IOException, SAXException {
+        URL url = getClass().getResource("/example.xml");
+        Schema schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema();
+
+        AttributedConfigurationNode streamed = XMLConfigurationLoader.builder()
+                .setURL(url)
+                .build()
+                .load();
+        AttributedConfigurationNode validated = XMLConfigurationLoader.builder()
+                .setURL(url)
+                .setSchema(schema)
+                .build()
+                .load();
+        assertEquals(streamed, validated);
+    }
+
+    @Test
+    public void testSchemaValidatedReloading() throws Exception {
+        URL url = getClass().getResource("/example.xml");
+        Path file = folder.newFile().toPath();
+        Schema schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema();
+        XMLConfigurationLoader loader = XMLConfigurationLoader.builder()
+                .setPath(file)
+                .setSchema(schema)
+                .build();
+        AttributedConfigurationNode expected = XMLConfigurationLoader.builder().setURL(url).build().load();
+
+        // a document builder which failed to parse a document is reused for the next one
+        Files.write(file, "<messages>".getBytes(UTF_8));
+        try {
+            loader.load();
+            fail("Loaded an unterminated document");
+        } catch (IOException expectedFailure) {
+            // expected
+        }
+        Files.write(file, Resources.toByteArray(url));
+        assertEquals(expected, loader.load());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<AttributedConfigurationNode>> loads = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                loads.add(executor.submit(() -> loader.load()));
+            }
+            for (Future<AttributedConfigurationNode> load : loads) {
+                assertEquals(expected, load.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testStreamingRead() throws IOException {
+        URL url = getClass().getResource("/example.xml");
+        XMLConfigurationLoader loader = XMLConfigurationLoader.builder().setURL(url).build();
+        try (ConfigurationReader reader = loader.openReader()) {
+            // the first two notes have the same name, so the root is a list
+            assertEquals(Event.START_LIST, reader.next());
+            assertEquals(Event.START_MAP, reader.next());
+            assertEquals(Event.KEY, reader.next());
+            assertEquals("to", reader.getKey());
+            assertEquals(Event.SCALAR, reader.next());
+            assertEquals("Tove", reader.getScalar());
+            assertEquals(Event.KEY, reader.next());
+            assertEquals("from", reader.getKey());
+            reader.skipValue();
+            assertEquals(Event.KEY, reader.next());
+            assertEquals("heading", reader.getKey());
+            assertEquals(Event.SCALAR, reader.next());
+            assertEquals(Event.KEY, reader.next());
+            assertEquals(Event.SCALAR, reader.next());
+            assertEquals(Event.END_MAP, reader.next());
+
+            ConfigurationNode second = loader.createEmptyNode();
+            reader.readValue(second);
+            assertEquals(Arrays.asList("Jani", "Tove", "Re: Reminder", "I will not", "spooky second body element"),
+                    second.getList(Object::toString));
+            assertEquals(Event.END_LIST, reader.next());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testStreamingReadOfTypedElements() throws IOException {
+        // the children of a typed element are reported before the rest of the document is read
+        String document = "<config configurate-type=\"map\"><a>1</a><b configurate-type=\"list\"><x>2</x><x/></b>"
+                + "<broken></config>";
+        XMLConfigurationLoader loader = loaderFor(document);
+        try (ConfigurationReader reader = loader.openReader()) {
+            assertEquals(Event.START_MAP, reader.next());
+            assertEquals(Event.KEY, reader.next());
+            assertEquals("a", reader.getKey());
+            assertEquals(Event.SCALAR, reader.next());
+            assertEquals(1, reader.getScalar());
+            assertEquals(Event.KEY, reader.next());
+            assertEquals("b", reader.getKey());
+            assertEquals(Event.START_LIST, reader.next());
+            assertEquals(Event.SCALAR, reader.next());
+            assertEquals(2, reader.getScalar());
+            assertEquals(Event.SCALAR, reader.next());
+            assertEquals("", reader.getScalar());
+            assertEquals(Event.END_LIST, reader.next());
+            assertEquals(Event.KEY, reader.next());
+            assertEquals("broken", reader.getKey());
+            try {
+                reader.next();
+                fail("Read a malformed element");
+            } catch (IOException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testStreamingReadMatchesLoad() throws IOException {
+        List<String> documents = Arrays.asList(
+                new String(Resources.toByteArray(getClass().getResource("/example.xml")), UTF_8),
+                "<list><a>1</a><b>2</b><a>3</a><c/><b>4</b></list>",
+                "<list><a>1</a><a>2</a><b><x>3</x><y>4</y></b><a>5</a></list>",
+                "<list configurate-type=\"list\"><a>1</a><a>2</a><b>3</b><a>4</a><c><x>5</x><x>6</x></c></list>",
+                "<map configurate-type=\"map\"><a>1</a><b><c>true</c></b><d configurate-type=\"list\"><e>x</e></d></map>",
+                "<single><only><x>1.5</x></only></single>",
+                "<other configurate-type=\"set\">text <!-- comment --><![CDATA[<kept>]]></other>",
+                "<?xml version=\"1.0\"?>\n<!-- before -->\n<root>  <a>1</a>\n  <b>2</b>  </root>\n<!-- after -->\n");
+        for (String document : documents) {
+            XMLConfigurationLoader loader = loaderFor(document);
+            ConfigurationNode streamed = loader.createEmptyNode();
+            try (ConfigurationReader reader = loader.openReader()) {
+                reader.readValue(streamed);
+                assertNull(reader.next());
+            }
+            assertEquals(document, loader.load().getValue(), streamed.getValue());
+        }
+    }
+
+    @Test
+    public void testFilteredStreamingRead() throws IOException {
+        String document = "<config configurate-type=\"map\">"
+                + "<skipped><deep><x>1</x><x>2</x></deep></skipped>"
+                + "<list><entry><a>1</a><b>2</b></entry><entry><a>3</a><b>4</b></entry></list>"
+                + "<kept configurate-type=\"map\"><value>true</value><other>x</other></kept>"
+                + "<after>end</after></config>";
+        XMLConfigurationLoader loader = loaderFor(document);
+        PathFilter filter = PathFilter.of(new Object[] {"list", 1, "a"}, new Object[] {"kept"}, new Object[] {"missing"});
+
+        ConfigurationNode filtered = loader.createEmptyNode();
+        try (ConfigurationReader reader = loader.openReader()) {
+            reader.readValue(filtered, filter);
+            assertNull(reader.next());
+        }
+        ConfigurationNode pruned = loader.load();
+        filter.prune(pruned);
+        assertEquals(pruned.getValue(), filtered.getValue());
+        assertEquals(3, filtered.getNode("list", 0, "a").getValue());
+        assertTrue(filtered.getNode("skipped").isVirtual());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testStreamingReadWithSchema() throws IOException, SAXException {
+        Schema schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema();
+        XMLConfigurationLoader.builder()
+                .setSource(() -> new BufferedReader(new StringReader("<a/>")))
+                .setSchema(schema)
+                .build()
+                .openReader();
+    }
+
+    private static XMLConfigurationLoader loaderFor(String document) {
+        return XMLConfigurationLoader.builder().setSource(() -> new BufferedReader(new StringReader(document))).build();
+    }
 }
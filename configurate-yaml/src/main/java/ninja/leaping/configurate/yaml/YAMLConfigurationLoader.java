@@ -18,18 +18,32 @@ package ninja.leaping.configurate.yaml;
 
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.ConfigurationOptions;
+import ninja.leaping.configurate.ImmutableConfigurationNode;
 import ninja.leaping.configurate.SimpleConfigurationNode;
 import ninja.leaping.configurate.loader.AbstractConfigurationLoader;
 import ninja.leaping.configurate.loader.CommentHandler;
 import ninja.leaping.configurate.loader.CommentHandlers;
+import ninja.leaping.configurate.loader.ConfigurationReader;
+import ninja.leaping.configurate.loader.PathFilter;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.yaml.snakeyaml.DumperOptions;
 import org.yaml.snakeyaml.DumperOptions.FlowStyle;
 import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
 
 import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.nio.file.NoSuchFileException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A loader for YAML-formatted configurations, using the SnakeYAML library for parsing and generation.
@@ -51,6 +65,7 @@ public class YAMLConfigurationLoader extends AbstractConfigurationLoader<Configu
      */
     public static class Builder extends AbstractConfigurationLoader.Builder<Builder> {
         private final DumperOptions options = new DumperOptions();
+        private boolean shareAliases = false;
 
         protected Builder() {
             setIndent(4);
@@ -113,6 +128,37 @@ public class YAMLConfigurationLoader extends AbstractConfigurationLoader<Configu
             return options.getDefaultFlowStyle();
         }
 
+        /**
+         * Sets if the resultant loader should share the values of aliases, rather than copying
+         * them.
+         *
+         * <p>When enabled, an anchored mapping or sequence is held once, and each node which
+         * refers to it shares it until it is changed, as described by
+         * {@link SimpleConfigurationNode#setSharedValue(ImmutableConfigurationNode)}. This saves
+         * memory and loading time for documents which use aliases heavily. Parts of a document
+         * which are excluded by a {@link PathFilter} are still copied.</p>
+         *
+         * <p>Shared values are written as an anchor and aliases when saved, whether or not this
+         * is enabled.</p>
+         *
+         * @param shareAliases If aliases should be shared
+         * @return This builder (for chaining)
+         */
+        @NonNull
+        public Builder setShareAliases(boolean shareAliases) {
+            this.shareAliases = shareAliases;
+            return this;
+        }
+
+        /**
+         * Gets if the resultant loader will share the values of aliases.
+         *
+         * @return If aliases will be shared
+         */
+        public boolean sharesAliases() {
+            return this.shareAliases;
+        }
+
         @NonNull
         @Override
         public YAMLConfigurationLoader build() {
@@ -121,21 +167,176 @@ public class YAMLConfigurationLoader extends AbstractConfigurationLoader<Configu
     }
 
     private final ThreadLocal<Yaml> yaml;
+    private final DumperOptions options;
+    private final boolean shareAliases;
 
     private YAMLConfigurationLoader(Builder builder) {
         super(builder, new CommentHandler[] {CommentHandlers.HASH});
         final DumperOptions opts = builder.options;
+        this.options = opts;
+        this.shareAliases = builder.shareAliases;
         this.yaml = ThreadLocal.withInitial(() -> new Yaml(opts));
     }
 
     @Override
     protected void loadInternal(ConfigurationNode node, BufferedReader reader) throws IOException {
-        node.setValue(yaml.get().load(reader));
+        loadInternal(node, reader, PathFilter.all());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Nodes are built straight from the parser's events, and values which are not selected
+     * are never built at all.</p>
+     */
+    @Override
+    protected void loadInternal(ConfigurationNode node, BufferedReader reader, PathFilter filter) throws IOException {
+        new YAMLTreeBuilder(yaml.get(), reader, this.shareAliases).readDocument(node, filter);
+    }
+
+    /**
+     * Loads each document in a stream of documents separated by {@code ---}, using the
+     * {@link #getDefaultOptions() default options}.
+     *
+     * @return A stream of the documents, which must be closed
+     * @throws IOException if the source could not be opened
+     * @see #loadDocuments(ConfigurationOptions, PathFilter)
+     */
+    @NonNull
+    public Stream<ConfigurationNode> loadDocuments() throws IOException {
+        return loadDocuments(getDefaultOptions(), PathFilter.all());
+    }
+
+    /**
+     * Loads the parts of each document in a stream of documents separated by {@code ---}
+     * selected by the given filter.
+     *
+     * <p>Documents are parsed as the returned stream is consumed, so only the document being
+     * read needs to be held in memory. Closing the stream closes the source. Errors in a
+     * document are thrown when it is reached, as an {@link UncheckedIOException} or a
+     * {@link YAMLException}.</p>
+     *
+     * <p>Comments, including any header, are not read. A source which does not exist is read
+     * as an empty stream.</p>
+     *
+     * @param options The options to load each document with
+     * @param filter The filter selecting which paths to load from each document
+     * @return A stream of the documents, which must be closed
+     * @throws IOException if the source could not be opened
+     */
+    @NonNull
+    public Stream<ConfigurationNode> loadDocuments(@NonNull ConfigurationOptions options, @NonNull PathFilter filter) throws IOException {
+        if (source == null) {
+            throw new IOException("No source present to read from!");
+        }
+        BufferedReader reader;
+        try {
+            reader = source.call();
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            return Stream.empty();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+
+        // the stream may be consumed on another thread, so it gets its own instance
+        YAMLTreeBuilder builder = new YAMLTreeBuilder(new Yaml(this.options), reader, this.shareAliases);
+        Iterator<ConfigurationNode> documents = new Iterator<ConfigurationNode>() {
+            @Nullable private ConfigurationNode next;
+            private boolean finished = false;
+
+            @Override
+            public boolean hasNext() {
+                if (this.next == null && !this.finished) {
+                    ConfigurationNode node = createEmptyNode(options);
+                    try {
+                        if (builder.readDocument(node, filter)) {
+                            this.next = sealIfRequired(node);
+                        } else {
+                            this.finished = true;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return this.next != null;
+            }
+
+            @Override
+            public ConfigurationNode next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ConfigurationNode next = this.next;
+                this.next = null;
+                return next;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(documents, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Opens a writer for a stream of documents to this loader's sink.
+     *
+     * <p>Nothing is written to a file sink until the writer is closed, when the file is
+     * replaced with every document written. Headers are not written.</p>
+     *
+     * @return A new writer, which must be closed
+     * @throws IOException if the sink could not be opened
+     * @see YAMLDocumentWriter
+     */
+    @NonNull
+    public YAMLDocumentWriter openDocumentWriter() throws IOException {
+        if (sink == null) {
+            throw new IOException("No sink present to write to!");
+        }
+        Writer writer;
+        try {
+            writer = sink.call();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        return openDocumentWriter(writer);
+    }
+
+    /**
+     * Opens a writer for a stream of documents to the given writer.
+     *
+     * <p>Every document starts with {@code ---}, so this can be used with a writer appending
+     * to the end of an existing stream, without reading or rewriting the documents before
+     * it.</p>
+     *
+     * @param writer The writer to write to, which is closed when the returned writer is
+     * @return A new writer, which must be closed
+     * @throws IOException if the stream could not be started
+     */
+    @NonNull
+    public YAMLDocumentWriter openDocumentWriter(@NonNull Writer writer) throws IOException {
+        return new YAMLDocumentWriter(new Yaml(this.options), this.options, writer);
+    }
+
+    @NonNull
+    @Override
+    protected ConfigurationReader createReader(@NonNull BufferedReader reader) {
+        return new YAMLConfigurationReader(yaml.get(), reader);
     }
 
     @Override
     protected void saveInternal(ConfigurationNode node, Writer writer) throws IOException {
-        yaml.get().dump(node.getValue(), writer);
+        YAMLTreeEmitter emitter = new YAMLTreeEmitter(yaml.get(), options, writer);
+        emitter.startStream();
+        emitter.emitDocument(node);
+        emitter.endStream();
     }
 
     @NonNull
@@ -0,0 +1,248 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.yaml;
+
+import ninja.leaping.configurate.loader.ConfigurationReader;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.Event.ID;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link ConfigurationReader} over the events produced by SnakeYAML's parser.
+ *
+ * <p>Scalars are resolved to the same types as {@link Yaml#load(Reader)} would produce.
+ * Aliases are expanded by replaying the events recorded for their anchor. Only the first
+ * document in a stream is read.</p>
+ *
+ * <p>Merge keys ({@code <<}) are not supported. The merged keys are ordered before a mapping's
+ * own keys, and are overridden by them, so the mapping can't be reported before it has all been
+ * read. Rather than reporting a different tree than the loader would build, reading fails with
+ * an {@link IOException} when a merge key is reached.</p>
+ */
+class YAMLConfigurationReader implements ConfigurationReader {
+    private final Yaml yaml;
+    private final Reader source;
+    private final Iterator<org.yaml.snakeyaml.events.Event> events;
+
+    /**
+     * Events which are replayed from an alias before reading from the parser again
+     */
+    private final Deque<org.yaml.snakeyaml.events.Event> replay = new ArrayDeque<>();
+
+    /**
+     * The events of each completed anchored node
+     */
+    private final Map<String, List<org.yaml.snakeyaml.events.Event>> anchors = new HashMap<>();
+
+    /**
+     * The anchored nodes which are currently being recorded
+     */
+    private final List<Recording> recordings = new ArrayList<>();
+
+    /**
+     * The collections which are currently open, innermost first
+     */
+    private final Deque<Frame> frames = new ArrayDeque<>();
+
+    private boolean finished = false;
+    @Nullable private Event current;
+    @Nullable private Object key;
+    @Nullable private Object scalar;
+
+    private enum Frame {
+        LIST, MAP_KEY, MAP_VALUE
+    }
+
+    private static final class Recording {
+        final String anchor;
+        final List<org.yaml.snakeyaml.events.Event> events = new ArrayList<>();
+        int depth = 0;
+
+        Recording(String anchor) {
+            this.anchor = anchor;
+        }
+    }
+
+    YAMLConfigurationReader(Yaml yaml, Reader source) {
+        this.yaml = yaml;
+        this.source = source;
+        this.events = yaml.parse(source).iterator();
+    }
+
+    @Nullable
+    @Override
+    public Event next() throws IOException {
+        while (!finished) {
+            org.yaml.snakeyaml.events.Event event = nextEvent();
+            if (event == null || event.is(ID.DocumentEnd) || event.is(ID.StreamEnd)) {
+                finished = true;
+                break;
+            } else if (event.is(ID.StreamStart) || event.is(ID.DocumentStart)) {
+                continue;
+            }
+
+            if (frames.peek() == Frame.MAP_KEY) {
+                if (event.is(ID.MappingEnd)) {
+                    frames.pop();
+                    return current = endValue(Event.END_MAP);
+                } else if (!event.is(ID.Scalar)) {
+                    throw new IOException("Only scalar keys are supported (at " + event.getStartMark() + ")");
+                } else if (YAMLScalars.isMergeKey((ScalarEvent) event)) {
+                    throw new IOException("Merge keys can't be read as a stream, load the document instead (at "
+                            + event.getStartMark() + ")");
+                }
+                key = YAMLScalars.construct(yaml, (ScalarEvent) event);
+                if (key == null) {
+                    throw new IOException("Null keys are not supported (at " + event.getStartMark() + ")");
+                }
+                frames.pop();
+                frames.push(Frame.MAP_VALUE);
+                return current = Event.KEY;
+            }
+
+            if (event.is(ID.Scalar)) {
+                scalar = YAMLScalars.construct(yaml, (ScalarEvent) event);
+                return current = endValue(Event.SCALAR);
+            } else if (event.is(ID.MappingStart)) {
+                frames.push(Frame.MAP_KEY);
+                return current = Event.START_MAP;
+            } else if (event.is(ID.SequenceStart)) {
+                frames.push(Frame.LIST);
+                return current = Event.START_LIST;
+            } else if (event.is(ID.SequenceEnd)) {
+                frames.pop();
+                return current = endValue(Event.END_LIST);
+            } else {
+                throw new IOException("Unexpected event " + event + " (at " + event.getStartMark() + ")");
+            }
+        }
+        return current = null;
+    }
+
+    /**
+     * Records the end of a value, so an enclosing mapping expects a key next.
+     *
+     * @param event The event ending the value
+     * @return The provided event
+     */
+    private Event endValue(Event event) {
+        if (frames.isEmpty()) {
+            finished = true;
+        } else if (frames.peek() == Frame.MAP_VALUE) {
+            frames.pop();
+            frames.push(Frame.MAP_KEY);
+        }
+        return event;
+    }
+
+    /**
+     * Gets the next event from the parser or an alias being replayed, expanding any aliases
+     * and recording anchored nodes.
+     *
+     * @return The next event, or null if there are no more
+     * @throws IOException if an alias refers to an unknown anchor
+     */
+    private org.yaml.snakeyaml.events.Event nextEvent() throws IOException {
+        org.yaml.snakeyaml.events.Event event;
+        boolean replayed;
+        while (true) {
+            replayed = !replay.isEmpty();
+            if (replayed) {
+                event = replay.poll();
+            } else if (events.hasNext()) {
+                event = events.next();
+            } else {
+                return null;
+            }
+
+            if (event.is(ID.Alias)) {
+                String anchor = ((AliasEvent) event).getAnchor();
+                List<org.yaml.snakeyaml.events.Event> recorded = anchors.get(anchor);
+                if (recorded == null) {
+                    throw new IOException("Unknown anchor " + anchor + " (at " + event.getStartMark() + ")");
+                }
+                for (int i = recorded.size() - 1; i >= 0; i--) {
+                    replay.addFirst(recorded.get(i));
+                }
+                continue;
+            }
+            break;
+        }
+
+        // replayed events carry their anchor again, but it has already been recorded
+        if (!replayed && event instanceof NodeEvent && ((NodeEvent) event).getAnchor() != null) {
+            recordings.add(new Recording(((NodeEvent) event).getAnchor()));
+        }
+        if (!recordings.isEmpty()) {
+            record(event);
+        }
+        return event;
+    }
+
+    private void record(org.yaml.snakeyaml.events.Event event) {
+        for (Iterator<Recording> it = recordings.iterator(); it.hasNext();) {
+            Recording recording = it.next();
+            recording.events.add(event);
+            if (event.is(ID.MappingStart) || event.is(ID.SequenceStart)) {
+                ++recording.depth;
+            } else if (event.is(ID.MappingEnd) || event.is(ID.SequenceEnd)) {
+                --recording.depth;
+            }
+            if (recording.depth == 0) {
+                anchors.put(recording.anchor, recording.events);
+                it.remove();
+            }
+        }
+    }
+
+    @NonNull
+    @Override
+    public Object getKey() {
+        if (current != Event.KEY || key == null) {
+            throw new IllegalStateException("The current event is not a key");
+        }
+        return key;
+    }
+
+    @Nullable
+    @Override
+    public Object getScalar() {
+        if (current != Event.SCALAR) {
+            throw new IllegalStateException("The current event is not a scalar");
+        }
+        return scalar;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.yaml;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a stream of YAML documents, one at a time.
+ *
+ * <p>Each document is written as soon as it is given, starting with {@code ---}, so documents
+ * written earlier are never serialized again and the writer can be used to append to an
+ * existing stream. Writers are created by
+ * {@link YAMLConfigurationLoader#openDocumentWriter()}.</p>
+ */
+public final class YAMLDocumentWriter implements Closeable {
+    private final Writer writer;
+    private final YAMLTreeEmitter emitter;
+    private boolean closed = false;
+
+    YAMLDocumentWriter(Yaml yaml, DumperOptions options, Writer writer) throws IOException {
+        this.writer = writer;
+        this.emitter = new YAMLTreeEmitter(yaml, options, writer);
+        this.emitter.startStream();
+    }
+
+    /**
+     * Writes a node as the next document in the stream.
+     *
+     * @param node The node to write
+     * @throws IOException if the document could not be written
+     * @throws IllegalStateException if the writer has been closed
+     */
+    public void write(@NonNull ConfigurationNode node) throws IOException {
+        if (this.closed) {
+            throw new IllegalStateException("The writer has been closed");
+        }
+        this.emitter.emitDocument(node, true);
+    }
+
+    /**
+     * Ends the stream, and closes the underlying writer.
+     *
+     * @throws IOException if the stream could not be ended
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            this.emitter.endStream();
+        } finally {
+            this.writer.close();
+        }
+    }
+}
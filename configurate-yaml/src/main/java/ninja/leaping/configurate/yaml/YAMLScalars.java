@@ -0,0 +1,248 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.yaml;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.events.ImplicitTuple;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.Reader;
+import java.math.BigInteger;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Converts between scalar events and the values stored in nodes, matching SnakeYAML's own
+ * constructor and representer for the types found in configurations.
+ */
+final class YAMLScalars {
+    private YAMLScalars() {}
+
+    private static final Resolver RESOLVER = new Resolver();
+    private static final Pattern MULTILINE = Pattern.compile("\\n|\\u0085|\\u2028|\\u2029");
+    private static final Character LITERAL = '|';
+
+    /**
+     * A scalar ready to be emitted.
+     */
+    static final class Represented {
+        final String tag;
+        final String value;
+        final ImplicitTuple implicit;
+        @Nullable final Character style;
+
+        Represented(Tag tag, String value, @Nullable Character style) {
+            this.tag = tag.getValue();
+            this.value = value;
+            this.implicit = new ImplicitTuple(tag.equals(RESOLVER.resolve(NodeId.scalar, value, true)),
+                    tag.equals(RESOLVER.resolve(NodeId.scalar, value, false)));
+            this.style = style;
+        }
+
+        ScalarEvent toEvent() {
+            return new ScalarEvent(null, this.tag, this.implicit, this.value, null, null, this.style);
+        }
+    }
+
+    /**
+     * Resolves the tag of a scalar event.
+     *
+     * @param event The scalar event
+     * @return The explicit tag of the scalar, or the tag implied by its value
+     */
+    static Tag resolve(ScalarEvent event) {
+        if (event.getTag() != null && !event.getTag().equals("!")) {
+            return new Tag(event.getTag());
+        }
+        return RESOLVER.resolve(NodeId.scalar, event.getValue(), event.getImplicit().canOmitTagInPlainScalar());
+    }
+
+    /**
+     * Gets if a key introduces values merged into the enclosing mapping, as in
+     * {@code <<: *defaults}.
+     *
+     * @param event The key
+     * @return If the key is a merge key
+     */
+    static boolean isMergeKey(ScalarEvent event) {
+        return resolve(event).equals(Tag.MERGE);
+    }
+
+    /**
+     * Converts a scalar event to the value {@link Yaml#load(Reader)} would produce for it.
+     *
+     * @param yaml The instance used for types which are rarely seen in configurations
+     * @param event The scalar event
+     * @return The value
+     */
+    @Nullable
+    static Object construct(Yaml yaml, ScalarEvent event) {
+        String value = event.getValue();
+        Tag tag = resolve(event);
+        if (tag.equals(Tag.NULL)) {
+            return null;
+        } else if (tag.equals(Tag.BOOL)) {
+            Boolean bool = parseBoolean(value);
+            return bool == null ? value : bool;
+        } else if (tag.equals(Tag.INT)) {
+            return parseInt(value);
+        } else if (tag.equals(Tag.FLOAT)) {
+            return parseFloat(value);
+        } else if (tag.equals(Tag.BINARY)) {
+            return Base64.getMimeDecoder().decode(value);
+        } else if (tag.equals(Tag.TIMESTAMP)) {
+            // rare enough to leave to SnakeYAML's own constructor
+            return yaml.load(value);
+        }
+        return value;
+    }
+
+    @Nullable
+    private static Boolean parseBoolean(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "yes":
+            case "true":
+            case "on":
+                return true;
+            case "no":
+            case "false":
+            case "off":
+                return false;
+            default:
+                return null;
+        }
+    }
+
+    private static Number parseInt(String value) {
+        value = value.replace("_", "");
+        String sign = "";
+        if (value.startsWith("-")) {
+            sign = "-";
+            value = value.substring(1);
+        } else if (value.startsWith("+")) {
+            value = value.substring(1);
+        }
+
+        if (value.equals("0")) {
+            return 0;
+        } else if (value.startsWith("0b")) {
+            return createNumber(sign + value.substring(2), 2);
+        } else if (value.startsWith("0x")) {
+            return createNumber(sign + value.substring(2), 16);
+        } else if (value.startsWith("0")) {
+            return createNumber(sign + value.substring(1), 8);
+        } else if (value.indexOf(':') != -1) {
+            // sexagesimal, as in 190:20:30
+            String[] digits = value.split(":");
+            long val = 0;
+            long base = 1;
+            for (int i = digits.length - 1; i >= 0; i--) {
+                val += Long.parseLong(digits[i]) * base;
+                base *= 60;
+            }
+            return createNumber(sign + val, 10);
+        }
+        return createNumber(sign + value, 10);
+    }
+
+    private static Number createNumber(String number, int radix) {
+        try {
+            return Integer.valueOf(number, radix);
+        } catch (NumberFormatException e) {
+            try {
+                return Long.valueOf(number, radix);
+            } catch (NumberFormatException e2) {
+                return new BigInteger(number, radix);
+            }
+        }
+    }
+
+    private static Double parseFloat(String value) {
+        value = value.replace("_", "").toLowerCase(Locale.ROOT);
+        int sign = 1;
+        if (value.startsWith("-")) {
+            sign = -1;
+            value = value.substring(1);
+        } else if (value.startsWith("+")) {
+            value = value.substring(1);
+        }
+
+        if (value.equals(".inf")) {
+            return sign == -1 ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        } else if (value.equals(".nan")) {
+            return Double.NaN;
+        } else if (value.indexOf(':') != -1) {
+            String[] digits = value.split(":");
+            double val = 0;
+            int base = 1;
+            for (int i = digits.length - 1; i >= 0; i--) {
+                val += Double.parseDouble(digits[i]) * base;
+                base *= 60;
+            }
+            return sign * val;
+        }
+        return sign * Double.parseDouble(value);
+    }
+
+    /**
+     * Represents a value as {@link Yaml#dump(Object)} would.
+     *
+     * @param value The value, which may be null
+     * @return The represented scalar, or null if the value's type is left to SnakeYAML
+     */
+    @Nullable
+    static Represented represent(@Nullable Object value) {
+        if (value == null) {
+            return new Represented(Tag.NULL, "null", null);
+        } else if (value instanceof String || value instanceof Character) {
+            String string = value.toString();
+            if (!StreamReader.isPrintable(string)) {
+                return new Represented(Tag.BINARY, Base64.getEncoder().encodeToString(string.getBytes(UTF_8)), LITERAL);
+            }
+            return new Represented(Tag.STR, string, MULTILINE.matcher(string).find() ? LITERAL : null);
+        } else if (value instanceof Boolean) {
+            return new Represented(Tag.BOOL, value.toString(), null);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof BigInteger
+                || value instanceof Short || value instanceof Byte) {
+            return new Represented(Tag.INT, value.toString(), null);
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            String string;
+            if (Double.isNaN(number)) {
+                string = ".NaN";
+            } else if (number == Double.POSITIVE_INFINITY) {
+                string = ".inf";
+            } else if (number == Double.NEGATIVE_INFINITY) {
+                string = "-.inf";
+            } else {
+                string = value.toString();
+            }
+            return new Represented(Tag.FLOAT, string, null);
+        } else if (value instanceof byte[]) {
+            return new Represented(Tag.BINARY, Base64.getEncoder().encodeToString((byte[]) value), LITERAL);
+        }
+        return null;
+    }
+}
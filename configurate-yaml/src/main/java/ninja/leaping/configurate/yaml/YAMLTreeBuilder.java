@@ -0,0 +1,285 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.yaml;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.ConfigurationOptions;
+import ninja.leaping.configurate.ImmutableConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import ninja.leaping.configurate.loader.PathFilter;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.Event.ID;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds node trees straight from the events produced by SnakeYAML's parser, without first
+ * constructing the document as Java maps and lists.
+ *
+ * <p>Anchored values are built once into a detached node, and copied wherever they are
+ * aliased, or shared if the builder was asked to share aliases. Merge keys ({@code <<}) are
+ * applied once the enclosing mapping has been read, so keys set explicitly in the mapping
+ * always take precedence over merged ones, and earlier merged mappings take precedence over
+ * later ones.</p>
+ */
+final class YAMLTreeBuilder {
+    private final Yaml yaml;
+    private final Iterator<Event> events;
+    private final boolean shareAliases;
+    private final Map<String, ConfigurationNode> anchors = new HashMap<>();
+    private ConfigurationOptions options = ConfigurationOptions.defaults();
+
+    YAMLTreeBuilder(Yaml yaml, Reader source, boolean shareAliases) {
+        this.yaml = yaml;
+        this.events = yaml.parse(source).iterator();
+        this.shareAliases = shareAliases;
+    }
+
+    /**
+     * Reads the next document in the stream into a node.
+     *
+     * @param node The node to read into
+     * @param filter The filter selecting which paths to read
+     * @return false if there were no more documents
+     * @throws IOException if the document is not supported
+     */
+    boolean readDocument(ConfigurationNode node, PathFilter filter) throws IOException {
+        Event event = next();
+        if (event.is(ID.StreamStart)) {
+            event = next();
+        }
+        if (event.is(ID.StreamEnd)) {
+            return false;
+        }
+        expect(event, ID.DocumentStart);
+
+        // anchors are local to a document
+        this.anchors.clear();
+        this.options = node.getOptions();
+        readValue(next(), node, filter);
+        expect(next(), ID.DocumentEnd);
+        return true;
+    }
+
+    private Event next() throws IOException {
+        if (!this.events.hasNext()) {
+            throw new IOException("Unexpected end of document");
+        }
+        return this.events.next();
+    }
+
+    private static void expect(Event event, ID id) throws IOException {
+        if (!event.is(id)) {
+            throw new IOException("Expected " + id + " but got " + event + " (at " + event.getStartMark() + ")");
+        }
+    }
+
+    /**
+     * Reads a value, starting with its first event.
+     *
+     * @param first The first event of the value
+     * @param target The node to read into, or null to skip the value
+     * @param filter The filter selecting which paths of the value to read
+     * @throws IOException if the value is not supported
+     */
+    private void readValue(Event first, @Nullable ConfigurationNode target, PathFilter filter) throws IOException {
+        if (first.is(ID.Alias)) {
+            ConfigurationNode anchored = getAnchored((AliasEvent) first);
+            if (target != null) {
+                copy(anchored, target, filter);
+            }
+            return;
+        }
+
+        String anchor = first instanceof NodeEvent ? ((NodeEvent) first).getAnchor() : null;
+        if (anchor == null) {
+            readContents(first, target, filter);
+        } else {
+            // may be aliased from a part of the document which is selected, so read it all
+            SimpleConfigurationNode node = SimpleConfigurationNode.root(this.options);
+            readContents(first, node, PathFilter.all());
+            ConfigurationNode anchored = this.shareAliases && (node.hasMapChildren() || node.hasListChildren()) ? node.snapshot() : node;
+            this.anchors.put(anchor, anchored);
+            if (target != null) {
+                copy(anchored, target, filter);
+            }
+        }
+    }
+
+    private void readContents(Event first, @Nullable ConfigurationNode target, PathFilter filter) throws IOException {
+        if (first.is(ID.Scalar)) {
+            if (target != null && filter.isAll()) {
+                target.setValue(YAMLScalars.construct(this.yaml, (ScalarEvent) first));
+            }
+        } else if (first.is(ID.SequenceStart)) {
+            readSequence(target, filter);
+        } else if (first.is(ID.MappingStart)) {
+            readMapping(target, filter);
+        } else {
+            throw new IOException("Unexpected " + first + " (at " + first.getStartMark() + ")");
+        }
+    }
+
+    private void readSequence(@Nullable ConfigurationNode target, PathFilter filter) throws IOException {
+        if (target != null && filter.isAll()) {
+            // so an empty sequence is kept
+            target.setValue(Collections.emptyList());
+        }
+        int index = 0;
+        Event event;
+        while (!(event = next()).is(ID.SequenceEnd)) {
+            PathFilter elementFilter = target == null ? null : filter.child(index++);
+            if (elementFilter == null) {
+                readValue(event, null, PathFilter.all());
+            } else {
+                readValue(event, target.getAppendedNode(), elementFilter);
+            }
+        }
+    }
+
+    private void readMapping(@Nullable ConfigurationNode target, PathFilter filter) throws IOException {
+        if (target != null && filter.isAll()) {
+            // so an empty mapping is kept
+            target.setValue(Collections.emptyMap());
+        }
+        List<ConfigurationNode> merges = null;
+        Event event;
+        while (!(event = next()).is(ID.MappingEnd)) {
+            Object key;
+            if (event.is(ID.Alias)) {
+                ConfigurationNode anchored = getAnchored((AliasEvent) event);
+                if (anchored.hasMapChildren() || anchored.hasListChildren()) {
+                    throw new IOException("Only scalar keys are supported (at " + event.getStartMark() + ")");
+                }
+                key = anchored.getValue();
+            } else if (event.is(ID.Scalar)) {
+                ScalarEvent scalar = (ScalarEvent) event;
+                if (YAMLScalars.isMergeKey(scalar)) {
+                    ConfigurationNode merge = target == null ? null : SimpleConfigurationNode.root(this.options);
+                    readValue(next(), merge, PathFilter.all());
+                    if (merge != null) {
+                        if (merges == null) {
+                            merges = new ArrayList<>();
+                        }
+                        merges.add(merge);
+                    }
+                    continue;
+                }
+                key = YAMLScalars.construct(this.yaml, scalar);
+                if (scalar.getAnchor() != null) {
+                    this.anchors.put(scalar.getAnchor(), SimpleConfigurationNode.root(this.options).setValue(key));
+                }
+            } else {
+                throw new IOException("Only scalar keys are supported (at " + event.getStartMark() + ")");
+            }
+            if (key == null) {
+                throw new IOException("Null keys are not supported (at " + event.getStartMark() + ")");
+            }
+
+            PathFilter childFilter = target == null ? null : filter.child(key);
+            if (childFilter == null) {
+                readValue(next(), null, PathFilter.all());
+            } else {
+                readValue(next(), target.getNode(key), childFilter);
+            }
+        }
+
+        if (merges != null) {
+            applyMerges(merges, target, filter);
+        }
+    }
+
+    /**
+     * Merges mappings into a node, with the merged keys first, as SnakeYAML orders them.
+     *
+     * @param merges The values of the merge keys, each a mapping or a sequence of mappings
+     * @param target The node holding the mapping's own entries
+     * @param filter The filter selecting which paths of the mapping to read
+     * @throws IOException if a merged value is not a mapping
+     */
+    private void applyMerges(List<ConfigurationNode> merges, ConfigurationNode target, PathFilter filter) throws IOException {
+        ConfigurationNode merged = SimpleConfigurationNode.root(this.options);
+        for (ConfigurationNode merge : merges) {
+            if (merge.hasListChildren()) {
+                for (ConfigurationNode element : merge.getChildrenList()) {
+                    applyMerge(element, target, merged, filter);
+                }
+            } else {
+                applyMerge(merge, target, merged, filter);
+            }
+        }
+        for (Map.Entry<Object, ? extends ConfigurationNode> entry : target.getChildrenMap().entrySet()) {
+            ConfigurationNode child = merged.getNode(entry.getKey());
+            if (child.isVirtual()) {
+                child.setValue(entry.getValue());
+            }
+        }
+        target.setValue(merged);
+    }
+
+    private void applyMerge(ConfigurationNode merge, ConfigurationNode target, ConfigurationNode merged, PathFilter filter) throws IOException {
+        if (!merge.hasMapChildren()) {
+            throw new IOException("Only mappings can be merged, but got " + merge.getValue());
+        }
+        for (Map.Entry<Object, ? extends ConfigurationNode> entry : merge.getChildrenMap().entrySet()) {
+            Object key = entry.getKey();
+            PathFilter childFilter = filter.child(key);
+            ConfigurationNode child = merged.getNode(key);
+            if (childFilter == null || !child.isVirtual()) {
+                continue;
+            }
+            // keys set in the mapping itself take precedence, but keep the merged position
+            ConfigurationNode own = target.getNode(key);
+            if (own.isVirtual()) {
+                copy(entry.getValue(), child, childFilter);
+            } else {
+                child.setValue(own);
+            }
+        }
+    }
+
+    private ConfigurationNode getAnchored(AliasEvent alias) throws IOException {
+        ConfigurationNode anchored = this.anchors.get(alias.getAnchor());
+        if (anchored == null) {
+            throw new IOException("Unknown anchor " + alias.getAnchor() + " (at " + alias.getStartMark() + ")");
+        }
+        return anchored;
+    }
+
+    private void copy(ConfigurationNode source, ConfigurationNode target, PathFilter filter) {
+        if (this.shareAliases && filter.isAll() && source instanceof ImmutableConfigurationNode
+                && target instanceof SimpleConfigurationNode) {
+            ((SimpleConfigurationNode) target).setSharedValue((ImmutableConfigurationNode) source);
+            return;
+        }
+        // shared values stay shared when copied
+        target.setValue(source);
+        filter.prune(target);
+    }
+}
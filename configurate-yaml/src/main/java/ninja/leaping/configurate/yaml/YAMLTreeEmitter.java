@@ -0,0 +1,264 @@
+/*
+ * Configurate
+ * Copyright (C) zml and Configurate contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ninja.leaping.configurate.yaml;
+
+import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.ImmutableConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.DumperOptions.FlowStyle;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.emitter.Emitter;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.Event.ID;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
+import org.yaml.snakeyaml.nodes.Node;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.Tag;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Emits node trees straight to SnakeYAML's emitter, without first converting them to Java maps
+ * and lists.
+ *
+ * <p>The output matches {@link Yaml#dump(Object, Writer)} of the node's value. Scalars of
+ * types which are not usually found in configurations are represented by SnakeYAML itself.</p>
+ *
+ * <p>Mappings and sequences shared by several nodes, through
+ * {@link SimpleConfigurationNode#setSharedValue(ImmutableConfigurationNode)}, are written once
+ * with an anchor, and as an alias everywhere else. Shared values are read from the snapshot
+ * they share, so writing them doesn't copy them into the tree.</p>
+ */
+final class YAMLTreeEmitter {
+    private final Yaml yaml;
+    private final DumperOptions options;
+    private final Emitter emitter;
+    /**
+     * The anchors of the collections which appear more than once in the document being
+     * emitted, by the identity of their children, or null if they have not been emitted yet.
+     */
+    private final Map<Object, String> anchors = new IdentityHashMap<>();
+    private int lastAnchorId;
+
+    YAMLTreeEmitter(Yaml yaml, DumperOptions options, Writer writer) {
+        this.yaml = yaml;
+        this.options = options;
+        this.emitter = new Emitter(writer, options);
+    }
+
+    void startStream() throws IOException {
+        this.emitter.emit(new StreamStartEvent(null, null));
+    }
+
+    void emitDocument(ConfigurationNode node) throws IOException {
+        emitDocument(node, false);
+    }
+
+    /**
+     * Emits a document.
+     *
+     * @param node The root of the document
+     * @param explicitStart If the document should start with {@code ---}, even if it is the
+     *                      first in the stream
+     * @throws IOException if the document could not be written
+     */
+    void emitDocument(ConfigurationNode node, boolean explicitStart) throws IOException {
+        this.emitter.emit(new DocumentStartEvent(null, null, explicitStart || this.options.isExplicitStart(),
+                this.options.getVersion(), this.options.getTags()));
+        findRepeated(node, new IdentityHashMap<>());
+        try {
+            emitNode(node);
+        } finally {
+            this.anchors.clear();
+            this.lastAnchorId = 0;
+        }
+        this.emitter.emit(new DocumentEndEvent(null, null, this.options.isExplicitEnd()));
+    }
+
+    void endStream() throws IOException {
+        this.emitter.emit(new StreamEndEvent(null, null));
+    }
+
+    /**
+     * Finds the shared collections which appear more than once in a document. The contents of
+     * a collection are only visited the first time it is seen, as it is an alias after that.
+     *
+     * @param node The node to search
+     * @param seen The collections seen so far
+     */
+    private void findRepeated(ConfigurationNode node, Map<Object, Boolean> seen) {
+        node = contents(node);
+        Object identity = identity(node);
+        if (identity != null && seen.put(identity, Boolean.TRUE) != null) {
+            this.anchors.put(identity, null);
+            return;
+        }
+        if (node.hasMapChildren()) {
+            for (ConfigurationNode child : node.getChildrenMap().values()) {
+                findRepeated(child, seen);
+            }
+        } else if (node.hasListChildren()) {
+            for (ConfigurationNode child : node.getChildrenList()) {
+                findRepeated(child, seen);
+            }
+        }
+    }
+
+    /**
+     * Gets the node holding the contents of a node, which is the snapshot it shares if it has
+     * not been copied yet.
+     *
+     * @param node The node
+     * @return The node holding its contents
+     */
+    private static ConfigurationNode contents(ConfigurationNode node) {
+        if (node instanceof SimpleConfigurationNode) {
+            ImmutableConfigurationNode shared = ((SimpleConfigurationNode) node).getSharedValue();
+            if (shared != null) {
+                return shared;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Gets an object identifying the contents of a node, if they may be shared.
+     *
+     * <p>Snapshots keep the same children when re-keyed, so the children identify the
+     * contents. Empty collections aren't identified, as they are not worth an anchor.</p>
+     *
+     * @param node The node holding the contents
+     * @return The identity of the contents, or null if they can't be shared
+     */
+    @Nullable
+    private static Object identity(ConfigurationNode node) {
+        if (node instanceof ImmutableConfigurationNode) {
+            if (node.hasMapChildren()) {
+                Map<Object, ? extends ConfigurationNode> children = node.getChildrenMap();
+                return children.isEmpty() ? null : children;
+            } else if (node.hasListChildren()) {
+                List<? extends ConfigurationNode> children = node.getChildrenList();
+                return children.isEmpty() ? null : children;
+            }
+        }
+        return null;
+    }
+
+    private void emitNode(ConfigurationNode node) throws IOException {
+        node = contents(node);
+        String anchor = null;
+        if (!this.anchors.isEmpty()) {
+            Object identity = identity(node);
+            if (identity != null && this.anchors.containsKey(identity)) {
+                anchor = this.anchors.get(identity);
+                if (anchor != null) {
+                    this.emitter.emit(new AliasEvent(anchor, null, null));
+                    return;
+                }
+                // named in the same way as SnakeYAML's serializer
+                anchor = String.format("id%03d", ++this.lastAnchorId);
+                this.anchors.put(identity, anchor);
+            }
+        }
+
+        if (node.hasMapChildren()) {
+            Map<Object, ? extends ConfigurationNode> children = node.getChildrenMap();
+            boolean plain = true;
+            for (Map.Entry<Object, ? extends ConfigurationNode> child : children.entrySet()) {
+                if (!isPlainScalar(child.getKey()) || !isPlainScalar(child.getValue())) {
+                    plain = false;
+                    break;
+                }
+            }
+            this.emitter.emit(new MappingStartEvent(anchor, Tag.MAP.getValue(), true, null, null, flowStyle(plain)));
+            for (Map.Entry<Object, ? extends ConfigurationNode> child : children.entrySet()) {
+                emitScalar(child.getKey());
+                emitNode(child.getValue());
+            }
+            this.emitter.emit(new MappingEndEvent(null, null));
+        } else if (node.hasListChildren()) {
+            List<? extends ConfigurationNode> children = node.getChildrenList();
+            boolean plain = true;
+            for (ConfigurationNode child : children) {
+                if (!isPlainScalar(child)) {
+                    plain = false;
+                    break;
+                }
+            }
+            this.emitter.emit(new SequenceStartEvent(anchor, Tag.SEQ.getValue(), true, null, null, flowStyle(plain)));
+            for (ConfigurationNode child : children) {
+                emitNode(child);
+            }
+            this.emitter.emit(new SequenceEndEvent(null, null));
+        } else {
+            emitScalar(node.getValue());
+        }
+    }
+
+    /**
+     * Chooses the flow style of a collection in the same way as SnakeYAML's representer.
+     *
+     * @param plain If all the collection's contents are scalars without a style
+     * @return If the collection should use the flow style
+     */
+    private Boolean flowStyle(boolean plain) {
+        FlowStyle style = this.options.getDefaultFlowStyle();
+        return style == FlowStyle.AUTO ? plain : style.getStyleBoolean();
+    }
+
+    private boolean isPlainScalar(ConfigurationNode node) {
+        node = contents(node);
+        return !node.hasMapChildren() && !node.hasListChildren() && isPlainScalar(node.getValue());
+    }
+
+    private boolean isPlainScalar(@Nullable Object value) {
+        YAMLScalars.Represented represented = YAMLScalars.represent(value);
+        if (represented == null) {
+            Node represent = this.yaml.represent(value);
+            return represent instanceof ScalarNode && ((ScalarNode) represent).getStyle() == null;
+        }
+        return represented.style == null;
+    }
+
+    private void emitScalar(@Nullable Object value) throws IOException {
+        YAMLScalars.Represented represented = YAMLScalars.represent(value);
+        if (represented != null) {
+            this.emitter.emit(represented.toEvent());
+            return;
+        }
+        for (Event event : this.yaml.serialize(this.yaml.represent(value))) {
+            if (!event.is(ID.StreamStart) && !event.is(ID.DocumentStart)
+                    && !event.is(ID.DocumentEnd) && !event.is(ID.StreamEnd)) {
+                this.emitter.emit(event);
+            }
+        }
+    }
+}
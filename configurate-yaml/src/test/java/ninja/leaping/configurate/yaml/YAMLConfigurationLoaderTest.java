@@ -16,17 +16,38 @@
  */
 package ninja.leaping.configurate.yaml;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.ImmutableConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
 import ninja.leaping.configurate.loader.ConfigurationLoader;
+import ninja.leaping.configurate.loader.ConfigurationReader;
+import ninja.leaping.configurate.loader.ConfigurationReader.Event;
+import ninja.leaping.configurate.loader.PathFilter;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -34,6 +55,9 @@ import static org.junit.Assert.*;
  * Basic sanity checks for the loader
  */
 public class YAMLConfigurationLoaderTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void testSimpleLoading() throws IOException {
         URL url = getClass().getResource("/example.yml");
@@ -49,4 +73,236 @@ public class YAMLConfigurationLoaderTest {
         List<Map<String, List>> fooList = new ArrayList<>(node.getNode("foo").getList(f));
         assertEquals(0, fooList.get(0).get("bar").size());
     }
+
+    @Test
+    public void testStreamingRead() throws IOException {
+        URL url = getClass().getResource("/example.yml");
+        YAMLConfigurationLoader loader = YAMLConfigurationLoader.builder().setURL(url).build();
+        try (ConfigurationReader reader = loader.openReader()) {
+            assertEquals(Event.START_MAP, reader.next());
+            assertEquals(Event.KEY, reader.next());
+            assertEquals("test", reader.getKey());
+            assertEquals(Event.START_MAP, reader.next());
+            assertEquals(Event.KEY, reader.next());
+            assertEquals("op-level", reader.getKey());
+            assertEquals(Event.SCALAR, reader.next());
+            assertEquals("unicorn", reader.getScalar());
+            assertEquals(Event.END_MAP, reader.next());
+        }
+    }
+
+    @Test
+    public void testStreamingReadMatchesLoad() throws IOException {
+        String document = "base: &base\n"
+                + "    name: shared\n"
+                + "    sizes: [1, 2, 3]\n"
+                + "copy: *base\n"
+                + "nested:\n"
+                + "    - *base\n"
+                + "    - {inner: *base}\n"
+                + "types: [yes, Off, 0x1F, 0o17, 017, 1_000, 4294967296, 99999999999999999999, 1.5, -.inf, .NaN,"
+                + " ~, null, '123', \"true\", !!str 12, plain]\n"
+                // a plain scalar in a flow sequence can't contain ':', so this is a mapping value
+                + "sexagesimal: 1:30\n";
+        YAMLConfigurationLoader loader = YAMLConfigurationLoader.builder()
+                .setSource(() -> new BufferedReader(new StringReader(document))).build();
+
+        ConfigurationNode streamed = loader.createEmptyNode();
+        try (ConfigurationReader reader = loader.openReader()) {
+            reader.readValue(streamed);
+            assertNull(reader.next());
+        }
+        assertEquals(loader.load(), streamed);
+        assertEquals("shared", streamed.getNode("nested", 1, "inner", "name").getValue());
+        assertEquals(90, streamed.getNode("sexagesimal").getValue());
+    }
+
+    @Test
+    public void testStreamingReadRejectsMergeKeys() throws IOException {
+        try (ConfigurationReader reader = loaderFor(MERGED_DOCUMENT).openReader()) {
+            reader.readValue(SimpleConfigurationNode.root());
+            fail("Merge keys should not be read as ordinary keys");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("Merge keys"));
+        }
+
+        // a quoted key is not a merge key
+        ConfigurationNode streamed = SimpleConfigurationNode.root();
+        try (ConfigurationReader reader = loaderFor("'<<': {a: 1}\n").openReader()) {
+            reader.readValue(streamed);
+        }
+        assertEquals(1, streamed.getNode("<<", "a").getValue());
+    }
+
+    private static final String MERGED_DOCUMENT = "base: &base\n"
+            + "    name: shared\n"
+            + "    sizes: [1, 2, 3]\n"
+            + "    deep: {x: 1}\n"
+            + "override:\n"
+            + "    <<: *base\n"
+            + "    name: own\n"
+            + "multiple:\n"
+            + "    <<: [*base, {extra: true, name: second}]\n"
+            + "inline:\n"
+            + "    b: 2\n"
+            + "    <<: {a: 1}\n"
+            + "empty: {}\n"
+            + "emptyList: []\n"
+            + "nested: {a: {}, b: [[], {}]}\n"
+            + "types: [yes, 0x1F, 4294967296, 1.5, .NaN, ~, '123', !!str 12, 2001-12-14]\n"
+            + "multiline: \"a\\nb\"\n"
+            + "1: int key\n";
+
+    private static YAMLConfigurationLoader loaderFor(String document) {
+        return YAMLConfigurationLoader.builder().setSource(() -> new BufferedReader(new StringReader(document))).build();
+    }
+
+    @Test
+    public void testLoadMatchesSnakeYaml() throws IOException {
+        ConfigurationNode expected = SimpleConfigurationNode.root().setValue(new Yaml().load(MERGED_DOCUMENT));
+        ConfigurationNode loaded = loaderFor(MERGED_DOCUMENT).load();
+        assertEquals(expected, loaded);
+
+        // merged keys come first, and the mapping's own keys win
+        assertEquals(ImmutableList.of("name", "sizes", "deep"), ImmutableList.copyOf(loaded.getNode("override").getChildrenMap().keySet()));
+        assertEquals("own", loaded.getNode("override", "name").getValue());
+        assertEquals("shared", loaded.getNode("multiple", "name").getValue());
+        assertEquals(ImmutableList.of("a", "b"), ImmutableList.copyOf(loaded.getNode("inline").getChildrenMap().keySet()));
+        assertTrue(loaded.getNode("empty").hasMapChildren());
+        assertTrue(loaded.getNode("emptyList").hasListChildren());
+        assertEquals(2, loaded.getNode("nested", "b").getChildrenList().size());
+    }
+
+    @Test
+    public void testSaveMatchesSnakeYaml() throws IOException {
+        ConfigurationNode node = loaderFor(MERGED_DOCUMENT).load();
+        node.getNode("binary").setValue(new byte[] {0, 1, 2});
+        node.getNode("unprintable").setValue("bell \u0007");
+        for (DumperOptions.FlowStyle style : DumperOptions.FlowStyle.values()) {
+            DumperOptions options = new DumperOptions();
+            options.setIndent(4);
+            options.setDefaultFlowStyle(style);
+            String expected = new Yaml(options).dump(node.getValue());
+
+            StringWriter written = new StringWriter();
+            YAMLConfigurationLoader.builder().setFlowStyle(style).setSink(() -> new BufferedWriter(written)).build().save(node);
+            assertEquals(expected, written.toString());
+        }
+    }
+
+    @Test
+    public void testFilteredLoad() throws IOException {
+        YAMLConfigurationLoader loader = loaderFor(MERGED_DOCUMENT);
+        ConfigurationNode filtered = loader.load(loader.getDefaultOptions(),
+                PathFilter.of(new Object[] {"override", "name"}, new Object[] {"multiple", "deep"}, new Object[] {"empty"}));
+        ConfigurationNode expected = loader.createEmptyNode();
+        expected.getNode("override", "name").setValue("own");
+        expected.getNode("multiple", "deep", "x").setValue(1);
+        expected.getNode("empty").setValue(ImmutableMap.of());
+        assertEquals(expected, filtered);
+    }
+
+    @Test
+    public void testSharedAliases() throws IOException {
+        String document = "defaults: &defaults\n"
+                + "    timeout: 30\n"
+                + "    hosts: [a, b]\n"
+                + "first: *defaults\n"
+                + "second: *defaults\n";
+        StringWriter written = new StringWriter();
+        YAMLConfigurationLoader loader = YAMLConfigurationLoader.builder()
+                .setSource(() -> new BufferedReader(new StringReader(document)))
+                .setSink(() -> new BufferedWriter(written))
+                .setShareAliases(true)
+                .build();
+        assertEquals(loaderFor(document).load(), loader.load());
+
+        SimpleConfigurationNode node = (SimpleConfigurationNode) loader.load();
+
+        ImmutableConfigurationNode shared = node.getNode("defaults").getSharedValue();
+        assertNotNull(shared);
+        assertSame(shared, node.getNode("first").getSharedValue());
+        assertSame(shared, node.getNode("second").getSharedValue());
+
+        // changes only copy the path to the change
+        node.getNode("first", "timeout").setValue(10);
+        assertNull(node.getNode("first").getSharedValue());
+        assertSame(shared, node.getNode("second").getSharedValue());
+
+        loader.save(node);
+        assertEquals("defaults: &id001\n"
+                + "    timeout: 30\n"
+                + "    hosts: &id002 [a, b]\n"
+                + "first:\n"
+                + "    timeout: 10\n"
+                + "    hosts: *id002\n"
+                + "second: *id001\n", written.toString());
+        assertEquals(node, loaderFor(written.toString()).load());
+        assertEquals(30, node.getNode("second", "timeout").getInt());
+    }
+
+    @Test
+    public void testSharedAliasesMatchCopies() throws IOException {
+        ConfigurationNode shared = YAMLConfigurationLoader.builder()
+                .setSource(() -> new BufferedReader(new StringReader(MERGED_DOCUMENT)))
+                .setShareAliases(true)
+                .build().load();
+        assertEquals(loaderFor(MERGED_DOCUMENT).load(), shared);
+    }
+
+    @Test
+    public void testDocumentStreamRoundTrip() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("documents.yml");
+        YAMLConfigurationLoader loader = YAMLConfigurationLoader.builder().setPath(file).build();
+        List<ConfigurationNode> written = new ArrayList<>();
+        try (YAMLDocumentWriter writer = loader.openDocumentWriter()) {
+            for (int i = 0; i < 3; i++) {
+                ConfigurationNode node = loader.createEmptyNode();
+                node.getNode("index").setValue(i);
+                node.getNode("values").setValue(ImmutableList.of("a" + i, "b" + i));
+                writer.write(node);
+                written.add(node);
+            }
+        }
+        assertEquals(written, readDocuments(loader));
+
+        // appending writes only the new document
+        ConfigurationNode appended = loader.createEmptyNode();
+        appended.getNode("index").setValue(3);
+        try (YAMLDocumentWriter writer = loader.openDocumentWriter(
+                Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND))) {
+            writer.write(appended);
+        }
+        written.add(appended);
+        assertEquals(written, readDocuments(loader));
+    }
+
+    @Test
+    public void testFilteredDocumentStream() throws IOException {
+        YAMLConfigurationLoader loader = YAMLConfigurationLoader.builder()
+                .setSource(() -> new BufferedReader(new StringReader("a: 1\nb: 2\n---\na: 3\nc: 4\n---\nb: 5\n")))
+                .build();
+        List<Object> values;
+        try (Stream<ConfigurationNode> documents = loader.loadDocuments(loader.getDefaultOptions(), PathFilter.of(new Object[] {"a"}))) {
+            values = documents.map(node -> node.getNode("a").getValue()).collect(Collectors.toList());
+        }
+        List<Object> expected = new ArrayList<>();
+        expected.add(1);
+        expected.add(3);
+        expected.add(null);
+        assertEquals(expected, values);
+    }
+
+    @Test
+    public void testMissingDocumentStream() throws IOException {
+        YAMLConfigurationLoader loader = YAMLConfigurationLoader.builder()
+                .setPath(folder.getRoot().toPath().resolve("missing.yml")).build();
+        assertEquals(0, readDocuments(loader).size());
+    }
+
+    private static List<ConfigurationNode> readDocuments(YAMLConfigurationLoader loader) throws IOException {
+        try (Stream<ConfigurationNode> documents = loader.loadDocuments()) {
+            return documents.collect(Collectors.toList());
+        }
+    }
 }